@@ -14,6 +14,21 @@ BEGIN
     );
 END;
 
+-- Create error_fingerprints table (distinct publish errors referenced by failed events)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'error_fingerprints')
+BEGIN
+    CREATE TABLE error_fingerprints (
+        id BIGINT IDENTITY NOT NULL PRIMARY KEY,
+        fingerprint VARCHAR(64) NOT NULL UNIQUE,
+        exception_class VARCHAR(255),
+        normalized_message VARCHAR(1000) NOT NULL,
+        sample_message VARCHAR(4000) NOT NULL,
+        first_seen_at DATETIME2(6) NOT NULL,
+        last_seen_at DATETIME2(6) NOT NULL,
+        occurrence_count BIGINT NOT NULL
+    );
+END;
+
 -- Create outbox_events table (main outbox table)
 IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_events')
 BEGIN
@@ -23,12 +38,18 @@ BEGIN
         aggregate_id VARCHAR(255) NOT NULL,
         event_type VARCHAR(255) NOT NULL,
         correlation_id VARCHAR(255),
-        payload TEXT NOT NULL,
+        payload_codec VARCHAR(32),
+        payload_format VARCHAR(32),
+        payload_schema_id VARCHAR(128),
+        rbp_uri NVARCHAR(1024),
+        rbp_size_bytes BIGINT,
+        rbp_stored_at DATETIME2(6),
         created_at DATETIME2(6) NOT NULL,
         sent_at DATETIME2(6),
         in_progress_until DATETIME2(6),
         permanent_failure_count INT,
-        last_error TEXT
+        last_error_fingerprint_id BIGINT,
+        write_group_id VARCHAR(36)
     );
 
     -- Create unique index on correlation_id where it's not null
@@ -37,6 +58,16 @@ BEGIN
     WHERE correlation_id IS NOT NULL;
 END;
 
+-- Create outbox_payloads table (payloads kept out of the rows scanned when claiming)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_payloads')
+BEGIN
+    CREATE TABLE outbox_payloads (
+        event_id BIGINT NOT NULL PRIMARY KEY,
+        payload_data VARBINARY(MAX) NOT NULL,
+        payload_size_bytes INT
+    );
+END;
+
 -- Create outbox_archive_events table (for successfully sent events)
 IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_archive_events')
 BEGIN
@@ -47,13 +78,24 @@ BEGIN
         aggregate_id VARCHAR(255) NOT NULL,
         event_type VARCHAR(255) NOT NULL,
         correlation_id VARCHAR(255),
-        payload TEXT NOT NULL,
+        payload_data VARBINARY(MAX),
+        payload TEXT,
+        payload_codec VARCHAR(32),
+        payload_format VARCHAR(32),
+        payload_schema_id VARCHAR(128),
+        rbp_uri NVARCHAR(1024),
+        rbp_size_bytes BIGINT,
+        rbp_stored_at DATETIME2(6),
         created_at DATETIME2(6) NOT NULL,
         sent_at DATETIME2(6) NOT NULL,
         archived_at DATETIME2(6) NOT NULL
     );
 END;
 
+-- Archive replays page through the archive in creation time order
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_outbox_archive_created')
+    CREATE INDEX idx_outbox_archive_created ON outbox_archive_events (created_at, id);
+
 -- Create outbox_dead_letter_events table (for permanently failed events)
 IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_dead_letter_events')
 BEGIN
@@ -63,9 +105,140 @@ BEGIN
         aggregate_type VARCHAR(255) NOT NULL,
         aggregate_id VARCHAR(255) NOT NULL,
         event_type VARCHAR(255) NOT NULL,
-        payload TEXT NOT NULL,
+        correlation_id VARCHAR(255),
+        payload_data VARBINARY(MAX),
+        payload TEXT,
+        payload_codec VARCHAR(32),
+        payload_format VARCHAR(32),
+        payload_schema_id VARCHAR(128),
+        rbp_uri NVARCHAR(1024),
+        rbp_size_bytes BIGINT,
+        rbp_stored_at DATETIME2(6),
         original_created_at DATETIME2(6) NOT NULL,
         failed_at DATETIME2(6) NOT NULL,
-        final_error TEXT NOT NULL
+        error_fingerprint_id BIGINT,
+        -- Error text of rows dead-lettered before error fingerprints existed
+        final_error TEXT
+    );
+END;
+
+-- Move databases created before error fingerprints to fingerprint references
+IF COL_LENGTH('outbox_events', 'last_error_fingerprint_id') IS NULL
+BEGIN
+    ALTER TABLE outbox_events ADD last_error_fingerprint_id BIGINT;
+END;
+
+IF COL_LENGTH('outbox_dead_letter_events', 'error_fingerprint_id') IS NULL
+BEGIN
+    ALTER TABLE outbox_dead_letter_events ADD error_fingerprint_id BIGINT;
+    ALTER TABLE outbox_dead_letter_events ALTER COLUMN final_error TEXT NULL;
+END;
+
+IF COL_LENGTH('outbox_dead_letter_events', 'correlation_id') IS NULL
+BEGIN
+    ALTER TABLE outbox_dead_letter_events ADD correlation_id VARCHAR(255);
+END;
+
+-- Add write groups to databases created before events were claimed by writing transaction
+IF COL_LENGTH('outbox_events', 'write_group_id') IS NULL
+BEGIN
+    ALTER TABLE outbox_events ADD write_group_id VARCHAR(36);
+END;
+
+-- The claim query gathers the events of a write group through this index. EXEC defers
+-- compilation until the column added above exists.
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_outbox_write_group')
+    EXEC('CREATE INDEX idx_outbox_write_group ON outbox_events (write_group_id)');
+
+-- Offloaded payloads are deleted only while no event refers to them, which is looked up through
+-- these indexes
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_outbox_rbp_uri')
+    CREATE INDEX idx_outbox_rbp_uri ON outbox_events (rbp_uri) WHERE rbp_uri IS NOT NULL;
+
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_outbox_dead_letter_rbp_uri')
+    CREATE INDEX idx_outbox_dead_letter_rbp_uri ON outbox_dead_letter_events (rbp_uri)
+    WHERE rbp_uri IS NOT NULL;
+
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_outbox_archive_rbp_uri')
+    CREATE INDEX idx_outbox_archive_rbp_uri ON outbox_archive_events (rbp_uri)
+    WHERE rbp_uri IS NOT NULL;
+
+-- Create payload_deletion_candidates table (offloaded payloads of removed archived events)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'payload_deletion_candidates')
+BEGIN
+    CREATE TABLE payload_deletion_candidates (
+        id BIGINT IDENTITY NOT NULL PRIMARY KEY,
+        uri NVARCHAR(1024) NOT NULL,
+        queued_at DATETIME2(6) NOT NULL
+    );
+END;
+
+-- Create dead_letter_replay_jobs table (progress of bulk dead-letter replays)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'dead_letter_replay_jobs')
+BEGIN
+    CREATE TABLE dead_letter_replay_jobs (
+        id BIGINT IDENTITY NOT NULL PRIMARY KEY,
+        event_type VARCHAR(255),
+        error_fingerprint_id BIGINT,
+        failed_from DATETIME2(6),
+        failed_to DATETIME2(6),
+        status VARCHAR(16) NOT NULL,
+        last_replayed_id BIGINT NOT NULL,
+        replayed_count BIGINT NOT NULL,
+        total_count BIGINT NOT NULL,
+        last_error VARCHAR(4000),
+        created_at DATETIME2(6) NOT NULL,
+        updated_at DATETIME2(6) NOT NULL
+    );
+END;
+
+-- Create archive_replay_jobs table (progress of archive replays to Kafka)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'archive_replay_jobs')
+BEGIN
+    CREATE TABLE archive_replay_jobs (
+        id BIGINT IDENTITY NOT NULL PRIMARY KEY,
+        event_type VARCHAR(255),
+        created_from DATETIME2(6) NOT NULL,
+        created_to DATETIME2(6) NOT NULL,
+        topic_suffix VARCHAR(64) NOT NULL,
+        source VARCHAR(16) NOT NULL DEFAULT 'TABLE',
+        status VARCHAR(16) NOT NULL,
+        last_created_at DATETIME2(6) NOT NULL,
+        last_archive_id BIGINT NOT NULL,
+        replayed_count BIGINT NOT NULL,
+        total_count BIGINT NOT NULL,
+        last_error VARCHAR(4000),
+        created_at DATETIME2(6) NOT NULL,
+        updated_at DATETIME2(6) NOT NULL
+    );
+END;
+
+-- Create archival_checkpoints table (progress of chunked archival runs)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'archival_checkpoints')
+BEGIN
+    CREATE TABLE archival_checkpoints (
+        name VARCHAR(64) NOT NULL PRIMARY KEY,
+        cutoff_time DATETIME2(6) NOT NULL,
+        last_archived_id BIGINT NOT NULL,
+        up_to_id BIGINT NOT NULL,
+        archived_count BIGINT NOT NULL,
+        started_at DATETIME2(6) NOT NULL,
+        completed_at DATETIME2(6),
+        updated_at DATETIME2(6) NOT NULL
+    );
+END;
+
+-- Create outbox_quarantine table (poison events parked between retries)
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_quarantine')
+BEGIN
+    CREATE TABLE outbox_quarantine (
+        event_id BIGINT NOT NULL PRIMARY KEY,
+        aggregate_type VARCHAR(255) NOT NULL,
+        aggregate_id VARCHAR(255) NOT NULL,
+        hold_until DATETIME2(6) NOT NULL,
+        holds_aggregate BIT NOT NULL,
+        quarantined_at DATETIME2(6) NOT NULL
     );
+    -- The claim query looks up the quarantine of each candidate's aggregate through this index
+    CREATE INDEX idx_outbox_quarantine_aggregate ON outbox_quarantine (aggregate_type, aggregate_id);
 END;
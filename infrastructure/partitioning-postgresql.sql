@@ -0,0 +1,45 @@
+-- Catbox Partitioned Layout (PostgreSQL)
+-- Creates outbox_archive_events partitioned by time, for outbox.partitioning.enabled.
+-- Run on a database without this table.
+-- PartitionMaintenanceService creates one partition per day or week ahead of time
+-- (named <table>_pYYYYMMDD) and detaches and drops expired ones. The DEFAULT
+-- partition only catches rows outside every partition.
+-- processed_messages keeps the regular layout from init.sql: deduplication relies on
+-- its unique (correlation_id, consumer_group) index, which a partitioned table cannot
+-- have without the partitioning column.
+
+CREATE TABLE IF NOT EXISTS outbox_archive_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    original_event_id BIGINT NOT NULL,
+    aggregate_type VARCHAR(255) NOT NULL,
+    aggregate_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    correlation_id VARCHAR(255),
+    payload_data BYTEA,
+    payload TEXT,
+    payload_codec VARCHAR(32),
+    payload_format VARCHAR(32),
+    payload_schema_id VARCHAR(128),
+    rbp_uri VARCHAR(1024),
+    rbp_size_bytes BIGINT,
+    rbp_stored_at TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    sent_at TIMESTAMP(6) NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL,
+    kafka_partition INT,
+    kafka_offset BIGINT,
+    kafka_timestamp TIMESTAMP(6),
+    -- The partitioning column has to be part of the primary key
+    PRIMARY KEY (id, sent_at)
+) PARTITION BY RANGE (sent_at);
+
+CREATE TABLE IF NOT EXISTS outbox_archive_events_default
+    PARTITION OF outbox_archive_events DEFAULT;
+
+-- Archive replays page through the archive in creation time order
+CREATE INDEX IF NOT EXISTS idx_outbox_archive_created
+    ON outbox_archive_events (created_at, id);
+
+-- Offloaded payloads are kept while an archived event refers to them
+CREATE INDEX IF NOT EXISTS idx_outbox_archive_rbp_uri
+    ON outbox_archive_events (rbp_uri) WHERE rbp_uri IS NOT NULL;
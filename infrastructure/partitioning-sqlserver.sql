@@ -0,0 +1,54 @@
+-- Catbox Partitioned Layout (SQL Server)
+-- Creates outbox_archive_events partitioned by time, for outbox.partitioning.enabled.
+-- Run before init.sql, on a database without this table.
+-- The partition function starts without boundaries; PartitionMaintenanceService adds one
+-- per day or week ahead of time and merges expired ones away.
+-- processed_messages keeps the regular layout from init.sql: deduplication relies on
+-- its unique (correlation_id, consumer_group) index, which an aligned index could only
+-- enforce together with the partitioning column.
+-- Every index is aligned with the partition scheme so partitions can be truncated.
+
+IF NOT EXISTS (SELECT * FROM sys.partition_functions WHERE name = 'pf_outbox_archive_events')
+    CREATE PARTITION FUNCTION pf_outbox_archive_events (DATETIME2(6)) AS RANGE RIGHT FOR VALUES ();
+
+IF NOT EXISTS (SELECT * FROM sys.partition_schemes WHERE name = 'ps_outbox_archive_events')
+    CREATE PARTITION SCHEME ps_outbox_archive_events
+        AS PARTITION pf_outbox_archive_events ALL TO ([PRIMARY]);
+
+IF NOT EXISTS (SELECT * FROM sys.tables WHERE name = 'outbox_archive_events')
+BEGIN
+    CREATE TABLE outbox_archive_events (
+        id BIGINT IDENTITY NOT NULL,
+        original_event_id BIGINT NOT NULL,
+        aggregate_type VARCHAR(255) NOT NULL,
+        aggregate_id VARCHAR(255) NOT NULL,
+        event_type VARCHAR(255) NOT NULL,
+        correlation_id VARCHAR(255),
+        payload_data VARBINARY(MAX),
+        payload TEXT,
+        payload_codec VARCHAR(32),
+        payload_format VARCHAR(32),
+        payload_schema_id VARCHAR(128),
+        rbp_uri NVARCHAR(1024),
+        rbp_size_bytes BIGINT,
+        rbp_stored_at DATETIME2(6),
+        created_at DATETIME2(6) NOT NULL,
+        sent_at DATETIME2(6) NOT NULL,
+        archived_at DATETIME2(6) NOT NULL,
+        kafka_partition INT,
+        kafka_offset BIGINT,
+        kafka_timestamp DATETIME2(6),
+        -- The partitioning column has to be part of the clustered key
+        CONSTRAINT pk_outbox_archive_events PRIMARY KEY CLUSTERED (id, sent_at)
+    ) ON ps_outbox_archive_events (sent_at);
+
+    -- Archive replays page through the archive in creation time order
+    CREATE INDEX idx_outbox_archive_created
+        ON outbox_archive_events (created_at, id)
+        ON ps_outbox_archive_events (sent_at);
+
+    -- Offloaded payloads are kept while an archived event refers to them
+    CREATE INDEX idx_outbox_archive_rbp_uri
+        ON outbox_archive_events (rbp_uri) WHERE rbp_uri IS NOT NULL
+        ON ps_outbox_archive_events (sent_at);
+END;
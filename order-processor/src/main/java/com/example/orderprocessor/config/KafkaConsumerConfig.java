@@ -54,6 +54,10 @@ public class KafkaConsumerConfig {
     // Start from earliest if no offset exists
     props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
+    // Only read committed records so batches published transactionally by RouteBox are seen
+    // atomically (no effect on records published without transactions)
+    props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
     // Max poll records to prevent overwhelming the consumer
     props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
 
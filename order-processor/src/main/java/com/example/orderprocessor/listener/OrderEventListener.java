@@ -4,7 +4,7 @@ import com.example.orderprocessor.model.OrderCreatedPayload;
 import com.example.orderprocessor.model.OrderStatusChangedPayload;
 import com.example.orderprocessor.service.OrderEventProcessingService;
 import com.example.routebox.client.OutboxFilter;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.routebox.client.serialization.ObjectCodecRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -24,6 +24,7 @@ import org.springframework.transaction.annotation.Transactional;
  *   <li>Manual acknowledgment for fine-grained control over message processing
  *   <li>Handling of processing failures with proper error logging
  *   <li>Processing of multiple event types from different topics
+ *   <li>Parsing with readers cached per payload type by ObjectCodecRegistry
  * </ul>
  */
 @Slf4j
@@ -35,7 +36,7 @@ public class OrderEventListener {
 
   private final OutboxFilter outboxFilter;
   private final OrderEventProcessingService processingService;
-  private final ObjectMapper objectMapper;
+  private final ObjectCodecRegistry codecs;
 
   /**
    * Listen to OrderCreated events from Kafka.
@@ -75,7 +76,7 @@ public class OrderEventListener {
     }
 
     // Parse the message
-    OrderCreatedPayload payload = objectMapper.readValue(message, OrderCreatedPayload.class);
+    OrderCreatedPayload payload = codecs.readerFor(OrderCreatedPayload.class).readValue(message);
 
     // Process the event
     processingService.processOrderCreated(payload, correlationId);
@@ -129,7 +130,7 @@ public class OrderEventListener {
 
     // Parse the message
     OrderStatusChangedPayload payload =
-        objectMapper.readValue(message, OrderStatusChangedPayload.class);
+        codecs.readerFor(OrderStatusChangedPayload.class).readValue(message);
 
     // Process the event
     processingService.processOrderStatusChanged(payload, correlationId);
@@ -0,0 +1,107 @@
+package com.example.orderprocessor.benchmark;
+
+import com.example.orderprocessor.model.OrderCreatedPayload;
+import com.example.orderprocessor.model.OrderStatusChangedPayload;
+import com.example.routebox.client.serialization.ObjectCodecRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the generic ObjectMapper path with the per-type cached writers and readers of
+ * ObjectCodecRegistry, with and without Blackbird, for the order event payloads.
+ *
+ * <p>Not run by the test suite. Run it from the order-processor module after {@code mvn
+ * test-compile}:
+ *
+ * <pre>
+ * mvn exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.orderprocessor.benchmark.PayloadCodecBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+  /** mapper: ObjectMapper per call; cached: cached writer/reader; blackbird: cached + Blackbird. */
+  @Param({"mapper", "cached", "blackbird"})
+  public String codec;
+
+  private boolean plainMapper;
+  private ObjectMapper mapper;
+  private ObjectCodecRegistry codecs;
+
+  private OrderCreatedPayload orderCreated;
+  private OrderStatusChangedPayload orderStatusChanged;
+  private byte[] orderCreatedJson;
+  private byte[] orderStatusChangedJson;
+
+  @Setup
+  public void setUp() throws IOException {
+    plainMapper = "mapper".equals(codec);
+    mapper = new ObjectMapper();
+    codecs =
+        "blackbird".equals(codec)
+            ? ObjectCodecRegistry.withBlackbird(mapper)
+            : new ObjectCodecRegistry(mapper);
+
+    orderCreated =
+        new OrderCreatedPayload(
+            4242L, "Customer 17", "Product 3", new BigDecimal("199.99"), "PENDING");
+    orderStatusChanged = new OrderStatusChangedPayload(4242L, "PENDING", "SHIPPED");
+    orderCreatedJson = mapper.writeValueAsBytes(orderCreated);
+    orderStatusChangedJson = mapper.writeValueAsBytes(orderStatusChanged);
+  }
+
+  @Benchmark
+  public byte[] writeOrderCreated() throws IOException {
+    return plainMapper
+        ? mapper.writeValueAsBytes(orderCreated)
+        : codecs.writeValueAsBytes(orderCreated);
+  }
+
+  @Benchmark
+  public byte[] writeOrderStatusChanged() throws IOException {
+    return plainMapper
+        ? mapper.writeValueAsBytes(orderStatusChanged)
+        : codecs.writeValueAsBytes(orderStatusChanged);
+  }
+
+  @Benchmark
+  public OrderCreatedPayload readOrderCreated() throws IOException {
+    return plainMapper
+        ? mapper.readValue(orderCreatedJson, OrderCreatedPayload.class)
+        : codecs.readValue(orderCreatedJson, OrderCreatedPayload.class);
+  }
+
+  @Benchmark
+  public OrderStatusChangedPayload readOrderStatusChanged() throws IOException {
+    return plainMapper
+        ? mapper.readValue(orderStatusChangedJson, OrderStatusChangedPayload.class)
+        : codecs.readValue(orderStatusChangedJson, OrderStatusChangedPayload.class);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PayloadCodecBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -8,6 +8,7 @@ import static org.mockito.Mockito.*;
 import com.example.orderprocessor.model.OrderCreatedPayload;
 import com.example.orderprocessor.service.OrderEventProcessingService;
 import com.example.routebox.client.OutboxFilter;
+import com.example.routebox.client.serialization.ObjectCodecRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import org.junit.jupiter.api.BeforeEach;
@@ -33,7 +34,8 @@ class OrderEventListenerTest {
   @BeforeEach
   void setUp() {
     objectMapper = new ObjectMapper();
-    listener = new OrderEventListener(outboxFilter, processingService, objectMapper);
+    listener = new OrderEventListener(
+            outboxFilter, processingService, new ObjectCodecRegistry(objectMapper));
   }
 
   @Test
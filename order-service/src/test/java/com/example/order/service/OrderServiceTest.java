@@ -10,7 +10,9 @@ import com.example.order.repository.OrderRepository;
 import com.example.routebox.client.RouteBoxClientAutoConfiguration;
 import com.example.routebox.common.entity.OutboxEvent;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +38,8 @@ class OrderServiceTest {
 
   @Autowired private OutboxEventRepository outboxEventRepository;
 
+  @Autowired private OutboxPayloadRepository outboxPayloadRepository;
+
   @Test
   void testCreateOrder_CreatesOrderAndOutboxEvent() {
     // Given
@@ -74,7 +78,7 @@ class OrderServiceTest {
     assertThat(event.getAggregateId()).isEqualTo(expectedAggregateId);
     assertThat(event.getEventType()).isEqualTo("OrderCreated");
     assertThat(event.getSentAt()).isNull();
-    assertThat(event.getPayload()).contains("John Doe");
+    assertThat(storedPayload(event)).contains("John Doe");
   }
 
   @Test
@@ -108,7 +112,7 @@ class OrderServiceTest {
                             + " not found"));
 
     assertThat(statusChangeEvent.getAggregateId()).isEqualTo(expectedAggregateId);
-    assertThat(statusChangeEvent.getPayload()).contains("COMPLETED");
+    assertThat(storedPayload(statusChangeEvent)).contains("COMPLETED");
   }
 
   @Test
@@ -150,4 +154,10 @@ class OrderServiceTest {
         .isInstanceOf(com.example.order.exception.OrderNotFoundException.class)
         .hasMessageContaining("Order not found: " + nonExistentId);
   }
+
+  /** Reads the payload back from the outbox_payloads table. */
+  private String storedPayload(OutboxEvent event) {
+    byte[] data = outboxPayloadRepository.findById(event.getId()).orElseThrow().getData();
+    return new String(data, StandardCharsets.UTF_8);
+  }
 }
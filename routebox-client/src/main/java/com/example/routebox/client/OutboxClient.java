@@ -1,29 +1,61 @@
 package com.example.routebox.client;
 
+import com.example.routebox.client.compression.PayloadCodec;
+import com.example.routebox.client.compression.PayloadCodecRegistry;
 import com.example.routebox.client.metrics.RouteBoxClientMetricsService;
+import com.example.routebox.client.serialization.PayloadSerializerRegistry;
+import com.example.routebox.client.serialization.PayloadSerializerRegistry.SerializedPayload;
+import com.example.routebox.common.config.RbpConfig;
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.entity.RbpSpec;
+import com.example.routebox.common.payload.PayloadStore;
 import com.example.routebox.common.repository.OutboxEventRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.common.util.OutboxHeaders;
+import com.example.routebox.common.util.TimeBasedUuidGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Transactional(propagation = Propagation.MANDATORY)
 public class OutboxClient {
 
+  /** Transaction-scoped resource key holding the write group id of the current transaction. */
+  private static final Object WRITE_GROUP_KEY = new Object();
+
   private final OutboxEventRepository outboxEventRepository;
+  private final OutboxPayloadRepository outboxPayloadRepository;
   private final ObjectMapper objectMapper;
+  private final PayloadSerializerRegistry serializerRegistry;
+  private final PayloadCodecRegistry codecRegistry;
+  private final RbpConfig rbpConfig;
+  private final PayloadStore payloadStore;
   private final RouteBoxClientMetricsService metricsService;
 
   public OutboxClient(
       final OutboxEventRepository outboxEventRepository,
+      final OutboxPayloadRepository outboxPayloadRepository,
       final ObjectMapper objectMapper,
+      final PayloadSerializerRegistry serializerRegistry,
+      final PayloadCodecRegistry codecRegistry,
+      final RbpConfig rbpConfig,
+      @Autowired(required = false) final PayloadStore payloadStore,
       @Autowired(required = false) final RouteBoxClientMetricsService metricsService) {
     this.outboxEventRepository = outboxEventRepository;
+    this.outboxPayloadRepository = outboxPayloadRepository;
     this.objectMapper = objectMapper;
+    this.serializerRegistry = serializerRegistry;
+    this.codecRegistry = codecRegistry;
+    this.rbpConfig = rbpConfig;
+    this.payloadStore = payloadStore;
     this.metricsService = metricsService;
   }
 
@@ -52,7 +84,7 @@ public class OutboxClient {
    * @param aggregateId The ID of the entity (e.g., "123")
    * @param eventType The event name (e.g., "OrderCreated")
    * @param correlationId A unique ID for tracing
-   * @param payload The POJO/Record/Map to be serialized to JSON
+   * @param payload The POJO/Record/Map to be serialized (JSON unless configured otherwise)
    */
   public void write(
       final String aggregateType,
@@ -61,18 +93,28 @@ public class OutboxClient {
       final String correlationId,
       final Object payload) {
     try {
-      // 1. Serialize the domain-agnostic object
-      String jsonPayload = objectMapper.writeValueAsString(payload);
+      // 1. Serialize the domain-agnostic object in the format configured for this event type
+      SerializedPayload serialized = serializerRegistry.serialize(eventType, payload);
 
-      // 2. Create and save the event
+      // 2. Create the event, compressing the payload if configured for this event type
       OutboxEvent event =
           new OutboxEvent(
-              aggregateType, aggregateId, eventType, correlationId, jsonPayload);
+              aggregateType, aggregateId, eventType, correlationId, serialized.data());
+      event.setPayloadFormat(serialized.format());
+      event.setPayloadSchemaId(serialized.schemaId());
+      compressPayload(event, serialized.data());
+      event.setWriteGroupId(currentWriteGroupId());
+
+      // 3. Offload the payload if it is too big for the outbox table and Kafka
+      offloadPayload(event);
+
+      // 4. Save the event, then its payload keyed by the generated event id
       outboxEventRepository.save(event);
+      outboxPayloadRepository.save(new OutboxPayload(event.getId(), event.getPayload()));
 
-      // 3. Record successful write
+      // 5. Record successful write
       recordOutboxWriteSuccess();
-    } catch (JsonProcessingException e) {
+    } catch (IOException e) {
       // Record failure
       recordOutboxWriteFailure();
       // Fatal serialization error - propagate as unchecked exception
@@ -81,6 +123,91 @@ public class OutboxClient {
     }
   }
 
+  /**
+   * Replaces the event's payload with its compressed form when the event type has a codec and the
+   * payload is large enough. The compressed bytes are stored and sent to Kafka as they are; the
+   * codec name travels along so consumers can decode them.
+   */
+  private void compressPayload(final OutboxEvent event, final byte[] payload) {
+    PayloadCodec codec = codecRegistry.getCodecForEventType(event.getEventType());
+    if (codec == null || payload.length < codecRegistry.getMinSizeBytes()) {
+      return;
+    }
+    byte[] compressed = codec.encode(payload);
+    if (compressed.length < payload.length) {
+      event.setPayload(compressed);
+      event.setPayloadCodec(codec.name());
+    }
+  }
+
+  /**
+   * Moves a payload above the RBP threshold into the payload store and replaces it with a small
+   * reference document. The payload is stored before the outbox row is committed, so a rolled-back
+   * transaction leaves an orphaned payload behind but never a row without its payload. Any codec
+   * set by {@link #compressPayload} applies to the stored bytes.
+   */
+  private void offloadPayload(final OutboxEvent event) throws IOException {
+    byte[] payload = event.getPayload();
+    if (payloadStore == null
+        || !rbpConfig.isEnabled()
+        || payload.length <= rbpConfig.getThresholdBytes()) {
+      return;
+    }
+    String uri = payloadStore.store(payload);
+    event.setRbp(new RbpSpec(uri, (long) payload.length, LocalDateTime.now()));
+    event.setPayload(
+        objectMapper.writeValueAsBytes(
+            objectMapper
+                .createObjectNode()
+                .put(OutboxHeaders.RBP_REF, uri)
+                .put("sizeBytes", payload.length)));
+  }
+
+  /**
+   * Returns the write group id bound to the current transaction, creating one on first use. All
+   * events written in the same database transaction share this id, which lets the server publish
+   * them inside the same Kafka transaction.
+   */
+  private String currentWriteGroupId() {
+    String existing = (String) TransactionSynchronizationManager.getResource(WRITE_GROUP_KEY);
+    if (existing != null) {
+      return existing;
+    }
+    String writeGroupId = TimeBasedUuidGenerator.generate().toString();
+    TransactionSynchronizationManager.bindResource(WRITE_GROUP_KEY, writeGroupId);
+    TransactionSynchronizationManager.registerSynchronization(
+        new WriteGroupSynchronization(writeGroupId));
+    return writeGroupId;
+  }
+
+  /**
+   * Keeps the write group id bound only while its transaction is active: unbound on suspension
+   * (e.g. a nested REQUIRES_NEW), rebound on resume, and released on completion.
+   */
+  private static final class WriteGroupSynchronization implements TransactionSynchronization {
+
+    private final String writeGroupId;
+
+    private WriteGroupSynchronization(final String writeGroupId) {
+      this.writeGroupId = writeGroupId;
+    }
+
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_GROUP_KEY);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(WRITE_GROUP_KEY, writeGroupId);
+    }
+
+    @Override
+    public void afterCompletion(final int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_GROUP_KEY);
+    }
+  }
+
   private void recordOutboxWriteSuccess() {
     if (metricsService != null) {
       metricsService.recordOutboxWriteSuccess();
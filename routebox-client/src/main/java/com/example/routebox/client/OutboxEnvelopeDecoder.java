@@ -0,0 +1,84 @@
+package com.example.routebox.client;
+
+import com.example.routebox.common.util.OutboxEnvelope;
+import com.example.routebox.common.util.OutboxHeaders;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Unpacks envelope records, which the RouteBox server sends for routing rules with envelopes
+ * enabled: several small events with the same key packed into one record carrying the {@link
+ * OutboxHeaders#ENVELOPE} header. Each inner event has its own headers and is deduplicated on its
+ * own correlation id.
+ *
+ * <pre>{@code
+ * @KafkaListener(topics = "StockLevelChanged", groupId = "inventory")
+ * @Transactional
+ * public void handle(
+ *     byte[] value,
+ *     @Header(name = OutboxHeaders.ENVELOPE, required = false) String envelope,
+ *     @Header(name = OutboxHeaders.CORRELATION_ID, required = false) String correlationId) {
+ *   if (envelope != null) {
+ *     envelopeDecoder.forEachNew(value, "inventory", entry -> process(entry.payload()));
+ *   } else if (!outboxFilter.deduped(correlationId, "inventory")) {
+ *     process(value);
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Envelope values are binary, so listeners of enveloped event types must consume them with a
+ * ByteArrayDeserializer.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxEnvelopeDecoder {
+
+  private final OutboxFilter outboxFilter;
+
+  /**
+   * Unpacks an envelope without deduplication.
+   *
+   * @param value the record value of an envelope record
+   * @return the inner events, in the order they were written to the outbox
+   * @throws IllegalArgumentException if the value is not a valid envelope
+   */
+  public List<OutboxEnvelope.Entry> unpack(final byte[] value) {
+    return OutboxEnvelope.decode(value);
+  }
+
+  /**
+   * Unpacks an envelope and hands each inner event the consumer group has not processed yet to the
+   * handler, in order, marking it processed once the handler returns. Events without a correlation
+   * id are always handed over.
+   *
+   * <p>If the handler throws, the exception propagates and the remaining events are not handled.
+   * Call this inside the listener's transaction so that the events already marked are rolled back
+   * with it and the whole envelope is redelivered.
+   *
+   * @param value the record value of an envelope record
+   * @param consumerGroup the Kafka consumer group name
+   * @param handler processes one inner event
+   * @return the number of events handed to the handler
+   * @throws IllegalArgumentException if the value is not a valid envelope
+   */
+  public int forEachNew(
+      final byte[] value,
+      final String consumerGroup,
+      final Consumer<OutboxEnvelope.Entry> handler) {
+    int handled = 0;
+    for (OutboxEnvelope.Entry entry : unpack(value)) {
+      String correlationId = entry.correlationId();
+      if (correlationId != null && outboxFilter.isProcessed(correlationId, consumerGroup)) {
+        continue;
+      }
+      handler.accept(entry);
+      if (correlationId != null) {
+        outboxFilter.markProcessed(correlationId, consumerGroup);
+      }
+      handled++;
+    }
+    return handled;
+  }
+}
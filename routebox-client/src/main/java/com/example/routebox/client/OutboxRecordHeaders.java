@@ -0,0 +1,143 @@
+package com.example.routebox.client;
+
+import com.example.routebox.common.util.OutboxEnvelope;
+import com.example.routebox.common.util.OutboxHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Typed, read-only view of the headers the RouteBox server sends with every record. Lets a
+ * listener filter, route and deduplicate on the event type, aggregate and creation time without
+ * deserializing the payload, so dropped records never pay for parsing. Each header is decoded
+ * only when its accessor is called.
+ *
+ * <pre>{@code
+ * @KafkaListener(topics = "OrderCreated", groupId = "billing")
+ * public void handle(ConsumerRecord<String, byte[]> record) {
+ *   OutboxRecordHeaders headers =
+ *       OutboxRecordHeaders.from(
+ *           name -> {
+ *             Header header = record.headers().lastHeader(name);
+ *             return header == null ? null : header.value();
+ *           });
+ *   if (!"Order".equals(headers.aggregateType())
+ *       || outboxFilter.deduped(headers.correlationId(), "billing")) {
+ *     return; // Dropped before the payload is parsed
+ *   }
+ *   process(record.value());
+ * }
+ * }</pre>
+ */
+public final class OutboxRecordHeaders {
+
+  private final Function<String, byte[]> lookup;
+
+  private OutboxRecordHeaders(Function<String, byte[]> lookup) {
+    this.lookup = lookup;
+  }
+
+  /**
+   * Creates a view over a header lookup, such as the last header of a Kafka record by name.
+   *
+   * @param lookup returns the raw value of a header by name, or null if the record lacks it
+   * @return the header view
+   */
+  public static OutboxRecordHeaders from(Function<String, byte[]> lookup) {
+    return new OutboxRecordHeaders(lookup);
+  }
+
+  /**
+   * Creates a view over headers held in a map, such as those of an event unpacked from an
+   * envelope record.
+   *
+   * @param headers header values keyed by header name
+   * @return the header view
+   */
+  public static OutboxRecordHeaders from(Map<String, byte[]> headers) {
+    return new OutboxRecordHeaders(headers::get);
+  }
+
+  /**
+   * Creates a view over the headers of an event unpacked from an envelope record. Inner events
+   * carry their content headers and their own creation time; read the event type and aggregate
+   * from the envelope record itself.
+   *
+   * @param entry an unpacked event
+   * @return the header view
+   */
+  public static OutboxRecordHeaders from(OutboxEnvelope.Entry entry) {
+    return from(entry.headers());
+  }
+
+  /** Returns the event type, or null if absent. */
+  public String eventType() {
+    return text(OutboxHeaders.EVENT_TYPE);
+  }
+
+  /** Returns the aggregate type, or null if absent. */
+  public String aggregateType() {
+    return text(OutboxHeaders.AGGREGATE_TYPE);
+  }
+
+  /** Returns the aggregate id, or null if absent. */
+  public String aggregateId() {
+    return text(OutboxHeaders.AGGREGATE_ID);
+  }
+
+  /**
+   * Returns the time the event was written to the outbox, in microseconds since the epoch.
+   *
+   * @return the creation time, or null if absent
+   * @throws IllegalArgumentException if the header value is malformed
+   */
+  public Long createdAtMicros() {
+    byte[] value = lookup.apply(OutboxHeaders.CREATED_AT_MICROS);
+    return value == null ? null : OutboxHeaders.decodeMicros(value);
+  }
+
+  /**
+   * Returns the time the event was written to the outbox.
+   *
+   * @return the creation time, or null if absent
+   * @throws IllegalArgumentException if the header value is malformed
+   */
+  public Instant createdAt() {
+    Long micros = createdAtMicros();
+    return micros == null
+        ? null
+        : Instant.ofEpochSecond(
+            Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+  }
+
+  /** Returns the correlation id, or null if absent. */
+  public String correlationId() {
+    return text(OutboxHeaders.CORRELATION_ID);
+  }
+
+  /** Returns the codec the payload was compressed with, or null if it is not compressed. */
+  public String payloadCodec() {
+    return text(OutboxHeaders.PAYLOAD_CODEC);
+  }
+
+  /** Returns the format the payload was serialized in, or null for JSON. */
+  public String payloadFormat() {
+    return text(OutboxHeaders.PAYLOAD_FORMAT);
+  }
+
+  /** Returns the id of the schema the payload was written with, or null if absent. */
+  public String payloadSchemaId() {
+    return text(OutboxHeaders.PAYLOAD_SCHEMA_ID);
+  }
+
+  /** Returns whether the record is an envelope packing several events. */
+  public boolean isEnvelope() {
+    return lookup.apply(OutboxHeaders.ENVELOPE) != null;
+  }
+
+  private String text(String name) {
+    byte[] value = lookup.apply(name);
+    return value == null ? null : new String(value, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.routebox.client;
+
+import com.example.routebox.client.compression.PayloadDecoder;
+import com.example.routebox.common.payload.PayloadStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumer-side access to payloads offloaded by OutboxClient (see docs/rbp-specification.md).
+ * Records with an offloaded payload carry the rbpRef header; their value is only a small reference
+ * document.
+ *
+ * <pre>{@code
+ * @KafkaListener(topics = "DocumentUploaded")
+ * public void handle(
+ *     byte[] value,
+ *     @Header(name = OutboxHeaders.RBP_REF, required = false) String rbpRef,
+ *     @Header(name = OutboxHeaders.PAYLOAD_CODEC, required = false) String codec) {
+ *   DocumentUploaded event = rbpClient.resolve(value, rbpRef, codec, DocumentUploaded.class);
+ * }
+ * }</pre>
+ *
+ * <p>Requires outbox.rbp to point at the same store the producers write to.
+ */
+@Component
+@RequiredArgsConstructor
+public class RbpClient {
+
+  private final ObjectProvider<PayloadStore> payloadStore;
+  private final PayloadDecoder payloadDecoder;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Fetches an offloaded payload as stored, i.e. still compressed if a codec was applied.
+   *
+   * @param rbpRef the rbpRef header value
+   * @return the stored payload bytes
+   * @throws IllegalStateException if no payload store is configured
+   * @throws com.example.routebox.common.payload.PayloadNotFoundException if the payload is gone
+   */
+  public byte[] fetch(final String rbpRef) {
+    PayloadStore store = payloadStore.getIfAvailable();
+    if (store == null) {
+      throw new IllegalStateException(
+          "Received offloaded payload " + rbpRef + " but outbox.rbp is not enabled");
+    }
+    return store.retrieve(rbpRef);
+  }
+
+  /**
+   * Returns the original serialized payload of a record, fetching it from the payload store if it
+   * was offloaded and decoding it if it was compressed.
+   *
+   * @param value the record value as received from Kafka
+   * @param rbpRef the rbpRef header value, or null if absent
+   * @param codec the payloadCodec header value, or null if absent
+   * @return the original serialized payload
+   */
+  public byte[] resolve(final byte[] value, final String rbpRef, final String codec) {
+    byte[] stored = rbpRef == null || rbpRef.isEmpty() ? value : fetch(rbpRef);
+    return payloadDecoder.decode(stored, codec);
+  }
+
+  /**
+   * Resolves a record's payload like {@link #resolve(byte[], String, String)} and deserializes it
+   * from JSON.
+   *
+   * @param value the record value as received from Kafka
+   * @param rbpRef the rbpRef header value, or null if absent
+   * @param codec the payloadCodec header value, or null if absent
+   * @param type the payload type
+   * @return the deserialized payload
+   */
+  public <T> T resolve(
+      final byte[] value, final String rbpRef, final String codec, final Class<T> type) {
+    try {
+      return objectMapper.readValue(resolve(value, rbpRef, codec), type);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to deserialize payload as " + type.getName(), e);
+    }
+  }
+}
@@ -1,16 +1,19 @@
 package com.example.routebox.client;
 
 import com.example.routebox.client.metrics.RouteBoxClientMetricsService;
+import com.example.routebox.common.config.RbpConfig;
 import com.example.routebox.common.repository.ProcessedMessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 
 /** Auto-configuration for RouteBox client components. */
 @Configuration
 @ComponentScan
+@Import(RbpConfig.class)
 public class RouteBoxClientAutoConfiguration {
 
   /**
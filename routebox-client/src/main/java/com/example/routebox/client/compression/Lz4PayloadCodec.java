@@ -0,0 +1,38 @@
+package com.example.routebox.client.compression;
+
+import net.jpountz.lz4.LZ4CompressorWithLength;
+import net.jpountz.lz4.LZ4DecompressorWithLength;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * LZ4 block compression. Very cheap to encode and decode, with a moderate ratio on JSON. The
+ * original length is stored in front of the block so decoding needs no extra metadata.
+ */
+public class Lz4PayloadCodec implements PayloadCodec {
+
+  public static final String NAME = "lz4";
+
+  private final LZ4CompressorWithLength compressor;
+  private final LZ4DecompressorWithLength decompressor;
+
+  public Lz4PayloadCodec() {
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = new LZ4CompressorWithLength(factory.fastCompressor());
+    this.decompressor = new LZ4DecompressorWithLength(factory.fastDecompressor());
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte[] encode(final byte[] payload) {
+    return compressor.compress(payload);
+  }
+
+  @Override
+  public byte[] decode(final byte[] encoded) {
+    return decompressor.decompress(encoded);
+  }
+}
@@ -0,0 +1,34 @@
+package com.example.routebox.client.compression;
+
+/**
+ * Compresses outbox payloads on write and decompresses them on the consumer side. The codec name
+ * travels with the event (payloadCodec column and Kafka header), so both sides must register a
+ * codec under the same name.
+ *
+ * <p>Implementations must be thread-safe.
+ */
+public interface PayloadCodec {
+
+  /**
+   * Returns the name stored with compressed events, e.g. "lz4".
+   *
+   * @return the codec name
+   */
+  String name();
+
+  /**
+   * Compresses a serialized payload.
+   *
+   * @param payload the uncompressed payload bytes
+   * @return the compressed bytes
+   */
+  byte[] encode(byte[] payload);
+
+  /**
+   * Restores a payload compressed by {@link #encode(byte[])}.
+   *
+   * @param encoded the compressed bytes
+   * @return the original payload bytes
+   */
+  byte[] decode(byte[] encoded);
+}
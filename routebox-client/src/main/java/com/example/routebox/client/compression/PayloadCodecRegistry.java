@@ -0,0 +1,87 @@
+package com.example.routebox.client.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the available payload codecs and the codec chosen for each event type. Used by OutboxClient
+ * when writing and by {@link PayloadDecoder} when consuming.
+ */
+@Slf4j
+@Component
+public class PayloadCodecRegistry {
+
+  private final Map<String, PayloadCodec> codecsByName;
+  private final Map<String, PayloadCodec> codecsByEventType;
+  private final int minSizeBytes;
+
+  public PayloadCodecRegistry(final PayloadCompressionConfig config) {
+    this.codecsByName =
+        Stream.of(
+                new Lz4PayloadCodec(),
+                new ZstdPayloadCodec(
+                    config.getZstd().getLevel(), readDictionary(config.getZstd().getDictionary())))
+            .collect(Collectors.toUnmodifiableMap(PayloadCodec::name, Function.identity()));
+
+    // Resolve configured codec names up front so a typo fails at startup, not on first write
+    this.codecsByEventType =
+        config.getEventTypes().entrySet().stream()
+            .collect(
+                Collectors.toUnmodifiableMap(
+                    Map.Entry::getKey, entry -> getCodec(entry.getValue())));
+    this.minSizeBytes = config.getMinSizeBytes();
+
+    codecsByEventType.forEach(
+        (eventType, codec) ->
+            log.info("Compressing payloads of event type '{}' with {}", eventType, codec.name()));
+  }
+
+  /**
+   * Returns the codec configured for an event type.
+   *
+   * @param eventType the event type
+   * @return the codec, or null if the event type is stored uncompressed
+   */
+  public PayloadCodec getCodecForEventType(final String eventType) {
+    return codecsByEventType.get(eventType);
+  }
+
+  /**
+   * Returns the codec registered under a name.
+   *
+   * @param name the codec name from the payloadCodec column or Kafka header
+   * @return the codec
+   * @throws IllegalArgumentException if no codec has that name
+   */
+  public PayloadCodec getCodec(final String name) {
+    PayloadCodec codec = codecsByName.get(name);
+    if (codec == null) {
+      throw new IllegalArgumentException("Unknown payload codec: " + name);
+    }
+    return codec;
+  }
+
+  /** Returns the size below which payloads are stored uncompressed. */
+  public int getMinSizeBytes() {
+    return minSizeBytes;
+  }
+
+  private static byte[] readDictionary(final Resource dictionary) {
+    if (dictionary == null) {
+      return null;
+    }
+    try (InputStream in = dictionary.getInputStream()) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read zstd dictionary: " + dictionary, e);
+    }
+  }
+}
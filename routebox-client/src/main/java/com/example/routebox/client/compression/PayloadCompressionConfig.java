@@ -0,0 +1,52 @@
+package com.example.routebox.client.compression;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+/**
+ * Per-event-type payload compression applied by OutboxClient. Event types without an entry are
+ * stored uncompressed, so compression is off unless configured.
+ *
+ * <pre>
+ * outbox:
+ *   client:
+ *     compression:
+ *       event-types:
+ *         OrderCreated: zstd
+ *         InventoryAdjusted: lz4
+ *       zstd:
+ *         dictionary: classpath:compression/orders.dict
+ * </pre>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.client.compression")
+@Getter
+@Setter
+public class PayloadCompressionConfig {
+
+  /** Codec name ("lz4" or "zstd") keyed by event type. */
+  private Map<String, String> eventTypes = new HashMap<>();
+
+  /** Payloads smaller than this are stored uncompressed; the codec overhead is not worth it. */
+  private int minSizeBytes = 128;
+
+  /** Settings of the zstd codec. */
+  private Zstd zstd = new Zstd();
+
+  /** Settings of the zstd codec. */
+  @Getter
+  @Setter
+  public static class Zstd {
+
+    /** Compression level, 1 (fastest) to 22 (smallest). */
+    private int level = 3;
+
+    /** Dictionary trained on sample payloads. Must be the same on producers and consumers. */
+    private Resource dictionary;
+  }
+}
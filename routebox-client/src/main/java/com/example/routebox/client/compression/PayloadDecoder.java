@@ -0,0 +1,55 @@
+package com.example.routebox.client.compression;
+
+import java.nio.charset.StandardCharsets;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumer-side counterpart of the payload compression done by OutboxClient. Pass it the raw
+ * record value together with the payloadCodec header; records without the header are returned
+ * unchanged.
+ *
+ * <pre>{@code
+ * @KafkaListener(topics = "OrderCreated")
+ * public void handle(
+ *     byte[] value, @Header(name = OutboxHeaders.PAYLOAD_CODEC, required = false) String codec) {
+ *   OrderCreated event = objectMapper.readValue(payloadDecoder.decode(value, codec), ...);
+ * }
+ * }</pre>
+ *
+ * <p>Compressed values are binary, so listeners of compressed event types must consume them with a
+ * ByteArrayDeserializer rather than a StringDeserializer.
+ */
+@Component
+@RequiredArgsConstructor
+public class PayloadDecoder {
+
+  private final PayloadCodecRegistry codecRegistry;
+
+  /**
+   * Decodes a record value.
+   *
+   * @param value the record value as received from Kafka
+   * @param codec the payloadCodec header value, or null if absent
+   * @return the original serialized payload
+   * @throws IllegalArgumentException if the codec is unknown
+   */
+  public byte[] decode(final byte[] value, final String codec) {
+    if (value == null || codec == null || codec.isEmpty()) {
+      return value;
+    }
+    return codecRegistry.getCodec(codec).decode(value);
+  }
+
+  /**
+   * Decodes a record value and returns it as UTF-8 text, e.g. for JSON payloads.
+   *
+   * @param value the record value as received from Kafka
+   * @param codec the payloadCodec header value, or null if absent
+   * @return the original payload as text
+   */
+  public String decodeToString(final byte[] value, final String codec) {
+    byte[] decoded = decode(value, codec);
+    return decoded == null ? null : new String(decoded, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.routebox.client.serialization;
+
+import com.fasterxml.jackson.dataformat.avro.AvroMapper;
+import com.fasterxml.jackson.dataformat.avro.AvroSchema;
+import java.io.IOException;
+
+/** Avro binary encoding of payloads, using .avsc schemas from the {@link FileSchemaRegistry}. */
+public class AvroPayloadSerializer implements PayloadSerializer {
+
+  public static final String FORMAT = "avro";
+
+  private final AvroMapper mapper = AvroMapper.builder().findAndAddModules().build();
+  private final FileSchemaRegistry schemaRegistry;
+
+  public AvroPayloadSerializer(final FileSchemaRegistry schemaRegistry) {
+    this.schemaRegistry = schemaRegistry;
+  }
+
+  @Override
+  public String format() {
+    return FORMAT;
+  }
+
+  @Override
+  public boolean requiresSchema() {
+    return true;
+  }
+
+  @Override
+  public void loadSchema(final String schemaId) {
+    schemaRegistry.getAvroSchema(schemaId);
+  }
+
+  @Override
+  public byte[] serialize(final Object payload, final String schemaId) throws IOException {
+    AvroSchema schema = schemaRegistry.getAvroSchema(schemaId);
+    return mapper.writer(schema).writeValueAsBytes(payload);
+  }
+
+  @Override
+  public <T> T deserialize(final byte[] data, final String schemaId, final Class<T> type)
+      throws IOException {
+    AvroSchema schema = schemaRegistry.getAvroSchema(schemaId);
+    return mapper.readerFor(type).with(schema).readValue(data);
+  }
+}
@@ -0,0 +1,88 @@
+package com.example.routebox.client.serialization;
+
+import com.fasterxml.jackson.dataformat.avro.AvroSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.apache.avro.Schema;
+import org.springframework.core.io.Resource;
+
+/**
+ * Local stand-in for a schema registry. Schemas are files named after their id in one location,
+ * e.g. {@code classpath:schemas/order-created-v1.avsc} or {@code .../order-created-v1.proto}.
+ * Each schema is parsed once and then served from memory.
+ *
+ * <p>Schemas are immutable once published: a changed schema needs a new id, since consumers cache
+ * by id too.
+ */
+public class FileSchemaRegistry {
+
+  private static final Pattern SCHEMA_ID = Pattern.compile("[A-Za-z0-9._-]+");
+
+  private final Resource location;
+  private final Map<String, AvroSchema> avroSchemas = new ConcurrentHashMap<>();
+  private final Map<String, ProtobufSchema> protobufSchemas = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a registry.
+   *
+   * @param location the directory holding the schema files; must end with a slash
+   */
+  public FileSchemaRegistry(final Resource location) {
+    this.location = location;
+  }
+
+  /**
+   * Returns an Avro schema.
+   *
+   * @param schemaId the schema id, i.e. the file name without .avsc
+   * @return the parsed schema
+   * @throws IllegalArgumentException if the id is missing or malformed
+   * @throws UncheckedIOException if the schema cannot be read
+   */
+  public AvroSchema getAvroSchema(final String schemaId) {
+    return avroSchemas.computeIfAbsent(
+        validate(schemaId), id -> new AvroSchema(new Schema.Parser().parse(read(id + ".avsc"))));
+  }
+
+  /**
+   * Returns a Protobuf schema. The first message declared in the file is the root type.
+   *
+   * @param schemaId the schema id, i.e. the file name without .proto
+   * @return the parsed schema
+   * @throws IllegalArgumentException if the id is missing or malformed
+   * @throws UncheckedIOException if the schema cannot be read
+   */
+  public ProtobufSchema getProtobufSchema(final String schemaId) {
+    return protobufSchemas.computeIfAbsent(
+        validate(schemaId),
+        id -> {
+          try {
+            return ProtobufSchemaLoader.std.parse(read(id + ".proto"));
+          } catch (IOException e) {
+            throw new UncheckedIOException("Invalid protobuf schema: " + id, e);
+          }
+        });
+  }
+
+  private static String validate(final String schemaId) {
+    if (schemaId == null || !SCHEMA_ID.matcher(schemaId).matches()) {
+      throw new IllegalArgumentException("Invalid schema id: " + schemaId);
+    }
+    return schemaId;
+  }
+
+  private String read(final String fileName) {
+    try (InputStream in = location.createRelative(fileName).getInputStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read schema " + fileName + " from " + location, e);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.example.routebox.client.serialization;
+
+import java.io.IOException;
+
+/**
+ * Schema-less serializer backed by a Jackson mapper: JSON, Smile or CBOR. The binary formats are
+ * copies of the application's ObjectMapper, so registered modules and settings apply to all three.
+ * Writers and readers are cached per payload type by an {@link ObjectCodecRegistry}.
+ */
+public class JacksonPayloadSerializer implements PayloadSerializer {
+
+  public static final String JSON = "json";
+  public static final String SMILE = "smile";
+  public static final String CBOR = "cbor";
+
+  private final String format;
+  private final ObjectCodecRegistry codecs;
+
+  public JacksonPayloadSerializer(final String format, final ObjectCodecRegistry codecs) {
+    this.format = format;
+    this.codecs = codecs;
+  }
+
+  @Override
+  public String format() {
+    return format;
+  }
+
+  @Override
+  public byte[] serialize(final Object payload, final String schemaId) throws IOException {
+    return codecs.writeValueAsBytes(payload);
+  }
+
+  @Override
+  public <T> T deserialize(final byte[] data, final String schemaId, final Class<T> type)
+      throws IOException {
+    return codecs.readValue(data, type);
+  }
+}
@@ -0,0 +1,103 @@
+package com.example.routebox.client.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches an ObjectWriter and ObjectReader per payload type. Going through
+ * ObjectMapper.writeValueAsBytes or readValue repeats the serializer lookup and root type
+ * resolution on every call; a cached writer or reader has both already resolved, so only the first
+ * message of each type pays for them.
+ *
+ * <pre>{@code
+ * OrderCreated event = codecs.readerFor(OrderCreated.class).readValue(message);
+ * }</pre>
+ *
+ * <p>Writers and readers are immutable and thread-safe, so one cache serves all producer and
+ * listener threads. Types are keyed by their runtime class; the cache is bounded by the number of
+ * payload classes in the application.
+ */
+public class ObjectCodecRegistry {
+
+  private final ObjectMapper mapper;
+  private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+  private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a cache over the given mapper. The mapper must not be reconfigured afterwards, since
+   * cached writers and readers keep the configuration they were created with.
+   *
+   * @param mapper the mapper the writers and readers are derived from
+   */
+  public ObjectCodecRegistry(final ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * Creates a cache over a copy of the given mapper with the Blackbird module registered.
+   * Blackbird replaces reflective getter, setter and constructor calls with generated lambdas,
+   * which mostly helps payloads with many fields.
+   *
+   * @param mapper the application's mapper; it is copied, not modified
+   * @return the cache
+   */
+  public static ObjectCodecRegistry withBlackbird(final ObjectMapper mapper) {
+    return new ObjectCodecRegistry(mapper.copy().registerModule(new BlackbirdModule()));
+  }
+
+  /** Returns the mapper the writers and readers are derived from. */
+  public ObjectMapper getMapper() {
+    return mapper;
+  }
+
+  /**
+   * Returns the cached writer for a payload type.
+   *
+   * @param type the payload class
+   * @return the writer
+   */
+  public ObjectWriter writerFor(final Class<?> type) {
+    return writers.computeIfAbsent(type, mapper::writerFor);
+  }
+
+  /**
+   * Returns the cached reader for a payload type.
+   *
+   * @param type the payload class
+   * @return the reader
+   */
+  public ObjectReader readerFor(final Class<?> type) {
+    return readers.computeIfAbsent(type, mapper::readerFor);
+  }
+
+  /**
+   * Serializes a payload with the writer of its runtime class.
+   *
+   * @param payload the payload, may be null
+   * @return the serialized bytes
+   * @throws IOException if the payload cannot be serialized
+   */
+  public byte[] writeValueAsBytes(final Object payload) throws IOException {
+    if (payload == null) {
+      return mapper.writeValueAsBytes(null);
+    }
+    return writerFor(payload.getClass()).writeValueAsBytes(payload);
+  }
+
+  /**
+   * Deserializes a payload with the cached reader of its type.
+   *
+   * @param data the serialized bytes
+   * @param type the payload class
+   * @return the payload
+   * @throws IOException if the bytes cannot be read as the given type
+   */
+  public <T> T readValue(final byte[] data, final Class<T> type) throws IOException {
+    return readerFor(type).readValue(data);
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.routebox.client.serialization;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumer-side counterpart of the payload serialization done by OutboxClient. Pass it the
+ * (decompressed) record value together with the payloadFormat and payloadSchemaId headers; records
+ * without a format header are read as JSON.
+ *
+ * <pre>{@code
+ * @KafkaListener(topics = "OrderCreated")
+ * public void handle(
+ *     byte[] value,
+ *     @Header(name = OutboxHeaders.PAYLOAD_FORMAT, required = false) String format,
+ *     @Header(name = OutboxHeaders.PAYLOAD_SCHEMA_ID, required = false) String schemaId) {
+ *   OrderCreated event =
+ *       payloadDeserializer.deserialize(value, format, schemaId, OrderCreated.class);
+ * }
+ * }</pre>
+ *
+ * <p>Schema-based formats read their schemas from the same file-based schema registry as the
+ * producer, so configure the same outbox.client.serialization.schema-registry.location.
+ */
+@Component
+@RequiredArgsConstructor
+public class PayloadDeserializer {
+
+  private final PayloadSerializerRegistry serializerRegistry;
+
+  /**
+   * Deserializes a record value.
+   *
+   * @param value the record value, already decoded if it was compressed
+   * @param format the payloadFormat header value, or null if absent
+   * @param schemaId the payloadSchemaId header value, or null if absent
+   * @param type the payload type
+   * @return the payload object
+   * @throws IllegalArgumentException if the format is unknown
+   * @throws UncheckedIOException if the value cannot be read
+   */
+  public <T> T deserialize(
+      final byte[] value, final String format, final String schemaId, final Class<T> type) {
+    PayloadSerializer serializer = serializerRegistry.getSerializer(format);
+    try {
+      return serializer.deserialize(value, schemaId, type);
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          "Failed to deserialize " + serializer.format() + " payload as " + type.getName(), e);
+    }
+  }
+}
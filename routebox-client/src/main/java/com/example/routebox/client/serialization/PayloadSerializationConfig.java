@@ -0,0 +1,85 @@
+package com.example.routebox.client.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+/**
+ * Per-event-type payload formats used by OutboxClient. Event types without an entry are written as
+ * JSON.
+ *
+ * <pre>
+ * outbox:
+ *   client:
+ *     serialization:
+ *       event-types:
+ *         OrderCreated:
+ *           format: avro
+ *           schema-id: order-created-v1
+ *         OrderStatusChanged:
+ *           format: smile
+ *       schema-registry:
+ *         location: classpath:schemas/
+ *       blackbird: true
+ * </pre>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.client.serialization")
+@Getter
+@Setter
+public class PayloadSerializationConfig {
+
+  /** Format and schema keyed by event type. */
+  private Map<String, EventTypeSerialization> eventTypes = new HashMap<>();
+
+  /** Settings of the file-based schema registry. */
+  private SchemaRegistry schemaRegistry = new SchemaRegistry();
+
+  /** Register the Blackbird module on the mapper behind the cached writers and readers. */
+  private boolean blackbird = false;
+
+  /** Format of one event type. */
+  @Getter
+  @Setter
+  public static class EventTypeSerialization {
+
+    /** One of json, smile, cbor, avro, protobuf. */
+    private String format = JacksonPayloadSerializer.JSON;
+
+    /** Schema id; required for avro and protobuf. */
+    private String schemaId;
+  }
+
+  /** Settings of the file-based schema registry. */
+  @Getter
+  @Setter
+  public static class SchemaRegistry {
+
+    /** Directory holding {@code <schema-id>.avsc} and {@code <schema-id>.proto} files. */
+    private Resource location = new DefaultResourceLoader().getResource("classpath:schemas/");
+  }
+
+  /**
+   * Per-type writer and reader cache over the application's ObjectMapper, shared by OutboxClient,
+   * the consumer-side deserializer and listeners that read JSON payloads directly.
+   */
+  @Bean
+  public ObjectCodecRegistry objectCodecRegistry(final ObjectMapper objectMapper) {
+    return blackbird
+        ? ObjectCodecRegistry.withBlackbird(objectMapper)
+        : new ObjectCodecRegistry(objectMapper);
+  }
+
+  /** Schema registry shared by the writer and the consumer-side deserializer. */
+  @Bean
+  public FileSchemaRegistry fileSchemaRegistry() {
+    return new FileSchemaRegistry(schemaRegistry.getLocation());
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.routebox.client.serialization;
+
+import java.io.IOException;
+
+/**
+ * Turns outbox payloads into bytes on write and back into objects on the consumer side. The format
+ * name and schema id travel with the event (payloadFormat and payloadSchemaId columns and Kafka
+ * headers), so producers and consumers must register a serializer under the same format name.
+ *
+ * <p>Implementations must be thread-safe.
+ */
+public interface PayloadSerializer {
+
+  /**
+   * Returns the format name stored with serialized events, e.g. "avro".
+   *
+   * @return the format name
+   */
+  String format();
+
+  /**
+   * Returns whether this format needs a schema id to write and read payloads.
+   *
+   * @return true for schema-based formats such as Avro and Protobuf
+   */
+  default boolean requiresSchema() {
+    return false;
+  }
+
+  /**
+   * Loads and caches a schema ahead of the first write, so a missing or invalid schema fails at
+   * startup. Schema-less formats ignore it.
+   *
+   * @param schemaId the schema id
+   */
+  default void loadSchema(String schemaId) {}
+
+  /**
+   * Serializes a payload.
+   *
+   * @param payload the payload object
+   * @param schemaId the schema to write with, or null for schema-less formats
+   * @return the serialized bytes
+   * @throws IOException if the payload cannot be serialized
+   */
+  byte[] serialize(Object payload, String schemaId) throws IOException;
+
+  /**
+   * Deserializes a payload written by {@link #serialize(Object, String)}.
+   *
+   * @param data the serialized bytes
+   * @param schemaId the schema the payload was written with, or null for schema-less formats
+   * @param type the payload type
+   * @return the payload object
+   * @throws IOException if the bytes cannot be read
+   */
+  <T> T deserialize(byte[] data, String schemaId, Class<T> type) throws IOException;
+}
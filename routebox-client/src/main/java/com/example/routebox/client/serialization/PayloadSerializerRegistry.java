@@ -0,0 +1,104 @@
+package com.example.routebox.client.serialization;
+
+import com.example.routebox.client.serialization.PayloadSerializationConfig.EventTypeSerialization;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the available payload serializers and the format chosen for each event type. Used by
+ * OutboxClient when writing and by {@link PayloadDeserializer} when consuming.
+ */
+@Slf4j
+@Component
+public class PayloadSerializerRegistry {
+
+  /** A serialized payload and how it was written. */
+  public record SerializedPayload(byte[] data, String format, String schemaId) {}
+
+  private final Map<String, PayloadSerializer> serializersByFormat;
+  private final Map<String, EventTypeSerialization> eventTypes;
+
+  public PayloadSerializerRegistry(
+      final ObjectCodecRegistry jsonCodecs,
+      final PayloadSerializationConfig config,
+      final FileSchemaRegistry schemaRegistry) {
+    ObjectMapper objectMapper = jsonCodecs.getMapper();
+    this.serializersByFormat =
+        Stream.of(
+                new JacksonPayloadSerializer(JacksonPayloadSerializer.JSON, jsonCodecs),
+                new JacksonPayloadSerializer(
+                    JacksonPayloadSerializer.SMILE,
+                    new ObjectCodecRegistry(objectMapper.copyWith(new SmileFactory()))),
+                new JacksonPayloadSerializer(
+                    JacksonPayloadSerializer.CBOR,
+                    new ObjectCodecRegistry(objectMapper.copyWith(new CBORFactory()))),
+                new AvroPayloadSerializer(schemaRegistry),
+                new ProtobufPayloadSerializer(schemaRegistry))
+            .collect(Collectors.toUnmodifiableMap(PayloadSerializer::format, Function.identity()));
+    this.eventTypes = Map.copyOf(config.getEventTypes());
+
+    // Resolve formats and schemas up front so a typo fails at startup, not on first write
+    eventTypes.forEach(
+        (eventType, serialization) -> {
+          PayloadSerializer serializer = getSerializer(serialization.getFormat());
+          if (serializer.requiresSchema()) {
+            if (serialization.getSchemaId() == null) {
+              throw new IllegalArgumentException(
+                  "Event type " + eventType + " needs a schema-id for " + serializer.format());
+            }
+            serializer.loadSchema(serialization.getSchemaId());
+          }
+          log.info(
+              "Serializing payloads of event type '{}' as {}", eventType, serializer.format());
+        });
+  }
+
+  /**
+   * Serializes a payload in the format configured for its event type.
+   *
+   * @param eventType the event type
+   * @param payload the payload object
+   * @return the bytes together with the format and schema id to store with them; the format is
+   *     null for JSON, the default
+   * @throws IOException if the payload cannot be serialized
+   */
+  public SerializedPayload serialize(final String eventType, final Object payload)
+      throws IOException {
+    EventTypeSerialization serialization = eventTypes.get(eventType);
+    if (serialization == null) {
+      return new SerializedPayload(
+          getSerializer(JacksonPayloadSerializer.JSON).serialize(payload, null), null, null);
+    }
+    PayloadSerializer serializer = getSerializer(serialization.getFormat());
+    String schemaId = serializer.requiresSchema() ? serialization.getSchemaId() : null;
+    String format =
+        JacksonPayloadSerializer.JSON.equals(serializer.format()) ? null : serializer.format();
+    return new SerializedPayload(serializer.serialize(payload, schemaId), format, schemaId);
+  }
+
+  /**
+   * Returns the serializer registered under a format name.
+   *
+   * @param format the format from the payloadFormat column or Kafka header; null means JSON
+   * @return the serializer
+   * @throws IllegalArgumentException if no serializer has that name
+   */
+  public PayloadSerializer getSerializer(final String format) {
+    if (format == null || format.isEmpty()) {
+      return serializersByFormat.get(JacksonPayloadSerializer.JSON);
+    }
+    PayloadSerializer serializer = serializersByFormat.get(format);
+    if (serializer == null) {
+      throw new IllegalArgumentException("Unknown payload format: " + format);
+    }
+    return serializer;
+  }
+}
@@ -0,0 +1,49 @@
+package com.example.routebox.client.serialization;
+
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import java.io.IOException;
+
+/**
+ * Protobuf encoding of payloads, using .proto schemas from the {@link FileSchemaRegistry}. Payload
+ * properties are matched to message fields by name, so no generated classes are needed.
+ */
+public class ProtobufPayloadSerializer implements PayloadSerializer {
+
+  public static final String FORMAT = "protobuf";
+
+  private final ProtobufMapper mapper = ProtobufMapper.builder().findAndAddModules().build();
+  private final FileSchemaRegistry schemaRegistry;
+
+  public ProtobufPayloadSerializer(final FileSchemaRegistry schemaRegistry) {
+    this.schemaRegistry = schemaRegistry;
+  }
+
+  @Override
+  public String format() {
+    return FORMAT;
+  }
+
+  @Override
+  public boolean requiresSchema() {
+    return true;
+  }
+
+  @Override
+  public void loadSchema(final String schemaId) {
+    schemaRegistry.getProtobufSchema(schemaId);
+  }
+
+  @Override
+  public byte[] serialize(final Object payload, final String schemaId) throws IOException {
+    ProtobufSchema schema = schemaRegistry.getProtobufSchema(schemaId);
+    return mapper.writer(schema).writeValueAsBytes(payload);
+  }
+
+  @Override
+  public <T> T deserialize(final byte[] data, final String schemaId, final Class<T> type)
+      throws IOException {
+    ProtobufSchema schema = schemaRegistry.getProtobufSchema(schemaId);
+    return mapper.readerFor(type).with(schema).readValue(data);
+  }
+}
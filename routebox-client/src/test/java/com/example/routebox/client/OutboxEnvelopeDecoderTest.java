@@ -0,0 +1,119 @@
+package com.example.routebox.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.util.OutboxEnvelope;
+import com.example.routebox.common.util.OutboxHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the envelope framing and the consumer-side envelope decoder. */
+class OutboxEnvelopeDecoderTest {
+
+  private static final String CONSUMER_GROUP = "inventory";
+
+  private static OutboxEvent event(String correlationId, String payload) {
+    return new OutboxEvent("Stock", "SKU-1", "StockLevelChanged", correlationId, payload);
+  }
+
+  @Test
+  void envelopeRoundTripsHeadersAndPayloadsInOrder() {
+    OutboxEvent compressed = event("corr-2", "{\"level\":2}");
+    compressed.setPayloadCodec("lz4");
+    List<OutboxEvent> events =
+        List.of(event("corr-1", "{\"level\":1}"), compressed, event(null, null));
+
+    List<OutboxEnvelope.Entry> entries =
+        new OutboxEnvelopeDecoder(mock(OutboxFilter.class)).unpack(OutboxEnvelope.encode(events));
+
+    assertThat(entries).hasSize(3);
+    assertThat(entries.get(0).correlationId()).isEqualTo("corr-1");
+    assertThat(new String(entries.get(0).payload(), StandardCharsets.UTF_8))
+        .isEqualTo("{\"level\":1}");
+    assertThat(entries.get(1).header(OutboxHeaders.PAYLOAD_CODEC)).isEqualTo("lz4");
+    assertThat(entries.get(2).headers()).isEmpty();
+    assertThat(entries.get(2).payload()).isNull();
+  }
+
+  @Test
+  void eachUnpackedEventKeepsItsOwnCreationTime() {
+    LocalDateTime first = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+    List<OutboxEvent> events = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      OutboxEvent event = event("corr-" + i, "{\"level\":" + i + "}");
+      event.setCreatedAt(first.plusSeconds(i * 5L));
+      events.add(event);
+    }
+
+    List<OutboxEnvelope.Entry> entries =
+        new OutboxEnvelopeDecoder(mock(OutboxFilter.class)).unpack(OutboxEnvelope.encode(events));
+
+    assertThat(entries)
+        .extracting(entry -> OutboxRecordHeaders.from(entry).createdAt())
+        .containsExactly(
+            first.atZone(ZoneId.systemDefault()).toInstant(),
+            first.plusSeconds(5).atZone(ZoneId.systemDefault()).toInstant(),
+            first.plusSeconds(10).atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  @Test
+  void envelopeIsSmallerThanSeparateRecordHeadersAndValues() {
+    // Separate records repeat at least the header name, header value and payload per event
+    List<OutboxEvent> events = new ArrayList<>();
+    int separate = 0;
+    for (int i = 0; i < 50; i++) {
+      OutboxEvent event = event("corr-" + i, "{\"sku\":\"SKU-1\",\"level\":" + i + "}");
+      events.add(event);
+      separate +=
+          event.getPayload().length
+              + OutboxHeaders.CORRELATION_ID.length()
+              + event.getCorrelationId().length();
+    }
+
+    assertThat(OutboxEnvelope.encode(events).length).isLessThan(separate);
+  }
+
+  @Test
+  void forEachNewSkipsProcessedEventsAndMarksTheRest() {
+    OutboxFilter filter = mock(OutboxFilter.class);
+    when(filter.isProcessed("corr-1", CONSUMER_GROUP)).thenReturn(true);
+    byte[] value =
+        OutboxEnvelope.encode(
+            List.of(event("corr-1", "one"), event("corr-2", "two"), event(null, "three")));
+    List<String> handled = new ArrayList<>();
+
+    int count =
+        new OutboxEnvelopeDecoder(filter)
+            .forEachNew(
+                value,
+                CONSUMER_GROUP,
+                entry -> handled.add(new String(entry.payload(), StandardCharsets.UTF_8)));
+
+    assertThat(count).isEqualTo(2);
+    assertThat(handled).containsExactly("two", "three");
+    verify(filter).markProcessed("corr-2", CONSUMER_GROUP);
+    verify(filter, never()).markProcessed("corr-1", CONSUMER_GROUP);
+  }
+
+  @Test
+  void malformedEnvelopesAreRejected() {
+    byte[] value = OutboxEnvelope.encode(List.of(event("corr-1", "one"), event("corr-2", "two")));
+    OutboxEnvelopeDecoder decoder = new OutboxEnvelopeDecoder(mock(OutboxFilter.class));
+
+    assertThatThrownBy(() -> decoder.unpack(Arrays.copyOf(value, value.length - 2)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> decoder.unpack("{\"not\":\"an envelope\"}".getBytes()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.routebox.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.util.OutboxEnvelope;
+import com.example.routebox.common.util.OutboxHeaders;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Tests for reading the routing and content headers the server writes. */
+class OutboxRecordHeadersTest {
+
+  private static OutboxEvent event() {
+    OutboxEvent event =
+        new OutboxEvent("Order", "ORD-7", "OrderCreated", "corr-7", "{\"id\":7}".getBytes());
+    event.setCreatedAt(LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000));
+    event.setPayloadCodec("zstd");
+    return event;
+  }
+
+  @Test
+  void routingAndContentHeadersRoundTrip() {
+    OutboxEvent event = event();
+
+    OutboxRecordHeaders headers = OutboxRecordHeaders.from(OutboxHeaders.forEvent(event));
+
+    assertThat(headers.eventType()).isEqualTo("OrderCreated");
+    assertThat(headers.aggregateType()).isEqualTo("Order");
+    assertThat(headers.aggregateId()).isEqualTo("ORD-7");
+    assertThat(headers.correlationId()).isEqualTo("corr-7");
+    assertThat(headers.payloadCodec()).isEqualTo("zstd");
+    assertThat(headers.payloadFormat()).isNull();
+    assertThat(headers.isEnvelope()).isFalse();
+    assertThat(headers.createdAt())
+        .isEqualTo(event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
+  }
+
+  @Test
+  void createdAtIsAnEightByteEpochMicrosValue() {
+    byte[] value = OutboxHeaders.forEvent(event()).get(OutboxHeaders.CREATED_AT_MICROS);
+
+    assertThat(value).hasSize(Long.BYTES);
+    assertThat(OutboxHeaders.decodeMicros(value) % 1_000_000L).isEqualTo(535_897L);
+    assertThatThrownBy(
+            () ->
+                OutboxRecordHeaders.from(Map.of(OutboxHeaders.CREATED_AT_MICROS, new byte[3]))
+                    .createdAtMicros())
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void envelopeEventsCarryContentHeadersAndTheirCreationTime() {
+    List<OutboxEnvelope.Entry> entries =
+        OutboxEnvelope.decode(OutboxEnvelope.encode(List.of(event(), event())));
+
+    OutboxRecordHeaders headers = OutboxRecordHeaders.from(entries.get(1));
+
+    assertThat(headers.correlationId()).isEqualTo("corr-7");
+    assertThat(headers.eventType()).isNull();
+    assertThat(headers.createdAt())
+        .isEqualTo(event().getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.routebox.client.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+/** Tests for the payload codecs, their registry and the consumer-side decoder. */
+class PayloadCodecRegistryTest {
+
+  private static byte[] orderJson(int i) {
+    return ("{\"orderId\":"
+            + i
+            + ",\"customerName\":\"Customer "
+            + (i % 37)
+            + "\",\"productName\":\"Product "
+            + (i % 11)
+            + "\",\"amount\":"
+            + (i * 7 % 1000)
+            + ".00,\"status\":\"PENDING\"}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void lz4AndZstdRoundTrip() {
+    PayloadCodecRegistry registry = new PayloadCodecRegistry(new PayloadCompressionConfig());
+    byte[] payload = orderJson(42);
+
+    for (String name : List.of(Lz4PayloadCodec.NAME, ZstdPayloadCodec.NAME)) {
+      PayloadCodec codec = registry.getCodec(name);
+      assertThat(codec.decode(codec.encode(payload))).isEqualTo(payload);
+    }
+  }
+
+  @Test
+  void zstdWithTrainedDictionaryRoundTripsAndBeatsPlainZstd() {
+    List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      samples.add(orderJson(i));
+    }
+    byte[] dictionary = ZstdPayloadCodec.trainDictionary(samples, 4096);
+
+    PayloadCompressionConfig config = new PayloadCompressionConfig();
+    config.getZstd().setDictionary(new ByteArrayResource(dictionary));
+    ZstdPayloadCodec withDictionary =
+        (ZstdPayloadCodec) new PayloadCodecRegistry(config).getCodec(ZstdPayloadCodec.NAME);
+    ZstdPayloadCodec plain = new ZstdPayloadCodec(3, null);
+
+    byte[] payload = orderJson(5000);
+    byte[] encoded = withDictionary.encode(payload);
+
+    assertThat(withDictionary.hasDictionary()).isTrue();
+    assertThat(withDictionary.decode(encoded)).isEqualTo(payload);
+    assertThat(encoded.length).isLessThan(plain.encode(payload).length);
+  }
+
+  @Test
+  void eventTypesMapToConfiguredCodecs() {
+    PayloadCompressionConfig config = new PayloadCompressionConfig();
+    config.setEventTypes(Map.of("OrderCreated", "lz4"));
+
+    PayloadCodecRegistry registry = new PayloadCodecRegistry(config);
+
+    assertThat(registry.getCodecForEventType("OrderCreated")).isInstanceOf(Lz4PayloadCodec.class);
+    assertThat(registry.getCodecForEventType("OrderStatusChanged")).isNull();
+  }
+
+  @Test
+  void unknownCodecFailsAtStartup() {
+    PayloadCompressionConfig config = new PayloadCompressionConfig();
+    config.setEventTypes(Map.of("OrderCreated", "gzip"));
+
+    assertThatThrownBy(() -> new PayloadCodecRegistry(config))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("gzip");
+  }
+
+  @Test
+  void decoderPassesThroughUncompressedValues() {
+    PayloadCodecRegistry registry = new PayloadCodecRegistry(new PayloadCompressionConfig());
+    PayloadDecoder decoder = new PayloadDecoder(registry);
+    byte[] payload = orderJson(7);
+
+    assertThat(decoder.decode(payload, null)).isSameAs(payload);
+    assertThat(decoder.decodeToString(registry.getCodec("lz4").encode(payload), "lz4"))
+        .isEqualTo(new String(payload, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,140 @@
+package com.example.routebox.client.serialization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.routebox.client.serialization.PayloadSerializationConfig.EventTypeSerialization;
+import com.example.routebox.client.serialization.PayloadSerializerRegistry.SerializedPayload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+/** Tests for the payload serializers, their registry and the consumer-side deserializer. */
+class PayloadSerializerRegistryTest {
+
+  record OrderCreated(long orderId, String customerName, String status, double amount) {}
+
+  private static final OrderCreated ORDER =
+      new OrderCreated(4242L, "Customer 17", "PENDING", 199.99);
+
+  @TempDir Path schemaDir;
+
+  private FileSchemaRegistry schemaRegistry;
+
+  @BeforeEach
+  void writeSchemas() throws IOException {
+    Files.writeString(
+        schemaDir.resolve("order-created-v1.avsc"),
+        """
+        {"type": "record", "name": "OrderCreated", "fields": [
+          {"name": "orderId", "type": "long"},
+          {"name": "customerName", "type": "string"},
+          {"name": "status", "type": "string"},
+          {"name": "amount", "type": "double"}]}
+        """);
+    Files.writeString(
+        schemaDir.resolve("order-created-v1.proto"),
+        """
+        message OrderCreated {
+          required int64 orderId = 1;
+          required string customerName = 2;
+          required string status = 3;
+          required double amount = 4;
+        }
+        """);
+    schemaRegistry = new FileSchemaRegistry(new FileSystemResource(schemaDir + "/"));
+  }
+
+  private PayloadSerializerRegistry registry(Map<String, EventTypeSerialization> eventTypes) {
+    PayloadSerializationConfig config = new PayloadSerializationConfig();
+    config.setEventTypes(eventTypes);
+    return new PayloadSerializerRegistry(
+        new ObjectCodecRegistry(new ObjectMapper()), config, schemaRegistry);
+  }
+
+  private static EventTypeSerialization serialization(String format, String schemaId) {
+    EventTypeSerialization serialization = new EventTypeSerialization();
+    serialization.setFormat(format);
+    serialization.setSchemaId(schemaId);
+    return serialization;
+  }
+
+  @Test
+  void unconfiguredEventTypesAreWrittenAsJsonWithoutFormat() throws IOException {
+    PayloadSerializerRegistry registry = registry(Map.of());
+
+    SerializedPayload serialized = registry.serialize("OrderCreated", ORDER);
+
+    assertThat(serialized.format()).isNull();
+    assertThat(serialized.schemaId()).isNull();
+    assertThat(
+            new PayloadDeserializer(registry)
+                .deserialize(serialized.data(), null, null, OrderCreated.class))
+        .isEqualTo(ORDER);
+  }
+
+  @Test
+  void binaryFormatsRoundTripAndBeatJson() throws IOException {
+    int jsonSize = registry(Map.of()).serialize("OrderCreated", ORDER).data().length;
+
+    for (String format : new String[] {"smile", "cbor", "avro", "protobuf"}) {
+      PayloadSerializerRegistry registry =
+          registry(Map.of("OrderCreated", serialization(format, "order-created-v1")));
+      SerializedPayload serialized = registry.serialize("OrderCreated", ORDER);
+
+      assertThat(serialized.format()).isEqualTo(format);
+      assertThat(serialized.data().length).as(format).isLessThan(jsonSize);
+      assertThat(
+              new PayloadDeserializer(registry)
+                  .deserialize(
+                      serialized.data(),
+                      serialized.format(),
+                      serialized.schemaId(),
+                      OrderCreated.class))
+          .as(format)
+          .isEqualTo(ORDER);
+    }
+  }
+
+  @Test
+  void writersAndReadersAreCachedPerTypeWithOrWithoutBlackbird() throws IOException {
+    for (ObjectCodecRegistry codecs :
+        new ObjectCodecRegistry[] {
+          new ObjectCodecRegistry(new ObjectMapper()),
+          ObjectCodecRegistry.withBlackbird(new ObjectMapper())
+        }) {
+      assertThat(codecs.writerFor(OrderCreated.class))
+          .isSameAs(codecs.writerFor(OrderCreated.class));
+      assertThat(codecs.readerFor(OrderCreated.class))
+          .isSameAs(codecs.readerFor(OrderCreated.class));
+      assertThat(codecs.readValue(codecs.writeValueAsBytes(ORDER), OrderCreated.class))
+          .isEqualTo(ORDER);
+    }
+  }
+
+  @Test
+  void schemasAreParsedOnceAndCachedById() {
+    assertThat(schemaRegistry.getAvroSchema("order-created-v1"))
+        .isSameAs(schemaRegistry.getAvroSchema("order-created-v1"));
+    assertThat(schemaRegistry.getProtobufSchema("order-created-v1"))
+        .isSameAs(schemaRegistry.getProtobufSchema("order-created-v1"));
+    assertThatThrownBy(() -> schemaRegistry.getAvroSchema("../secrets"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void misconfiguredEventTypesFailAtStartup() {
+    assertThatThrownBy(() -> registry(Map.of("OrderCreated", serialization("avro", null))))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("schema-id");
+    assertThatThrownBy(() -> registry(Map.of("OrderCreated", serialization("thrift", null))))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("thrift");
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.routebox.common.config;
+
+import com.example.routebox.common.payload.FileSystemPayloadStore;
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.common.payload.S3PayloadStore;
+import java.nio.file.Path;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Really Big Payload (RBP) offloading, see docs/rbp-specification.md. When enabled, OutboxClient
+ * moves payloads larger than the threshold into a {@link PayloadStore} and the outbox row and
+ * Kafka record carry only a reference. Producers, the server and consumers must all point at the
+ * same store.
+ *
+ * <pre>
+ * outbox:
+ *   rbp:
+ *     enabled: true
+ *     threshold-bytes: 1048576
+ *     store: s3
+ *     s3:
+ *       endpoint: http://localhost:9000
+ *       bucket: routebox-payloads
+ * </pre>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.rbp")
+@Getter
+@Setter
+public class RbpConfig {
+
+  /** Whether payloads above the threshold are offloaded. */
+  private boolean enabled = false;
+
+  /** Serialized (and compressed, if configured) payloads larger than this are offloaded. */
+  private int thresholdBytes = 1024 * 1024;
+
+  /** Which store implementation to use. */
+  private StoreType store = StoreType.FILESYSTEM;
+
+  /** Settings of the filesystem store. */
+  private FileSystem filesystem = new FileSystem();
+
+  /** Settings of the S3-compatible store. */
+  private S3 s3 = new S3();
+
+  /** Available payload store implementations. */
+  public enum StoreType {
+    FILESYSTEM,
+    S3
+  }
+
+  /** Settings of the filesystem store. */
+  @Getter
+  @Setter
+  public static class FileSystem {
+
+    /** Root directory. Must be shared by all producers, servers and consumers. */
+    private String directory = "./data/payloads";
+  }
+
+  /** Settings of the S3-compatible store. */
+  @Getter
+  @Setter
+  public static class S3 {
+
+    /** Endpoint override for S3-compatible servers such as MinIO; empty for AWS. */
+    private String endpoint;
+
+    private String region = "us-east-1";
+
+    private String bucket = "routebox-payloads";
+
+    /** Key prefix for stored payloads. */
+    private String prefix = "payloads/";
+
+    /** Path-style addressing, required by most S3-compatible servers. */
+    private boolean pathStyleAccess = true;
+
+    /** Static credentials; the default AWS credentials chain is used when empty. */
+    private String accessKey;
+
+    private String secretKey;
+  }
+
+  /**
+   * Creates the configured payload store. Applications can provide their own PayloadStore bean
+   * instead.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "outbox.rbp", name = "enabled", havingValue = "true")
+  public PayloadStore payloadStore() {
+    if (store == StoreType.S3) {
+      return S3PayloadStore.create(
+          s3.getEndpoint(),
+          s3.getRegion(),
+          s3.isPathStyleAccess(),
+          s3.getAccessKey(),
+          s3.getSecretKey(),
+          s3.getBucket(),
+          s3.getPrefix());
+    }
+    return new FileSystemPayloadStore(Path.of(filesystem.getDirectory()));
+  }
+}
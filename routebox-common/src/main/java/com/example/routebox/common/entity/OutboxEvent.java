@@ -1,18 +1,29 @@
 package com.example.routebox.common.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Optional;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "outbox_events")
+@Table(
+    name = "outbox_events",
+    indexes = {
+      @Index(name = "idx_outbox_write_group", columnList = "writeGroupId"),
+      @Index(name = "idx_outbox_rbp_uri", columnList = "rbp_uri")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
 public class OutboxEvent {
 
+  /** Column length that makes Hibernate choose VARBINARY(MAX) on SQL Server and BYTEA elsewhere. */
+  public static final int PAYLOAD_MAX_LENGTH = 16 * 1024 * 1024;
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -29,8 +40,43 @@ public class OutboxEvent {
   @Column(unique = true)
   private String correlationId;
 
-  @Column(nullable = false, columnDefinition = "TEXT")
-  private String payload;
+  /**
+   * Serialized payload. Not mapped: it lives in the outbox_payloads table (see {@link
+   * OutboxPayload}) so the rows scanned and locked when claiming stay narrow. Set by the writer
+   * before saving both rows, and attached by the server only when a claimed batch is published.
+   */
+  @Transient @JsonIgnore private byte[] payload;
+
+  /**
+   * Size of a payload the server left in outbox_payloads when claiming because it is too large to
+   * hold for the whole batch; it is streamed in right before sending. Null when the payload is
+   * loaded with its batch.
+   */
+  @Transient @JsonIgnore private Integer deferredPayloadBytes;
+
+  /**
+   * Codec the payload was compressed with by the client, or null if it is stored uncompressed.
+   * Forwarded to Kafka as the payloadCodec header so consumers can decode it.
+   */
+  @Column(length = 32)
+  private String payloadCodec;
+
+  /**
+   * Format the payload was serialized in (e.g. "avro"), or null for JSON. Forwarded to Kafka as
+   * the payloadFormat header.
+   */
+  @Column(length = 32)
+  private String payloadFormat;
+
+  /** Schema the payload was written with, for schema-based formats. */
+  @Column(length = 128)
+  private String payloadSchemaId;
+
+  /**
+   * Set when the payload was offloaded to a PayloadStore. The payload then holds only a
+   * small reference document and the record is sent with the rbpRef header.
+   */
+  @Embedded private RbpSpec rbp;
 
   @Column(nullable = false)
   private LocalDateTime createdAt;
@@ -41,8 +87,11 @@ public class OutboxEvent {
 
   @Column private Integer permanentFailureCount = 0;
 
-  @Column(columnDefinition = "TEXT")
-  private String lastError;
+  /**
+   * Last recorded permanent failure, as the id of its row in the server's error_fingerprints
+   * table. Null when the event has not failed since it was last sent.
+   */
+  @Column private Long lastErrorFingerprintId;
 
   @Column private Integer kafkaPartition;
 
@@ -50,6 +99,13 @@ public class OutboxEvent {
 
   @Column private LocalDateTime kafkaTimestamp;
 
+  /**
+   * Identifies the database transaction that wrote this event. Events sharing a write group are
+   * claimed together and, in transactional publishing mode, land in the same Kafka transaction.
+   */
+  @Column(length = 36)
+  private String writeGroupId;
+
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
@@ -57,11 +113,7 @@ public class OutboxEvent {
   }
 
   public OutboxEvent(String aggregateType, String aggregateId, String eventType, String payload) {
-    this.aggregateType = aggregateType;
-    this.aggregateId = aggregateId;
-    this.eventType = eventType;
-    this.payload = payload;
-    this.permanentFailureCount = 0;
+    this(aggregateType, aggregateId, eventType, null, toBytes(payload));
   }
 
   public OutboxEvent(
@@ -70,6 +122,15 @@ public class OutboxEvent {
       String eventType,
       String correlationId,
       String payload) {
+    this(aggregateType, aggregateId, eventType, correlationId, toBytes(payload));
+  }
+
+  public OutboxEvent(
+      String aggregateType,
+      String aggregateId,
+      String eventType,
+      String correlationId,
+      byte[] payload) {
     this.aggregateType = aggregateType;
     this.aggregateId = aggregateId;
     this.eventType = eventType;
@@ -78,6 +139,30 @@ public class OutboxEvent {
     this.permanentFailureCount = 0;
   }
 
+  /**
+   * Returns the payload decoded as UTF-8 text, or null if it has not been loaded. Not meaningful
+   * for compressed payloads; check {@link #getPayloadCodec()} first.
+   */
+  @JsonIgnore
+  public String getPayloadAsString() {
+    return payload == null ? null : new String(payload, StandardCharsets.UTF_8);
+  }
+
+  /** Returns true if the payload is streamed in at send time rather than loaded when claimed. */
+  @JsonIgnore
+  public boolean isPayloadDeferred() {
+    return deferredPayloadBytes != null;
+  }
+
+  /** Returns the offloaded payload reference, if the payload was offloaded. */
+  public Optional<RbpSpec> rbp() {
+    return Optional.ofNullable(rbp);
+  }
+
+  private static byte[] toBytes(String payload) {
+    return payload == null ? null : payload.getBytes(StandardCharsets.UTF_8);
+  }
+
   // Helper method to increment permanent failure count
   public void incrementPermanentFailureCount() {
     if (this.permanentFailureCount == null) {
@@ -0,0 +1,67 @@
+package com.example.routebox.common.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Payload of an outbox event, kept apart from the outbox_events row so that claiming, admin
+ * listings and metrics scan only narrow rows. Loaded in one batch per claimed batch, right before
+ * publishing.
+ */
+@Entity
+@Table(name = "outbox_payloads")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxPayload implements Persistable<Long> {
+
+  /** Id of the outbox event this payload belongs to. */
+  @Id
+  @Column(name = "event_id")
+  private Long eventId;
+
+  /** Serialized (and possibly compressed) payload bytes, sent to Kafka unchanged. */
+  @Column(name = "payload_data", nullable = false, length = OutboxEvent.PAYLOAD_MAX_LENGTH)
+  private byte[] data;
+
+  /**
+   * Length of {@link #data} in bytes, so the server can decide which payloads to stream at send
+   * time without reading them.
+   */
+  @Column(name = "payload_size_bytes")
+  private Integer sizeBytes;
+
+  /** The id is assigned, so tell Spring Data when to persist instead of merge. */
+  @Transient private boolean isNew = true;
+
+  public OutboxPayload(Long eventId, byte[] data) {
+    this.eventId = eventId;
+    this.data = data;
+    this.sizeBytes = data == null ? null : data.length;
+  }
+
+  @Override
+  public Long getId() {
+    return eventId;
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    this.isNew = false;
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.routebox.common.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A poison event parked after a permanent failure. The event is not claimed again until {@link
+ * #holdUntil}; when {@link #holdsAggregate} is set, later events of the same aggregate are not
+ * claimed until the poison event is sent or dead-lettered, which keeps the aggregate's events in
+ * order. The claim query checks this table through its aggregate index, one seek per candidate.
+ */
+@Entity
+@Table(
+    name = "outbox_quarantine",
+    indexes = {
+      @Index(name = "idx_outbox_quarantine_aggregate", columnList = "aggregateType, aggregateId")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxQuarantine implements Persistable<Long> {
+
+  /** Id of the quarantined outbox event. */
+  @Id
+  @Column(name = "event_id")
+  private Long eventId;
+
+  @Column(nullable = false)
+  private String aggregateType;
+
+  @Column(nullable = false)
+  private String aggregateId;
+
+  /** When the event may be claimed again. */
+  @Column(nullable = false)
+  private LocalDateTime holdUntil;
+
+  /** Whether later events of the aggregate wait for this event. */
+  @Column(nullable = false)
+  private boolean holdsAggregate;
+
+  @Column(nullable = false)
+  private LocalDateTime quarantinedAt;
+
+  /** The id is assigned, so tell Spring Data when to persist instead of merge. */
+  @Transient private boolean isNew = true;
+
+  public OutboxQuarantine(OutboxEvent event, boolean holdsAggregate) {
+    this.eventId = event.getId();
+    this.aggregateType = event.getAggregateType();
+    this.aggregateId = event.getAggregateId();
+    this.holdsAggregate = holdsAggregate;
+    this.quarantinedAt = LocalDateTime.now();
+  }
+
+  @Override
+  public Long getId() {
+    return eventId;
+  }
+
+  @Override
+  @JsonIgnore
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    this.isNew = false;
+  }
+}
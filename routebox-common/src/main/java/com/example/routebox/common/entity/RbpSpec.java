@@ -0,0 +1,19 @@
+package com.example.routebox.common.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.time.LocalDateTime;
+
+/**
+ * Reference to a payload offloaded to a PayloadStore. Embedded in outbox, archive and dead-letter
+ * rows; all columns are null when the payload is stored inline.
+ *
+ * @param uri the payload store URI
+ * @param sizeBytes the size of the stored payload
+ * @param storedAt when the payload was stored
+ */
+@Embeddable
+public record RbpSpec(
+    @Column(name = "rbp_uri", length = 1024) String uri,
+    @Column(name = "rbp_size_bytes") Long sizeBytes,
+    @Column(name = "rbp_stored_at") LocalDateTime storedAt) {}
@@ -0,0 +1,21 @@
+package com.example.routebox.common.payload;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/** SHA-256 content addressing shared by the payload store implementations. */
+final class ContentHash {
+
+  private ContentHash() {}
+
+  /** Returns the lowercase hex SHA-256 digest of the payload. */
+  static String sha256(byte[] payload) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload));
+    } catch (NoSuchAlgorithmException e) {
+      // Every JRE is required to provide SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.example.routebox.common.payload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed payload store on a local or shared filesystem. Payloads are written to {@code
+ * <root>/<aa>/<bb>/<sha256>} and referenced as {@code fs://sha256/<sha256>}.
+ *
+ * <p>Writes go to a temporary file that is fsync'd and then atomically renamed into place, so a
+ * reader never sees a partial payload and a stored payload survives a crash. Reads memory-map the
+ * file. Consumers on other hosts need the same directory mounted, e.g. over NFS.
+ *
+ * <p>The modification time of a payload file is the time it was last stored: storing content that
+ * already exists touches the file instead of writing it again.
+ */
+@Slf4j
+public class FileSystemPayloadStore implements PayloadStore {
+
+  public static final String URI_PREFIX = "fs://sha256/";
+
+  private final Path root;
+
+  public FileSystemPayloadStore(Path root) {
+    this.root = root.toAbsolutePath();
+    try {
+      Files.createDirectories(this.root);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create payload store directory " + this.root, e);
+    }
+  }
+
+  @Override
+  public String store(byte[] payload) {
+    String hash = ContentHash.sha256(payload);
+    Path target = pathFor(hash);
+    if (touch(target)) {
+      // Same content is already stored durably
+      return URI_PREFIX + hash;
+    }
+
+    try {
+      Path directory = Files.createDirectories(target.getParent());
+      Path temp = Files.createTempFile(directory, hash, ".tmp");
+      try {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+          ByteBuffer buffer = ByteBuffer.wrap(payload);
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          channel.force(true);
+        }
+        moveIntoPlace(temp, target);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+      syncDirectory(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to store payload " + hash, e);
+    }
+    return URI_PREFIX + hash;
+  }
+
+  @Override
+  public byte[] retrieve(String uri) {
+    ByteBuffer buffer = retrieveBuffer(uri);
+    byte[] payload = new byte[buffer.remaining()];
+    buffer.get(payload);
+    return payload;
+  }
+
+  @Override
+  public ByteBuffer retrieveBuffer(String uri) {
+    Path path = pathFor(hashOf(uri));
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return mapped.asReadOnlyBuffer();
+    } catch (NoSuchFileException e) {
+      throw new PayloadNotFoundException(uri, e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read payload " + uri, e);
+    }
+  }
+
+  @Override
+  public void delete(String uri) {
+    try {
+      Files.deleteIfExists(pathFor(hashOf(uri)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to delete payload " + uri, e);
+    }
+  }
+
+  /**
+   * Moves the payload aside before checking when it was last stored, so a writer storing the same
+   * content meanwhile either touches it before the move, and the payload is moved back, or finds
+   * it gone and writes it again.
+   */
+  @Override
+  public boolean deleteIfStoredBefore(String uri, Instant cutoff) {
+    Path path = pathFor(hashOf(uri));
+    Path doomed = path.resolveSibling(path.getFileName() + ".deleting");
+    try {
+      try {
+        Files.move(path, doomed, StandardCopyOption.ATOMIC_MOVE);
+      } catch (NoSuchFileException e) {
+        return false;
+      }
+      if (Files.getLastModifiedTime(doomed).toInstant().isBefore(cutoff)) {
+        Files.delete(doomed);
+        return true;
+      }
+      // Stored again since the cutoff; a writer may also have written it anew in the meantime,
+      // with the same content
+      Files.move(doomed, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return false;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to delete payload " + uri, e);
+    }
+  }
+
+  @Override
+  public boolean supports(String uri) {
+    return uri != null && uri.startsWith(URI_PREFIX);
+  }
+
+  private Path pathFor(String hash) {
+    return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+  }
+
+  private String hashOf(String uri) {
+    if (!supports(uri)) {
+      throw new IllegalArgumentException("Not a filesystem payload reference: " + uri);
+    }
+    String hash = uri.substring(URI_PREFIX.length());
+    if (!hash.matches("[0-9a-f]{64}")) {
+      throw new IllegalArgumentException("Malformed payload reference: " + uri);
+    }
+    return hash;
+  }
+
+  /**
+   * Records a new store of an existing payload.
+   *
+   * @return false if the payload does not exist, e.g. because it is being deleted
+   */
+  private static boolean touch(Path target) {
+    try {
+      Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to touch payload " + target, e);
+    }
+  }
+
+  private static void moveIntoPlace(Path temp, Path target) throws IOException {
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException e) {
+      // A concurrent writer stored the same content first
+    } catch (AtomicMoveNotSupportedException e) {
+      try {
+        Files.move(temp, target);
+      } catch (FileAlreadyExistsException alreadyStored) {
+        // A concurrent writer stored the same content first
+      }
+    }
+  }
+
+  /** Makes the rename durable. Not every platform allows opening a directory, so best effort. */
+  private static void syncDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      log.debug("Could not fsync directory {}: {}", directory, e.getMessage());
+    }
+  }
+}
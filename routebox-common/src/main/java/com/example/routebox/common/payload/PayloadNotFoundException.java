@@ -0,0 +1,13 @@
+package com.example.routebox.common.payload;
+
+/** Thrown when a payload reference points at a payload that is not (or no longer) stored. */
+public class PayloadNotFoundException extends RuntimeException {
+
+  public PayloadNotFoundException(String uri) {
+    super("No payload stored under " + uri);
+  }
+
+  public PayloadNotFoundException(String uri, Throwable cause) {
+    super("No payload stored under " + uri, cause);
+  }
+}
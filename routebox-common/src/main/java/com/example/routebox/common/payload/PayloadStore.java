@@ -0,0 +1,73 @@
+package com.example.routebox.common.payload;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Storage for payloads too large to travel through the outbox table and Kafka (the RBP "claim
+ * check"). The outbox row and Kafka record carry only the URI returned by {@link #store}.
+ *
+ * <p>Implementations are content-addressed: storing the same bytes twice returns the same URI and
+ * writes them once. Callers that delete must therefore make sure no other row still references the
+ * URI, including rows of transactions that stored the payload but have not committed yet; {@link
+ * #deleteIfStoredBefore} lets them tell those apart.
+ */
+public interface PayloadStore {
+
+  /**
+   * Stores a payload durably. The payload is on stable storage when this method returns. Storing
+   * content that is already stored records the time of the store again.
+   *
+   * @param payload the payload bytes
+   * @return the URI under which the payload can be retrieved
+   */
+  String store(byte[] payload);
+
+  /**
+   * Retrieves a stored payload.
+   *
+   * @param uri a URI previously returned by {@link #store}
+   * @return the payload bytes
+   * @throws PayloadNotFoundException if nothing is stored under the URI
+   */
+  byte[] retrieve(String uri);
+
+  /**
+   * Retrieves a stored payload as a read-only buffer. Implementations that can avoid copying the
+   * payload onto the heap, e.g. by memory-mapping it, override this.
+   *
+   * @param uri a URI previously returned by {@link #store}
+   * @return a read-only buffer over the payload bytes
+   */
+  default ByteBuffer retrieveBuffer(String uri) {
+    return ByteBuffer.wrap(retrieve(uri)).asReadOnlyBuffer();
+  }
+
+  /**
+   * Deletes a stored payload. Deleting a URI that does not exist is not an error.
+   *
+   * @param uri a URI previously returned by {@link #store}
+   */
+  void delete(String uri);
+
+  /**
+   * Deletes a stored payload unless it was last stored at or after the cutoff, i.e. unless a
+   * writer may have stored it for a row that is not yet visible. The default implementation
+   * cannot tell when a payload was stored and keeps it.
+   *
+   * @param uri a URI previously returned by {@link #store}
+   * @param cutoff payloads stored at or after this time are kept
+   * @return true if the payload was deleted
+   */
+  default boolean deleteIfStoredBefore(String uri, Instant cutoff) {
+    return false;
+  }
+
+  /**
+   * Returns whether this store handles the given URI.
+   *
+   * @param uri a payload reference URI
+   * @return true if the URI's scheme belongs to this store
+   */
+  boolean supports(String uri);
+}
@@ -0,0 +1,118 @@
+package com.example.routebox.common.payload;
+
+import java.net.URI;
+import java.time.Instant;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Content-addressed payload store on S3 or an S3-compatible object store such as MinIO. Payloads
+ * are written to {@code <prefix><sha256>} and referenced as {@code s3://<bucket>/<prefix><sha256>}.
+ *
+ * <p>S3 acknowledges a PUT only once the object is durably stored, so no extra sync is needed.
+ * Every store PUTs the object again, which refreshes its last-modified time.
+ */
+public class S3PayloadStore implements PayloadStore {
+
+  private static final String URI_SCHEME = "s3://";
+
+  private final S3Client s3;
+  private final String bucket;
+  private final String prefix;
+
+  public S3PayloadStore(S3Client s3, String bucket, String prefix) {
+    this.s3 = s3;
+    this.bucket = bucket;
+    this.prefix = prefix == null ? "" : prefix;
+  }
+
+  /**
+   * Creates a store with its own client. Setting an endpoint together with path-style access
+   * points the store at an S3-compatible server, e.g. a local MinIO container.
+   */
+  public static S3PayloadStore create(
+      String endpoint,
+      String region,
+      boolean pathStyleAccess,
+      String accessKey,
+      String secretKey,
+      String bucket,
+      String prefix) {
+    S3ClientBuilder builder =
+        S3Client.builder()
+            .region(Region.of(region))
+            .forcePathStyle(pathStyleAccess)
+            .credentialsProvider(
+                accessKey == null || accessKey.isEmpty()
+                    ? DefaultCredentialsProvider.create()
+                    : StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(accessKey, secretKey)));
+    if (endpoint != null && !endpoint.isEmpty()) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return new S3PayloadStore(builder.build(), bucket, prefix);
+  }
+
+  @Override
+  public String store(byte[] payload) {
+    String key = prefix + ContentHash.sha256(payload);
+    s3.putObject(request -> request.bucket(bucket).key(key), RequestBody.fromBytes(payload));
+    return URI_SCHEME + bucket + "/" + key;
+  }
+
+  @Override
+  public byte[] retrieve(String uri) {
+    String key = keyOf(uri);
+    try {
+      return s3.getObjectAsBytes(request -> request.bucket(bucket).key(key)).asByteArray();
+    } catch (NoSuchKeyException e) {
+      throw new PayloadNotFoundException(uri, e);
+    }
+  }
+
+  @Override
+  public void delete(String uri) {
+    String key = keyOf(uri);
+    s3.deleteObject(request -> request.bucket(bucket).key(key));
+  }
+
+  /**
+   * Checks the last-modified time before deleting. S3 has no conditional delete on it, so a store
+   * of the same content between the check and the delete is lost; the grace period callers pass
+   * as the cutoff keeps that window far from any transaction that is still writing.
+   */
+  @Override
+  public boolean deleteIfStoredBefore(String uri, Instant cutoff) {
+    String key = keyOf(uri);
+    Instant lastModified;
+    try {
+      lastModified = s3.headObject(request -> request.bucket(bucket).key(key)).lastModified();
+    } catch (NoSuchKeyException e) {
+      return false;
+    }
+    if (!lastModified.isBefore(cutoff)) {
+      return false;
+    }
+    s3.deleteObject(request -> request.bucket(bucket).key(key));
+    return true;
+  }
+
+  @Override
+  public boolean supports(String uri) {
+    return uri != null && uri.startsWith(URI_SCHEME + bucket + "/");
+  }
+
+  private String keyOf(String uri) {
+    if (!supports(uri)) {
+      throw new IllegalArgumentException(
+          "Not a payload reference for bucket " + bucket + ": " + uri);
+    }
+    return uri.substring(URI_SCHEME.length() + bucket.length() + 1);
+  }
+}
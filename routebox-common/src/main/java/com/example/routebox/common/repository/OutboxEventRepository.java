@@ -4,12 +4,14 @@ import com.example.routebox.common.entity.OutboxEvent;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
@@ -27,6 +29,12 @@ public interface OutboxEventRepository
    * This is the database-agnostic way to achieve the non-blocking "SELECT ... FOR UPDATE SKIP LOCKED"
    * (PostgreSQL/MySQL) or "SELECT ... WITH (UPDLOCK, READPAST)" (MS SQL) behavior.
    * The JPA provider (Hibernate) will generate the correct dialect-specific SQL.
+   * <p>
+   * Quarantined events are skipped until their hold expires, as are later events of an aggregate
+   * whose poison event holds it (see {@link com.example.routebox.common.entity.OutboxQuarantine}).
+   * The check is a NOT EXISTS on the quarantine table's aggregate index, so it costs one index
+   * seek per candidate row rather than a scan. An aggregate is only held while its poison event is
+   * still pending, so an entry left behind by an event deleted elsewhere holds nothing.
    *
    * @param now      The current timestamp to find events whose claims have expired.
    * @param pageable A Pageable object (e.g., PageRequest.of(0, batchSize)) to limit the result set.
@@ -36,9 +44,110 @@ public interface OutboxEventRepository
   @QueryHints({
       @QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")
   })
-  @Query("SELECT e FROM OutboxEvent e WHERE e.sentAt IS NULL AND (e.inProgressUntil IS NULL OR e.inProgressUntil < :now) ORDER BY e.createdAt ASC")
+  @Query("SELECT e FROM OutboxEvent e WHERE e.sentAt IS NULL AND (e.inProgressUntil IS NULL OR e.inProgressUntil < :now) AND NOT EXISTS (SELECT q.eventId FROM OutboxQuarantine q WHERE q.aggregateType = e.aggregateType AND q.aggregateId = e.aggregateId AND ((q.eventId = e.id AND q.holdUntil > :now) OR (q.holdsAggregate = TRUE AND q.eventId < e.id AND EXISTS (SELECT p.id FROM OutboxEvent p WHERE p.id = q.eventId AND p.sentAt IS NULL)))) ORDER BY e.createdAt ASC")
   List<OutboxEvent> findPendingEventsForClaim(@Param("now") LocalDateTime now, Pageable pageable);
 
+  /**
+   * Finds and pessimistically locks the pending members of the given write groups, skipping rows
+   * locked by other transactions. Used to complete write groups that were only partially claimed
+   * by {@link #findPendingEventsForClaim}, so events written in one database transaction are
+   * published together. Quarantined events are skipped as in {@link #findPendingEventsForClaim}.
+   *
+   * @param writeGroupIds The write groups to complete.
+   * @param now           The current timestamp to find events whose claims have expired.
+   * @return The remaining claimable members of the groups, now locked by this transaction.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints({
+      @QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")
+  })
+  @Query("SELECT e FROM OutboxEvent e WHERE e.writeGroupId IN :writeGroupIds AND e.sentAt IS NULL AND (e.inProgressUntil IS NULL OR e.inProgressUntil < :now) AND NOT EXISTS (SELECT q.eventId FROM OutboxQuarantine q WHERE q.aggregateType = e.aggregateType AND q.aggregateId = e.aggregateId AND ((q.eventId = e.id AND q.holdUntil > :now) OR (q.holdsAggregate = TRUE AND q.eventId < e.id AND EXISTS (SELECT p.id FROM OutboxEvent p WHERE p.id = q.eventId AND p.sentAt IS NULL)))) ORDER BY e.createdAt ASC")
+  List<OutboxEvent> findPendingWriteGroupMembersForClaim(
+      @Param("writeGroupIds") Collection<String> writeGroupIds, @Param("now") LocalDateTime now);
+
+  /**
+   * Marks a single event as sent, recording its Kafka receipt and clearing the claim and any
+   * recorded failures. Issued as a direct update so a whole batch can be marked inside one
+   * transaction without loading the entities again.
+   *
+   * @return the number of updated rows (0 if the event no longer exists)
+   */
+  @Modifying
+  @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt, e.inProgressUntil = NULL, e.permanentFailureCount = 0, e.lastErrorFingerprintId = NULL, e.kafkaPartition = :partition, e.kafkaOffset = :offset, e.kafkaTimestamp = :timestamp WHERE e.id = :id")
+  int markSent(
+      @Param("id") Long id,
+      @Param("sentAt") LocalDateTime sentAt,
+      @Param("partition") Integer partition,
+      @Param("offset") Long offset,
+      @Param("timestamp") LocalDateTime timestamp);
+
+  /**
+   * Finds and pessimistically locks the unsent events among the given ones that are still held by
+   * the given claim, skipping rows locked by other transactions. Failures are only applied to these
+   * events: one whose claim expired and was taken over, or that is being claimed right now, belongs
+   * to its new owner.
+   *
+   * @param ids          The events a failure was journaled for.
+   * @param claimedUntil The claim the failure was journaled under.
+   * @return The events still held by the claim, now locked by this transaction.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints({
+      @QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")
+  })
+  @Query("SELECT e FROM OutboxEvent e WHERE e.id IN :ids AND e.inProgressUntil = :claimedUntil AND e.sentAt IS NULL")
+  List<OutboxEvent> findHeldByClaimForUpdate(
+      @Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+  /**
+   * Records one more permanent failure for each of the given events and releases their claims, so
+   * a whole batch of failures sharing an error fingerprint is applied in one statement. Only
+   * unsent events still held by the given claim are updated; an event whose claim expired and was
+   * taken over, or that has been sent since, is left to its new owner.
+   *
+   * @return the number of updated rows
+   */
+  @Modifying
+  @Query("UPDATE OutboxEvent e SET e.permanentFailureCount = COALESCE(e.permanentFailureCount, 0) + 1, e.lastErrorFingerprintId = :fingerprintId, e.inProgressUntil = NULL WHERE e.id IN :ids AND e.inProgressUntil = :claimedUntil AND e.sentAt IS NULL")
+  int recordPermanentFailures(
+      @Param("ids") Collection<Long> ids,
+      @Param("fingerprintId") Long fingerprintId,
+      @Param("claimedUntil") LocalDateTime claimedUntil);
+
+  /**
+   * Releases the claims of the given events so they are picked up by the next poll. Only unsent
+   * events still held by the given claim are released.
+   *
+   * @return the number of updated rows
+   */
+  @Modifying
+  @Query("UPDATE OutboxEvent e SET e.inProgressUntil = NULL WHERE e.id IN :ids AND e.inProgressUntil = :claimedUntil AND e.sentAt IS NULL")
+  int releaseClaims(
+      @Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+  /** Returns the ids among the given unsent events whose permanent failure count hit the limit. */
+  @Query("SELECT e.id FROM OutboxEvent e WHERE e.id IN :ids AND e.permanentFailureCount >= :maxFailures AND e.sentAt IS NULL")
+  List<Long> findIdsWithFailuresAtLeast(
+      @Param("ids") Collection<Long> ids, @Param("maxFailures") int maxFailures);
+
+  /**
+   * Deletes the given events without loading them.
+   *
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query("DELETE FROM OutboxEvent e WHERE e.id IN :ids")
+  int deleteByIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Counts the events whose last failure has one of the given error fingerprints.
+   *
+   * @return rows of [fingerprint id, event count]
+   */
+  @Query("SELECT e.lastErrorFingerprintId, COUNT(e) FROM OutboxEvent e WHERE e.lastErrorFingerprintId IN :fingerprintIds GROUP BY e.lastErrorFingerprintId")
+  List<Object[]> countByLastErrorFingerprintIds(
+      @Param("fingerprintIds") Collection<Long> fingerprintIds);
+
   List<OutboxEvent> findBySentAtIsNullOrderByCreatedAtAsc();
 
   List<OutboxEvent> findAllByOrderByCreatedAtAsc();
@@ -48,7 +157,61 @@ public interface OutboxEventRepository
 
   Optional<OutboxEvent> findFirstBySentAtIsNullOrderByCreatedAtAsc();
 
-  // Archival support methods
-  @Query("SELECT e FROM OutboxEvent e WHERE e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime")
-  List<OutboxEvent> findSentEventsBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+  // Archival support methods: archival works through bounded id ranges of sent events
+
+  /** Returns the lowest event id, or null if the outbox is empty. */
+  @Query("SELECT MIN(e.id) FROM OutboxEvent e")
+  Long findMinId();
+
+  /**
+   * Finds the events after an id, in id order, for continuous archival to take its next chunk
+   * from. A primary key range read; the rows are narrow because payloads live in outbox_payloads.
+   */
+  List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  /** Returns the lowest id of an event sent before the cutoff, or null if there is none. */
+  @Query(
+      "SELECT MIN(e.id) FROM OutboxEvent e WHERE e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime")
+  Long findMinSentIdBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+
+  /** Returns the highest id of an event sent before the cutoff, or null if there is none. */
+  @Query(
+      "SELECT MAX(e.id) FROM OutboxEvent e WHERE e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime")
+  Long findMaxSentIdBefore(@Param("cutoffTime") LocalDateTime cutoffTime);
+
+  /**
+   * Finds the events sent before the cutoff in an id range, in id order. Used when archiving to an
+   * archive sink, which needs the events themselves rather than an INSERT ... SELECT.
+   *
+   * @param afterId exclusive lower bound of the id range
+   * @param upToId inclusive upper bound of the id range
+   * @param cutoffTime only events sent before this time
+   */
+  @Query(
+      "SELECT e FROM OutboxEvent e WHERE e.id > :afterId AND e.id <= :upToId"
+          + " AND e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime ORDER BY e.id")
+  List<OutboxEvent> findSentInRange(
+      @Param("afterId") long afterId,
+      @Param("upToId") long upToId,
+      @Param("cutoffTime") LocalDateTime cutoffTime);
+
+  /**
+   * Deletes the events sent before the cutoff in an id range without loading them.
+   *
+   * @param afterId exclusive lower bound of the id range
+   * @param upToId inclusive upper bound of the id range
+   * @param cutoffTime only events sent before this time
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM OutboxEvent e WHERE e.id > :afterId AND e.id <= :upToId"
+          + " AND e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime")
+  int deleteSentInRange(
+      @Param("afterId") long afterId,
+      @Param("upToId") long upToId,
+      @Param("cutoffTime") LocalDateTime cutoffTime);
+
+  // Payload store cleanup: content-addressed payloads may be shared by several events
+  boolean existsByRbpUri(String rbpUri);
 }
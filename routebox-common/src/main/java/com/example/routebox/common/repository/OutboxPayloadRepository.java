@@ -0,0 +1,80 @@
+package com.example.routebox.common.repository;
+
+import com.example.routebox.common.entity.OutboxPayload;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxPayloadRepository extends JpaRepository<OutboxPayload, Long> {
+
+  /**
+   * Loads the payloads of a batch of events with a single IN query.
+   *
+   * @param eventIds The outbox event ids; keep below the database's parameter limit.
+   * @return The payloads found, in no particular order.
+   */
+  @Query("SELECT p FROM OutboxPayload p WHERE p.eventId IN :eventIds")
+  List<OutboxPayload> findByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+  /**
+   * Loads the payloads of a batch of events, skipping those larger than a size limit. Rows written
+   * before payload sizes were recorded are always loaded.
+   *
+   * @param eventIds The outbox event ids; keep below the database's parameter limit.
+   * @param maxBytes The largest payload to load.
+   * @return The payloads found, in no particular order.
+   */
+  @Query(
+      "SELECT p FROM OutboxPayload p WHERE p.eventId IN :eventIds"
+          + " AND (p.sizeBytes IS NULL OR p.sizeBytes <= :maxBytes)")
+  List<OutboxPayload> findByEventIdsUpToSize(
+      @Param("eventIds") Collection<Long> eventIds, @Param("maxBytes") int maxBytes);
+
+  /**
+   * Finds the payloads of a batch of events that are larger than a size limit, without reading
+   * them.
+   *
+   * @param eventIds The outbox event ids; keep below the database's parameter limit.
+   * @param maxBytes The size limit.
+   * @return Pairs of event id and payload size in bytes.
+   */
+  @Query(
+      "SELECT p.eventId, p.sizeBytes FROM OutboxPayload p WHERE p.eventId IN :eventIds"
+          + " AND p.sizeBytes > :maxBytes")
+  List<Object[]> findSizesLargerThan(
+      @Param("eventIds") Collection<Long> eventIds, @Param("maxBytes") int maxBytes);
+
+  /**
+   * Deletes the payloads of a batch of events without loading them.
+   *
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query("DELETE FROM OutboxPayload p WHERE p.eventId IN :eventIds")
+  int deleteByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+  /**
+   * Deletes the payloads of the events sent before the cutoff in an id range, without loading
+   * them. Must run before the events themselves are deleted.
+   *
+   * @param afterId exclusive lower bound of the event id range
+   * @param upToId inclusive upper bound of the event id range
+   * @param cutoffTime only payloads of events sent before this time
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM OutboxPayload p WHERE p.eventId > :afterId AND p.eventId <= :upToId"
+          + " AND p.eventId IN (SELECT e.id FROM OutboxEvent e WHERE e.id > :afterId"
+          + " AND e.id <= :upToId AND e.sentAt IS NOT NULL AND e.sentAt < :cutoffTime)")
+  int deleteOfSentEventsInRange(
+      @Param("afterId") long afterId,
+      @Param("upToId") long upToId,
+      @Param("cutoffTime") LocalDateTime cutoffTime);
+}
@@ -0,0 +1,46 @@
+package com.example.routebox.common.repository;
+
+import com.example.routebox.common.entity.OutboxQuarantine;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxQuarantineRepository extends JpaRepository<OutboxQuarantine, Long> {
+
+  /**
+   * Loads the quarantine entries of a batch of events with a single IN query.
+   *
+   * @param eventIds The outbox event ids; keep below the database's parameter limit.
+   * @return The entries found, in no particular order.
+   */
+  @Query("SELECT q FROM OutboxQuarantine q WHERE q.eventId IN :eventIds")
+  List<OutboxQuarantine> findByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+  List<OutboxQuarantine> findAllByOrderByHoldUntilAsc();
+
+  /**
+   * Releases the given events and the aggregates they hold without loading them.
+   *
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query("DELETE FROM OutboxQuarantine q WHERE q.eventId IN :eventIds")
+  int deleteByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+  /**
+   * Deletes the entries whose event was sent or removed from the outbox by other means, such as an
+   * admin deletion.
+   *
+   * @return the number of deleted rows
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM OutboxQuarantine q WHERE NOT EXISTS (SELECT e.id FROM OutboxEvent e"
+          + " WHERE e.id = q.eventId AND e.sentAt IS NULL)")
+  int deleteResolved();
+}
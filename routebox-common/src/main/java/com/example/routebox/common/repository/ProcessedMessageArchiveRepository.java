@@ -1,10 +1,40 @@
 package com.example.routebox.common.repository;
 
 import com.example.routebox.common.entity.ProcessedMessageArchive;
+import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /** Repository for managing archived processed message records. */
 @Repository
 public interface ProcessedMessageArchiveRepository
-    extends JpaRepository<ProcessedMessageArchive, Long> {}
+    extends JpaRepository<ProcessedMessageArchive, Long> {
+
+  /**
+   * Copies the processed messages processed before the cutoff, up to a processing time, into the
+   * archive table in one INSERT ... SELECT. The caller deletes the same rows in the same
+   * transaction.
+   *
+   * @param upTo inclusive upper bound of the processing time
+   * @param before only messages processed before this time
+   * @param archivedAt the archival time to record
+   * @return the number of archive rows inserted
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          "INSERT INTO processed_messages_archive (original_id, correlation_id, consumer_group,"
+              + " processed_at, archived_at, event_type, aggregate_type, aggregate_id)"
+              + " SELECT p.id, p.correlation_id, p.consumer_group, p.processed_at, :archivedAt,"
+              + " p.event_type, p.aggregate_type, p.aggregate_id"
+              + " FROM processed_messages p"
+              + " WHERE p.processed_at <= :upTo AND p.processed_at < :before")
+  int insertFromProcessedMessages(
+      @Param("upTo") LocalDateTime upTo,
+      @Param("before") LocalDateTime before,
+      @Param("archivedAt") LocalDateTime archivedAt);
+}
@@ -2,7 +2,9 @@ package com.example.routebox.common.repository;
 
 import com.example.routebox.common.entity.ProcessedMessage;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -55,6 +57,33 @@ public interface ProcessedMessageRepository extends JpaRepository<ProcessedMessa
   @Query("DELETE FROM ProcessedMessage p WHERE p.processedAt < :before")
   int deleteByProcessedAtBefore(@Param("before") LocalDateTime before);
 
+  /**
+   * Find the processing times of the oldest processed messages before the specified date, oldest
+   * first. Reads only the processed_at index; used to bound an archival chunk.
+   *
+   * @param before the date threshold
+   * @param pageable the number of processing times to return
+   * @return the processing times, oldest first
+   */
+  @Query(
+      "SELECT p.processedAt FROM ProcessedMessage p WHERE p.processedAt < :before "
+          + "ORDER BY p.processedAt")
+  List<LocalDateTime> findProcessedAtBefore(
+      @Param("before") LocalDateTime before, Pageable pageable);
+
+  /**
+   * Delete processed messages processed before the specified date, up to a processing time. Used
+   * for chunked archival, after the same rows were copied to the archive.
+   *
+   * @param upTo inclusive upper bound of the processing time
+   * @param before the date threshold
+   * @return the number of deleted records
+   */
+  @Modifying
+  @Query("DELETE FROM ProcessedMessage p WHERE p.processedAt <= :upTo AND p.processedAt < :before")
+  int deleteByProcessedAtUpTo(
+      @Param("upTo") LocalDateTime upTo, @Param("before") LocalDateTime before);
+
   /**
    * Count total processed messages for a consumer group.
    *
@@ -0,0 +1,189 @@
+package com.example.routebox.common.util;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Framing for envelope records: several small events with the same key packed into one Kafka
+ * record. The record carries the {@link OutboxHeaders#ENVELOPE} header and the routing headers of
+ * its first event; each inner event keeps its own content headers (correlationId, payloadCodec,
+ * ...), creation time ({@link OutboxHeaders#CREATED_AT_MICROS}) and payload.
+ *
+ * <p>Layout, with every length and count written as an unsigned varint:
+ *
+ * <pre>
+ * version (1 byte)
+ * header name count, then each name as length + UTF-8 bytes
+ * event count, then for each event:
+ *   header count, then each header as name index + value length + value bytes
+ *   payload length + 1 (0 for a null payload), then the payload bytes
+ * </pre>
+ *
+ * Header names are written once per envelope and referenced by index, so the per-event overhead
+ * of a small event with a correlation id is a few bytes plus the id itself.
+ */
+public final class OutboxEnvelope {
+
+  /** Framing version written in the first byte and in the envelope header. */
+  public static final byte VERSION = 1;
+
+  /** One event unpacked from an envelope. */
+  public record Entry(Map<String, byte[]> headers, byte[] payload) {
+
+    /** Returns a header value as UTF-8 text, or null if the event does not have it. */
+    public String header(String name) {
+      byte[] value = headers.get(name);
+      return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the correlation id of the event, or null if it has none. */
+    public String correlationId() {
+      return header(OutboxHeaders.CORRELATION_ID);
+    }
+  }
+
+  /**
+   * Packs events into one envelope value, in the given order.
+   *
+   * @param events the events, with their payloads loaded
+   * @return the envelope bytes
+   */
+  public static byte[] encode(List<OutboxEvent> events) {
+    List<Map<String, byte[]>> headers = new ArrayList<>(events.size());
+    Map<String, Integer> nameIndexes = new LinkedHashMap<>();
+    int size = 16;
+    for (OutboxEvent event : events) {
+      Map<String, byte[]> eventHeaders = OutboxHeaders.envelopeEntryHeaders(event);
+      headers.add(eventHeaders);
+      for (Map.Entry<String, byte[]> header : eventHeaders.entrySet()) {
+        nameIndexes.putIfAbsent(header.getKey(), nameIndexes.size());
+        size += header.getValue().length + 6;
+      }
+      size += (event.getPayload() == null ? 0 : event.getPayload().length) + 6;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+    out.write(VERSION);
+    writeVarint(out, nameIndexes.size());
+    for (String name : nameIndexes.keySet()) {
+      writeBytes(out, name.getBytes(StandardCharsets.UTF_8));
+    }
+    writeVarint(out, events.size());
+    for (int i = 0; i < events.size(); i++) {
+      Map<String, byte[]> eventHeaders = headers.get(i);
+      writeVarint(out, eventHeaders.size());
+      for (Map.Entry<String, byte[]> header : eventHeaders.entrySet()) {
+        writeVarint(out, nameIndexes.get(header.getKey()));
+        writeBytes(out, header.getValue());
+      }
+      byte[] payload = events.get(i).getPayload();
+      if (payload == null) {
+        writeVarint(out, 0);
+      } else {
+        writeVarint(out, payload.length + 1);
+        out.write(payload, 0, payload.length);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Unpacks an envelope value.
+   *
+   * @param value the record value of an envelope record
+   * @return the inner events, in the order they were packed
+   * @throws IllegalArgumentException if the value is not a valid envelope
+   */
+  public static List<Entry> decode(byte[] value) {
+    ByteBuffer in = ByteBuffer.wrap(value);
+    try {
+      byte version = in.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported envelope version: " + version);
+      }
+      String[] names = new String[readCount(in)];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = new String(readBytes(in, readVarint(in)), StandardCharsets.UTF_8);
+      }
+      int eventCount = readCount(in);
+      List<Entry> entries = new ArrayList<>(eventCount);
+      for (int i = 0; i < eventCount; i++) {
+        int headerCount = readCount(in);
+        Map<String, byte[]> headers = new LinkedHashMap<>(headerCount * 2);
+        for (int h = 0; h < headerCount; h++) {
+          String name = names[readVarint(in)];
+          headers.put(name, readBytes(in, readVarint(in)));
+        }
+        int payloadLength = readVarint(in);
+        byte[] payload = payloadLength == 0 ? null : readBytes(in, payloadLength - 1);
+        entries.add(new Entry(Collections.unmodifiableMap(headers), payload));
+      }
+      if (in.hasRemaining()) {
+        throw new IllegalArgumentException(in.remaining() + " trailing bytes after envelope");
+      }
+      return entries;
+    } catch (RuntimeException e) {
+      if (e instanceof IllegalArgumentException) {
+        throw e;
+      }
+      throw new IllegalArgumentException("Malformed outbox envelope", e);
+    }
+  }
+
+  private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+    writeVarint(out, bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private static byte[] readBytes(ByteBuffer in, int length) {
+    if (length > in.remaining()) {
+      throw new IllegalArgumentException("Envelope is truncated");
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return bytes;
+  }
+
+  /** Reads a count; every counted item takes at least one byte, which bounds allocations. */
+  private static int readCount(ByteBuffer in) {
+    int count = readVarint(in);
+    if (count > in.remaining()) {
+      throw new IllegalArgumentException("Envelope is truncated");
+    }
+    return count;
+  }
+
+  private static int readVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value < 0) {
+          throw new IllegalArgumentException("Negative length in envelope");
+        }
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Varint too long in envelope");
+  }
+
+  private OutboxEnvelope() {
+    // Utility class
+  }
+}
@@ -0,0 +1,173 @@
+package com.example.routebox.common.util;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Names of the Kafka record headers written by the RouteBox server and read by consumers.
+ *
+ * <p>Every record carries routing headers describing the event (type, aggregate, creation time)
+ * so consumers can filter, route and deduplicate without deserializing the payload. Text headers
+ * are UTF-8; {@link #CREATED_AT_MICROS} is an 8-byte big-endian long.
+ */
+public final class OutboxHeaders {
+
+  /** Event type of the event, which is also the topic it was published to. */
+  public static final String EVENT_TYPE = "eventType";
+
+  /** Aggregate type of the event (e.g. "Order"). */
+  public static final String AGGREGATE_TYPE = "aggregateType";
+
+  /** Aggregate id of the event, which is also the record key. */
+  public static final String AGGREGATE_ID = "aggregateId";
+
+  /**
+   * Time the event was written to the outbox, as microseconds since the epoch in an 8-byte
+   * big-endian long.
+   */
+  public static final String CREATED_AT_MICROS = "createdAtMicros";
+
+  /** Correlation id of the event, used for tracing and consumer deduplication. */
+  public static final String CORRELATION_ID = "correlationId";
+
+  /**
+   * Name of the codec the payload was compressed with (e.g. "lz4", "zstd"). Absent when the
+   * payload is not compressed.
+   */
+  public static final String PAYLOAD_CODEC = "payloadCodec";
+
+  /**
+   * Format the payload was serialized in (e.g. "avro", "protobuf", "smile"). Absent for JSON.
+   */
+  public static final String PAYLOAD_FORMAT = "payloadFormat";
+
+  /** Id of the schema a schema-based payload was written with. */
+  public static final String PAYLOAD_SCHEMA_ID = "payloadSchemaId";
+
+  /**
+   * URI of a payload offloaded to a PayloadStore. When present, the record value is only a small
+   * reference document and consumers fetch the real payload with RbpClient.
+   */
+  public static final String RBP_REF = "rbpRef";
+
+  /**
+   * Set on envelope records, which pack several small events with the same key into one value
+   * (see {@link OutboxEnvelope}). The value is the number of events inside. Consumers unpack the
+   * record with OutboxEnvelopeDecoder; the inner events carry their own content headers and
+   * creation time.
+   */
+  public static final String ENVELOPE = "outboxEnvelope";
+
+  /**
+   * Returns the headers to send with an event, in a stable order: the routing headers followed by
+   * the content headers. Headers whose value is absent are left out.
+   *
+   * @param event the outbox event
+   * @return header values keyed by header name
+   */
+  public static Map<String, byte[]> forEvent(OutboxEvent event) {
+    Map<String, byte[]> headers = routingHeaders(event);
+    headers.putAll(contentHeaders(event));
+    return headers;
+  }
+
+  /**
+   * Returns the headers describing what the event is about: event type, aggregate and creation
+   * time. An envelope record carries these once, taken from its first event, since all events of
+   * an envelope share the event type and aggregate; its creation time is therefore that of the
+   * oldest event inside, and each inner event carries its own (see {@link #envelopeEntryHeaders}).
+   *
+   * @param event the outbox event
+   * @return header values keyed by header name
+   */
+  public static Map<String, byte[]> routingHeaders(OutboxEvent event) {
+    Map<String, byte[]> headers = new LinkedHashMap<>();
+    putIfPresent(headers, EVENT_TYPE, event.getEventType());
+    putIfPresent(headers, AGGREGATE_TYPE, event.getAggregateType());
+    putIfPresent(headers, AGGREGATE_ID, event.getAggregateId());
+    if (event.getCreatedAt() != null) {
+      headers.put(CREATED_AT_MICROS, encodeMicros(toEpochMicros(event.getCreatedAt())));
+    }
+    return headers;
+  }
+
+  /**
+   * Returns the headers describing the event's payload and identity: correlation id, codec,
+   * format, schema id and payload reference. These are kept per event inside envelopes.
+   *
+   * @param event the outbox event
+   * @return header values keyed by header name
+   */
+  public static Map<String, byte[]> contentHeaders(OutboxEvent event) {
+    Map<String, byte[]> headers = new LinkedHashMap<>();
+    putIfPresent(headers, CORRELATION_ID, event.getCorrelationId());
+    putIfPresent(headers, PAYLOAD_CODEC, event.getPayloadCodec());
+    putIfPresent(headers, PAYLOAD_FORMAT, event.getPayloadFormat());
+    putIfPresent(headers, PAYLOAD_SCHEMA_ID, event.getPayloadSchemaId());
+    event.rbp().ifPresent(rbp -> putIfPresent(headers, RBP_REF, rbp.uri()));
+    return headers;
+  }
+
+  /**
+   * Returns the headers kept for an event inside an envelope: its content headers followed by its
+   * own creation time, which the envelope record's routing headers only give for the first event.
+   *
+   * @param event the outbox event
+   * @return header values keyed by header name
+   */
+  public static Map<String, byte[]> envelopeEntryHeaders(OutboxEvent event) {
+    Map<String, byte[]> headers = contentHeaders(event);
+    if (event.getCreatedAt() != null) {
+      headers.put(CREATED_AT_MICROS, encodeMicros(toEpochMicros(event.getCreatedAt())));
+    }
+    return headers;
+  }
+
+  /**
+   * Encodes a {@link #CREATED_AT_MICROS} header value.
+   *
+   * @param epochMicros microseconds since the epoch
+   * @return the 8-byte big-endian value
+   */
+  public static byte[] encodeMicros(long epochMicros) {
+    return ByteBuffer.allocate(Long.BYTES).putLong(epochMicros).array();
+  }
+
+  /**
+   * Decodes a {@link #CREATED_AT_MICROS} header value.
+   *
+   * @param value the 8-byte big-endian header value
+   * @return microseconds since the epoch
+   * @throws IllegalArgumentException if the value is not 8 bytes long
+   */
+  public static long decodeMicros(byte[] value) {
+    if (value.length != Long.BYTES) {
+      throw new IllegalArgumentException(
+          "Expected " + Long.BYTES + " bytes for " + CREATED_AT_MICROS + ", got " + value.length);
+    }
+    return ByteBuffer.wrap(value).getLong();
+  }
+
+  /** Converts an outbox timestamp, stored in the system time zone, to epoch microseconds. */
+  private static long toEpochMicros(LocalDateTime time) {
+    Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+    return Math.addExact(
+        Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000L);
+  }
+
+  private static void putIfPresent(Map<String, byte[]> headers, String name, String value) {
+    if (value != null) {
+      headers.put(name, value.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private OutboxHeaders() {
+    // Utility class
+  }
+}
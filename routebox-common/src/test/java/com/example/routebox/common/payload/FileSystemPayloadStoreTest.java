@@ -0,0 +1,120 @@
+package com.example.routebox.common.payload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemPayloadStoreTest {
+
+  @TempDir Path root;
+
+  @Test
+  void store_returnsContentAddressedUriAndRoundTrips() {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    byte[] payload = new byte[3 * 1024 * 1024];
+    new Random(42).nextBytes(payload);
+
+    String uri = store.store(payload);
+
+    assertThat(uri).matches("fs://sha256/[0-9a-f]{64}");
+    assertThat(store.supports(uri)).isTrue();
+    assertThat(store.retrieve(uri)).isEqualTo(payload);
+  }
+
+  @Test
+  void store_deduplicatesIdenticalContent() throws IOException {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    byte[] payload = "{\"document\":\"large\"}".getBytes(StandardCharsets.UTF_8);
+
+    String first = store.store(payload);
+    String second = store.store(payload.clone());
+
+    assertThat(second).isEqualTo(first);
+    try (Stream<Path> files = Files.walk(root)) {
+      // One payload file and no leftover temp files
+      assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+    }
+  }
+
+  @Test
+  void retrieveBuffer_returnsReadOnlyMapping() {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    byte[] payload = "mapped".getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer buffer = store.retrieveBuffer(store.store(payload));
+
+    assertThat(buffer.isReadOnly()).isTrue();
+    assertThat(buffer.remaining()).isEqualTo(payload.length);
+  }
+
+  @Test
+  void delete_removesPayload() {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    String uri = store.store("gone".getBytes(StandardCharsets.UTF_8));
+
+    store.delete(uri);
+    store.delete(uri); // Deleting twice is not an error
+
+    assertThatThrownBy(() -> store.retrieve(uri)).isInstanceOf(PayloadNotFoundException.class);
+  }
+
+  @Test
+  void deleteIfStoredBefore_deletesPayloadsStoredBeforeTheCutoff() throws IOException {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    String uri = store.store("old".getBytes(StandardCharsets.UTF_8));
+    storedAgo(uri, Duration.ofHours(2));
+
+    assertThat(store.deleteIfStoredBefore(uri, Instant.now().minus(Duration.ofHours(1)))).isTrue();
+    assertThat(store.deleteIfStoredBefore(uri, Instant.now())).isFalse();
+
+    assertThatThrownBy(() -> store.retrieve(uri)).isInstanceOf(PayloadNotFoundException.class);
+  }
+
+  @Test
+  void deleteIfStoredBefore_keepsPayloadsStoredAgainSinceTheCutoff() throws IOException {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+    byte[] payload = "shared".getBytes(StandardCharsets.UTF_8);
+    String uri = store.store(payload);
+    storedAgo(uri, Duration.ofHours(2));
+
+    // A writer stores the same content again, e.g. for a row it has not committed yet
+    store.store(payload);
+
+    assertThat(store.deleteIfStoredBefore(uri, Instant.now().minus(Duration.ofHours(1)))).isFalse();
+    assertThat(store.retrieve(uri)).isEqualTo(payload);
+    try (Stream<Path> files = Files.walk(root)) {
+      // The payload is back in place, with nothing left aside
+      assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+    }
+  }
+
+  @Test
+  void retrieve_rejectsForeignAndMalformedUris() {
+    FileSystemPayloadStore store = new FileSystemPayloadStore(root);
+
+    assertThat(store.supports("s3://bucket/key")).isFalse();
+    assertThatThrownBy(() -> store.retrieve("s3://bucket/key"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> store.retrieve("fs://sha256/../../etc/passwd"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /** Sets the time a payload was last stored. */
+  private void storedAgo(String uri, Duration age) throws IOException {
+    String hash = uri.substring("fs://sha256/".length());
+    Path file = root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+  }
+}
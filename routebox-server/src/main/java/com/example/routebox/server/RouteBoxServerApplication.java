@@ -1,8 +1,10 @@
 package com.example.routebox.server;
 
+import com.example.routebox.common.config.RbpConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -21,6 +23,7 @@ import org.springframework.scheduling.config.ScheduledTaskRegistrar;
       "com.example.routebox.server.entity" // For local entities
     })
 @EnableScheduling
+@Import(RbpConfig.class) // Shared payload store for offloaded payloads
 public class RouteBoxServerApplication implements SchedulingConfigurer {
 
   private final TaskScheduler taskScheduler;
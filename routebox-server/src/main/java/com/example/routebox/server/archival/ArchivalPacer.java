@@ -0,0 +1,87 @@
+package com.example.routebox.server.archival;
+
+import java.time.Duration;
+
+/**
+ * Paces continuous archival by additive increase and multiplicative decrease. The chunk grows by
+ * the minimum chunk size after every chunk that finished within the target duration, and halves
+ * after a slow chunk or when the publishing pipeline had no headroom. Under pressure at the
+ * minimum size, archival also sits out a number of ticks that doubles with each further sign of
+ * pressure, so it gets out of the way of a busy database within a few ticks and creeps back once
+ * the database is idle again.
+ */
+public class ArchivalPacer {
+
+  /** Longest run of ticks sat out after repeated pressure at the minimum chunk size. */
+  static final int MAX_BACKOFF_TICKS = 64;
+
+  private final int minChunkSize;
+  private final int maxChunkSize;
+  private final Duration targetChunkDuration;
+
+  private int chunkSize;
+  private int backoffTicks;
+  private int idleTicks;
+
+  /**
+   * @param minChunkSize smallest chunk, and the step by which chunks grow
+   * @param maxChunkSize largest chunk
+   * @param targetChunkDuration chunks taking longer than this shrink the next one
+   */
+  public ArchivalPacer(int minChunkSize, int maxChunkSize, Duration targetChunkDuration) {
+    if (minChunkSize <= 0 || maxChunkSize < minChunkSize) {
+      throw new IllegalArgumentException(
+          "Invalid archival chunk bounds: " + minChunkSize + ".." + maxChunkSize);
+    }
+    this.minChunkSize = minChunkSize;
+    this.maxChunkSize = maxChunkSize;
+    this.targetChunkDuration = targetChunkDuration;
+    this.chunkSize = minChunkSize;
+  }
+
+  /** Returns the number of events to archive in the next chunk. */
+  public synchronized int chunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Called once per tick before archiving.
+   *
+   * @return false if this tick is sat out after recent pressure
+   */
+  public synchronized boolean tryTick() {
+    if (idleTicks > 0) {
+      idleTicks--;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Adjusts the pace to the duration of an archived chunk.
+   *
+   * @param duration time the chunk took, including commit
+   */
+  public synchronized void onChunk(Duration duration) {
+    if (duration.compareTo(targetChunkDuration) > 0) {
+      slowDown();
+    } else {
+      backoffTicks = 0;
+      chunkSize = Math.min(maxChunkSize, chunkSize + minChunkSize);
+    }
+  }
+
+  /** Slows down after a tick on which the publishing pipeline had no headroom. */
+  public synchronized void onNoHeadroom() {
+    slowDown();
+  }
+
+  private void slowDown() {
+    if (chunkSize > minChunkSize) {
+      chunkSize = Math.max(minChunkSize, chunkSize / 2);
+      return;
+    }
+    backoffTicks = Math.min(MAX_BACKOFF_TICKS, Math.max(1, backoffTicks * 2));
+    idleTicks = backoffTicks;
+  }
+}
@@ -0,0 +1,126 @@
+package com.example.routebox.server.archival;
+
+import com.example.routebox.common.entity.RbpSpec;
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary encoding of one archived event inside a segment block. Fields are written in a fixed
+ * order; nullable fields are preceded by a presence flag. Times are stored as UTC-interpreted
+ * epoch seconds and nanos, matching the zone-less LocalDateTime columns of the database.
+ */
+final class ArchiveRecordCodec {
+
+  private ArchiveRecordCodec() {}
+
+  static void write(DataOutput out, OutboxArchiveEvent event) throws IOException {
+    out.writeLong(event.getOriginalEventId());
+    out.writeUTF(event.getAggregateType());
+    out.writeUTF(event.getAggregateId());
+    out.writeUTF(event.getEventType());
+    writeNullable(out, event.getCorrelationId());
+    byte[] payload = event.getPayload();
+    out.writeInt(payload == null ? -1 : payload.length);
+    if (payload != null) {
+      out.write(payload);
+    }
+    writeNullable(out, event.getPayloadCodec());
+    writeNullable(out, event.getPayloadFormat());
+    writeNullable(out, event.getPayloadSchemaId());
+    RbpSpec rbp = event.getRbp();
+    out.writeBoolean(rbp != null);
+    if (rbp != null) {
+      writeNullable(out, rbp.uri());
+      writeNullable(out, rbp.sizeBytes());
+      writeNullable(out, rbp.storedAt());
+    }
+    writeTime(out, event.getCreatedAt());
+    writeTime(out, event.getSentAt());
+    writeTime(out, event.getArchivedAt());
+    out.writeBoolean(event.getKafkaPartition() != null);
+    if (event.getKafkaPartition() != null) {
+      out.writeInt(event.getKafkaPartition());
+    }
+    writeNullable(out, event.getKafkaOffset());
+    writeNullable(out, event.getKafkaTimestamp());
+  }
+
+  static OutboxArchiveEvent read(DataInput in) throws IOException {
+    OutboxArchiveEvent event = new OutboxArchiveEvent();
+    event.setOriginalEventId(in.readLong());
+    event.setAggregateType(in.readUTF());
+    event.setAggregateId(in.readUTF());
+    event.setEventType(in.readUTF());
+    event.setCorrelationId(readString(in));
+    int payloadLength = in.readInt();
+    if (payloadLength >= 0) {
+      byte[] payload = new byte[payloadLength];
+      in.readFully(payload);
+      event.setPayload(payload);
+    }
+    event.setPayloadCodec(readString(in));
+    event.setPayloadFormat(readString(in));
+    event.setPayloadSchemaId(readString(in));
+    if (in.readBoolean()) {
+      event.setRbp(new RbpSpec(readString(in), readLong(in), readTime(in)));
+    }
+    event.setCreatedAt(readTimeValue(in));
+    event.setSentAt(readTimeValue(in));
+    event.setArchivedAt(readTimeValue(in));
+    event.setKafkaPartition(in.readBoolean() ? in.readInt() : null);
+    event.setKafkaOffset(readLong(in));
+    event.setKafkaTimestamp(readTime(in));
+    return event;
+  }
+
+  /** Returns the time as UTC-interpreted epoch seconds, the unit of the sparse index. */
+  static long epochSecond(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  private static void writeNullable(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static void writeNullable(DataOutput out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static void writeNullable(DataOutput out, LocalDateTime value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeTime(out, value);
+    }
+  }
+
+  private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+    out.writeLong(epochSecond(time));
+    out.writeInt(time.getNano());
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static Long readLong(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static LocalDateTime readTime(DataInput in) throws IOException {
+    return in.readBoolean() ? readTimeValue(in) : null;
+  }
+
+  private static LocalDateTime readTimeValue(DataInput in) throws IOException {
+    return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.routebox.server.archival;
+
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Destination of archived outbox events other than the outbox_archive_events table. When an
+ * ArchiveSink bean exists, OutboxArchivalService appends the events of each archived range to it
+ * instead of copying them into the table, ArchivedEventService looks events up in it,
+ * ArchiveReplayService replays them from it and ArchiveSinkRetentionService deletes them once they
+ * are past retention.
+ *
+ * <p>Appends happen inside the transaction that deletes the events from the outbox, before it
+ * commits. If that transaction rolls back after an append, the range is archived again later, so
+ * a sink must not add the events of a range it already holds a second time.
+ */
+public interface ArchiveSink {
+
+  /**
+   * Appends the archived events of an outbox id range, skipping the ones an earlier append of the
+   * range already added. The events are on stable storage when this method returns.
+   *
+   * @param afterId exclusive lower bound of the outbox event id range
+   * @param upToId inclusive upper bound of the outbox event id range
+   * @param events the events, in the order they were archived
+   */
+  void append(long afterId, long upToId, List<OutboxArchiveEvent> events);
+
+  /**
+   * Finds the archived events of an aggregate created in a time range.
+   *
+   * @param aggregateId the aggregate id
+   * @param from inclusive lower bound of the creation time
+   * @param to exclusive upper bound of the creation time
+   * @return the events, in the order they were appended
+   */
+  List<OutboxArchiveEvent> findByAggregateId(
+      String aggregateId, LocalDateTime from, LocalDateTime to);
+
+  /**
+   * Passes every archived event created in a time range to an action, in the order they were
+   * appended, without holding more than a small part of the archive in memory.
+   *
+   * @param from inclusive lower bound of the creation time
+   * @param to exclusive upper bound of the creation time
+   * @param action called once per event
+   */
+  void scan(LocalDateTime from, LocalDateTime to, Consumer<OutboxArchiveEvent> action);
+
+  /**
+   * Deletes archived events created before a time. A sink may keep such events until the whole
+   * unit of storage holding them has expired.
+   *
+   * @param before exclusive upper bound of the creation time
+   * @param beforeDelete called with the offloaded payload URIs of the events about to be deleted;
+   *     if it throws, nothing is deleted
+   * @return the number of events deleted
+   */
+  int deleteCreatedBefore(LocalDateTime before, Consumer<Set<String>> beforeDelete);
+
+  /**
+   * Returns true if an archived event refers to an offloaded payload, so the payload must be kept.
+   *
+   * @param uri the payload URI
+   */
+  boolean referencesPayload(String uri);
+}
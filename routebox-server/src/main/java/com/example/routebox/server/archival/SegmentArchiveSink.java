@@ -0,0 +1,669 @@
+package com.example.routebox.server.archival;
+
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Archive sink writing append-only, block-compressed segment files to a local directory.
+ *
+ * <p>Each segment is a set of three files. The {@code .seg} file holds blocks of encoded events,
+ * each compressed with zstd once it reaches the block size and followed by nothing but the next
+ * block. The {@code .idx} file is a sparse index with one fixed-size entry per block: the block's
+ * position, its event count, the range of its events' creation times, the outbox id range of the
+ * append it belongs to and a small bloom filter of its aggregate ids. The {@code .rbp} file lists
+ * the offloaded payload URIs the segment's events refer to, one per line. Lookups map the index,
+ * skip every block whose time range or filter rules it out and memory-map only the blocks left.
+ *
+ * <p>Every append writes whole blocks and payload URIs, fsyncs them and only then adds and fsyncs
+ * their index entries, so an entry never points at data that did not reach the disk. An append
+ * whose id range overlaps one already written reads back the events of those earlier appends and
+ * skips the ones it holds, so a range appended again after its transaction rolled back is not
+ * archived twice. A segment is rolled once it has been open for the roll interval, and a new one
+ * is started after a restart or a failed write; existing files are never written again. Segment
+ * names start with their opening time, so listing them in name order lists them in archival order.
+ *
+ * <p>The id ranges, creation times and payload URIs of all segments are kept in memory, loaded
+ * from the files when the sink is created. Retention deletes whole segments once every event in
+ * them is past it.
+ */
+@Slf4j
+public class SegmentArchiveSink implements ArchiveSink, Closeable {
+
+  static final String SEGMENT_SUFFIX = ".seg";
+  static final String INDEX_SUFFIX = ".idx";
+  static final String PAYLOADS_SUFFIX = ".rbp";
+
+  private static final int SEGMENT_MAGIC = 0x52424153; // "RBAS"
+  private static final int INDEX_MAGIC = 0x52424149; // "RBAI"
+  private static final int FORMAT_VERSION = 1;
+  private static final int FILE_HEADER_BYTES = 8;
+
+  /** Uncompressed length, compressed length and CRC32 of the compressed bytes. */
+  private static final int BLOCK_HEADER_BYTES = 12;
+
+  static final int FILTER_BYTES = 256;
+  private static final int FILTER_BITS = FILTER_BYTES * 8;
+  private static final int FILTER_HASHES = 3;
+
+  /**
+   * Block position and length, event count, min and max creation second, the id range of the
+   * append and the aggregate filter.
+   */
+  static final int INDEX_ENTRY_BYTES = 8 + 4 + 4 + 8 + 8 + 8 + 8 + FILTER_BYTES;
+
+  private static final int ENTRY_MIN_SECOND = 16;
+  private static final int ENTRY_MAX_SECOND = 24;
+  private static final int ENTRY_AFTER_ID = 32;
+  private static final int ENTRY_UP_TO_ID = 40;
+  private static final int ENTRY_FILTER = 48;
+
+  private static final DateTimeFormatter SEGMENT_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss").withZone(ZoneOffset.UTC);
+
+  private final Path directory;
+  private final Duration rollInterval;
+  private final int blockSizeBytes;
+  private final int compressionLevel;
+  private final Clock clock;
+
+  /** Segment appended to; null until the first append and after a roll. Guarded by this. */
+  private Segment current;
+
+  /** What each segment holds, by segment name in archival order. Guarded by this. */
+  private final Map<String, SegmentSummary> summaries = new TreeMap<>();
+
+  /**
+   * Creates a sink writing to a directory, which is created if it does not exist.
+   *
+   * @param directory directory of the segment files
+   * @param rollInterval how long a segment is appended to before a new one is started
+   * @param blockSizeBytes uncompressed size at which a block is compressed and written
+   * @param compressionLevel zstd compression level (1-22)
+   */
+  public SegmentArchiveSink(
+      Path directory, Duration rollInterval, int blockSizeBytes, int compressionLevel) {
+    this(directory, rollInterval, blockSizeBytes, compressionLevel, Clock.systemUTC());
+  }
+
+  SegmentArchiveSink(
+      Path directory,
+      Duration rollInterval,
+      int blockSizeBytes,
+      int compressionLevel,
+      Clock clock) {
+    if (rollInterval.isZero() || rollInterval.isNegative()) {
+      throw new IllegalArgumentException("Roll interval must be positive: " + rollInterval);
+    }
+    if (blockSizeBytes <= 0) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSizeBytes);
+    }
+    this.directory = directory.toAbsolutePath();
+    this.rollInterval = rollInterval;
+    this.blockSizeBytes = blockSizeBytes;
+    this.compressionLevel = compressionLevel;
+    this.clock = clock;
+    try {
+      Files.createDirectories(this.directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create archive directory " + this.directory, e);
+    }
+    loadSummaries();
+  }
+
+  @Override
+  public synchronized void append(long afterId, long upToId, List<OutboxArchiveEvent> events) {
+    Set<Long> written = appendedIds(afterId, upToId);
+    List<OutboxArchiveEvent> pending =
+        written.isEmpty()
+            ? events
+            : events.stream()
+                .filter(event -> !written.contains(event.getOriginalEventId()))
+                .toList();
+    if (pending.size() < events.size()) {
+      log.info(
+          "Skipping {} events in ({}, {}] that are already archived",
+          events.size() - pending.size(),
+          afterId,
+          upToId);
+    }
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    Segment segment = null;
+    try {
+      segment = segmentForAppend();
+      SegmentSummary summary = summaries.get(segment.name);
+      List<ByteBuffer> entries = new ArrayList<>();
+      ByteArrayOutputStream block = new ByteArrayOutputStream(blockSizeBytes + 1024);
+      DataOutputStream out = new DataOutputStream(block);
+      BlockStats stats = new BlockStats();
+      Set<String> payloadUris = new LinkedHashSet<>();
+      for (OutboxArchiveEvent event : pending) {
+        ArchiveRecordCodec.write(out, event);
+        stats.add(event);
+        if (event.getRbp() != null
+            && event.getRbp().uri() != null
+            && !summary.payloadUris.contains(event.getRbp().uri())) {
+          payloadUris.add(event.getRbp().uri());
+        }
+        if (block.size() >= blockSizeBytes) {
+          entries.add(segment.writeBlock(block.toByteArray(), stats, afterId, upToId));
+          block.reset();
+          stats = new BlockStats();
+        }
+      }
+      if (stats.count > 0) {
+        entries.add(segment.writeBlock(block.toByteArray(), stats, afterId, upToId));
+      }
+      segment.writePayloadUris(payloadUris);
+
+      // Index entries are only added once the blocks and payload URIs they cover are durable
+      segment.data.force(false);
+      segment.payloads.force(false);
+      for (ByteBuffer entry : entries) {
+        summary.add(entry);
+        writeFully(segment.index, entry);
+      }
+      segment.index.force(false);
+      summary.payloadUris.addAll(payloadUris);
+    } catch (IOException e) {
+      // The segment may end in a partial block; later appends go to a new one
+      closeQuietly(segment);
+      current = null;
+      throw new UncheckedIOException("Failed to append to archive segment", e);
+    }
+  }
+
+  @Override
+  public List<OutboxArchiveEvent> findByAggregateId(
+      String aggregateId, LocalDateTime from, LocalDateTime to) {
+    List<OutboxArchiveEvent> found = new ArrayList<>();
+    read(from, to, aggregateId, found::add);
+    return found;
+  }
+
+  @Override
+  public void scan(LocalDateTime from, LocalDateTime to, Consumer<OutboxArchiveEvent> action) {
+    read(from, to, null, action);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Deletes the segments whose events were all created before the time, except the one being
+   * appended to. The segments stop counting as references to their payloads before {@code
+   * beforeDelete} is called, and count again if it throws.
+   */
+  @Override
+  public synchronized int deleteCreatedBefore(
+      LocalDateTime before, Consumer<Set<String>> beforeDelete) {
+    long beforeSecond = ArchiveRecordCodec.epochSecond(before);
+    Map<String, SegmentSummary> expired = new TreeMap<>();
+    summaries.forEach(
+        (name, summary) -> {
+          if ((current == null || !current.name.equals(name))
+              && summary.maxSecond < beforeSecond) {
+            expired.put(name, summary);
+          }
+        });
+    if (expired.isEmpty()) {
+      return 0;
+    }
+
+    Set<String> payloadUris = new HashSet<>();
+    expired.values().forEach(summary -> payloadUris.addAll(summary.payloadUris));
+    summaries.keySet().removeAll(expired.keySet());
+    try {
+      beforeDelete.accept(payloadUris);
+    } catch (RuntimeException e) {
+      summaries.putAll(expired);
+      throw e;
+    }
+
+    int deleted = 0;
+    for (Map.Entry<String, SegmentSummary> segment : expired.entrySet()) {
+      // The index goes first, so a reader never finds an index without its data
+      try {
+        for (String suffix : List.of(INDEX_SUFFIX, SEGMENT_SUFFIX, PAYLOADS_SUFFIX)) {
+          Files.deleteIfExists(directory.resolve(segment.getKey() + suffix));
+        }
+        deleted += segment.getValue().eventCount;
+      } catch (IOException e) {
+        log.warn("Failed to delete archive segment {}: {}", segment.getKey(), e.getMessage());
+      }
+    }
+    log.info("Deleted {} archive segments with {} events", expired.size(), deleted);
+    return deleted;
+  }
+
+  @Override
+  public synchronized boolean referencesPayload(String uri) {
+    for (SegmentSummary summary : summaries.values()) {
+      if (summary.payloadUris.contains(uri)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized void close() {
+    closeQuietly(current);
+    current = null;
+  }
+
+  /** Reads what every segment in the directory holds. */
+  private void loadSummaries() {
+    for (Path index : indexFiles()) {
+      String indexName = index.getFileName().toString();
+      String name = indexName.substring(0, indexName.length() - INDEX_SUFFIX.length());
+      SegmentSummary summary = new SegmentSummary();
+      try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+        ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (!hasValidHeader(entries)) {
+          log.warn("Skipping archive index {} without a valid header", index);
+          continue;
+        }
+        int count = (entries.limit() - FILE_HEADER_BYTES) / INDEX_ENTRY_BYTES;
+        for (int i = 0; i < count; i++) {
+          summary.add(entries.slice(FILE_HEADER_BYTES + i * INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES));
+        }
+        Path payloads = directory.resolve(name + PAYLOADS_SUFFIX);
+        if (Files.exists(payloads)) {
+          // A line cut short by a failed append belongs to events without index entries
+          summary.payloadUris.addAll(Files.readAllLines(payloads, StandardCharsets.UTF_8));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read archive segment " + index, e);
+      }
+      summaries.put(name, summary);
+    }
+    log.info("Found {} archive segments in {}", summaries.size(), directory);
+  }
+
+  /**
+   * Returns the ids in the range of the events already appended by earlier appends of an
+   * overlapping range. Reads only the blocks of those appends.
+   */
+  private Set<Long> appendedIds(long afterId, long upToId) {
+    Set<Long> ids = new HashSet<>();
+    summaries.forEach(
+        (name, summary) -> {
+          if (summary.overlaps(afterId, upToId)) {
+            readSegment(
+                name,
+                (entries, at) ->
+                    entries.getLong(at + ENTRY_AFTER_ID) < upToId
+                        && afterId < entries.getLong(at + ENTRY_UP_TO_ID),
+                event -> {
+                  long id = event.getOriginalEventId();
+                  if (id > afterId && id <= upToId) {
+                    ids.add(id);
+                  }
+                });
+          }
+        });
+    return ids;
+  }
+
+  private Segment segmentForAppend() throws IOException {
+    Instant now = clock.instant();
+    if (current != null && !now.isBefore(current.openedAt.plus(rollInterval))) {
+      log.info("Rolling archive segment {}", current.name);
+      closeQuietly(current);
+      current = null;
+    }
+    if (current == null) {
+      String name =
+          "segment-"
+              + SEGMENT_TIME.format(now)
+              + "-"
+              + UUID.randomUUID().toString().substring(0, 8);
+      current = Segment.create(directory, name, now, compressionLevel);
+      summaries.put(name, new SegmentSummary());
+      log.info("Opened archive segment {}", name);
+    }
+    return current;
+  }
+
+  /** Reads the events created in the time range, optionally only those of one aggregate. */
+  private void read(
+      LocalDateTime from,
+      LocalDateTime to,
+      String aggregateId,
+      Consumer<OutboxArchiveEvent> action) {
+    long fromSecond = ArchiveRecordCodec.epochSecond(from);
+    long toSecond = ArchiveRecordCodec.epochSecond(to);
+    Consumer<OutboxArchiveEvent> matching =
+        event -> {
+          if (!event.getCreatedAt().isBefore(from)
+              && event.getCreatedAt().isBefore(to)
+              && (aggregateId == null || aggregateId.equals(event.getAggregateId()))) {
+            action.accept(event);
+          }
+        };
+    BlockFilter blocks =
+        (entries, at) ->
+            entries.getLong(at + ENTRY_MAX_SECOND) >= fromSecond
+                && entries.getLong(at + ENTRY_MIN_SECOND) <= toSecond
+                && (aggregateId == null
+                    || mightContain(entries, at + ENTRY_FILTER, aggregateId));
+    for (String name : segmentNames()) {
+      readSegment(name, blocks, matching);
+    }
+  }
+
+  private synchronized List<String> segmentNames() {
+    return List.copyOf(summaries.keySet());
+  }
+
+  private List<Path> indexFiles() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.getFileName().toString().endsWith(INDEX_SUFFIX))
+          .sorted()
+          .toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to list archive segments in " + directory, e);
+    }
+  }
+
+  /**
+   * Passes the events of a segment's blocks accepted by a filter to an action. A segment deleted by
+   * retention in the meantime is skipped.
+   */
+  private void readSegment(String name, BlockFilter blocks, Consumer<OutboxArchiveEvent> action) {
+    Path indexPath = directory.resolve(name + INDEX_SUFFIX);
+    Path dataPath = directory.resolve(name + SEGMENT_SUFFIX);
+    try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      ByteBuffer entries = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size());
+      if (!hasValidHeader(entries)) {
+        log.warn("Skipping archive index {} without a valid header", indexPath);
+        return;
+      }
+
+      FileChannel data = null;
+      try {
+        int count = (entries.limit() - FILE_HEADER_BYTES) / INDEX_ENTRY_BYTES;
+        for (int i = 0; i < count; i++) {
+          int at = FILE_HEADER_BYTES + i * INDEX_ENTRY_BYTES;
+          if (!blocks.accepts(entries, at)) {
+            continue;
+          }
+          if (data == null) {
+            data = FileChannel.open(dataPath, StandardOpenOption.READ);
+          }
+          readBlock(data, entries.getLong(at), entries.getInt(at + 8), entries.getInt(at + 12))
+              .forEach(action);
+        }
+      } finally {
+        if (data != null) {
+          data.close();
+        }
+      }
+    } catch (NoSuchFileException e) {
+      log.debug("Archive segment {} was deleted while it was read", name);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read archive segment " + indexPath, e);
+    }
+  }
+
+  private static boolean hasValidHeader(ByteBuffer entries) {
+    return entries.limit() >= FILE_HEADER_BYTES && entries.getInt(0) == INDEX_MAGIC;
+  }
+
+  private static List<OutboxArchiveEvent> readBlock(
+      FileChannel data, long position, int length, int eventCount) throws IOException {
+    ByteBuffer block = data.map(FileChannel.MapMode.READ_ONLY, position, length);
+    int rawLength = block.getInt();
+    int compressedLength = block.getInt();
+    int checksum = block.getInt();
+    byte[] compressed = new byte[compressedLength];
+    block.get(compressed);
+    CRC32 crc = new CRC32();
+    crc.update(compressed);
+    if ((int) crc.getValue() != checksum) {
+      throw new IOException("Corrupt archive block at " + position);
+    }
+
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(Zstd.decompress(compressed, rawLength)));
+    List<OutboxArchiveEvent> events = new ArrayList<>(eventCount);
+    for (int i = 0; i < eventCount; i++) {
+      events.add(ArchiveRecordCodec.read(in));
+    }
+    return events;
+  }
+
+  private static void addToFilter(byte[] filter, String aggregateId) {
+    int[] hashes = filterHashes(aggregateId);
+    for (int i = 0; i < FILTER_HASHES; i++) {
+      int bit = Math.floorMod(hashes[0] + i * hashes[1], FILTER_BITS);
+      filter[bit >>> 3] |= (byte) (1 << (bit & 7));
+    }
+  }
+
+  private static boolean mightContain(ByteBuffer entries, int filterAt, String aggregateId) {
+    int[] hashes = filterHashes(aggregateId);
+    for (int i = 0; i < FILTER_HASHES; i++) {
+      int bit = Math.floorMod(hashes[0] + i * hashes[1], FILTER_BITS);
+      if ((entries.get(filterAt + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Two independent hashes of the aggregate id, combined into the filter's bit positions. */
+  private static int[] filterHashes(String aggregateId) {
+    CRC32 crc = new CRC32();
+    crc.update(aggregateId.getBytes(StandardCharsets.UTF_8));
+    return new int[] {aggregateId.hashCode(), (int) crc.getValue() | 1};
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void closeQuietly(Segment segment) {
+    if (segment == null) {
+      return;
+    }
+    try {
+      segment.data.close();
+      segment.payloads.close();
+      segment.index.close();
+    } catch (IOException e) {
+      log.warn("Failed to close archive segment {}: {}", segment.name, e.getMessage());
+    }
+  }
+
+  /** Selects the index entries, and so the blocks, a read visits. */
+  @FunctionalInterface
+  private interface BlockFilter {
+    boolean accepts(ByteBuffer entries, int at);
+  }
+
+  /** Id ranges, newest creation time and payload URIs of a segment's indexed blocks. */
+  private static final class SegmentSummary {
+    private long afterId = Long.MAX_VALUE;
+    private long upToId = Long.MIN_VALUE;
+    private long maxSecond = Long.MIN_VALUE;
+    private long eventCount;
+    private final Set<String> payloadUris = new HashSet<>();
+
+    /** Adds an index entry, read from its start. */
+    void add(ByteBuffer entry) {
+      eventCount += entry.getInt(12);
+      maxSecond = Math.max(maxSecond, entry.getLong(ENTRY_MAX_SECOND));
+      afterId = Math.min(afterId, entry.getLong(ENTRY_AFTER_ID));
+      upToId = Math.max(upToId, entry.getLong(ENTRY_UP_TO_ID));
+    }
+
+    /** Returns true if an append to the segment may have covered part of the id range. */
+    boolean overlaps(long rangeAfterId, long rangeUpToId) {
+      return afterId < rangeUpToId && rangeAfterId < upToId;
+    }
+  }
+
+  /** Creation time range and aggregate filter of the block being built. */
+  private static final class BlockStats {
+    private int count;
+    private long minSecond = Long.MAX_VALUE;
+    private long maxSecond = Long.MIN_VALUE;
+    private final byte[] filter = new byte[FILTER_BYTES];
+
+    void add(OutboxArchiveEvent event) {
+      long second = ArchiveRecordCodec.epochSecond(event.getCreatedAt());
+      minSecond = Math.min(minSecond, second);
+      maxSecond = Math.max(maxSecond, second);
+      addToFilter(filter, event.getAggregateId());
+      count++;
+    }
+  }
+
+  /** Open data, payload and index files of the segment being appended to. */
+  private static final class Segment {
+    private final String name;
+    private final Instant openedAt;
+    private final int compressionLevel;
+    private final FileChannel data;
+    private final FileChannel payloads;
+    private final FileChannel index;
+
+    private Segment(
+        String name,
+        Instant openedAt,
+        int compressionLevel,
+        FileChannel data,
+        FileChannel payloads,
+        FileChannel index) {
+      this.name = name;
+      this.openedAt = openedAt;
+      this.compressionLevel = compressionLevel;
+      this.data = data;
+      this.payloads = payloads;
+      this.index = index;
+    }
+
+    static Segment create(Path directory, String name, Instant openedAt, int compressionLevel)
+        throws IOException {
+      FileChannel data = open(directory.resolve(name + SEGMENT_SUFFIX), SEGMENT_MAGIC);
+      FileChannel payloads;
+      FileChannel index;
+      try {
+        payloads =
+            FileChannel.open(
+                directory.resolve(name + PAYLOADS_SUFFIX),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        data.close();
+        throw e;
+      }
+      try {
+        // Created last: a segment is only read once its index exists
+        index = open(directory.resolve(name + INDEX_SUFFIX), INDEX_MAGIC);
+      } catch (IOException e) {
+        data.close();
+        payloads.close();
+        throw e;
+      }
+      return new Segment(name, openedAt, compressionLevel, data, payloads, index);
+    }
+
+    private static FileChannel open(Path path, int magic) throws IOException {
+      FileChannel channel =
+          FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      try {
+        writeFully(
+            channel,
+            ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(magic).putInt(FORMAT_VERSION).flip());
+        channel.force(true);
+      } catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      return channel;
+    }
+
+    /**
+     * Compresses and writes one block at the end of the data file.
+     *
+     * @return the block's index entry, ready to be written
+     */
+    ByteBuffer writeBlock(byte[] raw, BlockStats stats, long afterId, long upToId)
+        throws IOException {
+      byte[] compressed = Zstd.compress(raw, compressionLevel);
+      CRC32 crc = new CRC32();
+      crc.update(compressed);
+
+      long position = data.position();
+      int length = BLOCK_HEADER_BYTES + compressed.length;
+      writeFully(
+          data,
+          ByteBuffer.allocate(length)
+              .putInt(raw.length)
+              .putInt(compressed.length)
+              .putInt((int) crc.getValue())
+              .put(compressed)
+              .flip());
+
+      return ByteBuffer.allocate(INDEX_ENTRY_BYTES)
+          .putLong(position)
+          .putInt(length)
+          .putInt(stats.count)
+          .putLong(stats.minSecond)
+          .putLong(stats.maxSecond)
+          .putLong(afterId)
+          .putLong(upToId)
+          .put(stats.filter)
+          .flip();
+    }
+
+    /** Appends payload URIs, one per line. */
+    void writePayloadUris(Set<String> uris) throws IOException {
+      if (uris.isEmpty()) {
+        return;
+      }
+      StringBuilder lines = new StringBuilder();
+      uris.forEach(uri -> lines.append(uri).append('\n'));
+      writeFully(payloads, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+  }
+}
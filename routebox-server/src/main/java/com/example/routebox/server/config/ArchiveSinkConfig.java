@@ -0,0 +1,88 @@
+package com.example.routebox.server.config;
+
+import com.example.routebox.server.archival.ArchiveSink;
+import com.example.routebox.server.archival.SegmentArchiveSink;
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Where archived outbox events go. By default they are copied into the outbox_archive_events
+ * table; with the segments sink they are appended to compressed segment files instead, which cost
+ * a fraction of the database storage and are only read for audits and replays.
+ *
+ * <pre>
+ * outbox:
+ *   archival:
+ *     sink: segments
+ *     retention-days: 90
+ *     segments:
+ *       directory: /var/lib/routebox/archive
+ *       roll-interval: 1h
+ * </pre>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.archival")
+@Getter
+@Setter
+public class ArchiveSinkConfig {
+
+  /** Which sink archived events are written to. */
+  private SinkType sink = SinkType.DATABASE;
+
+  /**
+   * Days events archived to a sink are kept, counted from their creation. Set to 0 or negative to
+   * keep them forever. Does not apply to the archive table; see outbox.partitioning.
+   */
+  private int retentionDays = 90;
+
+  /** How often events past retention-days are deleted from the sink. */
+  private Duration retentionInterval = Duration.ofHours(1);
+
+  /** Settings of the segment file sink. */
+  private Segments segments = new Segments();
+
+  /** Available archive sinks. */
+  public enum SinkType {
+    DATABASE,
+    SEGMENTS
+  }
+
+  /** Settings of the segment file sink. */
+  @Getter
+  @Setter
+  public static class Segments {
+
+    /** Directory of the segment files. Each server instance writes its own segments. */
+    private String directory = "./data/archive";
+
+    /** How long a segment is appended to before a new one is started. */
+    private Duration rollInterval = Duration.ofHours(1);
+
+    /** Uncompressed size at which a block is compressed and written; one index entry each. */
+    private int blockSizeBytes = 64 * 1024;
+
+    /** Zstd compression level (1-22). */
+    private int compressionLevel = 6;
+  }
+
+  /**
+   * Creates the segment file sink. Applications can provide their own ArchiveSink bean instead.
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "outbox.archival", name = "sink", havingValue = "segments")
+  public ArchiveSink archiveSink() {
+    return new SegmentArchiveSink(
+        Path.of(segments.getDirectory()),
+        segments.getRollInterval(),
+        segments.getBlockSizeBytes(),
+        segments.getCompressionLevel());
+  }
+}
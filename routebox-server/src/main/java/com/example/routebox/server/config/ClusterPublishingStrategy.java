@@ -13,5 +13,19 @@ public enum ClusterPublishingStrategy {
    * If any required cluster fails, the event is not marked as sent. Optional clusters can fail
    * without affecting the overall result.
    */
-  ALL_MUST_SUCCEED
+  ALL_MUST_SUCCEED;
+
+  /**
+   * Evaluates whether publishing was successful under this strategy.
+   *
+   * @param totalRequired Number of required clusters
+   * @param successCount Number of successful publishes to required clusters
+   * @return true if publishing meets the success criteria
+   */
+  public boolean isSatisfied(int totalRequired, int successCount) {
+    return switch (this) {
+      case AT_LEAST_ONE -> successCount > 0;
+      case ALL_MUST_SUCCEED -> successCount == totalRequired;
+    };
+  }
 }
@@ -1,137 +1,267 @@
 package com.example.routebox.server.config;
 
+import com.example.routebox.server.kafka.KafkaProducerRegistry;
+import com.example.routebox.server.kafka.ProducerBatchMetrics;
+import com.example.routebox.server.kafka.ProducerLease;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SslConfigs;
-import org.springframework.beans.BeansException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.beans.factory.config.BeanDefinition;
-import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
-import org.springframework.beans.factory.support.BeanDefinitionBuilder;
-import org.springframework.beans.factory.support.BeanDefinitionRegistry;
-import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.boot.autoconfigure.kafka.SslBundleSslEngineFactory;
 import org.springframework.boot.ssl.SslBundle;
 import org.springframework.boot.ssl.SslBundles;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
-import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 /**
- * Creates, registers, and caches Spring-managed KafkaTemplate beans on demand. This service is the
- * core of the dynamic routing, allowing us to add new clusters without any Java code changes.
+ * Creates and caches KafkaTemplates on demand. This service is the core of the dynamic routing,
+ * allowing us to add new clusters without any Java code changes.
  *
- * <p>It also evicts and destroys idle beans to conserve resources.
+ * <p>Each cluster can be served by a pool of producers (kafka.clusters.&lt;key&gt;.producer-pool-size)
+ * to scale past the single network I/O thread of one KafkaProducer. Records are assigned to a
+ * producer by hashing their key, so per-key ordering is preserved.
+ *
+ * <p>Pools live in a {@link KafkaProducerRegistry} outside the bean factory. Callers take a
+ * {@link ProducerLease} for the duration of a send; idle pools are evicted only when no lease is
+ * open, so a producer is never closed while a worker is mid-send.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class DynamicKafkaTemplateFactory implements ApplicationContextAware {
-
-  private static final String TEMPLATE_BEAN_SUFFIX = "-KafkaTemplate";
-  private static final String FACTORY_BEAN_SUFFIX = "-ProducerFactory";
+public class DynamicKafkaTemplateFactory {
 
   private final KafkaClustersConfig clustersConfig;
   private final SslBundles sslBundles;
-  private ConfigurableApplicationContext applicationContext;
-  private volatile DynamicKafkaTemplateFactory self; // The proxied version of this bean
+  private final KafkaTransactionsConfig transactionsConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+  private final KafkaProducerRegistry<String, byte[]> registry =
+      new KafkaProducerRegistry<>(this::createPool, DynamicKafkaTemplateFactory::closeTemplate);
+
+  // Partition counts are looked up in the background, so a poll never waits on topic metadata
+  private final Map<ClusterTopic, CachedPartitionCount> partitionCounts = new ConcurrentHashMap<>();
+  private final Set<ClusterTopic> refreshingPartitionCounts = ConcurrentHashMap.newKeySet();
+
+  private record ClusterTopic(String clusterKey, String topic) {}
+
+  private record CachedPartitionCount(int count, long fetchedAtNanos) {}
 
-  // This is our thread-safe cache: Map<ClusterKey, KafkaTemplate>
-  private final Map<String, KafkaTemplate<String, String>> templateCache =
-      new ConcurrentHashMap<>();
+  // Kafka's default batch.size, used for the batch fill gauge when a cluster does not set one
+  private static final int DEFAULT_BATCH_SIZE_BYTES = 16384;
 
-  // Tracks last access time for eviction: Map<ClusterKey, Timestamp>
-  private final Map<String, Long> lastAccessTime = new ConcurrentHashMap<>();
+  // Kafka's defaults for the settings delivery.timeout.ms is validated against
+  private static final long DEFAULT_DELIVERY_TIMEOUT_MS = 120_000;
+  private static final long DEFAULT_REQUEST_TIMEOUT_MS = 30_000;
+  private static final long DEFAULT_LINGER_MS = 5;
 
   @Value("${outbox.kafka.factory.idle-eviction-time-minutes:30}")
   private long idleEvictionTimeMinutes;
 
-  @Override
-  public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
-    this.applicationContext = (ConfigurableApplicationContext) applicationContext;
+  private ProducerBatchMetrics batchMetrics;
+
+  /** Sets up the per-cluster batch fill and compression gauges when metrics are available. */
+  @PostConstruct
+  void initBatchMetrics() {
+    MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+    if (meterRegistry != null) {
+      batchMetrics = new ProducerBatchMetrics(meterRegistry);
+    }
   }
 
   /**
-   * Gets a KafkaTemplate for the given cluster key (e.g., "cluster-a"). If the template is not in
-   * the cache, it will be created, registered, and stored.
+   * Leases the producer of the cluster's pool that owns the given record key (e.g., "cluster-a").
+   * The pool is created on first use. Close the lease once the send has been acknowledged.
    *
    * @param clusterKey The identifier from application.properties
-   * @return A thread-safe, Spring-managed KafkaTemplate bean.
+   * @param recordKey The Kafka record key (may be null)
+   * @return An open lease on a thread-safe KafkaTemplate.
    */
-  public KafkaTemplate<String, String> getTemplate(String clusterKey) {
-    // Lazy initialization of self-reference to avoid circular dependency during bean creation
-    // Double-checked locking for thread-safe initialization
-    if (self == null) {
-      synchronized (this) {
-        if (self == null) {
-          self = applicationContext.getBean(DynamicKafkaTemplateFactory.class);
-        }
-      }
-    }
-
-    // We call the proxied 'self' reference, not 'this'.
-    // This ensures any AOP on createAndRegisterTemplate() is triggered.
-    // computeIfAbsent is atomic and ensures createAndRegisterTemplate
-    // is called only once per key, eliminating the need for manual locking.
-    KafkaTemplate<String, String> template =
-        templateCache.computeIfAbsent(clusterKey, self::createAndRegisterTemplate);
+  public ProducerLease<String, byte[]> lease(String clusterKey, String recordKey) {
+    return registry.lease(clusterKey, recordKey);
+  }
 
-    // Update last access time *after* successful retrieval/creation
-    lastAccessTime.put(clusterKey, System.currentTimeMillis());
-    return template;
+  /**
+   * Leases the first producer of the cluster's pool. Used where a single producer must carry a
+   * whole batch, such as a Kafka transaction.
+   *
+   * @param clusterKey The identifier from application.properties
+   * @return An open lease on a thread-safe KafkaTemplate.
+   */
+  public ProducerLease<String, byte[]> lease(String clusterKey) {
+    return registry.lease(clusterKey, null);
   }
 
   /**
-   * Creates and registers a new KafkaTemplate and its ProducerFactory as Spring-managed beans. This
-   * method is public so it can be proxied by Spring.
+   * Gets a KafkaTemplate for the given cluster key without holding a lease. The template may be
+   * closed by eviction once idle; publishing code should use {@link #lease(String, String)}.
    *
-   * @param clusterKey The key for the cluster
-   * @return The newly created, fully managed KafkaTemplate bean
+   * @param clusterKey The identifier from application.properties
+   * @return A thread-safe KafkaTemplate.
    */
-  public KafkaTemplate<String, String> createAndRegisterTemplate(String clusterKey) {
-    log.info(
-        "No KafkaTemplate in cache for '{}'. Creating and registering new Spring beans.",
-        clusterKey);
+  public KafkaTemplate<String, byte[]> getTemplate(String clusterKey) {
+    return getTemplate(clusterKey, null);
+  }
 
-    BeanDefinitionRegistry registry = (BeanDefinitionRegistry) applicationContext.getBeanFactory();
+  /**
+   * Gets the KafkaTemplate of the cluster's producer pool that owns the given record key, without
+   * holding a lease. Publishing code should use {@link #lease(String, String)}.
+   *
+   * @param clusterKey The identifier from application.properties
+   * @param recordKey The Kafka record key (may be null)
+   * @return A thread-safe KafkaTemplate.
+   */
+  public KafkaTemplate<String, byte[]> getTemplate(String clusterKey, String recordKey) {
+    try (ProducerLease<String, byte[]> lease = registry.lease(clusterKey, recordKey)) {
+      return lease.template();
+    }
+  }
 
-    // Step 1: Get the configuration for the producer
-    Map<String, Object> producerProps = getProducerProperties(clusterKey);
+  /**
+   * Returns the partition count of a topic as seen by the cluster's producers, for grouping
+   * records by partition before they are sent. Returns 0 when the partition of a keyed record
+   * cannot be predicted: the cluster configures its own partitioner or ignores keys, or the cluster
+   * or topic metadata is not available, in which case the send itself reports the problem.
+   *
+   * <p>Never blocks: the count is served from a cache refreshed on a background thread every
+   * partition-count-refresh-interval, so a topic's first use, or a broker outage that would make a
+   * metadata lookup wait for max.block.ms, only costs the grouping of a few batches.
+   *
+   * @param clusterKey The identifier from application.properties
+   * @param topic The topic name
+   * @return The partition count, or 0 if unknown or not looked up yet
+   */
+  public int partitionCount(String clusterKey, String topic) {
+    ClusterTopic key = new ClusterTopic(clusterKey, topic);
+    CachedPartitionCount cached = partitionCounts.get(key);
+    if (cached == null
+        || System.nanoTime() - cached.fetchedAtNanos()
+            >= processingConfig.getPartitionCountRefreshInterval().toNanos()) {
+      refreshPartitionCount(key);
+    }
+    return cached == null ? 0 : cached.count();
+  }
 
-    // Step 2: Register the ProducerFactory bean
-    String factoryBeanName = registerProducerFactory(registry, clusterKey, producerProps);
+  /** Looks a partition count up on a virtual thread, unless a lookup is already running. */
+  private void refreshPartitionCount(ClusterTopic key) {
+    if (!refreshingPartitionCounts.add(key)) {
+      return;
+    }
+    Thread.ofVirtual()
+        .name("partition-count-refresh")
+        .start(
+            () -> {
+              try {
+                int count = lookUpPartitionCount(key.clusterKey(), key.topic());
+                partitionCounts.put(key, new CachedPartitionCount(count, System.nanoTime()));
+              } finally {
+                refreshingPartitionCounts.remove(key);
+              }
+            });
+  }
 
-    // Step 3: Register the KafkaTemplate bean that depends on the factory
-    String templateBeanName = registerKafkaTemplate(registry, clusterKey, factoryBeanName);
+  /** Fetches a partition count from the cluster; may block for up to max.block.ms. */
+  private int lookUpPartitionCount(String clusterKey, String topic) {
+    try (ProducerLease<String, byte[]> lease = registry.lease(clusterKey, null)) {
+      Map<String, Object> config =
+          lease.template().getProducerFactory().getConfigurationProperties();
+      if (config.get(ProducerConfig.PARTITIONER_CLASS_CONFIG) != null
+          || Boolean.parseBoolean(
+              String.valueOf(config.get(ProducerConfig.PARTITIONER_IGNORE_KEYS_CONFIG)))) {
+        return 0;
+      }
+      return lease.template().partitionsFor(topic).size();
+    } catch (RuntimeException e) {
+      log.debug(
+          "No partition metadata for topic '{}' on cluster '{}': {}",
+          topic,
+          clusterKey,
+          e.getMessage());
+      return 0;
+    }
+  }
 
-    // Step 4: Get the fully managed bean from the context.
-    // This bean *will* be proxied and respect all Spring AOP.
-    return (KafkaTemplate<String, String>) applicationContext.getBean(templateBeanName);
+  /** Returns the registry holding the producer pools. */
+  public KafkaProducerRegistry<String, byte[]> getRegistry() {
+    return registry;
   }
 
   /**
-   * Finds the KafkaProperties for the cluster and builds the producer config map. This now includes
-   * logic to manually apply SSL Bundles.
+   * Creates the KafkaTemplates of a cluster's producer pool. Called by the registry on first use
+   * of a cluster.
+   *
+   * @param clusterKey The key for the cluster
+   * @return The newly created templates, one per pooled producer
    */
-  private Map<String, Object> getProducerProperties(String clusterKey) {
-    KafkaProperties props = clustersConfig.getClusters().get(clusterKey);
+  private List<KafkaTemplate<String, byte[]>> createPool(String clusterKey) {
+    log.info("No Kafka producer pool for '{}'. Creating a new one.", clusterKey);
+
+    int poolSize = Math.max(1, getClusterProperties(clusterKey).getProducerPoolSize());
+    List<KafkaTemplate<String, byte[]>> pool = new ArrayList<>(poolSize);
+    for (int slot = 0; slot < poolSize; slot++) {
+      // Step 1: Get the configuration for the producer
+      Map<String, Object> producerProps = getProducerProperties(clusterKey, slot);
+
+      // Step 2: Create the ProducerFactory and the KafkaTemplate that uses it
+      pool.add(createTemplate(clusterKey, slot, producerProps));
+    }
+
+    if (poolSize > 1) {
+      log.info("Created producer pool of {} producers for cluster '{}'", poolSize, clusterKey);
+    }
+    return pool;
+  }
+
+  /** Finds the KafkaClusterProperties for the cluster, failing fast if it is not configured. */
+  private KafkaClusterProperties getClusterProperties(String clusterKey) {
+    KafkaClusterProperties props = clustersConfig.getClusters().get(clusterKey);
     if (props == null) {
       // This is a fatal configuration error
       throw new IllegalArgumentException(
           "No Kafka cluster configuration found for key: " + clusterKey);
     }
+    return props;
+  }
+
+  /**
+   * Finds the KafkaProperties for the cluster and builds the producer config map for one pool
+   * slot. This now includes logic to manually apply SSL Bundles.
+   */
+  private Map<String, Object> getProducerProperties(String clusterKey, int slot) {
+    KafkaClusterProperties props = getClusterProperties(clusterKey);
 
     // 1. Build the standard properties from application.yml
     Map<String, Object> producerProps = props.buildProducerProperties(null);
 
+    // Payloads are stored as bytes and sent unchanged, so the value serializer is not configurable
+    producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+    // Give every pooled producer its own client.id so broker quotas and metrics tell them apart
+    Object clientId = producerProps.get(ProducerConfig.CLIENT_ID_CONFIG);
+    String baseClientId = clientId != null ? clientId.toString() : "routebox-" + clusterKey;
+    producerProps.put(
+        ProducerConfig.CLIENT_ID_CONFIG, slot == 0 ? baseClientId : baseClientId + "-" + slot);
+
+    // Make the producer give up on a record before the claim lease of its event can run out
+    boundDeliveryTimeout(clusterKey, producerProps);
+
     // 2. Manually apply SSL Bundle if configured
     String bundleName = props.getSsl() != null ? props.getSsl().getBundle() : null;
     if (StringUtils.hasText(bundleName)) {
@@ -154,109 +284,117 @@ public class DynamicKafkaTemplateFactory implements ApplicationContextAware {
     return producerProps;
   }
 
-  /**
-   * Creates and registers a Spring-managed DefaultKafkaProducerFactory bean.
-   *
-   * @return The bean name of the newly registered factory.
-   */
-  private String registerProducerFactory(
-      BeanDefinitionRegistry registry, String clusterKey, Map<String, Object> producerProps) {
-    String factoryBeanName = clusterKey + FACTORY_BEAN_SUFFIX;
-
-    BeanDefinition factoryBeanDef =
-        BeanDefinitionBuilder.rootBeanDefinition(DefaultKafkaProducerFactory.class)
-            .addConstructorArgValue(producerProps)
-            .getBeanDefinition();
-
-    registry.registerBeanDefinition(factoryBeanName, factoryBeanDef);
-    log.debug("Registered bean: {}", factoryBeanName);
-    return factoryBeanName;
-  }
+  /** Creates the producer factory and template for one pool slot. */
+  private KafkaTemplate<String, byte[]> createTemplate(
+      String clusterKey, int slot, Map<String, Object> producerProps) {
+    DefaultKafkaProducerFactory<String, byte[]> producerFactory =
+        new DefaultKafkaProducerFactory<>(producerProps);
+
+    // In transactional mode the factory hands out transactional producers whose ids are
+    // stable per instance and cluster, so a restarted instance fences its previous producers
+    if (transactionsConfig.isEnabled()) {
+      String transactionIdPrefix = transactionsConfig.transactionIdPrefixFor(clusterKey);
+      producerFactory.setTransactionIdPrefix(
+          slot == 0 ? transactionIdPrefix : transactionIdPrefix + "p" + slot + "-");
+    }
 
-  /**
-   * Creates and registers a Spring-managed KafkaTemplate bean that depends on the factory.
-   *
-   * @return The bean name of the newly registered template.
-   */
-  private String registerKafkaTemplate(
-      BeanDefinitionRegistry registry, String clusterKey, String factoryBeanName) {
-    String templateBeanName = clusterKey + TEMPLATE_BEAN_SUFFIX;
-
-    BeanDefinition templateBeanDef =
-        BeanDefinitionBuilder.rootBeanDefinition(KafkaTemplate.class)
-            .addConstructorArgReference(factoryBeanName) // Reference the factory bean
-            .getBeanDefinition();
-
-    registry.registerBeanDefinition(templateBeanName, templateBeanDef);
-    log.debug("Registered bean: {}", templateBeanName);
-    return templateBeanName;
-  }
+    // Report native producer metrics tagged by cluster and pool slot
+    MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+    if (meterRegistry != null) {
+      producerFactory.addListener(
+          new MicrometerProducerListener<>(
+              meterRegistry,
+              List.of(Tag.of("cluster", clusterKey), Tag.of("producer", String.valueOf(slot)))));
+    }
+    if (batchMetrics != null) {
+      producerFactory.addListener(batchMetrics.listener(clusterKey, batchSizeBytes(producerProps)));
+    }
 
-  /** Scheduled task to find and evict idle KafkaTemplates. Runs every 5 minutes. */
-  @Scheduled(fixedRateString = "${outbox.kafka.factory.eviction-check-ms:5m}")
-  public void evictIdleTemplates() {
-    log.debug("Running idle KafkaTemplate eviction check...");
-    long idleThreshold =
-        System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleEvictionTimeMinutes);
-
-    // Use removeIf for atomic check-and-remove from the access map
-    lastAccessTime
-        .entrySet()
-        .removeIf(
-            entry -> {
-              if (entry.getValue() < idleThreshold) {
-                String clusterKey = entry.getKey();
-                log.info("Evicting idle KafkaTemplate for cluster: {}", clusterKey);
-
-                // Atomically remove from the main cache.
-                if (templateCache.remove(clusterKey) != null) {
-                  destroyBeans(clusterKey);
-                }
-                return true; // Remove from lastAccessTime map
-              }
-              return false; // Keep in lastAccessTime map
-            });
+    KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(producerFactory);
+
+    // Keep the per-event publish path working when the factory is transactional
+    if (transactionsConfig.isEnabled()) {
+      template.setAllowNonTransactional(true);
+    }
+    return template;
   }
 
   /**
-   * Destroys the Spring-managed beans (KafkaTemplate and ProducerFactory) for the given cluster
-   * key, releasing all resources.
+   * Caps delivery.timeout.ms, Kafka's per-record bound on a send, at the claim timeout minus the
+   * publish deadline margin. A record is then acknowledged or failed by the producer before a lease
+   * granted when it was sent expires. Left unchanged when the cap would fall below
+   * request.timeout.ms plus linger.ms, which Kafka rejects.
    */
-  private void destroyBeans(String clusterKey) {
-    try {
-      ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
-      BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
-
-      String templateBeanName = clusterKey + TEMPLATE_BEAN_SUFFIX;
-      String factoryBeanName = clusterKey + FACTORY_BEAN_SUFFIX;
+  private void boundDeliveryTimeout(String clusterKey, Map<String, Object> producerProps) {
+    long bound =
+        processingConfig
+            .getClaimTimeout()
+            .minus(processingConfig.getPublishDeadlineMargin())
+            .toMillis();
+    long configured =
+        longProperty(
+            producerProps, ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, DEFAULT_DELIVERY_TIMEOUT_MS);
+    if (configured <= bound) {
+      return;
+    }
+    long minimum =
+        longProperty(
+                producerProps, ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, DEFAULT_REQUEST_TIMEOUT_MS)
+            + longProperty(producerProps, ProducerConfig.LINGER_MS_CONFIG, DEFAULT_LINGER_MS);
+    if (bound < minimum) {
+      log.warn(
+          "Claim timeout leaves {} ms to publish on cluster '{}', below the {} ms Kafka requires for"
+              + " delivery.timeout.ms; keeping {} ms",
+          bound,
+          clusterKey,
+          minimum,
+          configured);
+      return;
+    }
+    producerProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, (int) bound);
+  }
 
-      // Destroy the singleton instances
-      destroySingletonIfExists(beanFactory, templateBeanName);
-      destroySingletonIfExists(beanFactory, factoryBeanName);
+  /** Reads a numeric producer setting, which may hold a number or a string. */
+  private static long longProperty(Map<String, Object> producerProps, String name, long fallback) {
+    Object value = producerProps.get(name);
+    if (value instanceof Number number) {
+      return number.longValue();
+    }
+    return value != null ? Long.parseLong(value.toString().trim()) : fallback;
+  }
 
-      // Remove the bean definitions
-      if (registry.containsBeanDefinition(templateBeanName)) {
-        registry.removeBeanDefinition(templateBeanName);
-      }
-      if (registry.containsBeanDefinition(factoryBeanName)) {
-        registry.removeBeanDefinition(factoryBeanName);
-      }
+  /** Reads batch.size from the producer config, which may hold a number or a string. */
+  private static int batchSizeBytes(Map<String, Object> producerProps) {
+    Object batchSize = producerProps.get(ProducerConfig.BATCH_SIZE_CONFIG);
+    if (batchSize instanceof Number number) {
+      return number.intValue();
+    }
+    return batchSize != null
+        ? Integer.parseInt(batchSize.toString().trim())
+        : DEFAULT_BATCH_SIZE_BYTES;
+  }
 
-      log.info("Successfully destroyed and unregistered beans for cluster: {}", clusterKey);
-    } catch (Exception e) {
-      log.error("Error while destroying beans for cluster: {}", clusterKey, e);
+  /** Closes a template's producer factory, which closes its producer. */
+  private static void closeTemplate(KafkaTemplate<String, byte[]> template) {
+    template.destroy();
+    if (template.getProducerFactory() instanceof DefaultKafkaProducerFactory<?, ?> factory) {
+      factory.destroy();
     }
   }
 
-  /**
-   * Helper method to destroy a singleton bean if it exists. Casts to DefaultSingletonBeanRegistry
-   * to access destroySingleton method.
-   */
-  private void destroySingletonIfExists(
-      ConfigurableListableBeanFactory beanFactory, String beanName) {
-    if (beanFactory.containsSingleton(beanName)) {
-      ((org.springframework.beans.factory.support.DefaultSingletonBeanRegistry) beanFactory)
-          .destroySingleton(beanName);
+  /** Scheduled task to find and evict idle, unleased producer pools. Runs every 5 minutes. */
+  @Scheduled(fixedRateString = "${outbox.kafka.factory.eviction-check-ms:5m}")
+  public void evictIdleTemplates() {
+    log.debug("Running idle Kafka producer eviction check...");
+    int evicted = registry.evictIdle(TimeUnit.MINUTES.toMillis(idleEvictionTimeMinutes));
+    if (evicted > 0) {
+      log.info("Evicted {} idle Kafka producer pool(s)", evicted);
     }
   }
+
+  /** Closes all producers on shutdown. */
+  @PreDestroy
+  public void shutdown() {
+    registry.closeAll();
+  }
 }
@@ -0,0 +1,20 @@
+package com.example.routebox.server.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+/**
+ * Kafka settings for a single cluster under kafka.clusters.&lt;key&gt;. Extends Spring Boot's
+ * KafkaProperties with RouteBox-specific producer settings.
+ */
+@Getter
+@Setter
+public class KafkaClusterProperties extends KafkaProperties {
+
+  /**
+   * Number of independent producers (each with its own network I/O thread) to create for this
+   * cluster. Records are assigned to a producer by hashing their key, so per-key ordering holds.
+   */
+  private int producerPoolSize = 1;
+}
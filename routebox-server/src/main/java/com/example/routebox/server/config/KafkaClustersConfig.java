@@ -4,7 +4,6 @@ import java.util.HashMap;
 import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,5 +12,5 @@ import org.springframework.context.annotation.Configuration;
 @Getter
 @Setter
 public class KafkaClustersConfig {
-  private Map<String, KafkaProperties> clusters = new HashMap<>();
+  private Map<String, KafkaClusterProperties> clusters = new HashMap<>();
 }
@@ -0,0 +1,64 @@
+package com.example.routebox.server.config;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Configuration for the optional Kafka transactional publishing mode. When enabled, each claimed
+ * batch is published inside one Kafka transaction per cluster and committed once, so
+ * read_committed consumers see whole batches atomically.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.kafka.transactions")
+@Getter
+@Setter
+public class KafkaTransactionsConfig {
+
+  /** Publish each claimed batch inside a single Kafka transaction per cluster. */
+  private boolean enabled = false;
+
+  /** Leading part of every transactional.id created by this server. */
+  private String transactionalIdPrefix = "routebox";
+
+  /**
+   * Stable identifier of this server instance. Must not change across restarts so that the broker
+   * can fence zombie producers. Defaults to the HOSTNAME environment variable or the local host
+   * name.
+   */
+  private String instanceId;
+
+  /**
+   * Builds the transactional.id prefix for a cluster. Spring Kafka appends a numeric suffix per
+   * producer, giving ids like {@code routebox-node-1-cluster-a-0}.
+   *
+   * @param clusterKey the cluster key from kafka.clusters
+   * @return the transaction id prefix for producers of that cluster
+   */
+  public String transactionIdPrefixFor(String clusterKey) {
+    return transactionalIdPrefix + "-" + resolveInstanceId() + "-" + clusterKey + "-";
+  }
+
+  /** Resolves the configured instance id, falling back to the host name. */
+  public String resolveInstanceId() {
+    if (StringUtils.hasText(instanceId)) {
+      return instanceId;
+    }
+    String hostname = System.getenv("HOSTNAME");
+    if (StringUtils.hasText(hostname)) {
+      return hostname;
+    }
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException(
+          "Cannot determine instance id for Kafka transactions. "
+              + "Set outbox.kafka.transactions.instance-id explicitly.",
+          e);
+    }
+  }
+}
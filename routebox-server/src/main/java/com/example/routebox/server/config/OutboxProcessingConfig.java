@@ -1,14 +1,14 @@
 package com.example.routebox.server.config;
 
-import jakarta.annotation.PostConstruct;
 import java.time.Duration;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 @Configuration
 @ConfigurationProperties(prefix = "outbox.processing")
@@ -19,6 +19,13 @@ public class OutboxProcessingConfig {
   /** How long an event stays claimed (inProgressUntil) before being eligible for retry. */
   private Duration claimTimeout = Duration.ofMinutes(5);
 
+  /**
+   * Part of the claim lease kept back for marking an event as sent. An event must be acknowledged
+   * by Kafka before its lease ends minus this margin; one whose deadline passed in the queue is not
+   * sent, and a send still pending at the deadline is given up, leaving the event to its lease.
+   */
+  private Duration publishDeadlineMargin = Duration.ofSeconds(10);
+
   /** Number of events to claim per poll. */
   private int batchSize = 100; // default
 
@@ -31,7 +38,10 @@ public class OutboxProcessingConfig {
   /** Max number of retries for a PERMANENT failure before moving to DLQ. */
   private int maxPermanentRetries = 5;
 
-  /** List of fully-qualified exception class names considered permanent, non-retryable failures. */
+  /**
+   * Fully-qualified exception class names considered permanent, non-retryable failures. A name
+   * also matches its subclasses. Can be replaced at runtime through FailureClassifier.reload.
+   */
   private List<String> permanentFailureExceptions =
       List.of(
           // Set sensible defaults that can be overridden/extended
@@ -42,29 +52,157 @@ public class OutboxProcessingConfig {
           "org.apache.kafka.common.errors.AuthenticationException",
           "org.apache.kafka.common.errors.AuthorizationException");
 
+  /**
+   * Kafka protocol error names (org.apache.kafka.common.protocol.Errors) considered permanent, for
+   * broker errors that are not covered by permanentFailureExceptions.
+   */
+  private List<String> permanentKafkaErrors = List.of("INVALID_RECORD", "POLICY_VIOLATION");
+
+  /**
+   * Whether an event that fails permanently is quarantined between retries instead of being
+   * claimed again on the next poll.
+   */
+  private boolean quarantineEnabled = true;
+
+  /** Hold after the first permanent failure; it doubles with each further failure. */
+  private Duration quarantineInitialHold = Duration.ofSeconds(30);
+
+  /** Upper bound on the hold of a quarantined event. */
+  private Duration quarantineMaxHold = Duration.ofMinutes(30);
+
+  /** Policy for event types without an entry in quarantinePolicies. */
+  private QuarantinePolicy quarantineDefaultPolicy = QuarantinePolicy.HOLD_AGGREGATE;
+
+  /** Quarantine policy by event type of the quarantined event. */
+  private Map<String, QuarantinePolicy> quarantinePolicies = new HashMap<>();
+
+  /** How often quarantine entries of events sent or deleted elsewhere are cleaned up. */
+  private Duration quarantineSweepInterval = Duration.ofMinutes(1);
+
+  /**
+   * Whether publish failures are collected in a journal and applied in batches with set-based
+   * statements, instead of one read-modify-write transaction per failed event.
+   */
+  private boolean failureJournalEnabled = true;
+
+  /** How often the failure journal is applied to the database. */
+  private Duration failureJournalFlushInterval = Duration.ofMillis(200);
+
+  /** Failures the journal holds before the recording thread applies them itself. */
+  private int failureJournalCapacity = 10_000;
+
   /**
    * Number of days to retain sent events before archiving them. Set to 0 or negative to disable
    * archival.
    */
   private int archivalRetentionDays = 7; // default 7 days
 
+  /**
+   * Width of the id range archived per transaction. Each range is copied and deleted with a few
+   * set-based statements, so this bounds lock time and transaction log growth, not memory.
+   */
+  private int archivalChunkSize = 5_000;
+
+  /** Pause between archived ranges, leaving the database to the poller in between. */
+  private Duration archivalChunkPause = Duration.ofMillis(100);
+
+  /**
+   * Whether sent events are archived continuously in small chunks as they pass the retention
+   * period, instead of only by the nightly run (outbox.archival.schedule), which then finds little
+   * left to do.
+   */
+  private boolean archivalTrickleEnabled = true;
+
+  /** How often continuous archival considers moving a chunk. */
+  private Duration archivalTrickleInterval = Duration.ofSeconds(1);
+
+  /** Smallest continuous archival chunk, and the step by which chunks grow. */
+  private int archivalTrickleMinChunkSize = 100;
+
+  /** Largest continuous archival chunk. */
+  private int archivalTrickleMaxChunkSize = 2_000;
+
+  /** Continuous archival chunks that take longer than this shrink the next chunk. */
+  private Duration archivalTrickleTargetChunkDuration = Duration.ofMillis(200);
+
+  /**
+   * Continuous archival holds back while the in-memory event queue is at least this full (0-1),
+   * leaving the database to the publishing pipeline.
+   */
+  private double archivalTrickleMaxQueueFill = 0.5;
+
+  /**
+   * Offloaded payloads stored again within this period are never deleted, because the transaction
+   * that stored them may not have committed the row referencing them yet. Must be longer than the
+   * longest producer transaction.
+   */
+  private Duration offloadedPayloadGracePeriod = Duration.ofHours(1);
+
+  /** How often offloaded payloads no longer referenced by any event are deleted. */
+  private Duration offloadedPayloadCleanupInterval = Duration.ofMinutes(10);
+
   /** Maximum number of concurrent worker threads that process events from the queue. */
   private int workerConcurrency = 50; // default
 
   /** Maximum capacity of the in-memory event queue for backpressure. */
   private int queueCapacity = 200; // default
 
-  // A Set for efficient O(1) lookups
-  private final Set<String> permanentExceptionSet = new HashSet<>();
+  /**
+   * Whether a claimed batch is reordered so that events bound for the same topic partition are
+   * sent one after the other. Per-key order is kept; it only lets producer batches fill up.
+   */
+  private boolean partitionGroupingEnabled = true;
 
-  @PostConstruct
-  private void init() {
-    // Load all configured exception names into the Set
-    permanentExceptionSet.addAll(permanentFailureExceptions);
-  }
+  /**
+   * How often the topic partition counts partition grouping relies on are looked up again. The
+   * lookups run in the background; until a topic's first one completes its events are not grouped.
+   */
+  private Duration partitionCountRefreshInterval = Duration.ofSeconds(30);
+
+  /**
+   * Whether payloads above payloadStreamingThreshold are left in the database when a batch is
+   * claimed and streamed in one at a time right before sending.
+   */
+  private boolean payloadStreamingEnabled = true;
+
+  /** Payloads larger than this are streamed at send time instead of loaded with their batch. */
+  private DataSize payloadStreamingThreshold = DataSize.ofMegabytes(1);
+
+  /**
+   * Upper bound on the heap held by streamed payloads at the same time. Senders wait for room
+   * before reading a payload; a single payload larger than the bound is still sent, alone.
+   */
+  private DataSize payloadStreamingMaxInFlight = DataSize.ofMegabytes(64);
+
+  /** Dead-letter events replayed into the outbox per second, across all replay jobs. */
+  private int deadLetterReplayRatePerSecond = 100;
+
+  /** How often a chunk of dead-letter events is replayed. */
+  private Duration deadLetterReplayInterval = Duration.ofSeconds(1);
+
+  /**
+   * Replay pauses while this many events are pending in the outbox, so replayed events never crowd
+   * out new ones.
+   */
+  private long deadLetterReplayMaxPendingEvents = 1_000;
+
+  /** Archived events replayed to Kafka per second, across all archive replay jobs. */
+  private int archiveReplayRatePerSecond = 500;
+
+  /** How often a chunk of archived events is replayed. */
+  private Duration archiveReplayInterval = Duration.ofSeconds(1);
+
+  /**
+   * Appended to the topic of every replayed event, so replays land on their own topics and live
+   * consumers never see them. Must not be empty.
+   */
+  private String archiveReplayTopicSuffix = ".replay";
+
+  /** How long a replay chunk waits for its sends to be acknowledged before the job fails. */
+  private Duration archiveReplaySendTimeout = Duration.ofSeconds(30);
 
-  // Public getter for the Set - returns unmodifiable view for thread safety
-  public Set<String> getPermanentExceptionSet() {
-    return Set.copyOf(permanentExceptionSet);
+  /** Returns the quarantine policy for an event type. */
+  public QuarantinePolicy getQuarantinePolicy(String eventType) {
+    return quarantinePolicies.getOrDefault(eventType, quarantineDefaultPolicy);
   }
 }
@@ -104,6 +104,34 @@ public class OutboxRoutingConfig {
       rule.setStrategy(ClusterPublishingStrategy.valueOf(strategyStr));
     }
 
+    // Parse envelope settings, e.g. envelope: {max-events: 50, max-event-bytes: 300}
+    Object envelopeObj = ruleMap.get("envelope");
+    if (envelopeObj instanceof Map) {
+      Map<String, Object> envelopeMap = (Map<String, Object>) envelopeObj;
+      rule.setEnvelopeMaxEvents(
+          intSetting(envelopeMap, "max-events", "maxEvents", rule.getEnvelopeMaxEvents()));
+      rule.setEnvelopeMaxEventBytes(
+          intSetting(
+              envelopeMap, "max-event-bytes", "maxEventBytes", rule.getEnvelopeMaxEventBytes()));
+      rule.setEnvelopeMaxBytes(
+          intSetting(envelopeMap, "max-bytes", "maxBytes", rule.getEnvelopeMaxBytes()));
+    } else if (envelopeObj != null) {
+      throw new IllegalArgumentException(
+          "Invalid 'envelope' format. Expected Map, got: " + envelopeObj.getClass().getName());
+    }
+
     return rule;
   }
+
+  /** Reads an integer setting given in kebab case or camel case, as a number or a String. */
+  private static int intSetting(
+      Map<String, Object> map, String kebabKey, String camelKey, int defaultValue) {
+    Object value = map.containsKey(kebabKey) ? map.get(kebabKey) : map.get(camelKey);
+    if (value == null) {
+      return defaultValue;
+    }
+    return value instanceof Number number
+        ? number.intValue()
+        : Integer.parseInt(value.toString().trim());
+  }
 }
@@ -0,0 +1,24 @@
+package com.example.routebox.server.config;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/** Time span covered by one partition of a partitioned table. */
+public enum PartitionGranularity {
+  /** One partition per calendar day. */
+  DAILY,
+
+  /** One partition per week, starting on Monday. */
+  WEEKLY;
+
+  /** Returns the start of the partition that holds the given date. */
+  public LocalDate floor(LocalDate date) {
+    return this == DAILY ? date : date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+  }
+
+  /** Returns the start of the partition after the one starting at the given date. */
+  public LocalDate next(LocalDate start) {
+    return this == DAILY ? start.plusDays(1) : start.plusWeeks(1);
+  }
+}
@@ -0,0 +1,49 @@
+package com.example.routebox.server.config;
+
+import com.example.routebox.server.partition.PartitionedTable;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the optional time-partitioned layout of the archive table.
+ * When enabled, rows past their retention period are removed by dropping whole partitions instead
+ * of row-by-row deletes. The tables must have been created with the partitioned layout first; see
+ * infrastructure/partitioning-sqlserver.sql and infrastructure/partitioning-postgresql.sql.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbox.partitioning")
+@Getter
+@Setter
+public class PartitioningConfig {
+
+  /** Maintain partitions of the partitioned tables. */
+  private boolean enabled = false;
+
+  /** Tables that use the partitioned layout. */
+  private Set<PartitionedTable> tables = EnumSet.allOf(PartitionedTable.class);
+
+  /** Time span of one partition. */
+  private PartitionGranularity granularity = PartitionGranularity.DAILY;
+
+  /** Number of partitions created ahead of the current one. */
+  private int precreateAhead = 7;
+
+  /**
+   * Days archived outbox events are kept before their partition is dropped. Set to 0 or negative
+   * to keep them forever.
+   */
+  private int archiveRetentionDays = 90;
+
+  /** How often partitions are created and dropped. */
+  private Duration maintenanceInterval = Duration.ofHours(1);
+
+  /** Returns true if the given table uses the partitioned layout. */
+  public boolean isPartitioned(PartitionedTable table) {
+    return enabled && tables.contains(table);
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.routebox.server.config;
+
+/** What happens to the other events of an aggregate while one of its events is quarantined. */
+public enum QuarantinePolicy {
+  /**
+   * Later events of the aggregate wait until the quarantined event is sent or dead-lettered, so
+   * consumers see the aggregate's events in order.
+   */
+  HOLD_AGGREGATE,
+
+  /**
+   * Later events of the aggregate are published around the quarantined event. Use for event types
+   * whose consumers do not depend on per-aggregate order.
+   */
+  PASS_THROUGH
+}
@@ -34,6 +34,23 @@ public class RoutingRule {
    */
   private ClusterPublishingStrategy strategy = ClusterPublishingStrategy.ALL_MUST_SUCCEED;
 
+  /**
+   * Maximum number of small events with the same key packed into one envelope record. 0 or 1 sends
+   * every event as a record of its own.
+   */
+  private int envelopeMaxEvents = 0;
+
+  /** Events with larger payloads are never packed into an envelope. */
+  private int envelopeMaxEventBytes = 512;
+
+  /** Upper bound on the payload bytes packed into one envelope. */
+  private int envelopeMaxBytes = 64 * 1024;
+
+  /** Returns true if small events of this type are packed into envelope records. */
+  public boolean isEnvelopeEnabled() {
+    return envelopeMaxEvents > 1;
+  }
+
   /**
    * Creates a simple routing rule with a single cluster. This is for backward compatibility with
    * the old String-based routing.
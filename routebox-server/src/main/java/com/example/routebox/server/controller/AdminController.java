@@ -1,6 +1,7 @@
 package com.example.routebox.server.controller;
 
 import com.example.routebox.common.entity.ProcessedMessage;
+import com.example.routebox.server.service.ErrorFingerprintService;
 import com.example.routebox.server.service.OutboxService;
 import com.example.routebox.server.service.ProcessedMessageService;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +20,7 @@ public class AdminController {
 
   private final OutboxService outboxService;
   private final ProcessedMessageService processedMessageService;
+  private final ErrorFingerprintService errorFingerprintService;
 
   @GetMapping("/admin")
   public String adminPage(
@@ -74,6 +76,14 @@ public class AdminController {
     return "processed-messages";
   }
 
+  @GetMapping("/admin/errors")
+  public String errorsPage(
+      @RequestParam(required = false, defaultValue = "50") Integer limit, Model model) {
+    model.addAttribute("errors", errorFingerprintService.findTopErrors(limit));
+    model.addAttribute("limit", limit);
+    return "errors";
+  }
+
   @PostMapping("/admin/processed-messages/mark-unprocessed")
   public ResponseEntity<String> markUnprocessed(
       @RequestParam String correlationId, @RequestParam String consumerGroup) {
@@ -0,0 +1,48 @@
+package com.example.routebox.server.controller;
+
+import com.example.routebox.server.entity.ArchiveReplayJob;
+import com.example.routebox.server.service.ArchiveReplayService;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Starts, lists and controls replays of archived events to their replay topics. */
+@RestController
+@RequestMapping("/api/archive-replays")
+@RequiredArgsConstructor
+public class ArchiveReplayController {
+
+  private final ArchiveReplayService replayService;
+
+  @PostMapping
+  public ResponseEntity<ArchiveReplayJob> startReplay(
+      @RequestBody ArchiveReplayService.ReplayFilter filter) {
+    return ResponseEntity.ok(replayService.createReplay(filter));
+  }
+
+  @GetMapping
+  public ResponseEntity<List<ArchiveReplayJob>> getReplays() {
+    return ResponseEntity.ok(replayService.findReplays());
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<ArchiveReplayJob> getReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.getReplay(id));
+  }
+
+  @PostMapping("/{id}/pause")
+  public ResponseEntity<ArchiveReplayJob> pauseReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.pauseReplay(id));
+  }
+
+  @PostMapping("/{id}/resume")
+  public ResponseEntity<ArchiveReplayJob> resumeReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.resumeReplay(id));
+  }
+
+  @PostMapping("/{id}/cancel")
+  public ResponseEntity<ArchiveReplayJob> cancelReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.cancelReplay(id));
+  }
+}
@@ -0,0 +1,27 @@
+package com.example.routebox.server.controller;
+
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.example.routebox.server.service.ArchivedEventService;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Looks up archived events, in the archive table or the configured archive sink. */
+@RestController
+@RequestMapping("/api/archived-events")
+@RequiredArgsConstructor
+public class ArchivedEventController {
+
+  private final ArchivedEventService archivedEventService;
+
+  @GetMapping
+  public ResponseEntity<List<OutboxArchiveEvent>> findByAggregateId(
+      @RequestParam String aggregateId,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+    return ResponseEntity.ok(archivedEventService.findByAggregateId(aggregateId, from, to));
+  }
+}
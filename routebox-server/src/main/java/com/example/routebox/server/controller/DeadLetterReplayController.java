@@ -0,0 +1,48 @@
+package com.example.routebox.server.controller;
+
+import com.example.routebox.server.entity.DeadLetterReplayJob;
+import com.example.routebox.server.service.DeadLetterReplayService;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Starts, lists and controls bulk replays of dead-letter events into the outbox. */
+@RestController
+@RequestMapping("/api/dead-letter-replays")
+@RequiredArgsConstructor
+public class DeadLetterReplayController {
+
+  private final DeadLetterReplayService replayService;
+
+  @PostMapping
+  public ResponseEntity<DeadLetterReplayJob> startReplay(
+      @RequestBody DeadLetterReplayService.ReplayFilter filter) {
+    return ResponseEntity.ok(replayService.createReplay(filter));
+  }
+
+  @GetMapping
+  public ResponseEntity<List<DeadLetterReplayJob>> getReplays() {
+    return ResponseEntity.ok(replayService.findReplays());
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<DeadLetterReplayJob> getReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.getReplay(id));
+  }
+
+  @PostMapping("/{id}/pause")
+  public ResponseEntity<DeadLetterReplayJob> pauseReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.pauseReplay(id));
+  }
+
+  @PostMapping("/{id}/resume")
+  public ResponseEntity<DeadLetterReplayJob> resumeReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.resumeReplay(id));
+  }
+
+  @PostMapping("/{id}/cancel")
+  public ResponseEntity<DeadLetterReplayJob> cancelReplay(@PathVariable Long id) {
+    return ResponseEntity.ok(replayService.cancelReplay(id));
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.routebox.server.controller;
+
+import com.example.routebox.server.failure.FailureClassifier;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Views and replaces the permanent failure exception classes without a restart. */
+@RestController
+@RequestMapping("/api/failure-classification")
+@RequiredArgsConstructor
+public class FailureClassificationController {
+
+  private final FailureClassifier failureClassifier;
+
+  @GetMapping("/permanent-exceptions")
+  public ResponseEntity<Set<String>> getPermanentExceptions() {
+    return ResponseEntity.ok(failureClassifier.getPermanentExceptionNames());
+  }
+
+  @PutMapping("/permanent-exceptions")
+  public ResponseEntity<Set<String>> replacePermanentExceptions(
+      @RequestBody List<String> permanentFailureExceptions) {
+    failureClassifier.reload(permanentFailureExceptions);
+    return ResponseEntity.ok(failureClassifier.getPermanentExceptionNames());
+  }
+}
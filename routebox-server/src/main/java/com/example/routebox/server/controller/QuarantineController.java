@@ -0,0 +1,28 @@
+package com.example.routebox.server.controller;
+
+import com.example.routebox.common.entity.OutboxQuarantine;
+import com.example.routebox.server.service.OutboxQuarantineService;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Lists poison events held in quarantine and releases them ahead of their hold. */
+@RestController
+@RequestMapping("/api/quarantine")
+@RequiredArgsConstructor
+public class QuarantineController {
+
+  private final OutboxQuarantineService quarantineService;
+
+  @GetMapping
+  public ResponseEntity<List<OutboxQuarantine>> getQuarantined() {
+    return ResponseEntity.ok(quarantineService.findQuarantined());
+  }
+
+  @PostMapping("/{eventId}/release")
+  public ResponseEntity<Void> releaseQuarantine(@PathVariable Long eventId) {
+    quarantineService.releaseQuarantine(eventId);
+    return ResponseEntity.noContent().build();
+  }
+}
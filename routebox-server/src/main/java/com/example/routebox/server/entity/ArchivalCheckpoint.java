@@ -0,0 +1,82 @@
+package com.example.routebox.server.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Progress of an archival run over one table. A run archives the rows up to {@link #upToId} that
+ * are older than its {@link #cutoffTime}, one id range at a time, and moves {@link
+ * #lastArchivedId} forward with each committed range, so a run interrupted by a failure or a
+ * restart resumes where it stopped.
+ */
+@Entity
+@Table(name = "archival_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchivalCheckpoint {
+
+  /** Name of the archived table. */
+  @Id
+  @Column(length = 64)
+  private String name;
+
+  /** Rows older than this are archived by the current run. */
+  @Column(nullable = false)
+  private LocalDateTime cutoffTime;
+
+  /** Checkpoint: rows up to this id have been archived. */
+  @Column(nullable = false)
+  private long lastArchivedId;
+
+  /** Highest id the current run archives. */
+  @Column(nullable = false)
+  private long upToId;
+
+  /** Rows archived by the current run so far. */
+  @Column(nullable = false)
+  private long archivedCount;
+
+  @Column(nullable = false)
+  private LocalDateTime startedAt;
+
+  /** When the current run finished, or null while it is in progress. */
+  @Column private LocalDateTime completedAt;
+
+  @Column(nullable = false)
+  private LocalDateTime updatedAt;
+
+  public ArchivalCheckpoint(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Starts a new run over the given id range.
+   *
+   * @param cutoffTime rows older than this are archived
+   * @param firstId lowest id to archive
+   * @param lastId highest id to archive
+   */
+  public void start(LocalDateTime cutoffTime, long firstId, long lastId) {
+    this.cutoffTime = cutoffTime;
+    this.lastArchivedId = firstId - 1;
+    this.upToId = lastId;
+    this.archivedCount = 0;
+    this.startedAt = LocalDateTime.now();
+    this.completedAt = null;
+  }
+
+  /** Returns true while a run is in progress. */
+  public boolean isRunning() {
+    return startedAt != null && completedAt == null;
+  }
+
+  @PrePersist
+  @PreUpdate
+  protected void onWrite() {
+    updatedAt = LocalDateTime.now();
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.routebox.server.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A replay of archived events back to Kafka. Holds the selection filters and a keyset checkpoint
+ * (the creation time and id of the last replayed event), so a replay resumes where it stopped after
+ * a pause, a failure or a restart.
+ */
+@Entity
+@Table(name = "archive_replay_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ArchiveReplayJob {
+
+  /** Lifecycle of a replay job. */
+  public enum Status {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+  }
+
+  /** Where a replay job reads the archived events, fixed when the job is created. */
+  public enum Source {
+    /** outbox_archive_events; the checkpoint holds the archive id. */
+    TABLE,
+    /** The ArchiveSink and outbox_archive_events; the checkpoint holds the original event id. */
+    SINK
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** Event type to replay, or null for all types. */
+  @Column private String eventType;
+
+  /** Inclusive lower bound of the event creation time. */
+  @Column(nullable = false)
+  private LocalDateTime createdFrom;
+
+  /** Exclusive upper bound of the event creation time. */
+  @Column(nullable = false)
+  private LocalDateTime createdTo;
+
+  /** Suffix appended to each event's topic, fixed when the job is created. */
+  @Column(nullable = false, length = 64)
+  private String topicSuffix;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Source source = Source.TABLE;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Status status = Status.RUNNING;
+
+  /** Checkpoint: creation time of the last replayed event. */
+  @Column(nullable = false)
+  private LocalDateTime lastCreatedAt;
+
+  /**
+   * Checkpoint: archive id, or original event id for a {@link Source#SINK} job, of the last
+   * replayed event, breaking ties on creation time.
+   */
+  @Column(nullable = false)
+  private long lastArchiveId;
+
+  @Column(nullable = false)
+  private long replayedCount;
+
+  /** Matching archived events when the job was created. */
+  @Column(nullable = false)
+  private long totalCount;
+
+  /** Why the job failed, if it did. */
+  @Column(length = 4000)
+  private String lastError;
+
+  @Column(nullable = false)
+  private LocalDateTime createdAt;
+
+  @Column(nullable = false)
+  private LocalDateTime updatedAt;
+
+  public ArchiveReplayJob(
+      String eventType, LocalDateTime createdFrom, LocalDateTime createdTo, String topicSuffix) {
+    this.eventType = eventType;
+    this.createdFrom = createdFrom;
+    this.createdTo = createdTo;
+    this.topicSuffix = topicSuffix;
+    this.lastCreatedAt = createdFrom;
+  }
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+    updatedAt = createdAt;
+  }
+
+  @PreUpdate
+  protected void onUpdate() {
+    updatedAt = LocalDateTime.now();
+  }
+}
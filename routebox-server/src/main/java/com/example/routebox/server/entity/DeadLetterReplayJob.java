@@ -0,0 +1,89 @@
+package com.example.routebox.server.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A bulk replay of dead-letter events back into the outbox. Holds the selection filters and a
+ * checkpoint (the last replayed dead-letter id), so a replay resumes where it stopped after a
+ * pause, a failure or a restart.
+ */
+@Entity
+@Table(name = "dead_letter_replay_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class DeadLetterReplayJob {
+
+  /** Lifecycle of a replay job. */
+  public enum Status {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** Event type to replay, or null for all types. */
+  @Column private String eventType;
+
+  /** Error fingerprint to replay, or null for all errors. */
+  @Column private Long errorFingerprintId;
+
+  /** Inclusive lower bound of the dead-letter failure time, or null. */
+  @Column private LocalDateTime failedFrom;
+
+  /** Exclusive upper bound of the dead-letter failure time, or null. */
+  @Column private LocalDateTime failedTo;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 16)
+  private Status status = Status.RUNNING;
+
+  /** Checkpoint: dead-letter events up to this id have been replayed. */
+  @Column(nullable = false)
+  private long lastReplayedId;
+
+  @Column(nullable = false)
+  private long replayedCount;
+
+  /** Matching dead-letter events when the job was created. */
+  @Column(nullable = false)
+  private long totalCount;
+
+  /** Why the job failed, if it did. */
+  @Column(length = 4000)
+  private String lastError;
+
+  @Column(nullable = false)
+  private LocalDateTime createdAt;
+
+  @Column(nullable = false)
+  private LocalDateTime updatedAt;
+
+  public DeadLetterReplayJob(
+      String eventType, Long errorFingerprintId, LocalDateTime failedFrom, LocalDateTime failedTo) {
+    this.eventType = eventType;
+    this.errorFingerprintId = errorFingerprintId;
+    this.failedFrom = failedFrom;
+    this.failedTo = failedTo;
+  }
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+    updatedAt = createdAt;
+  }
+
+  @PreUpdate
+  protected void onUpdate() {
+    updatedAt = LocalDateTime.now();
+  }
+}
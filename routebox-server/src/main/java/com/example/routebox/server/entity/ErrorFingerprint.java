@@ -0,0 +1,63 @@
+package com.example.routebox.server.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A distinct publish error, identified by its exception class and normalized message. Failed
+ * outbox events and dead-letter events reference it by id instead of each storing the full error
+ * text, so an outage that fails millions of events with the same error adds one row here.
+ */
+@Entity
+@Table(name = "error_fingerprints")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ErrorFingerprint {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** SHA-256 of the exception class and normalized message, as hex. */
+  @Column(nullable = false, unique = true, length = 64)
+  private String fingerprint;
+
+  /** Exception class name, or null when only a message was recorded. */
+  @Column private String exceptionClass;
+
+  /** Message with ids, numbers and other variable parts replaced by "?". */
+  @Column(nullable = false, length = 1000)
+  private String normalizedMessage;
+
+  /** The raw message of the first occurrence. */
+  @Column(nullable = false, length = 4000)
+  private String sampleMessage;
+
+  @Column(nullable = false)
+  private LocalDateTime firstSeenAt;
+
+  @Column(nullable = false)
+  private LocalDateTime lastSeenAt;
+
+  /** Number of recorded failures with this fingerprint. */
+  @Column(nullable = false)
+  private long occurrenceCount;
+
+  public ErrorFingerprint(
+      String fingerprint, String exceptionClass, String normalizedMessage, String sampleMessage) {
+    this.fingerprint = fingerprint;
+    this.exceptionClass = exceptionClass;
+    this.normalizedMessage = normalizedMessage;
+    this.sampleMessage = sampleMessage;
+  }
+
+  @PrePersist
+  protected void onCreate() {
+    firstSeenAt = LocalDateTime.now();
+    lastSeenAt = firstSeenAt;
+  }
+}
@@ -1,8 +1,11 @@
 package com.example.routebox.server.entity;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.RbpSpec;
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,7 +15,12 @@ import lombok.Setter;
  * here after a retention period to prevent unbounded table growth.
  */
 @Entity
-@Table(name = "outbox_archive_events")
+@Table(
+    name = "outbox_archive_events",
+    indexes = {
+      @Index(name = "idx_outbox_archive_created", columnList = "createdAt, id"),
+      @Index(name = "idx_outbox_archive_rbp_uri", columnList = "rbp_uri")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,8 +44,29 @@ public class OutboxArchiveEvent {
 
   @Column private String correlationId;
 
-  @Column(nullable = false, columnDefinition = "TEXT")
-  private String payload;
+  /** Payload bytes copied unchanged from the outbox event. */
+  @Column(name = "payload_data", length = OutboxEvent.PAYLOAD_MAX_LENGTH)
+  private byte[] payload;
+
+  /** Payload of rows archived before the binary column existed. Read-only fallback. */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @Column(name = "payload", columnDefinition = "TEXT", insertable = false, updatable = false)
+  private String legacyPayload;
+
+  /** Codec the payload is compressed with, or null if uncompressed. */
+  @Column(length = 32)
+  private String payloadCodec;
+
+  /** Format the payload was serialized in, or null for JSON. */
+  @Column(length = 32)
+  private String payloadFormat;
+
+  @Column(length = 128)
+  private String payloadSchemaId;
+
+  /** Offloaded payload reference copied from the outbox event, or null if stored inline. */
+  @Embedded private RbpSpec rbp;
 
   @Column(nullable = false)
   private LocalDateTime createdAt;
@@ -66,10 +95,28 @@ public class OutboxArchiveEvent {
     this.eventType = event.getEventType();
     this.correlationId = event.getCorrelationId();
     this.payload = event.getPayload();
+    this.payloadCodec = event.getPayloadCodec();
+    this.payloadFormat = event.getPayloadFormat();
+    this.payloadSchemaId = event.getPayloadSchemaId();
+    this.rbp = event.getRbp();
     this.createdAt = event.getCreatedAt();
     this.sentAt = event.getSentAt();
     this.kafkaPartition = event.getKafkaPartition();
     this.kafkaOffset = event.getKafkaOffset();
     this.kafkaTimestamp = event.getKafkaTimestamp();
   }
+
+  /** Returns the payload bytes, falling back to the legacy TEXT column for older rows. */
+  public byte[] getPayload() {
+    if (payload == null && legacyPayload != null) {
+      return legacyPayload.getBytes(StandardCharsets.UTF_8);
+    }
+    return payload;
+  }
+
+  /** Returns the payload decoded as UTF-8 text. */
+  public String getPayloadAsString() {
+    byte[] bytes = getPayload();
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
 }
@@ -1,8 +1,11 @@
 package com.example.routebox.server.entity;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.RbpSpec;
 import jakarta.persistence.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,7 +15,9 @@ import lombok.Setter;
  * maximum number of permanent failure retries.
  */
 @Entity
-@Table(name = "outbox_dead_letter_events")
+@Table(
+    name = "outbox_dead_letter_events",
+    indexes = {@Index(name = "idx_outbox_dead_letter_rbp_uri", columnList = "rbp_uri")})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -34,8 +39,32 @@ public class OutboxDeadLetterEvent {
   @Column(nullable = false)
   private String eventType;
 
-  @Column(nullable = false, columnDefinition = "TEXT")
-  private String payload;
+  /** Correlation id of the outbox event, kept so a replayed event is deduplicated by consumers. */
+  @Column private String correlationId;
+
+  /** Payload bytes copied unchanged from the outbox event. */
+  @Column(name = "payload_data", length = OutboxEvent.PAYLOAD_MAX_LENGTH)
+  private byte[] payload;
+
+  /** Payload of rows dead-lettered before the binary column existed. Read-only fallback. */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @Column(name = "payload", columnDefinition = "TEXT", insertable = false, updatable = false)
+  private String legacyPayload;
+
+  /** Codec the payload is compressed with, or null if uncompressed. */
+  @Column(length = 32)
+  private String payloadCodec;
+
+  /** Format the payload was serialized in, or null for JSON. */
+  @Column(length = 32)
+  private String payloadFormat;
+
+  @Column(length = 128)
+  private String payloadSchemaId;
+
+  /** Offloaded payload reference copied from the outbox event, or null if stored inline. */
+  @Embedded private RbpSpec rbp;
 
   @Column(nullable = false)
   private LocalDateTime originalCreatedAt;
@@ -43,21 +72,62 @@ public class OutboxDeadLetterEvent {
   @Column(nullable = false)
   private LocalDateTime failedAt;
 
-  @Column(nullable = false, columnDefinition = "TEXT")
-  private String finalError;
+  /** The error that dead-lettered the event, as an id in the error_fingerprints table. */
+  @Column(name = "error_fingerprint_id")
+  private Long errorFingerprintId;
+
+  /** The fingerprint row, loaded for display. */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ManyToOne
+  @JoinColumn(name = "error_fingerprint_id", insertable = false, updatable = false)
+  private ErrorFingerprint errorFingerprint;
+
+  /** Error text of rows dead-lettered before error fingerprints existed. Read-only fallback. */
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @Column(name = "final_error", columnDefinition = "TEXT", insertable = false, updatable = false)
+  private String legacyFinalError;
 
   @PrePersist
   protected void onFail() {
     failedAt = LocalDateTime.now();
   }
 
-  public OutboxDeadLetterEvent(OutboxEvent event, String finalError) {
+  public OutboxDeadLetterEvent(OutboxEvent event, Long errorFingerprintId) {
     this.originalEventId = event.getId();
     this.aggregateType = event.getAggregateType();
     this.aggregateId = event.getAggregateId();
     this.eventType = event.getEventType();
+    this.correlationId = event.getCorrelationId();
     this.payload = event.getPayload();
+    this.payloadCodec = event.getPayloadCodec();
+    this.payloadFormat = event.getPayloadFormat();
+    this.payloadSchemaId = event.getPayloadSchemaId();
+    this.rbp = event.getRbp();
     this.originalCreatedAt = event.getCreatedAt();
-    this.finalError = finalError;
+    this.errorFingerprintId = errorFingerprintId;
+  }
+
+  /** Returns the payload bytes, falling back to the legacy TEXT column for older rows. */
+  public byte[] getPayload() {
+    if (payload == null && legacyPayload != null) {
+      return legacyPayload.getBytes(StandardCharsets.UTF_8);
+    }
+    return payload;
+  }
+
+  /**
+   * Returns the final error: the first message recorded for its fingerprint, or the stored text for
+   * rows dead-lettered before fingerprints existed.
+   */
+  public String getFinalError() {
+    return errorFingerprint != null ? errorFingerprint.getSampleMessage() : legacyFinalError;
+  }
+
+  /** Returns the payload decoded as UTF-8 text. */
+  public String getPayloadAsString() {
+    byte[] bytes = getPayload();
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
   }
 }
@@ -0,0 +1,37 @@
+package com.example.routebox.server.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An offloaded payload whose archived events have been removed, queued for deletion from the
+ * payload store. The payload is deleted only if no outbox, dead-letter or archived event refers to
+ * it any more and it was not stored again within the grace period; the candidate is removed either
+ * way, so a payload is queued again each time the last rows referencing it are removed.
+ */
+@Entity
+@Table(name = "payload_deletion_candidates")
+@Getter
+@Setter
+@NoArgsConstructor
+public class PayloadDeletionCandidate {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /** Reference of the payload in the payload store. */
+  @Column(nullable = false, length = 1024)
+  private String uri;
+
+  @Column(nullable = false)
+  private LocalDateTime queuedAt;
+
+  public PayloadDeletionCandidate(String uri, LocalDateTime queuedAt) {
+    this.uri = uri;
+    this.queuedAt = queuedAt;
+  }
+}
@@ -0,0 +1,89 @@
+package com.example.routebox.server.failure;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes error messages and computes the fingerprints that group them.
+ *
+ * <p>Normalization replaces the parts of a message that differ between occurrences of the same
+ * error (UUIDs, long hex strings and numbers such as ids, offsets and partitions) with "?" and
+ * collapses whitespace, so "Timeout after 3000 ms for event 42" and "Timeout after 3000 ms for
+ * event 43" share one fingerprint. The fingerprint is the SHA-256 of the exception class and the
+ * normalized message.
+ */
+public final class ErrorFingerprints {
+
+  /** Longest normalized message kept; longer ones are cut before fingerprinting. */
+  public static final int MAX_NORMALIZED_LENGTH = 1000;
+
+  /** Longest sample message kept. */
+  public static final int MAX_SAMPLE_LENGTH = 4000;
+
+  private static final Pattern UUID =
+      Pattern.compile(
+          "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+  private static final Pattern HEX =
+      Pattern.compile("\\b(?:0x)?(?=[0-9a-fA-F]*\\d)[0-9a-fA-F]{8,}\\b");
+  private static final Pattern NUMBER = Pattern.compile("\\d+");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private ErrorFingerprints() {}
+
+  /**
+   * Returns the message with its variable parts replaced by "?".
+   *
+   * @param message the raw error message, may be null
+   * @return the normalized message, empty for a null message
+   */
+  public static String normalize(String message) {
+    if (message == null) {
+      return "";
+    }
+    String normalized = UUID.matcher(message).replaceAll("?");
+    normalized = HEX.matcher(normalized).replaceAll("?");
+    normalized = NUMBER.matcher(normalized).replaceAll("?");
+    normalized = WHITESPACE.matcher(normalized).replaceAll(" ").strip();
+    return truncate(normalized, MAX_NORMALIZED_LENGTH);
+  }
+
+  /**
+   * Returns the fingerprint of an error as 64 hex characters.
+   *
+   * @param exceptionClass the exception class name, may be null
+   * @param normalizedMessage the message as returned by {@link #normalize}
+   */
+  public static String fingerprint(String exceptionClass, String normalizedMessage) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    digest.update(String.valueOf(exceptionClass).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+    digest.update(normalizedMessage.getBytes(StandardCharsets.UTF_8));
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /** Returns the innermost cause of a failure, which usually names the actual error. */
+  public static Throwable rootCause(Throwable failure) {
+    Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    Throwable root = failure;
+    while (root.getCause() != null && seen.add(root)) {
+      root = root.getCause();
+    }
+    return root;
+  }
+
+  /** Cuts a string to at most the given length. */
+  public static String truncate(String value, int maxLength) {
+    return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+  }
+}
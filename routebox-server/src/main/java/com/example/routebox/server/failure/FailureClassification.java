@@ -0,0 +1,11 @@
+package com.example.routebox.server.failure;
+
+/** Outcome of classifying a publish failure. */
+public enum FailureClassification {
+
+  /** Retrying cannot help; the failure counts towards max-permanent-retries and the DLQ. */
+  PERMANENT,
+
+  /** The event is released and retried on the next poll without counting the failure. */
+  TRANSIENT
+}
@@ -0,0 +1,23 @@
+package com.example.routebox.server.failure;
+
+/**
+ * SPI for classification rules that need more than the exception class, such as a Kafka error
+ * code or a vendor-specific SQL state. Declare implementations as Spring beans; they are picked
+ * up, in {@link org.springframework.core.annotation.Order} order, when the {@link
+ * FailureClassifier} is (re)loaded.
+ *
+ * <p>Rules see every throwable of a failure's cause chain, outermost first, before the configured
+ * permanent exception classes are consulted. Unlike class matches, rule verdicts are not cached,
+ * so rules must be cheap.
+ */
+@FunctionalInterface
+public interface FailureClassificationRule {
+
+  /**
+   * Classifies one throwable of a cause chain.
+   *
+   * @param failure the throwable
+   * @return the verdict, or null to leave the throwable to the next rule and the class match
+   */
+  FailureClassification classify(Throwable failure);
+}
@@ -0,0 +1,125 @@
+package com.example.routebox.server.failure;
+
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import jakarta.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether a publish failure is permanent or transient.
+ *
+ * <p>The configured permanent exception names (outbox.processing.permanent-failure-exceptions)
+ * match the named class and all its subclasses. The verdict for each exception class is computed
+ * once, by walking its superclasses, and cached in a {@link ClassValue}; classifying a failure then
+ * costs one cache lookup per throwable of its cause chain. {@link FailureClassificationRule} beans
+ * are consulted first for each throwable and can decide on more than the class.
+ *
+ * <p>The cause chain is walked outermost first and the first PERMANENT verdict wins; a TRANSIENT
+ * verdict from a rule ends the walk. A failure nothing matches is transient.
+ *
+ * <p>{@link #reload(List)} swaps in new exception names at runtime; the class cache is rebuilt
+ * lazily.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FailureClassifier {
+
+  private final OutboxProcessingConfig processingConfig;
+  private final ObjectProvider<FailureClassificationRule> ruleProvider;
+
+  private volatile Compiled compiled;
+
+  /** Compiles the configured names and collects the rules. */
+  @PostConstruct
+  public void reload() {
+    Compiled next =
+        new Compiled(
+            Set.copyOf(processingConfig.getPermanentFailureExceptions()),
+            ruleProvider.orderedStream().toList());
+    compiled = next;
+    log.info(
+        "Failure classifier loaded {} permanent exception class(es) and {} rule(s)",
+        next.permanentNames.size(),
+        next.rules.size());
+  }
+
+  /**
+   * Replaces the permanent exception names at runtime.
+   *
+   * @param permanentFailureExceptions fully-qualified exception class names
+   */
+  public void reload(List<String> permanentFailureExceptions) {
+    processingConfig.setPermanentFailureExceptions(List.copyOf(permanentFailureExceptions));
+    reload();
+  }
+
+  /** Returns the exception names currently classified as permanent. */
+  public Set<String> getPermanentExceptionNames() {
+    return compiled.permanentNames;
+  }
+
+  /**
+   * Classifies a failure by walking its cause chain.
+   *
+   * @param failure the failure
+   * @return PERMANENT if a rule or a configured class matches, TRANSIENT otherwise
+   */
+  public FailureClassification classify(Throwable failure) {
+    Compiled current = compiled;
+    Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Throwable t = failure; t != null && seen.add(t); t = t.getCause()) {
+      for (FailureClassificationRule rule : current.rules) {
+        FailureClassification verdict = rule.classify(t);
+        if (verdict != null) {
+          return verdict;
+        }
+      }
+      if (current.byClass.get(t.getClass()) == FailureClassification.PERMANENT) {
+        return FailureClassification.PERMANENT;
+      }
+    }
+    return FailureClassification.TRANSIENT;
+  }
+
+  /**
+   * Returns whether a failure is permanent.
+   *
+   * @param failure the failure
+   * @return true if {@link #classify} returns PERMANENT
+   */
+  public boolean isPermanent(Throwable failure) {
+    return classify(failure) == FailureClassification.PERMANENT;
+  }
+
+  /** Immutable snapshot of the configuration, replaced as a whole on reload. */
+  private static final class Compiled {
+
+    private final Set<String> permanentNames;
+    private final List<FailureClassificationRule> rules;
+    private final ClassValue<FailureClassification> byClass;
+
+    private Compiled(Set<String> permanentNames, List<FailureClassificationRule> rules) {
+      this.permanentNames = permanentNames;
+      this.rules = rules;
+      this.byClass =
+          new ClassValue<>() {
+            @Override
+            protected FailureClassification computeValue(Class<?> type) {
+              for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (permanentNames.contains(c.getName())) {
+                  return FailureClassification.PERMANENT;
+                }
+              }
+              return FailureClassification.TRANSIENT;
+            }
+          };
+    }
+  }
+}
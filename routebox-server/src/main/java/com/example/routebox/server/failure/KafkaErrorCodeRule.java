@@ -0,0 +1,45 @@
+package com.example.routebox.server.failure;
+
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.errors.ApiException;
+import org.apache.kafka.common.protocol.Errors;
+import org.springframework.stereotype.Component;
+
+/**
+ * Classifies Kafka broker errors by their protocol error code, so a failure can be made permanent
+ * by its {@link Errors} name (outbox.processing.permanent-kafka-errors, e.g. "POLICY_VIOLATION")
+ * without listing its exception class.
+ */
+@Component
+@RequiredArgsConstructor
+public class KafkaErrorCodeRule implements FailureClassificationRule {
+
+  private final OutboxProcessingConfig processingConfig;
+
+  // The configured list and the set compiled from it; recompiled when the list is replaced
+  private volatile List<String> compiledFrom;
+  private volatile Set<String> permanentErrors = Set.of();
+
+  @Override
+  public FailureClassification classify(Throwable failure) {
+    if (!(failure instanceof ApiException)) {
+      return null;
+    }
+    Errors error = Errors.forException(failure);
+    return error != Errors.UNKNOWN_SERVER_ERROR && permanentErrors().contains(error.name())
+        ? FailureClassification.PERMANENT
+        : null;
+  }
+
+  private Set<String> permanentErrors() {
+    List<String> configured = processingConfig.getPermanentKafkaErrors();
+    if (configured != compiledFrom) {
+      permanentErrors = Set.copyOf(configured);
+      compiledFrom = configured;
+    }
+    return permanentErrors;
+  }
+}
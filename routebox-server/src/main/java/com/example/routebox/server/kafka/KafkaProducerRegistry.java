@@ -0,0 +1,179 @@
+package com.example.routebox.server.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Lightweight registry of per-cluster producer pools, kept outside the Spring bean factory.
+ *
+ * <p>The read path is lock-free: an existing pool is found with a plain {@link
+ * ConcurrentHashMap#get} and leased with a CAS on its reference count. Pools are created on first
+ * use only. Eviction retires a pool by moving its reference count from 0 to -1, so a pool is
+ * closed only when it is both idle and unleased; a lease racing with eviction simply creates a
+ * fresh pool.
+ *
+ * @param <K> the record key type
+ * @param <V> the record value type
+ */
+@Slf4j
+public class KafkaProducerRegistry<K, V> {
+
+  private final Map<String, PoolEntry<K, V>> pools = new ConcurrentHashMap<>();
+  private final Function<String, List<KafkaTemplate<K, V>>> poolCreator;
+  private final Consumer<KafkaTemplate<K, V>> templateCloser;
+
+  /**
+   * Creates a registry.
+   *
+   * @param poolCreator creates the templates of a cluster's producer pool (at least one)
+   * @param templateCloser closes a template and its producer when a pool is evicted
+   */
+  public KafkaProducerRegistry(
+      Function<String, List<KafkaTemplate<K, V>>> poolCreator,
+      Consumer<KafkaTemplate<K, V>> templateCloser) {
+    this.poolCreator = poolCreator;
+    this.templateCloser = templateCloser;
+  }
+
+  /**
+   * Leases the producer of the cluster's pool that owns the given record key. The same key always
+   * maps to the same producer, so per-key ordering holds.
+   *
+   * @param clusterKey the cluster key from kafka.clusters
+   * @param recordKey the record key, or null for the first producer of the pool
+   * @return an open lease; close it once the send has completed
+   */
+  public ProducerLease<K, V> lease(String clusterKey, String recordKey) {
+    while (true) {
+      PoolEntry<K, V> entry = pools.get(clusterKey);
+      if (entry == null) {
+        entry = pools.computeIfAbsent(clusterKey, this::createEntry);
+      }
+      if (entry.tryAcquire()) {
+        KafkaTemplate<K, V> template = entry.select(recordKey);
+        return new ProducerLease<>(template, entry::release);
+      }
+      // The pool was retired by a concurrent eviction; drop the stale mapping and retry
+      pools.remove(clusterKey, entry);
+    }
+  }
+
+  /**
+   * Closes every pool that has been unleased for longer than the given idle time.
+   *
+   * @param maxIdleMillis the idle time after which an unleased pool is closed
+   * @return the number of pools closed
+   */
+  public int evictIdle(long maxIdleMillis) {
+    long idleThreshold = System.currentTimeMillis() - maxIdleMillis;
+    int evicted = 0;
+    for (Map.Entry<String, PoolEntry<K, V>> mapping : pools.entrySet()) {
+      PoolEntry<K, V> entry = mapping.getValue();
+      if (entry.lastReleased < idleThreshold && entry.tryRetire()) {
+        pools.remove(mapping.getKey(), entry);
+        log.info("Evicting idle Kafka producer pool for cluster: {}", mapping.getKey());
+        closePool(mapping.getKey(), entry);
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /** Closes all pools regardless of leases. Intended for application shutdown only. */
+  public void closeAll() {
+    pools.forEach(
+        (clusterKey, entry) -> {
+          if (pools.remove(clusterKey, entry)) {
+            closePool(clusterKey, entry);
+          }
+        });
+  }
+
+  /** Returns whether a pool is currently open for the cluster. */
+  public boolean contains(String clusterKey) {
+    return pools.containsKey(clusterKey);
+  }
+
+  /** Returns the number of open leases on the cluster's pool, or 0 if there is no pool. */
+  public int activeLeases(String clusterKey) {
+    PoolEntry<K, V> entry = pools.get(clusterKey);
+    return entry == null ? 0 : Math.max(0, entry.leases.get());
+  }
+
+  /**
+   * Selects the producer slot for a record key using the same murmur2 hash as Kafka's default
+   * partitioner.
+   */
+  static int selectProducer(String recordKey, int poolSize) {
+    return Utils.toPositive(Utils.murmur2(recordKey.getBytes(StandardCharsets.UTF_8))) % poolSize;
+  }
+
+  private PoolEntry<K, V> createEntry(String clusterKey) {
+    List<KafkaTemplate<K, V>> templates = poolCreator.apply(clusterKey);
+    if (templates.isEmpty()) {
+      throw new IllegalStateException("Producer pool for cluster '" + clusterKey + "' is empty");
+    }
+    return new PoolEntry<>(List.copyOf(templates));
+  }
+
+  private void closePool(String clusterKey, PoolEntry<K, V> entry) {
+    for (KafkaTemplate<K, V> template : entry.templates) {
+      try {
+        templateCloser.accept(template);
+      } catch (Exception e) {
+        log.error("Error while closing Kafka producer for cluster: {}", clusterKey, e);
+      }
+    }
+  }
+
+  /** A cluster's producer pool with its lease count and idle clock. */
+  private static final class PoolEntry<K, V> {
+
+    private final List<KafkaTemplate<K, V>> templates;
+
+    // >= 0: number of open leases; -1: retired by eviction, must not be leased again
+    private final AtomicInteger leases = new AtomicInteger();
+
+    private volatile long lastReleased = System.currentTimeMillis();
+
+    private PoolEntry(List<KafkaTemplate<K, V>> templates) {
+      this.templates = templates;
+    }
+
+    private KafkaTemplate<K, V> select(String recordKey) {
+      if (templates.size() == 1 || recordKey == null) {
+        return templates.get(0);
+      }
+      return templates.get(selectProducer(recordKey, templates.size()));
+    }
+
+    private boolean tryAcquire() {
+      while (true) {
+        int current = leases.get();
+        if (current < 0) {
+          return false;
+        }
+        if (leases.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    private void release() {
+      lastReleased = System.currentTimeMillis();
+      leases.decrementAndGet();
+    }
+
+    private boolean tryRetire() {
+      return leases.compareAndSet(0, -1);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.routebox.server.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Reorders a batch of records so that records bound for the same topic partition are sent one
+ * after the other. The producer accumulates one batch per partition; sending a claimed batch in
+ * claim order spreads it across all partitions at once, so every partition batch fills slowly and
+ * compresses poorly.
+ *
+ * <p>Partitions are computed with the same murmur2 hash of the UTF-8 key as Kafka's built-in
+ * partitioner. The grouping is stable: buckets appear in the order of their first record and
+ * records keep their relative order inside a bucket, so records with the same key, which always
+ * share a partition, keep their order. Records without a key, and topics whose partition count is
+ * unknown, are bucketed by topic only.
+ */
+public final class PartitionGrouping {
+
+  /** Bucket partition used where the producer, not the key, picks the partition. */
+  static final int UNKNOWN_PARTITION = -1;
+
+  /**
+   * Groups records by target topic and partition.
+   *
+   * @param records the records, in send order
+   * @param topicOf the target topic of a record
+   * @param keyOf the record key of a record (may return null)
+   * @param partitionCount the partition count of a topic, or 0 if unknown; called once per topic
+   * @param <T> the record type
+   * @return the same records, grouped by topic partition
+   */
+  public static <T> List<T> group(
+      List<T> records,
+      Function<T, String> topicOf,
+      Function<T, String> keyOf,
+      ToIntFunction<String> partitionCount) {
+    if (records.size() < 2) {
+      return records;
+    }
+
+    Map<String, Integer> partitionCounts = new HashMap<>();
+    Map<Bucket, List<T>> buckets = new LinkedHashMap<>();
+    for (T record : records) {
+      String topic = topicOf.apply(record);
+      int partitions = partitionCounts.computeIfAbsent(topic, partitionCount::applyAsInt);
+      Bucket bucket = new Bucket(topic, partitionFor(keyOf.apply(record), partitions));
+      buckets.computeIfAbsent(bucket, b -> new ArrayList<>()).add(record);
+    }
+    if (buckets.size() == 1) {
+      return records;
+    }
+
+    List<T> grouped = new ArrayList<>(records.size());
+    buckets.values().forEach(grouped::addAll);
+    return grouped;
+  }
+
+  /**
+   * Computes the partition Kafka's built-in partitioner assigns to a key.
+   *
+   * @param key the record key (may be null)
+   * @param partitionCount the partition count of the topic, or 0 if unknown
+   * @return the partition, or {@link #UNKNOWN_PARTITION} if the key or count does not determine it
+   */
+  static int partitionFor(String key, int partitionCount) {
+    if (key == null || partitionCount <= 0) {
+      return UNKNOWN_PARTITION;
+    }
+    return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+  }
+
+  /** A target topic partition. */
+  private record Bucket(String topic, int partition) {}
+
+  private PartitionGrouping() {
+    // Utility class
+  }
+}
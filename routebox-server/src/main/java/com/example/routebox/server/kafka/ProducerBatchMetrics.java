@@ -0,0 +1,116 @@
+package com.example.routebox.server.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.kafka.core.ProducerFactory;
+
+/**
+ * Per-cluster gauges of how well the producers batch and compress, aggregated over every producer
+ * of the cluster's pool:
+ *
+ * <ul>
+ *   <li>{@value #BATCH_FILL}: average record batch size as a fraction of batch.size
+ *   <li>{@value #COMPRESSION_RATIO}: average uncompressed to compressed size of record batches
+ * </ul>
+ *
+ * Producers are tracked through a {@link ProducerFactory.Listener} per pool slot, so the gauges
+ * never create a producer and report NaN while a cluster has no open producer.
+ */
+public class ProducerBatchMetrics {
+
+  /** Gauge name for the batch fill ratio. */
+  public static final String BATCH_FILL = "outbox.kafka.batch.fill";
+
+  /** Gauge name for the compression ratio. */
+  public static final String COMPRESSION_RATIO = "outbox.kafka.compression.ratio";
+
+  private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, ClusterProducers> clusters = new ConcurrentHashMap<>();
+
+  public ProducerBatchMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Creates the listener to add to one producer factory of the cluster's pool.
+   *
+   * @param clusterKey the cluster key from kafka.clusters
+   * @param batchSizeBytes the batch.size the producers are configured with
+   * @param <K> the record key type
+   * @param <V> the record value type
+   * @return a listener that tracks the producers the factory creates
+   */
+  public <K, V> ProducerFactory.Listener<K, V> listener(String clusterKey, int batchSizeBytes) {
+    ClusterProducers cluster = clusters.computeIfAbsent(clusterKey, this::register);
+    cluster.batchSizeBytes = batchSizeBytes;
+    return new ProducerFactory.Listener<>() {
+      @Override
+      public void producerAdded(String id, Producer<K, V> producer) {
+        cluster.producers.put(id, producer);
+      }
+
+      @Override
+      public void producerRemoved(String id, Producer<K, V> producer) {
+        cluster.producers.remove(id);
+      }
+    };
+  }
+
+  private ClusterProducers register(String clusterKey) {
+    ClusterProducers cluster = new ClusterProducers();
+    Gauge.builder(BATCH_FILL, cluster, ClusterProducers::batchFill)
+        .description("Average producer record batch size as a fraction of batch.size")
+        .tag("cluster", clusterKey)
+        .register(meterRegistry);
+    Gauge.builder(COMPRESSION_RATIO, cluster, ClusterProducers::compressionRatio)
+        .description("Average uncompressed to compressed size of producer record batches")
+        .tag("cluster", clusterKey)
+        .register(meterRegistry);
+    return cluster;
+  }
+
+  /** The open producers of one cluster, keyed by the id the producer factory reports. */
+  private static final class ClusterProducers {
+
+    private final Map<String, Producer<?, ?>> producers = new ConcurrentHashMap<>();
+    private volatile int batchSizeBytes;
+
+    private double batchFill() {
+      double batchSize = average("batch-size-avg");
+      return batchSizeBytes > 0 ? batchSize / batchSizeBytes : Double.NaN;
+    }
+
+    private double compressionRatio() {
+      // Kafka reports compressed / uncompressed; 1.0 without compression
+      double rate = average("compression-rate-avg");
+      return rate > 0 ? 1.0 / rate : Double.NaN;
+    }
+
+    /** Averages a producer metric over the producers that have recorded it. */
+    private double average(String metricName) {
+      double sum = 0;
+      int count = 0;
+      for (Producer<?, ?> producer : producers.values()) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+          MetricName name = metric.getKey();
+          if (metricName.equals(name.name()) && PRODUCER_METRICS_GROUP.equals(name.group())) {
+            if (metric.getValue().metricValue() instanceof Number number
+                && Double.isFinite(number.doubleValue())) {
+              sum += number.doubleValue();
+              count++;
+            }
+            break;
+          }
+        }
+      }
+      return count == 0 ? Double.NaN : sum / count;
+    }
+  }
+}
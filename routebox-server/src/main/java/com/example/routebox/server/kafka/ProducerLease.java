@@ -0,0 +1,46 @@
+package com.example.routebox.server.kafka;
+
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * A short-lived claim on a pooled KafkaTemplate. While at least one lease is open, the registry
+ * will not close the underlying producer. Use with try-with-resources and keep the lease open
+ * until the send has been acknowledged.
+ *
+ * @param <K> the record key type
+ * @param <V> the record value type
+ */
+public final class ProducerLease<K, V> implements AutoCloseable {
+
+  private final KafkaTemplate<K, V> template;
+  private final Runnable onRelease;
+  private boolean released;
+
+  /**
+   * Creates a lease.
+   *
+   * @param template the leased template
+   * @param onRelease invoked exactly once when the lease is closed
+   */
+  public ProducerLease(KafkaTemplate<K, V> template, Runnable onRelease) {
+    this.template = template;
+    this.onRelease = onRelease;
+  }
+
+  /** Returns the leased template. Must not be used after the lease is closed. */
+  public KafkaTemplate<K, V> template() {
+    if (released) {
+      throw new IllegalStateException("Producer lease has already been released");
+    }
+    return template;
+  }
+
+  /** Releases the lease. Calling this more than once has no further effect. */
+  @Override
+  public void close() {
+    if (!released) {
+      released = true;
+      onRelease.run();
+    }
+  }
+}
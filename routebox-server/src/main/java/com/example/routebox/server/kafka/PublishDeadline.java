@@ -0,0 +1,80 @@
+package com.example.routebox.server.kafka;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The time by which a claimed event must be acknowledged by Kafka: the end of its claim lease
+ * minus a margin for recording the result. Past it the lease may expire and another instance may
+ * claim the event again, so a send still in flight risks a double publish.
+ *
+ * @param at the deadline, or null for an event published without a claim lease
+ */
+public record PublishDeadline(LocalDateTime at) {
+
+  /** A deadline that never passes. */
+  public static final PublishDeadline NONE = new PublishDeadline(null);
+
+  /** Time left on a deadline that never passes. */
+  private static final Duration UNBOUNDED = Duration.ofMillis(Long.MAX_VALUE);
+
+  /**
+   * Returns the deadline of a claimed event.
+   *
+   * @param event the event, with its claim lease in inProgressUntil
+   * @param margin time kept back from the lease for marking the event as sent
+   */
+  public static PublishDeadline forEvent(OutboxEvent event, Duration margin) {
+    LocalDateTime leaseEnd = event.getInProgressUntil();
+    return leaseEnd == null ? NONE : new PublishDeadline(leaseEnd.minus(margin));
+  }
+
+  /** Returns the earliest deadline of events published together. */
+  public static PublishDeadline earliest(Collection<OutboxEvent> events, Duration margin) {
+    return events.stream()
+        .map(OutboxEvent::getInProgressUntil)
+        .filter(Objects::nonNull)
+        .min(LocalDateTime::compareTo)
+        .map(leaseEnd -> new PublishDeadline(leaseEnd.minus(margin)))
+        .orElse(NONE);
+  }
+
+  /** Returns true once the deadline has passed. */
+  public boolean isExpired() {
+    return at != null && !LocalDateTime.now().isBefore(at);
+  }
+
+  /** Returns the time left before the deadline, zero once it has passed. */
+  public Duration remaining() {
+    if (at == null) {
+      return UNBOUNDED;
+    }
+    Duration remaining = Duration.between(LocalDateTime.now(), at);
+    return remaining.isNegative() ? Duration.ZERO : remaining;
+  }
+
+  /**
+   * Waits for a send, but no longer than the deadline.
+   *
+   * @throws PublishDeadlineExceededException if the deadline passes first
+   */
+  public <T> T await(CompletableFuture<T> future)
+      throws InterruptedException, ExecutionException {
+    if (at == null) {
+      return future.get();
+    }
+    try {
+      return future.get(remaining().toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      throw new PublishDeadlineExceededException(
+          "Send not acknowledged before the publish deadline " + at);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.routebox.server.kafka;
+
+/**
+ * Thrown when a send is not acknowledged before its {@link PublishDeadline}. The event is left to
+ * its claim lease instead of being recorded as failed: the record may still be delivered, and the
+ * lease is about to expire anyway.
+ */
+public class PublishDeadlineExceededException extends RuntimeException {
+
+  public PublishDeadlineExceededException(String message) {
+    super(message);
+  }
+}
@@ -4,6 +4,7 @@ import com.example.routebox.common.repository.OutboxEventRepository;
 import com.example.routebox.server.repository.OutboxArchiveEventRepository;
 import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -35,16 +36,42 @@ public class OutboxMetricsService {
   private final AtomicLong oldestEventAgeSeconds = new AtomicLong(0);
   private final AtomicLong archivedEventsCount = new AtomicLong(0);
   private final AtomicLong deadLetterEventsCount = new AtomicLong(0);
+  private final AtomicLong replayRemainingCount = new AtomicLong(0);
+  private final AtomicLong archiveReplayRemainingCount = new AtomicLong(0);
+  private final AtomicLong quarantinedEventsCount = new AtomicLong(0);
+  private final AtomicLong archivalLagSeconds = new AtomicLong(0);
+  private final AtomicLong archivalChunkSize = new AtomicLong(0);
+  private final AtomicLong processedArchivalLagSeconds = new AtomicLong(0);
 
   // Counters for success/failure
   private Counter publishSuccessCounter;
   private Counter publishFailureCounter;
   private Counter archiveCounter;
+  private Counter processedArchiveCounter;
   private Counter deadLetterCounter;
+  private Counter replayedCounter;
+  private Counter replayThrottledCounter;
+  private Counter archiveReplayedCounter;
+  private Counter archivalThrottledCounter;
+  private Counter quarantineCounter;
+  private Counter leaseExpiredQueuedCounter;
+  private Counter leaseExpiredInFlightCounter;
+  private Counter kafkaTransactionCommitCounter;
+  private Counter kafkaTransactionAbortCounter;
+  private DistributionSummary envelopeSizeSummary;
 
   // Timer for event processing duration
   private Timer eventProcessingTimer;
 
+  // Timer for the claim lease left when a send is acknowledged
+  private Timer leaseSlackTimer;
+
+  // Timer for each archived id range
+  private Timer archivalChunkTimer;
+
+  // Timer for each archived range of processed messages
+  private Timer processedArchivalChunkTimer;
+
   /** Initialize metrics on bean construction. */
   @PostConstruct
   public void initializeMetrics() {
@@ -68,6 +95,38 @@ public class OutboxMetricsService {
         .description("Total number of events in the dead letter queue")
         .register(meterRegistry);
 
+    // Gauge: Dead letter events still to be replayed by running replay jobs
+    Gauge.builder("outbox.deadletter.replay.remaining", replayRemainingCount, AtomicLong::get)
+        .description("Number of dead letter events running replay jobs have yet to replay")
+        .register(meterRegistry);
+
+    // Gauge: Archived events still to be replayed by running archive replay jobs
+    Gauge.builder(
+            "outbox.archive.replay.remaining", archiveReplayRemainingCount, AtomicLong::get)
+        .description("Number of archived events running replay jobs have yet to publish")
+        .register(meterRegistry);
+
+    // Gauge: Poison events parked in quarantine
+    Gauge.builder("outbox.quarantine.events", quarantinedEventsCount, AtomicLong::get)
+        .description("Number of events held in quarantine after a permanent failure")
+        .register(meterRegistry);
+
+    // Gauge: How far continuous archival is behind the retention period
+    Gauge.builder("outbox.archival.lag.seconds", archivalLagSeconds, AtomicLong::get)
+        .description("Seconds past the retention period of the oldest event not yet archived")
+        .register(meterRegistry);
+
+    // Gauge: Chunk size chosen by the continuous archival pace controller
+    Gauge.builder("outbox.archival.trickle.chunk.size", archivalChunkSize, AtomicLong::get)
+        .description("Number of events continuous archival moves in its next chunk")
+        .register(meterRegistry);
+
+    // Gauge: How far processed message archival is behind the retention period
+    Gauge.builder(
+            "outbox.processed.archival.lag.seconds", processedArchivalLagSeconds, AtomicLong::get)
+        .description("Seconds past the retention period of the oldest processed message left")
+        .register(meterRegistry);
+
     // Counter: Successful publishes
     publishSuccessCounter =
         Counter.builder("outbox.events.published.success")
@@ -86,18 +145,102 @@ public class OutboxMetricsService {
             .description("Total number of events archived")
             .register(meterRegistry);
 
+    // Counter: Archived processed messages
+    processedArchiveCounter =
+        Counter.builder("outbox.processed.archived")
+            .description("Total number of processed messages archived")
+            .register(meterRegistry);
+
     // Counter: Dead letter events
     deadLetterCounter =
         Counter.builder("outbox.events.deadletter")
             .description("Total number of events moved to dead letter queue")
             .register(meterRegistry);
 
+    // Counter: Replayed dead letter events
+    replayedCounter =
+        Counter.builder("outbox.deadletter.replay.replayed")
+            .description("Total number of dead letter events replayed into the outbox")
+            .register(meterRegistry);
+
+    // Counter: Replay chunks skipped because the outbox backlog was too large
+    replayThrottledCounter =
+        Counter.builder("outbox.deadletter.replay.throttled")
+            .description("Number of replay chunks skipped to let the outbox backlog drain")
+            .register(meterRegistry);
+
+    // Counter: Archived events replayed to Kafka
+    archiveReplayedCounter =
+        Counter.builder("outbox.archive.replay.replayed")
+            .description("Total number of archived events replayed to their replay topics")
+            .register(meterRegistry);
+
+    // Counter: Continuous archival ticks skipped because the pipeline had no headroom
+    archivalThrottledCounter =
+        Counter.builder("outbox.archival.trickle.throttled")
+            .description("Number of continuous archival ticks held back by a busy event queue")
+            .register(meterRegistry);
+
+    // Counter: Events quarantined or whose quarantine was extended
+    quarantineCounter =
+        Counter.builder("outbox.quarantine.holds")
+            .description("Total number of quarantine holds placed on failed events")
+            .register(meterRegistry);
+
+    // Counters: Events given up because their publish deadline passed, by where it passed
+    leaseExpiredQueuedCounter =
+        Counter.builder("outbox.publish.lease.expired")
+            .description("Events not sent or given up because their claim lease ran out")
+            .tag("stage", "queued")
+            .register(meterRegistry);
+    leaseExpiredInFlightCounter =
+        Counter.builder("outbox.publish.lease.expired")
+            .description("Events not sent or given up because their claim lease ran out")
+            .tag("stage", "in_flight")
+            .register(meterRegistry);
+
+    // Counter: Committed Kafka transactions (transactional publishing mode)
+    kafkaTransactionCommitCounter =
+        Counter.builder("outbox.kafka.transactions.committed")
+            .description("Total number of Kafka transactions committed by the batch publisher")
+            .register(meterRegistry);
+
+    // Counter: Aborted Kafka transactions (transactional publishing mode)
+    kafkaTransactionAbortCounter =
+        Counter.builder("outbox.kafka.transactions.aborted")
+            .description("Total number of Kafka transactions aborted by the batch publisher")
+            .register(meterRegistry);
+
+    // Distribution: Events packed into each envelope record
+    envelopeSizeSummary =
+        DistributionSummary.builder("outbox.envelope.events")
+            .description("Number of events packed into each published envelope record")
+            .register(meterRegistry);
+
     // Timer: Event processing duration (from claim to publish)
     eventProcessingTimer =
         Timer.builder("outbox.events.processing.duration")
             .description("Duration of event processing from claim to publish")
             .register(meterRegistry);
 
+    // Timer: Deadline slack of on-time sends, to compare with lease-expired events
+    leaseSlackTimer =
+        Timer.builder("outbox.publish.lease.slack")
+            .description("Time left before the publish deadline when a send was acknowledged")
+            .register(meterRegistry);
+
+    // Timer: Duration of each archival transaction
+    archivalChunkTimer =
+        Timer.builder("outbox.archival.chunk.duration")
+            .description("Duration of archiving one id range of sent events, including commit")
+            .register(meterRegistry);
+
+    // Timer: Duration of each processed message archival chunk
+    processedArchivalChunkTimer =
+        Timer.builder("outbox.processed.archival.chunk.duration")
+            .description("Duration of archiving one chunk of processed messages, including commit")
+            .register(meterRegistry);
+
     log.info("Outbox metrics initialized");
   }
 
@@ -174,11 +317,185 @@ public class OutboxMetricsService {
     archiveCounter.increment(count);
   }
 
+  /**
+   * Record the duration of one archival transaction.
+   *
+   * @param duration Time taken to archive one id range
+   */
+  public void recordArchivalChunk(Duration duration) {
+    archivalChunkTimer.record(duration);
+  }
+
+  /**
+   * Record processed messages moved to the archive table.
+   *
+   * @param count Number of processed messages archived
+   */
+  public void recordProcessedArchival(int count) {
+    processedArchiveCounter.increment(count);
+  }
+
+  /**
+   * Record the duration of one processed message archival transaction.
+   *
+   * @param duration Time taken to archive one chunk of processed messages
+   */
+  public void recordProcessedArchivalChunk(Duration duration) {
+    processedArchivalChunkTimer.record(duration);
+  }
+
+  /**
+   * Set how far processed message archival is behind the retention period.
+   *
+   * @param lag Time past the retention period of the oldest processed message not yet archived
+   */
+  public void setProcessedArchivalLag(Duration lag) {
+    processedArchivalLagSeconds.set(Math.max(0, lag.getSeconds()));
+  }
+
+  /** Record a continuous archival tick held back by a busy event queue. */
+  public void recordArchivalThrottled() {
+    archivalThrottledCounter.increment();
+  }
+
+  /**
+   * Set how far continuous archival is behind the retention period.
+   *
+   * @param lag Time past the retention period of the oldest event not yet archived
+   */
+  public void setArchivalLag(Duration lag) {
+    archivalLagSeconds.set(Math.max(0, lag.getSeconds()));
+  }
+
+  /**
+   * Set the chunk size of continuous archival.
+   *
+   * @param chunkSize Events moved in the next chunk
+   */
+  public void setArchivalChunkSize(int chunkSize) {
+    archivalChunkSize.set(chunkSize);
+  }
+
+  /**
+   * Record partitions created ahead of time for a partitioned table.
+   *
+   * @param table Name of the partitioned table
+   * @param count Number of partitions created
+   */
+  public void recordPartitionsCreated(String table, int count) {
+    Counter.builder("outbox.partitions.created")
+        .description("Total number of partitions created ahead of time")
+        .tag("table", table)
+        .register(meterRegistry)
+        .increment(count);
+  }
+
+  /**
+   * Record expired partitions dropped from a partitioned table.
+   *
+   * @param table Name of the partitioned table
+   * @param count Number of partitions dropped
+   */
+  public void recordPartitionsDropped(String table, int count) {
+    Counter.builder("outbox.partitions.dropped")
+        .description("Total number of partitions dropped after their retention period")
+        .tag("table", table)
+        .register(meterRegistry)
+        .increment(count);
+  }
+
   /** Record event moved to dead letter queue. */
   public void recordDeadLetter() {
     deadLetterCounter.increment();
   }
 
+  /**
+   * Record events moved to dead letter queue in one batch.
+   *
+   * @param count Number of events dead-lettered
+   */
+  public void recordDeadLetters(int count) {
+    deadLetterCounter.increment(count);
+  }
+
+  /**
+   * Record dead letter events replayed into the outbox.
+   *
+   * @param count Number of events replayed
+   */
+  public void recordDeadLettersReplayed(int count) {
+    replayedCounter.increment(count);
+  }
+
+  /** Record a replay chunk skipped because the outbox backlog was too large. */
+  public void recordReplayThrottled() {
+    replayThrottledCounter.increment();
+  }
+
+  /**
+   * Set the number of dead letter events running replay jobs have yet to replay.
+   *
+   * @param remaining Events left across all running jobs
+   */
+  public void setReplayRemaining(long remaining) {
+    replayRemainingCount.set(remaining);
+  }
+
+  /**
+   * Record archived events replayed to Kafka.
+   *
+   * @param count Number of events replayed
+   */
+  public void recordArchivedEventsReplayed(int count) {
+    archiveReplayedCounter.increment(count);
+  }
+
+  /**
+   * Set the number of archived events running archive replay jobs have yet to publish.
+   *
+   * @param remaining Events left across all running jobs
+   */
+  public void setArchiveReplayRemaining(long remaining) {
+    archiveReplayRemainingCount.set(remaining);
+  }
+
+  /**
+   * Record quarantine holds placed on failed events.
+   *
+   * @param count Number of events quarantined or whose hold was extended
+   */
+  public void recordQuarantined(int count) {
+    quarantineCounter.increment(count);
+  }
+
+  /**
+   * Set the number of events held in quarantine.
+   *
+   * @param count Quarantined events
+   */
+  public void setQuarantinedEvents(long count) {
+    quarantinedEventsCount.set(count);
+  }
+
+  /** Record a committed Kafka transaction. */
+  public void recordKafkaTransactionCommitted() {
+    kafkaTransactionCommitCounter.increment();
+  }
+
+  /** Record an aborted Kafka transaction. */
+  public void recordKafkaTransactionAborted() {
+    kafkaTransactionAbortCounter.increment();
+  }
+
+  /**
+   * Record a published envelope record.
+   *
+   * @param eventCount Number of events packed into the envelope
+   */
+  public void recordEnvelopePublished(int eventCount) {
+    envelopeSizeSummary.record(eventCount);
+  }
+
   /**
    * Record event processing time.
    *
@@ -189,4 +506,32 @@ public class OutboxMetricsService {
     long durationMillis = Duration.between(startTime, endTime).toMillis();
     eventProcessingTimer.record(Duration.ofMillis(durationMillis));
   }
+
+  /**
+   * Record events whose publish deadline passed while they waited in the queue; they were not
+   * sent.
+   *
+   * @param count Number of events dropped
+   */
+  public void recordLeaseExpiredInQueue(int count) {
+    leaseExpiredQueuedCounter.increment(count);
+  }
+
+  /**
+   * Record events whose send was still unacknowledged at their publish deadline.
+   *
+   * @param count Number of events given up
+   */
+  public void recordLeaseExpiredInFlight(int count) {
+    leaseExpiredInFlightCounter.increment(count);
+  }
+
+  /**
+   * Record the time left before the publish deadline when a send was acknowledged.
+   *
+   * @param slack Remaining time before the deadline
+   */
+  public void recordLeaseSlack(Duration slack) {
+    leaseSlackTimer.record(slack);
+  }
 }
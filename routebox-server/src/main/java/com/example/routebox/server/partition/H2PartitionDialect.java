@@ -0,0 +1,52 @@
+package com.example.routebox.server.partition;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Dialect for the H2 database of the tests, which has no table partitioning. Partitions are only
+ * tracked in memory and dropping one deletes its rows, so the retention behaviour matches the
+ * partitioned databases without the constant-time drop.
+ */
+class H2PartitionDialect implements PartitionDialect {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Map<PartitionedTable, NavigableSet<LocalDate>> partitions =
+      new ConcurrentHashMap<>();
+
+  H2PartitionDialect(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public boolean isPartitioned(PartitionedTable table) {
+    return true;
+  }
+
+  @Override
+  public List<LocalDate> partitionStarts(PartitionedTable table) {
+    return List.copyOf(starts(table));
+  }
+
+  @Override
+  public void createPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    starts(table).add(from);
+  }
+
+  @Override
+  public void dropPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    jdbcTemplate.update(
+        "DELETE FROM " + table.tableName() + " WHERE " + table.column() + " < ?",
+        to.atStartOfDay());
+    starts(table).remove(from);
+  }
+
+  private NavigableSet<LocalDate> starts(PartitionedTable table) {
+    return partitions.computeIfAbsent(table, t -> new ConcurrentSkipListSet<>());
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.routebox.server.partition;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Database-specific partition management for the time-partitioned tables. Partitions are
+ * identified by the date their range starts at; dropping a partition removes its rows as a
+ * metadata operation, in constant time regardless of how many rows it holds.
+ */
+public interface PartitionDialect {
+
+  /** Returns true if the table has been created with the partitioned layout. */
+  boolean isPartitioned(PartitionedTable table);
+
+  /** Returns the start dates of the table's partitions, in ascending order. */
+  List<LocalDate> partitionStarts(PartitionedTable table);
+
+  /**
+   * Adds a partition for the rows from {@code from} up to {@code to}. Called for dates after the
+   * last existing partition, whose ranges are still empty, so no rows move.
+   */
+  void createPartition(PartitionedTable table, LocalDate from, LocalDate to);
+
+  /**
+   * Removes the partition starting at {@code from} with all its rows, and any older rows not
+   * covered by a partition. Called in ascending order, for partitions ending at {@code to} or
+   * earlier.
+   */
+  void dropPartition(PartitionedTable table, LocalDate from, LocalDate to);
+
+  /**
+   * Returns the dialect for a database.
+   *
+   * @param databaseProductName the JDBC database product name
+   * @param jdbcTemplate template on the database's data source
+   * @throws IllegalStateException if partitioning is not supported on the database
+   */
+  static PartitionDialect forDatabase(String databaseProductName, JdbcTemplate jdbcTemplate) {
+    if (databaseProductName.startsWith("Microsoft SQL Server")) {
+      return new SqlServerPartitionDialect(jdbcTemplate);
+    }
+    if (databaseProductName.startsWith("PostgreSQL")) {
+      return new PostgresPartitionDialect(jdbcTemplate);
+    }
+    if (databaseProductName.startsWith("H2")) {
+      return new H2PartitionDialect(jdbcTemplate);
+    }
+    throw new IllegalStateException(
+        "Partitioning is not supported on "
+            + databaseProductName
+            + "; disable outbox.partitioning.enabled");
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.routebox.server.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Tables that can use the time-partitioned layout, with the column they are partitioned by. The
+ * database objects of the layout are named after the table, as created by the scripts in
+ * infrastructure/partitioning-*.sql.
+ *
+ * <p>processed_messages is deliberately not offered: deduplication relies on its unique
+ * (correlation_id, consumer_group) index, and a unique index on a partitioned table has to include
+ * the partitioning column.
+ */
+public enum PartitionedTable {
+  /** Archived outbox events, partitioned by when they were sent. */
+  ARCHIVE_EVENTS("outbox_archive_events", "sent_at");
+
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+  private final String tableName;
+  private final String column;
+
+  PartitionedTable(String tableName, String column) {
+    this.tableName = tableName;
+    this.column = column;
+  }
+
+  public String tableName() {
+    return tableName;
+  }
+
+  public String column() {
+    return column;
+  }
+
+  /** SQL Server partition function of the table. */
+  public String partitionFunction() {
+    return "pf_" + tableName;
+  }
+
+  /** SQL Server partition scheme of the table. */
+  public String partitionScheme() {
+    return "ps_" + tableName;
+  }
+
+  /** PostgreSQL partition holding the rows from the given start date. */
+  public String partitionName(LocalDate start) {
+    return tableName + "_p" + start.format(PARTITION_SUFFIX);
+  }
+
+  /**
+   * Returns the start date encoded in a PostgreSQL partition name, or null if the name is not one
+   * of this table's dated partitions (such as its default partition).
+   */
+  public LocalDate partitionStart(String partitionName) {
+    String prefix = tableName + "_p";
+    if (!partitionName.startsWith(prefix)
+        || partitionName.length() != prefix.length() + 8
+        || !partitionName.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+      return null;
+    }
+    return LocalDate.parse(partitionName.substring(prefix.length()), PARTITION_SUFFIX);
+  }
+}
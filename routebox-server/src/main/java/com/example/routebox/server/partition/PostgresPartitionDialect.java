@@ -0,0 +1,71 @@
+package com.example.routebox.server.partition;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PostgreSQL declarative partitions: the table is partitioned BY RANGE on the partitioning column,
+ * with one child table per partition named after its start date and a DEFAULT partition catching
+ * rows outside every range. A partition is dropped by detaching it and dropping the child table;
+ * rows older than it that ended up in the default partition are deleted with it.
+ */
+class PostgresPartitionDialect implements PartitionDialect {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  PostgresPartitionDialect(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public boolean isPartitioned(PartitionedTable table) {
+    Integer partitioned =
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(?)",
+            Integer.class,
+            table.tableName());
+    return partitioned != null && partitioned > 0;
+  }
+
+  @Override
+  public List<LocalDate> partitionStarts(PartitionedTable table) {
+    return jdbcTemplate
+        .queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                + " WHERE i.inhparent = to_regclass(?)",
+            String.class,
+            table.tableName())
+        .stream()
+        .map(table::partitionStart)
+        .filter(Objects::nonNull)
+        .sorted()
+        .toList();
+  }
+
+  @Override
+  public void createPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    jdbcTemplate.execute(
+        "CREATE TABLE IF NOT EXISTS "
+            + table.partitionName(from)
+            + " PARTITION OF "
+            + table.tableName()
+            + " FOR VALUES FROM ('"
+            + from
+            + "') TO ('"
+            + to
+            + "')");
+  }
+
+  @Override
+  public void dropPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    String partition = table.partitionName(from);
+    jdbcTemplate.execute("ALTER TABLE " + table.tableName() + " DETACH PARTITION " + partition);
+    jdbcTemplate.execute("DROP TABLE " + partition);
+    // Older rows can only be left in the default partition, which the planner prunes this to
+    jdbcTemplate.update(
+        "DELETE FROM " + table.tableName() + " WHERE " + table.column() + " < ?",
+        to.atStartOfDay());
+  }
+}
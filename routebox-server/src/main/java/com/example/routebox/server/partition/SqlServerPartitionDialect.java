@@ -0,0 +1,84 @@
+package com.example.routebox.server.partition;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * SQL Server partitions: a RANGE RIGHT partition function on the partitioning column, whose
+ * boundary values are the partition start dates, and a partition scheme mapping every partition to
+ * the PRIMARY filegroup. A partition is added by splitting the empty last range, and dropped by
+ * truncating it and merging its boundary away; both only touch metadata as long as every index of
+ * the table is aligned with the partition scheme.
+ */
+class SqlServerPartitionDialect implements PartitionDialect {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  SqlServerPartitionDialect(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public boolean isPartitioned(PartitionedTable table) {
+    Integer schemes =
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM sys.indexes i"
+                + " JOIN sys.partition_schemes ps ON ps.data_space_id = i.data_space_id"
+                + " WHERE i.object_id = OBJECT_ID(?) AND i.index_id <= 1 AND ps.name = ?",
+            Integer.class,
+            table.tableName(),
+            table.partitionScheme());
+    return schemes != null && schemes > 0;
+  }
+
+  @Override
+  public List<LocalDate> partitionStarts(PartitionedTable table) {
+    return jdbcTemplate
+        .queryForList(
+            "SELECT CAST(prv.value AS DATETIME2(6)) FROM sys.partition_range_values prv"
+                + " JOIN sys.partition_functions pf ON pf.function_id = prv.function_id"
+                + " WHERE pf.name = ? ORDER BY prv.boundary_id",
+            Timestamp.class,
+            table.partitionFunction())
+        .stream()
+        .map(boundary -> boundary.toLocalDateTime().toLocalDate())
+        .toList();
+  }
+
+  @Override
+  public void createPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    // The new boundary splits the open-ended last partition; the range above it starts empty
+    jdbcTemplate.execute(
+        "ALTER PARTITION SCHEME " + table.partitionScheme() + " NEXT USED [PRIMARY]");
+    jdbcTemplate.execute(
+        "ALTER PARTITION FUNCTION "
+            + table.partitionFunction()
+            + "() SPLIT RANGE ('"
+            + from
+            + "')");
+  }
+
+  @Override
+  public void dropPartition(PartitionedTable table, LocalDate from, LocalDate to) {
+    Integer partition =
+        jdbcTemplate.queryForObject(
+            "SELECT $PARTITION." + table.partitionFunction() + "(CAST(? AS DATETIME2(6)))",
+            Integer.class,
+            from.toString());
+    // Partitions below the dropped one hold only rows older than every boundary
+    jdbcTemplate.execute(
+        "TRUNCATE TABLE "
+            + table.tableName()
+            + " WITH (PARTITIONS (1 TO "
+            + partition
+            + "))");
+    jdbcTemplate.execute(
+        "ALTER PARTITION FUNCTION "
+            + table.partitionFunction()
+            + "() MERGE RANGE ('"
+            + from
+            + "')");
+  }
+}
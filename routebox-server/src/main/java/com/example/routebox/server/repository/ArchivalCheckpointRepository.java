@@ -0,0 +1,27 @@
+package com.example.routebox.server.repository;
+
+import com.example.routebox.server.entity.ArchivalCheckpoint;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivalCheckpointRepository extends JpaRepository<ArchivalCheckpoint, String> {
+
+  /**
+   * Locks an archival checkpoint, skipping it if another instance holds the lock, so each range of
+   * a run is archived by one instance at a time.
+   *
+   * @return the locked checkpoint, or empty if it is locked elsewhere or does not exist
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")})
+  @Query("SELECT c FROM ArchivalCheckpoint c WHERE c.name = :name")
+  Optional<ArchivalCheckpoint> findByIdForUpdate(@Param("name") String name);
+}
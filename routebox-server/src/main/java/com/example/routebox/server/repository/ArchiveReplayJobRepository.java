@@ -0,0 +1,32 @@
+package com.example.routebox.server.repository;
+
+import com.example.routebox.server.entity.ArchiveReplayJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchiveReplayJobRepository extends JpaRepository<ArchiveReplayJob, Long> {
+
+  List<ArchiveReplayJob> findByStatusOrderByIdAsc(ArchiveReplayJob.Status status);
+
+  List<ArchiveReplayJob> findAllByOrderByIdDesc();
+
+  /**
+   * Locks a replay job, skipping it if another instance holds the lock, so each chunk of a job is
+   * replayed by one instance at a time.
+   *
+   * @return the locked job, or empty if it is locked elsewhere or does not exist
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")})
+  @Query("SELECT j FROM ArchiveReplayJob j WHERE j.id = :id")
+  Optional<ArchiveReplayJob> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,32 @@
+package com.example.routebox.server.repository;
+
+import com.example.routebox.server.entity.ErrorFingerprint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ErrorFingerprintRepository extends JpaRepository<ErrorFingerprint, Long> {
+
+  Optional<ErrorFingerprint> findByFingerprint(String fingerprint);
+
+  List<ErrorFingerprint> findAllByOrderByOccurrenceCountDesc(Pageable pageable);
+
+  /**
+   * Adds occurrences to a fingerprint without loading it.
+   *
+   * @return the number of updated rows (0 if the fingerprint no longer exists)
+   */
+  @Modifying
+  @Query(
+      "UPDATE ErrorFingerprint f SET f.occurrenceCount = f.occurrenceCount + :count,"
+          + " f.lastSeenAt = :seenAt WHERE f.id = :id")
+  int recordOccurrences(
+      @Param("id") Long id, @Param("count") long count, @Param("seenAt") LocalDateTime seenAt);
+}
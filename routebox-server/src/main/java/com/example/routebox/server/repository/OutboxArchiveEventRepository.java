@@ -1,8 +1,135 @@
 package com.example.routebox.server.repository;
 
 import com.example.routebox.server.entity.OutboxArchiveEvent;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface OutboxArchiveEventRepository extends JpaRepository<OutboxArchiveEvent, Long> {}
+public interface OutboxArchiveEventRepository extends JpaRepository<OutboxArchiveEvent, Long> {
+
+  boolean existsByRbpUri(String rbpUri);
+
+  /**
+   * Copies the outbox events sent before the cutoff in an id range, with their payloads, into the
+   * archive table in one INSERT ... SELECT. The caller deletes the outbox rows in the same
+   * transaction.
+   *
+   * @param afterId exclusive lower bound of the outbox event id range
+   * @param upToId inclusive upper bound of the outbox event id range
+   * @param cutoffTime only events sent before this time
+   * @param archivedAt the archival time to record
+   * @return the number of archive rows inserted
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          "INSERT INTO outbox_archive_events (original_event_id, aggregate_type, aggregate_id,"
+              + " event_type, correlation_id, payload_data, payload_codec, payload_format,"
+              + " payload_schema_id, rbp_uri, rbp_size_bytes, rbp_stored_at, created_at, sent_at,"
+              + " archived_at, kafka_partition, kafka_offset, kafka_timestamp)"
+              + " SELECT e.id, e.aggregate_type, e.aggregate_id, e.event_type, e.correlation_id,"
+              + " p.payload_data, e.payload_codec, e.payload_format, e.payload_schema_id,"
+              + " e.rbp_uri, e.rbp_size_bytes, e.rbp_stored_at, e.created_at, e.sent_at,"
+              + " :archivedAt, e.kafka_partition, e.kafka_offset, e.kafka_timestamp"
+              + " FROM outbox_events e LEFT JOIN outbox_payloads p ON p.event_id = e.id"
+              + " WHERE e.id > :afterId AND e.id <= :upToId"
+              + " AND e.sent_at IS NOT NULL AND e.sent_at < :cutoffTime")
+  int insertSentFromOutbox(
+      @Param("afterId") long afterId,
+      @Param("upToId") long upToId,
+      @Param("cutoffTime") LocalDateTime cutoffTime,
+      @Param("archivedAt") LocalDateTime archivedAt);
+
+  /**
+   * Finds the next archived events to replay, in creation time order with the archive id breaking
+   * ties, starting after a keyset checkpoint.
+   *
+   * @param afterCreatedAt creation time of the last replayed event
+   * @param afterId archive id of the last replayed event, or 0 before the first
+   * @param createdTo exclusive upper bound of the creation time
+   * @param eventType event type to replay, or null for all types
+   * @param pageable how many events to return
+   * @return the events, oldest first
+   */
+  @Query(
+      "SELECT e FROM OutboxArchiveEvent e"
+          + " WHERE (e.createdAt > :afterCreatedAt"
+          + " OR (e.createdAt = :afterCreatedAt AND e.id > :afterId))"
+          + " AND e.createdAt < :createdTo"
+          + " AND (:eventType IS NULL OR e.eventType = :eventType)"
+          + " ORDER BY e.createdAt, e.id")
+  List<OutboxArchiveEvent> findReplayCandidates(
+      @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+      @Param("afterId") long afterId,
+      @Param("createdTo") LocalDateTime createdTo,
+      @Param("eventType") String eventType,
+      Pageable pageable);
+
+  /**
+   * Finds the next archived events to replay, in creation time order with the original event id
+   * breaking ties, starting after a keyset checkpoint. Used when the events are merged with those of
+   * an ArchiveSink, which only know their original event id.
+   *
+   * @param afterCreatedAt creation time of the last replayed event
+   * @param afterOriginalId original event id of the last replayed event, or 0 before the first
+   * @param createdTo exclusive upper bound of the creation time
+   * @param eventType event type to replay, or null for all types
+   * @param pageable how many events to return
+   * @return the events, oldest first
+   */
+  @Query(
+      "SELECT e FROM OutboxArchiveEvent e"
+          + " WHERE (e.createdAt > :afterCreatedAt"
+          + " OR (e.createdAt = :afterCreatedAt AND e.originalEventId > :afterOriginalId))"
+          + " AND e.createdAt < :createdTo"
+          + " AND (:eventType IS NULL OR e.eventType = :eventType)"
+          + " ORDER BY e.createdAt, e.originalEventId")
+  List<OutboxArchiveEvent> findReplayCandidatesByOriginalId(
+      @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+      @Param("afterOriginalId") long afterOriginalId,
+      @Param("createdTo") LocalDateTime createdTo,
+      @Param("eventType") String eventType,
+      Pageable pageable);
+
+  /**
+   * Finds the archived events of an aggregate created in a time range.
+   *
+   * @param aggregateId the aggregate id
+   * @param createdFrom inclusive lower bound of the creation time
+   * @param createdTo exclusive upper bound of the creation time
+   * @return the events, oldest first
+   */
+  @Query(
+      "SELECT e FROM OutboxArchiveEvent e"
+          + " WHERE e.aggregateId = :aggregateId"
+          + " AND e.createdAt >= :createdFrom AND e.createdAt < :createdTo"
+          + " ORDER BY e.createdAt, e.id")
+  List<OutboxArchiveEvent> findByAggregateIdCreatedBetween(
+      @Param("aggregateId") String aggregateId,
+      @Param("createdFrom") LocalDateTime createdFrom,
+      @Param("createdTo") LocalDateTime createdTo);
+
+  /**
+   * Counts the archived events a replay selects.
+   *
+   * @param createdFrom inclusive lower bound of the creation time
+   * @param createdTo exclusive upper bound of the creation time
+   * @param eventType event type to replay, or null for all types
+   * @return the number of matching events
+   */
+  @Query(
+      "SELECT COUNT(e) FROM OutboxArchiveEvent e"
+          + " WHERE e.createdAt >= :createdFrom AND e.createdAt < :createdTo"
+          + " AND (:eventType IS NULL OR e.eventType = :eventType)")
+  long countReplayCandidates(
+      @Param("createdFrom") LocalDateTime createdFrom,
+      @Param("createdTo") LocalDateTime createdTo,
+      @Param("eventType") String eventType);
+}
@@ -1,9 +1,95 @@
 package com.example.routebox.server.repository;
 
 import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface OutboxDeadLetterEventRepository
-    extends JpaRepository<OutboxDeadLetterEvent, Long> {}
+    extends JpaRepository<OutboxDeadLetterEvent, Long> {
+
+  boolean existsByRbpUri(String rbpUri);
+
+  /**
+   * Counts the dead-letter events per error fingerprint.
+   *
+   * @return rows of [fingerprint id, event count]
+   */
+  @Query(
+      "SELECT d.errorFingerprintId, COUNT(d) FROM OutboxDeadLetterEvent d"
+          + " WHERE d.errorFingerprintId IN :fingerprintIds GROUP BY d.errorFingerprintId")
+  List<Object[]> countByErrorFingerprintIds(
+      @Param("fingerprintIds") Collection<Long> fingerprintIds);
+
+  /**
+   * Copies the given outbox events, with their payloads and last error fingerprints, into the
+   * dead-letter table in one INSERT ... SELECT. The caller deletes the outbox rows in the same
+   * transaction.
+   *
+   * @param eventIds the outbox events to dead-letter
+   * @param failedAt the failure time to record
+   * @return the number of dead-letter rows inserted
+   */
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          "INSERT INTO outbox_dead_letter_events (original_event_id, aggregate_type, aggregate_id,"
+              + " event_type, correlation_id, payload_data, payload_codec, payload_format,"
+              + " payload_schema_id, rbp_uri, rbp_size_bytes, rbp_stored_at, original_created_at,"
+              + " failed_at, error_fingerprint_id)"
+              + " SELECT e.id, e.aggregate_type, e.aggregate_id, e.event_type, e.correlation_id,"
+              + " p.payload_data, e.payload_codec, e.payload_format, e.payload_schema_id,"
+              + " e.rbp_uri, e.rbp_size_bytes, e.rbp_stored_at, e.created_at, :failedAt,"
+              + " e.last_error_fingerprint_id"
+              + " FROM outbox_events e LEFT JOIN outbox_payloads p ON p.event_id = e.id"
+              + " WHERE e.id IN (:eventIds)")
+  int insertFromOutbox(
+      @Param("eventIds") Collection<Long> eventIds, @Param("failedAt") LocalDateTime failedAt);
+
+  /**
+   * Finds dead-letter events to replay, in id order after a checkpoint. Null filters match all
+   * events.
+   *
+   * @param afterId only events with a greater id are returned
+   * @param eventType event type to match, or null
+   * @param errorFingerprintId error fingerprint to match, or null
+   * @param failedFrom inclusive lower bound of the failure time, or null
+   * @param failedTo exclusive upper bound of the failure time, or null
+   * @param pageable limits the number of events returned
+   */
+  @Query(
+      "SELECT d FROM OutboxDeadLetterEvent d WHERE d.id > :afterId"
+          + " AND (:eventType IS NULL OR d.eventType = :eventType)"
+          + " AND (:errorFingerprintId IS NULL OR d.errorFingerprintId = :errorFingerprintId)"
+          + " AND (:failedFrom IS NULL OR d.failedAt >= :failedFrom)"
+          + " AND (:failedTo IS NULL OR d.failedAt < :failedTo)"
+          + " ORDER BY d.id ASC")
+  List<OutboxDeadLetterEvent> findReplayCandidates(
+      @Param("afterId") long afterId,
+      @Param("eventType") String eventType,
+      @Param("errorFingerprintId") Long errorFingerprintId,
+      @Param("failedFrom") LocalDateTime failedFrom,
+      @Param("failedTo") LocalDateTime failedTo,
+      Pageable pageable);
+
+  /** Counts the dead-letter events {@link #findReplayCandidates} would return from the start. */
+  @Query(
+      "SELECT COUNT(d) FROM OutboxDeadLetterEvent d WHERE"
+          + " (:eventType IS NULL OR d.eventType = :eventType)"
+          + " AND (:errorFingerprintId IS NULL OR d.errorFingerprintId = :errorFingerprintId)"
+          + " AND (:failedFrom IS NULL OR d.failedAt >= :failedFrom)"
+          + " AND (:failedTo IS NULL OR d.failedAt < :failedTo)")
+  long countReplayCandidates(
+      @Param("eventType") String eventType,
+      @Param("errorFingerprintId") Long errorFingerprintId,
+      @Param("failedFrom") LocalDateTime failedFrom,
+      @Param("failedTo") LocalDateTime failedTo);
+}
@@ -0,0 +1,44 @@
+package com.example.routebox.server.repository;
+
+import com.example.routebox.server.entity.PayloadDeletionCandidate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface PayloadDeletionCandidateRepository
+    extends JpaRepository<PayloadDeletionCandidate, Long> {
+
+  /**
+   * Queues the offloaded payloads of the archived events sent before a time, in one INSERT ...
+   * SELECT, before those events are removed.
+   *
+   * @param sentBefore exclusive upper bound of the send time of the removed events
+   * @param queuedAt the time to record
+   * @return the number of payloads queued
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      nativeQuery = true,
+      value =
+          "INSERT INTO payload_deletion_candidates (uri, queued_at)"
+              + " SELECT DISTINCT rbp_uri, :queuedAt FROM outbox_archive_events"
+              + " WHERE rbp_uri IS NOT NULL AND sent_at < :sentBefore")
+  int queueArchivedSentBefore(
+      @Param("sentBefore") LocalDateTime sentBefore, @Param("queuedAt") LocalDateTime queuedAt);
+
+  /**
+   * Finds the oldest queued payloads.
+   *
+   * @param pageable how many candidates to return
+   * @return the candidates, in queue order
+   */
+  List<PayloadDeletionCandidate> findAllByOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,507 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.util.OutboxHeaders;
+import com.example.routebox.server.archival.ArchiveSink;
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.OutboxRoutingConfig;
+import com.example.routebox.server.config.RoutingRule;
+import com.example.routebox.server.entity.ArchiveReplayJob;
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.example.routebox.server.failure.ErrorFingerprints;
+import com.example.routebox.server.kafka.ProducerLease;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import com.example.routebox.server.repository.ArchiveReplayJobRepository;
+import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Replays archived events back to Kafka, for example to rebuild a downstream read model.
+ *
+ * <p>A replay job selects archived events by creation time range and, optionally, event type.
+ * Every archive-replay-interval, running jobs read the next chunk of matching events from
+ * outbox_archive_events in creation time order, keyset-paged on (created_at, id) so memory stays
+ * bounded by the chunk size, and publish them through the routing rules of the live publisher. The
+ * job's checkpoint advances only once every send of the chunk is acknowledged, so a paused, failed
+ * or interrupted job resumes where it stopped; a chunk that failed part-way is sent again.
+ *
+ * <p>When an {@link ArchiveSink} is configured, jobs read the sink together with the events
+ * archived to the table before it was, ordered by creation time with the original event id
+ * breaking ties. The sink cannot be read in that order, so each chunk scans it from the checkpoint
+ * in growing time windows until the chunk is complete, keeping only the earliest chunk-size events;
+ * an event found twice is replayed once.
+ *
+ * <p>Replayed events go to their usual topic with archive-replay-topic-suffix appended, so live
+ * consumers are unaffected and a rebuild subscribes to the replay topics. Each event keeps its
+ * key, headers and correlation id. Events are sent in creation time order, and the events of an
+ * aggregate share a key and therefore a producer and a partition, so per-aggregate order holds.
+ *
+ * <p>At most archive-replay-rate-per-second events are replayed per second across all jobs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveReplayService {
+
+  /** Caps the events, and so the payloads, held in memory by one chunk. */
+  private static final int MAX_CHUNK_SIZE = 1000;
+
+  /** First time window a chunk of a sink replay scans; each further window is twice as long. */
+  private static final Duration SINK_SCAN_WINDOW = Duration.ofMinutes(1);
+
+  /** Order of sink replays; the original event id identifies an event across table and sink. */
+  private static final Comparator<OutboxArchiveEvent> SINK_REPLAY_ORDER =
+      Comparator.comparing(OutboxArchiveEvent::getCreatedAt)
+          .thenComparing(OutboxArchiveEvent::getOriginalEventId);
+
+  private final ArchiveReplayJobRepository jobRepository;
+  private final OutboxArchiveEventRepository archiveRepository;
+  private final DynamicKafkaTemplateFactory kafkaTemplateFactory;
+  private final OutboxRoutingConfig routingConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+  private final ObjectProvider<ArchiveSink> archiveSink;
+
+  private TransactionTemplate chunkTransaction;
+
+  /**
+   * Selects the archived events a replay job publishes.
+   *
+   * @param eventType event type to replay, or null for all types
+   * @param createdFrom inclusive lower bound of the event creation time
+   * @param createdTo exclusive upper bound of the event creation time
+   */
+  public record ReplayFilter(
+      String eventType, LocalDateTime createdFrom, LocalDateTime createdTo) {}
+
+  /** Sends of one replayed event, awaited before the checkpoint advances. */
+  private record PendingEvent(
+      OutboxArchiveEvent event,
+      RoutingRule rule,
+      List<CompletableFuture<SendResult<String, byte[]>>> required,
+      List<CompletableFuture<SendResult<String, byte[]>>> optional) {}
+
+  @PostConstruct
+  void initChunkTransaction() {
+    chunkTransaction = new TransactionTemplate(transactionManager);
+    chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Starts a replay job for the archived events matching a filter.
+   *
+   * @param filter the events to replay
+   * @return the running job
+   * @throws IllegalArgumentException if the time range is missing or empty
+   * @throws IllegalStateException if no replay topic suffix is configured
+   */
+  @Transactional
+  public ArchiveReplayJob createReplay(ReplayFilter filter) {
+    if (filter.createdFrom() == null
+        || filter.createdTo() == null
+        || !filter.createdFrom().isBefore(filter.createdTo())) {
+      throw new IllegalArgumentException(
+          "A replay needs a time range with createdFrom before createdTo");
+    }
+    String topicSuffix = processingConfig.getArchiveReplayTopicSuffix();
+    if (topicSuffix == null || topicSuffix.isBlank()) {
+      // An empty suffix would publish the replay onto the live topics
+      throw new IllegalStateException("outbox.processing.archive-replay-topic-suffix is empty");
+    }
+
+    ArchiveReplayJob job =
+        new ArchiveReplayJob(
+            filter.eventType(), filter.createdFrom(), filter.createdTo(), topicSuffix);
+    long totalCount =
+        archiveRepository.countReplayCandidates(
+            filter.createdFrom(), filter.createdTo(), filter.eventType());
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    if (sink != null) {
+      job.setSource(ArchiveReplayJob.Source.SINK);
+      AtomicLong sinkCount = new AtomicLong();
+      sink.scan(
+          filter.createdFrom(),
+          filter.createdTo(),
+          event -> {
+            if (matchesType(event, filter.eventType())) {
+              sinkCount.incrementAndGet();
+            }
+          });
+      totalCount += sinkCount.get();
+    }
+    job.setTotalCount(totalCount);
+    job = jobRepository.save(job);
+    log.info("Created archive replay job {} for {} event(s)", job.getId(), job.getTotalCount());
+    return job;
+  }
+
+  /** Returns all replay jobs, newest first. */
+  public List<ArchiveReplayJob> findReplays() {
+    return jobRepository.findAllByOrderByIdDesc();
+  }
+
+  /** Returns a replay job. */
+  public ArchiveReplayJob getReplay(Long id) {
+    return jobRepository
+        .findById(id)
+        .orElseThrow(() -> new IllegalArgumentException("Replay job not found: " + id));
+  }
+
+  /** Pauses a running replay job after its current chunk. */
+  @Transactional
+  public ArchiveReplayJob pauseReplay(Long id) {
+    ArchiveReplayJob job = getReplay(id);
+    if (job.getStatus() != ArchiveReplayJob.Status.RUNNING) {
+      throw new IllegalStateException(
+          "Replay job " + id + " is " + job.getStatus() + ", expected RUNNING");
+    }
+    job.setStatus(ArchiveReplayJob.Status.PAUSED);
+    return jobRepository.save(job);
+  }
+
+  /** Resumes a paused or failed replay job from its checkpoint. */
+  @Transactional
+  public ArchiveReplayJob resumeReplay(Long id) {
+    ArchiveReplayJob job = getReplay(id);
+    if (job.getStatus() != ArchiveReplayJob.Status.PAUSED
+        && job.getStatus() != ArchiveReplayJob.Status.FAILED) {
+      throw new IllegalStateException(
+          "Replay job " + id + " is " + job.getStatus() + " and cannot be resumed");
+    }
+    job.setStatus(ArchiveReplayJob.Status.RUNNING);
+    job.setLastError(null);
+    return jobRepository.save(job);
+  }
+
+  /** Cancels a replay job; events already replayed stay on the replay topics. */
+  @Transactional
+  public ArchiveReplayJob cancelReplay(Long id) {
+    ArchiveReplayJob job = getReplay(id);
+    if (job.getStatus() == ArchiveReplayJob.Status.COMPLETED) {
+      throw new IllegalStateException("Replay job " + id + " has already completed");
+    }
+    job.setStatus(ArchiveReplayJob.Status.CANCELLED);
+    return jobRepository.save(job);
+  }
+
+  /** Replays the next chunk of each running job, within the configured rate. */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.archive-replay-interval:1s}",
+      initialDelayString = "${outbox.processing.archive-replay-interval:1s}")
+  public void replayArchives() {
+    List<ArchiveReplayJob> running =
+        jobRepository.findByStatusOrderByIdAsc(ArchiveReplayJob.Status.RUNNING);
+    if (running.isEmpty()) {
+      metricsService.setArchiveReplayRemaining(0);
+      return;
+    }
+
+    int budget = chunkSize();
+    for (ArchiveReplayJob job : running) {
+      if (budget <= 0) {
+        break;
+      }
+      budget -= replayChunk(job.getId(), budget);
+    }
+    updateRemaining();
+  }
+
+  /** Events replayed per interval, derived from the rate and the interval. */
+  private int chunkSize() {
+    double perInterval =
+        processingConfig.getArchiveReplayRatePerSecond()
+            * processingConfig.getArchiveReplayInterval().toMillis()
+            / 1000.0;
+    return (int) Math.max(1, Math.min(MAX_CHUNK_SIZE, Math.round(perInterval)));
+  }
+
+  /**
+   * Replays up to {@code limit} events of a job and advances its checkpoint in one transaction.
+   *
+   * @return the number of events replayed
+   */
+  private int replayChunk(Long jobId, int limit) {
+    try {
+      Integer replayed = chunkTransaction.execute(status -> replayLockedChunk(jobId, limit));
+      return replayed == null ? 0 : replayed;
+    } catch (RuntimeException e) {
+      log.error("Archive replay job {} failed; it can be resumed from its checkpoint", jobId, e);
+      chunkTransaction.executeWithoutResult(status -> markFailed(jobId, e));
+      return 0;
+    }
+  }
+
+  private int replayLockedChunk(Long jobId, int limit) {
+    // Another instance replaying this job holds the lock; leave the job to it
+    ArchiveReplayJob job = jobRepository.findByIdForUpdate(jobId).orElse(null);
+    if (job == null || job.getStatus() != ArchiveReplayJob.Status.RUNNING) {
+      return 0;
+    }
+
+    boolean fromSink = job.getSource() == ArchiveReplayJob.Source.SINK;
+    List<OutboxArchiveEvent> events =
+        fromSink
+            ? nextSinkChunk(job, limit)
+            : archiveRepository.findReplayCandidates(
+                job.getLastCreatedAt(),
+                job.getLastArchiveId(),
+                job.getCreatedTo(),
+                job.getEventType(),
+                PageRequest.of(0, limit));
+    if (events.isEmpty()) {
+      job.setStatus(ArchiveReplayJob.Status.COMPLETED);
+      log.info("Archive replay job {} completed: {} event(s)", jobId, job.getReplayedCount());
+      return 0;
+    }
+
+    publish(events, job.getTopicSuffix());
+
+    OutboxArchiveEvent last = events.get(events.size() - 1);
+    job.setLastCreatedAt(last.getCreatedAt());
+    job.setLastArchiveId(fromSink ? last.getOriginalEventId() : last.getId());
+    job.setReplayedCount(job.getReplayedCount() + events.size());
+    metricsService.recordArchivedEventsReplayed(events.size());
+    log.debug(
+        "Archive replay job {} replayed {} event(s), {} so far",
+        jobId,
+        events.size(),
+        job.getReplayedCount());
+    return events.size();
+  }
+
+  /**
+   * Reads the next chunk of a sink replay: the earliest events after the checkpoint among those of
+   * the sink and of outbox_archive_events, without duplicates.
+   */
+  private List<OutboxArchiveEvent> nextSinkChunk(ArchiveReplayJob job, int limit) {
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    if (sink == null) {
+      throw new IllegalStateException(
+          "Replay job " + job.getId() + " reads an ArchiveSink, but none is configured");
+    }
+
+    NavigableSet<OutboxArchiveEvent> chunk = new TreeSet<>(SINK_REPLAY_ORDER);
+    Consumer<OutboxArchiveEvent> candidate =
+        event -> {
+          if (isAfterCheckpoint(event, job) && matchesType(event, job.getEventType())) {
+            chunk.add(event);
+            if (chunk.size() > limit) {
+              chunk.pollLast();
+            }
+          }
+        };
+    archiveRepository
+        .findReplayCandidatesByOriginalId(
+            job.getLastCreatedAt(),
+            job.getLastArchiveId(),
+            job.getCreatedTo(),
+            job.getEventType(),
+            PageRequest.of(0, limit))
+        .forEach(candidate);
+
+    LocalDateTime from = job.getLastCreatedAt();
+    Duration window = SINK_SCAN_WINDOW;
+    while (from.isBefore(job.getCreatedTo())) {
+      LocalDateTime to =
+          Duration.between(from, job.getCreatedTo()).compareTo(window) <= 0
+              ? job.getCreatedTo()
+              : from.plus(window);
+      sink.scan(from, to, candidate);
+      // Later windows only hold events created after every event of a complete chunk
+      if (chunk.size() == limit && chunk.last().getCreatedAt().isBefore(to)) {
+        break;
+      }
+      from = to;
+      window = window.multipliedBy(2);
+    }
+    return new ArrayList<>(chunk);
+  }
+
+  private static boolean isAfterCheckpoint(OutboxArchiveEvent event, ArchiveReplayJob job) {
+    int byCreation = event.getCreatedAt().compareTo(job.getLastCreatedAt());
+    return byCreation > 0
+        || (byCreation == 0 && event.getOriginalEventId() > job.getLastArchiveId());
+  }
+
+  private static boolean matchesType(OutboxArchiveEvent event, String eventType) {
+    return eventType == null || eventType.equals(event.getEventType());
+  }
+
+  /**
+   * Sends a chunk in order and waits for every acknowledgement. Throws if an event has no route or
+   * its routing strategy is not satisfied, so the checkpoint stays before the chunk.
+   */
+  private void publish(List<OutboxArchiveEvent> events, String topicSuffix) {
+    // Leases are held until the chunk is acknowledged, so eviction cannot close a producer mid-send
+    List<ProducerLease<String, byte[]>> leases = new ArrayList<>();
+    try {
+      List<PendingEvent> pending = new ArrayList<>(events.size());
+      for (OutboxArchiveEvent archived : events) {
+        RoutingRule rule = routingConfig.getRoutingRule(archived.getEventType());
+        if (rule == null) {
+          throw new IllegalStateException(
+              "No Kafka route found for eventType: " + archived.getEventType());
+        }
+        ProducerRecord<String, byte[]> producerRecord = buildRecord(archived, topicSuffix);
+        List<CompletableFuture<SendResult<String, byte[]>>> required = new ArrayList<>();
+        for (String clusterKey : rule.getClusters()) {
+          required.add(send(clusterKey, producerRecord, leases));
+        }
+        List<CompletableFuture<SendResult<String, byte[]>>> optional = new ArrayList<>();
+        for (String clusterKey : rule.getOptional()) {
+          optional.add(send(clusterKey, producerRecord, leases));
+        }
+        pending.add(new PendingEvent(archived, rule, required, optional));
+      }
+
+      long deadline = System.nanoTime() + processingConfig.getArchiveReplaySendTimeout().toNanos();
+      for (PendingEvent event : pending) {
+        awaitEvent(event, deadline);
+      }
+    } finally {
+      leases.forEach(ProducerLease::close);
+    }
+  }
+
+  /** Sends a record on the producer that owns its key, so per-key order holds. */
+  private CompletableFuture<SendResult<String, byte[]>> send(
+      String clusterKey,
+      ProducerRecord<String, byte[]> producerRecord,
+      List<ProducerLease<String, byte[]>> leases) {
+    ProducerLease<String, byte[]> lease =
+        kafkaTemplateFactory.lease(clusterKey, producerRecord.key());
+    leases.add(lease);
+    return lease.template().send(producerRecord);
+  }
+
+  /** Waits for the sends of one event and evaluates them against its routing strategy. */
+  private void awaitEvent(PendingEvent event, long deadline) {
+    int requiredSuccessCount = 0;
+    Exception firstFailure = null;
+    for (CompletableFuture<SendResult<String, byte[]>> future : event.required()) {
+      try {
+        await(future, deadline);
+        requiredSuccessCount++;
+      } catch (Exception e) {
+        if (firstFailure == null) {
+          firstFailure = e;
+        }
+      }
+    }
+    for (CompletableFuture<SendResult<String, byte[]>> future : event.optional()) {
+      try {
+        await(future, deadline);
+      } catch (Exception e) {
+        log.warn(
+            "Replay of archived event {} to an optional cluster failed (ignored): {}",
+            event.event().getId(),
+            e.getMessage());
+      }
+    }
+
+    RoutingRule rule = event.rule();
+    if (!rule.getStrategy().isSatisfied(rule.getClusters().size(), requiredSuccessCount)) {
+      throw new IllegalStateException(
+          String.format(
+              "Replay of archived event %d failed according to strategy %s. Required clusters: %d,"
+                  + " Successful: %d",
+              event.event().getId(),
+              rule.getStrategy(),
+              rule.getClusters().size(),
+              requiredSuccessCount),
+          firstFailure);
+    }
+  }
+
+  private static void await(CompletableFuture<SendResult<String, byte[]>> future, long deadline)
+      throws Exception {
+    try {
+      future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw e;
+    } catch (ExecutionException e) {
+      // Unwrap and throw the real, actionable Kafka exception
+      throw (Exception) e.getCause();
+    } catch (TimeoutException e) {
+      throw new TimeoutException("Replay send was not acknowledged in time");
+    }
+  }
+
+  private static ProducerRecord<String, byte[]> buildRecord(
+      OutboxArchiveEvent archived, String topicSuffix) {
+    // Key by aggregate id to guarantee ordering per aggregate
+    ProducerRecord<String, byte[]> producerRecord =
+        new ProducerRecord<>(
+            archived.getEventType() + topicSuffix,
+            archived.getAggregateId(),
+            archived.getPayload());
+    OutboxHeaders.forEvent(toOutboxEvent(archived)).forEach(producerRecord.headers()::add);
+    return producerRecord;
+  }
+
+  /** Rebuilds the outbox event the headers are derived from, with its original creation time. */
+  private static OutboxEvent toOutboxEvent(OutboxArchiveEvent archived) {
+    OutboxEvent event =
+        new OutboxEvent(
+            archived.getAggregateType(),
+            archived.getAggregateId(),
+            archived.getEventType(),
+            archived.getCorrelationId(),
+            archived.getPayload());
+    event.setCreatedAt(archived.getCreatedAt());
+    event.setPayloadCodec(archived.getPayloadCodec());
+    event.setPayloadFormat(archived.getPayloadFormat());
+    event.setPayloadSchemaId(archived.getPayloadSchemaId());
+    event.setRbp(archived.getRbp());
+    return event;
+  }
+
+  private void markFailed(Long jobId, RuntimeException failure) {
+    jobRepository
+        .findById(jobId)
+        .ifPresent(
+            job -> {
+              job.setStatus(ArchiveReplayJob.Status.FAILED);
+              job.setLastError(
+                  ErrorFingerprints.truncate(
+                      String.valueOf(ErrorFingerprints.rootCause(failure).getMessage()),
+                      ErrorFingerprints.MAX_SAMPLE_LENGTH));
+            });
+  }
+
+  private void updateRemaining() {
+    long remaining =
+        jobRepository.findByStatusOrderByIdAsc(ArchiveReplayJob.Status.RUNNING).stream()
+            .mapToLong(job -> Math.max(0, job.getTotalCount() - job.getReplayedCount()))
+            .sum();
+    metricsService.setArchiveReplayRemaining(remaining);
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.server.archival.ArchiveSink;
+import com.example.routebox.server.config.ArchiveSinkConfig;
+import com.example.routebox.server.entity.PayloadDeletionCandidate;
+import com.example.routebox.server.repository.PayloadDeletionCandidateRepository;
+import java.time.LocalDateTime;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service deleting the events archived to an {@link ArchiveSink} once they are older than
+ * outbox.archival.retention-days. The offloaded payloads the deleted events referred to are queued
+ * for {@link OffloadedPayloadCleanupService} before the events go, so payloads still referred to
+ * elsewhere are kept and the rest are deleted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveSinkRetentionService {
+
+  private final ArchiveSinkConfig sinkConfig;
+  private final ObjectProvider<ArchiveSink> archiveSink;
+  private final ObjectProvider<PayloadStore> payloadStore;
+  private final PayloadDeletionCandidateRepository candidateRepository;
+
+  /**
+   * Deletes the archived events past their retention period. Runs hourly by default.
+   *
+   * @return the number of events deleted
+   */
+  @Scheduled(
+      fixedDelayString = "${outbox.archival.retention-interval:1h}",
+      initialDelayString = "${outbox.archival.retention-interval:1h}")
+  public int applyRetention() {
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    int retentionDays = sinkConfig.getRetentionDays();
+    if (sink == null || retentionDays <= 0) {
+      return 0;
+    }
+
+    LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+    int deleted = sink.deleteCreatedBefore(before, this::queueOffloadedPayloads);
+    if (deleted > 0) {
+      log.info("Deleted {} archived events created before {}", deleted, before);
+    }
+    return deleted;
+  }
+
+  /** Queues the offloaded payloads of the events about to be deleted. */
+  private void queueOffloadedPayloads(Set<String> uris) {
+    if (uris.isEmpty() || payloadStore.getIfAvailable() == null) {
+      return;
+    }
+    LocalDateTime queuedAt = LocalDateTime.now();
+    candidateRepository.saveAll(
+        uris.stream().map(uri -> new PayloadDeletionCandidate(uri, queuedAt)).toList());
+    log.debug("Queued {} offloaded payloads of expired archived events", uris.size());
+  }
+}
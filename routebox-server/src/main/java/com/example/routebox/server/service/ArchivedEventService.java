@@ -0,0 +1,58 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.server.archival.ArchiveSink;
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+/**
+ * Looks up archived events for audits. Events are read from outbox_archive_events and, when one is
+ * configured, from the {@link ArchiveSink}; events archived before the sink was configured stay in
+ * the table, so both are searched.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArchivedEventService {
+
+  private static final Comparator<OutboxArchiveEvent> CREATION_ORDER =
+      Comparator.comparing(OutboxArchiveEvent::getCreatedAt)
+          .thenComparing(OutboxArchiveEvent::getOriginalEventId);
+
+  private final OutboxArchiveEventRepository archiveRepository;
+  private final ObjectProvider<ArchiveSink> archiveSink;
+
+  /**
+   * Finds the archived events of an aggregate created in a time range.
+   *
+   * @param aggregateId the aggregate id
+   * @param from inclusive lower bound of the creation time
+   * @param to exclusive upper bound of the creation time
+   * @return the events, oldest first
+   * @throws IllegalArgumentException if the aggregate id or the time range is missing, or the
+   *     range is empty
+   */
+  public List<OutboxArchiveEvent> findByAggregateId(
+      String aggregateId, LocalDateTime from, LocalDateTime to) {
+    if (aggregateId == null || aggregateId.isBlank()) {
+      throw new IllegalArgumentException("An aggregate id is required");
+    }
+    if (from == null || to == null || !from.isBefore(to)) {
+      throw new IllegalArgumentException("A lookup needs a time range with from before to");
+    }
+
+    List<OutboxArchiveEvent> events =
+        new ArrayList<>(archiveRepository.findByAggregateIdCreatedBetween(aggregateId, from, to));
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    if (sink != null) {
+      events.addAll(sink.findByAggregateId(aggregateId, from, to));
+      events.sort(CREATION_ORDER);
+    }
+    return events;
+  }
+}
@@ -0,0 +1,297 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.DeadLetterReplayJob;
+import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import com.example.routebox.server.failure.ErrorFingerprints;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import com.example.routebox.server.repository.DeadLetterReplayJobRepository;
+import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Replays dead-letter events back into the outbox in bulk.
+ *
+ * <p>A replay job selects dead-letter events by event type, error fingerprint and failure time
+ * range. Every dead-letter-replay-interval, running jobs move the next chunk of matching events, in
+ * id order, into outbox_events and outbox_payloads and delete them from the dead-letter table, in
+ * one transaction that also advances the job's checkpoint. A paused, failed or interrupted job
+ * resumes from its checkpoint.
+ *
+ * <p>Replayed events keep their correlation ids, so consumers that deduplicate on them ignore
+ * events they already processed. They get a new creation time, so they queue behind the events
+ * already pending instead of ahead of them.
+ *
+ * <p>The poller is protected in two ways. At most dead-letter-replay-rate-per-second events are
+ * replayed per second across all jobs. No chunk is written while the outbox holds
+ * dead-letter-replay-max-pending-events or more pending events.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeadLetterReplayService {
+
+  /** Keeps IN lists well below SQL Server's limit of 2100 parameters per statement. */
+  private static final int MAX_CHUNK_SIZE = 1000;
+
+  private final DeadLetterReplayJobRepository jobRepository;
+  private final OutboxDeadLetterEventRepository deadLetterRepository;
+  private final OutboxEventRepository outboxEventRepository;
+  private final OutboxPayloadRepository outboxPayloadRepository;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate chunkTransaction;
+
+  /**
+   * Selects the dead-letter events a replay job moves back into the outbox. Null fields match all
+   * events.
+   *
+   * @param eventType event type to replay
+   * @param errorFingerprintId error fingerprint to replay
+   * @param failedFrom inclusive lower bound of the failure time
+   * @param failedTo exclusive upper bound of the failure time
+   */
+  public record ReplayFilter(
+      String eventType,
+      Long errorFingerprintId,
+      LocalDateTime failedFrom,
+      LocalDateTime failedTo) {}
+
+  @PostConstruct
+  void initChunkTransaction() {
+    chunkTransaction = new TransactionTemplate(transactionManager);
+    chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Starts a replay job for the dead-letter events matching a filter.
+   *
+   * @param filter the events to replay
+   * @return the running job
+   */
+  @Transactional
+  public DeadLetterReplayJob createReplay(ReplayFilter filter) {
+    DeadLetterReplayJob job =
+        new DeadLetterReplayJob(
+            filter.eventType(),
+            filter.errorFingerprintId(),
+            filter.failedFrom(),
+            filter.failedTo());
+    job.setTotalCount(
+        deadLetterRepository.countReplayCandidates(
+            filter.eventType(),
+            filter.errorFingerprintId(),
+            filter.failedFrom(),
+            filter.failedTo()));
+    job = jobRepository.save(job);
+    log.info("Created dead-letter replay job {} for {} event(s)", job.getId(), job.getTotalCount());
+    return job;
+  }
+
+  /** Returns all replay jobs, newest first. */
+  public List<DeadLetterReplayJob> findReplays() {
+    return jobRepository.findAllByOrderByIdDesc();
+  }
+
+  /** Returns a replay job. */
+  public DeadLetterReplayJob getReplay(Long id) {
+    return jobRepository
+        .findById(id)
+        .orElseThrow(() -> new IllegalArgumentException("Replay job not found: " + id));
+  }
+
+  /** Pauses a running replay job after its current chunk. */
+  @Transactional
+  public DeadLetterReplayJob pauseReplay(Long id) {
+    return transition(id, DeadLetterReplayJob.Status.RUNNING, DeadLetterReplayJob.Status.PAUSED);
+  }
+
+  /** Resumes a paused or failed replay job from its checkpoint. */
+  @Transactional
+  public DeadLetterReplayJob resumeReplay(Long id) {
+    DeadLetterReplayJob job = getReplay(id);
+    if (job.getStatus() != DeadLetterReplayJob.Status.PAUSED
+        && job.getStatus() != DeadLetterReplayJob.Status.FAILED) {
+      throw new IllegalStateException(
+          "Replay job " + id + " is " + job.getStatus() + " and cannot be resumed");
+    }
+    job.setStatus(DeadLetterReplayJob.Status.RUNNING);
+    job.setLastError(null);
+    return jobRepository.save(job);
+  }
+
+  /** Cancels a replay job; events already replayed stay in the outbox. */
+  @Transactional
+  public DeadLetterReplayJob cancelReplay(Long id) {
+    DeadLetterReplayJob job = getReplay(id);
+    if (job.getStatus() == DeadLetterReplayJob.Status.COMPLETED) {
+      throw new IllegalStateException("Replay job " + id + " has already completed");
+    }
+    job.setStatus(DeadLetterReplayJob.Status.CANCELLED);
+    return jobRepository.save(job);
+  }
+
+  /**
+   * Replays the next chunk of each running job, within the configured rate and only while the
+   * outbox backlog is below its limit.
+   */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.dead-letter-replay-interval:1s}",
+      initialDelayString = "${outbox.processing.dead-letter-replay-interval:1s}")
+  public void replayDeadLetters() {
+    List<DeadLetterReplayJob> running =
+        jobRepository.findByStatusOrderByIdAsc(DeadLetterReplayJob.Status.RUNNING);
+    if (running.isEmpty()) {
+      metricsService.setReplayRemaining(0);
+      return;
+    }
+
+    long headroom =
+        processingConfig.getDeadLetterReplayMaxPendingEvents()
+            - outboxEventRepository.countBySentAtIsNull();
+    if (headroom <= 0) {
+      metricsService.recordReplayThrottled();
+      log.debug("Outbox backlog at its limit; skipping dead-letter replay");
+      return;
+    }
+
+    int budget = (int) Math.min(chunkSize(), headroom);
+    for (DeadLetterReplayJob job : running) {
+      if (budget <= 0) {
+        break;
+      }
+      budget -= replayChunk(job.getId(), budget);
+    }
+    updateRemaining();
+  }
+
+  /** Events replayed per interval, derived from the rate and the interval. */
+  private int chunkSize() {
+    double perInterval =
+        processingConfig.getDeadLetterReplayRatePerSecond()
+            * processingConfig.getDeadLetterReplayInterval().toMillis()
+            / 1000.0;
+    return (int) Math.max(1, Math.min(MAX_CHUNK_SIZE, Math.round(perInterval)));
+  }
+
+  /**
+   * Replays up to {@code limit} events of a job in one transaction.
+   *
+   * @return the number of events replayed
+   */
+  private int replayChunk(Long jobId, int limit) {
+    try {
+      Integer replayed = chunkTransaction.execute(status -> replayLockedChunk(jobId, limit));
+      return replayed == null ? 0 : replayed;
+    } catch (RuntimeException e) {
+      log.error(
+          "Dead-letter replay job {} failed; it can be resumed from its checkpoint", jobId, e);
+      chunkTransaction.executeWithoutResult(status -> markFailed(jobId, e));
+      return 0;
+    }
+  }
+
+  private int replayLockedChunk(Long jobId, int limit) {
+    // Another instance replaying this job holds the lock; leave the job to it
+    DeadLetterReplayJob job = jobRepository.findByIdForUpdate(jobId).orElse(null);
+    if (job == null || job.getStatus() != DeadLetterReplayJob.Status.RUNNING) {
+      return 0;
+    }
+
+    List<OutboxDeadLetterEvent> deadLetters =
+        deadLetterRepository.findReplayCandidates(
+            job.getLastReplayedId(),
+            job.getEventType(),
+            job.getErrorFingerprintId(),
+            job.getFailedFrom(),
+            job.getFailedTo(),
+            PageRequest.of(0, limit));
+    if (deadLetters.isEmpty()) {
+      job.setStatus(DeadLetterReplayJob.Status.COMPLETED);
+      log.info("Dead-letter replay job {} completed: {} event(s)", jobId, job.getReplayedCount());
+      return 0;
+    }
+
+    for (OutboxDeadLetterEvent deadLetter : deadLetters) {
+      OutboxEvent event = outboxEventRepository.save(toOutboxEvent(deadLetter));
+      if (event.getPayload() != null) {
+        outboxPayloadRepository.save(new OutboxPayload(event.getId(), event.getPayload()));
+      }
+    }
+    deadLetterRepository.deleteAllInBatch(deadLetters);
+
+    job.setLastReplayedId(deadLetters.get(deadLetters.size() - 1).getId());
+    job.setReplayedCount(job.getReplayedCount() + deadLetters.size());
+    metricsService.recordDeadLettersReplayed(deadLetters.size());
+    log.debug(
+        "Dead-letter replay job {} replayed {} event(s), {} so far",
+        jobId,
+        deadLetters.size(),
+        job.getReplayedCount());
+    return deadLetters.size();
+  }
+
+  private void markFailed(Long jobId, RuntimeException failure) {
+    jobRepository
+        .findById(jobId)
+        .ifPresent(
+            job -> {
+              job.setStatus(DeadLetterReplayJob.Status.FAILED);
+              job.setLastError(
+                  ErrorFingerprints.truncate(
+                      String.valueOf(ErrorFingerprints.rootCause(failure).getMessage()),
+                      ErrorFingerprints.MAX_SAMPLE_LENGTH));
+            });
+  }
+
+  private void updateRemaining() {
+    long remaining =
+        jobRepository.findByStatusOrderByIdAsc(DeadLetterReplayJob.Status.RUNNING).stream()
+            .mapToLong(job -> Math.max(0, job.getTotalCount() - job.getReplayedCount()))
+            .sum();
+    metricsService.setReplayRemaining(remaining);
+  }
+
+  private DeadLetterReplayJob transition(
+      Long id, DeadLetterReplayJob.Status from, DeadLetterReplayJob.Status to) {
+    DeadLetterReplayJob job = getReplay(id);
+    if (job.getStatus() != from) {
+      throw new IllegalStateException(
+          "Replay job " + id + " is " + job.getStatus() + ", expected " + from);
+    }
+    job.setStatus(to);
+    return jobRepository.save(job);
+  }
+
+  private static OutboxEvent toOutboxEvent(OutboxDeadLetterEvent deadLetter) {
+    OutboxEvent event =
+        new OutboxEvent(
+            deadLetter.getAggregateType(),
+            deadLetter.getAggregateId(),
+            deadLetter.getEventType(),
+            deadLetter.getCorrelationId(),
+            deadLetter.getPayload());
+    event.setPayloadCodec(deadLetter.getPayloadCodec());
+    event.setPayloadFormat(deadLetter.getPayloadFormat());
+    event.setPayloadSchemaId(deadLetter.getPayloadSchemaId());
+    event.setRbp(deadLetter.getRbp());
+    return event;
+  }
+}
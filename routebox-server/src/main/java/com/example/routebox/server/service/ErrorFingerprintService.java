@@ -0,0 +1,164 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.server.entity.ErrorFingerprint;
+import com.example.routebox.server.failure.ErrorFingerprints;
+import com.example.routebox.server.repository.ErrorFingerprintRepository;
+import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maps publish failures to rows of the error_fingerprints table and reports grouped error
+ * statistics.
+ *
+ * <p>Fingerprint ids are cached in memory, so recording a failure with a known error costs no
+ * lookup. A new fingerprint is inserted in its own transaction; if another instance inserts the
+ * same fingerprint concurrently, the unique constraint rejects the second insert and its row is
+ * read back instead.
+ */
+@Slf4j
+@Service
+public class ErrorFingerprintService {
+
+  /** Bound on the id cache; distinct normalized errors are normally far fewer. */
+  private static final int MAX_CACHED_FINGERPRINTS = 10_000;
+
+  private final ErrorFingerprintRepository fingerprintRepository;
+  private final OutboxEventRepository outboxEventRepository;
+  private final OutboxDeadLetterEventRepository deadLetterRepository;
+  private final TransactionTemplate insertTransaction;
+  private final Map<String, Long> idsByFingerprint = new ConcurrentHashMap<>();
+
+  /** Error statistics for one fingerprint. */
+  public record ErrorStatistics(
+      ErrorFingerprint fingerprint, long failingEvents, long deadLetterEvents) {}
+
+  public ErrorFingerprintService(
+      ErrorFingerprintRepository fingerprintRepository,
+      OutboxEventRepository outboxEventRepository,
+      OutboxDeadLetterEventRepository deadLetterRepository,
+      PlatformTransactionManager transactionManager) {
+    this.fingerprintRepository = fingerprintRepository;
+    this.outboxEventRepository = outboxEventRepository;
+    this.deadLetterRepository = deadLetterRepository;
+    this.insertTransaction = new TransactionTemplate(transactionManager);
+    this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Returns the fingerprint id for a failure, keyed by its root cause.
+   *
+   * @param failure the failure
+   * @return the id of the fingerprint row, inserted if the error is new
+   */
+  public Long resolve(Throwable failure) {
+    Throwable root = ErrorFingerprints.rootCause(failure);
+    return resolve(root.getClass().getName(), root.getMessage());
+  }
+
+  /**
+   * Returns the fingerprint id for an error.
+   *
+   * @param exceptionClass the exception class name, or null if only a message is known
+   * @param message the raw error message
+   * @return the id of the fingerprint row, inserted if the error is new
+   */
+  public Long resolve(String exceptionClass, String message) {
+    String normalized = ErrorFingerprints.normalize(message);
+    String fingerprint = ErrorFingerprints.fingerprint(exceptionClass, normalized);
+    Long id = idsByFingerprint.get(fingerprint);
+    if (id != null) {
+      return id;
+    }
+
+    String sample = message != null ? message : String.valueOf(exceptionClass);
+    id =
+        findOrInsert(
+            new ErrorFingerprint(
+                fingerprint,
+                ErrorFingerprints.truncate(exceptionClass, 255),
+                normalized,
+                ErrorFingerprints.truncate(sample, ErrorFingerprints.MAX_SAMPLE_LENGTH)));
+    if (idsByFingerprint.size() >= MAX_CACHED_FINGERPRINTS) {
+      idsByFingerprint.clear();
+    }
+    idsByFingerprint.put(fingerprint, id);
+    return id;
+  }
+
+  /**
+   * Adds occurrences to a fingerprint's count and moves its last-seen time to now.
+   *
+   * @param fingerprintId the fingerprint
+   * @param count the number of new occurrences
+   */
+  @Transactional
+  public void recordOccurrences(Long fingerprintId, int count) {
+    fingerprintRepository.recordOccurrences(fingerprintId, count, LocalDateTime.now());
+  }
+
+  /**
+   * Returns the most frequent errors with the number of outbox and dead-letter events currently
+   * failing with each.
+   *
+   * @param limit the maximum number of fingerprints
+   */
+  @Transactional(readOnly = true)
+  public List<ErrorStatistics> findTopErrors(int limit) {
+    List<ErrorFingerprint> fingerprints =
+        fingerprintRepository.findAllByOrderByOccurrenceCountDesc(PageRequest.of(0, limit));
+    if (fingerprints.isEmpty()) {
+      return List.of();
+    }
+    List<Long> ids = fingerprints.stream().map(ErrorFingerprint::getId).toList();
+    Map<Long, Long> failing = toCounts(outboxEventRepository.countByLastErrorFingerprintIds(ids));
+    Map<Long, Long> deadLettered = toCounts(deadLetterRepository.countByErrorFingerprintIds(ids));
+    return fingerprints.stream()
+        .map(
+            f ->
+                new ErrorStatistics(
+                    f,
+                    failing.getOrDefault(f.getId(), 0L),
+                    deadLettered.getOrDefault(f.getId(), 0L)))
+        .toList();
+  }
+
+  private Long findOrInsert(ErrorFingerprint candidate) {
+    try {
+      return insertTransaction.execute(
+          status ->
+              fingerprintRepository
+                  .findByFingerprint(candidate.getFingerprint())
+                  .orElseGet(() -> fingerprintRepository.saveAndFlush(candidate))
+                  .getId());
+    } catch (DataIntegrityViolationException e) {
+      log.debug("Error fingerprint {} was inserted concurrently", candidate.getFingerprint());
+      return insertTransaction.execute(
+          status ->
+              fingerprintRepository
+                  .findByFingerprint(candidate.getFingerprint())
+                  .orElseThrow(() -> e)
+                  .getId());
+    }
+  }
+
+  private static Map<Long, Long> toCounts(List<Object[]> rows) {
+    Map<Long, Long> counts = new HashMap<>();
+    for (Object[] row : rows) {
+      counts.put((Long) row[0], (Long) row[1]);
+    }
+    return counts;
+  }
+}
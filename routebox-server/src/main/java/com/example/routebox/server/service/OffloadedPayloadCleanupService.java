@@ -0,0 +1,103 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.server.archival.ArchiveSink;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.PayloadDeletionCandidate;
+import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import com.example.routebox.server.repository.PayloadDeletionCandidateRepository;
+import java.time.Instant;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service deleting offloaded payloads that no event refers to any more. Archived events keep their
+ * payload references, so a payload only becomes a {@link PayloadDeletionCandidate} when the
+ * archived events referring to it are removed by retention, from the archive table or from an
+ * {@link ArchiveSink}.
+ *
+ * <p>Payloads are content-addressed and producers store them before their transaction commits, so
+ * a payload no committed row refers to may still be about to be referenced. A candidate is
+ * therefore deleted only if no outbox, dead-letter or archived event, in the table or the sink,
+ * refers to it and the store has not stored it again within offloaded-payload-grace-period.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OffloadedPayloadCleanupService {
+
+  /** Candidates checked per page. */
+  static final int PAGE_SIZE = 500;
+
+  private final PayloadDeletionCandidateRepository candidateRepository;
+  private final OutboxEventRepository outboxEventRepository;
+  private final OutboxDeadLetterEventRepository deadLetterEventRepository;
+  private final OutboxArchiveEventRepository archiveEventRepository;
+  private final OutboxProcessingConfig processingConfig;
+  private final ObjectProvider<PayloadStore> payloadStore;
+  private final ObjectProvider<ArchiveSink> archiveSink;
+
+  /**
+   * Deletes the queued payloads that are no longer referenced. Runs every 10 minutes by default.
+   *
+   * @return the number of payloads deleted
+   */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.offloaded-payload-cleanup-interval:10m}",
+      initialDelayString = "${outbox.processing.offloaded-payload-cleanup-interval:10m}")
+  public int deleteUnreferencedPayloads() {
+    PayloadStore store = payloadStore.getIfAvailable();
+    if (store == null) {
+      return 0;
+    }
+
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    int deleted = 0;
+    List<PayloadDeletionCandidate> page;
+    do {
+      page = candidateRepository.findAllByOrderByIdAsc(PageRequest.of(0, PAGE_SIZE));
+      Instant storedBefore =
+          Instant.now().minus(processingConfig.getOffloadedPayloadGracePeriod());
+      for (PayloadDeletionCandidate candidate : page) {
+        if (deleteIfUnreferenced(store, sink, candidate.getUri(), storedBefore)) {
+          deleted++;
+        }
+      }
+      // Payloads kept here are queued again when the rows still referring to them are removed
+      candidateRepository.deleteAllInBatch(page);
+    } while (page.size() == PAGE_SIZE);
+
+    if (deleted > 0) {
+      log.info("Deleted {} offloaded payloads no event refers to", deleted);
+    }
+    return deleted;
+  }
+
+  /**
+   * Deletes a payload unless an event refers to it or it was stored again recently. Failures only
+   * leave an orphaned payload behind and are logged.
+   */
+  private boolean deleteIfUnreferenced(
+      PayloadStore store, ArchiveSink sink, String uri, Instant storedBefore) {
+    if (!store.supports(uri)
+        || outboxEventRepository.existsByRbpUri(uri)
+        || deadLetterEventRepository.existsByRbpUri(uri)
+        || archiveEventRepository.existsByRbpUri(uri)
+        || (sink != null && sink.referencesPayload(uri))) {
+      return false;
+    }
+    try {
+      return store.deleteIfStoredBefore(uri, storedBefore);
+    } catch (RuntimeException e) {
+      log.warn("Failed to delete offloaded payload {}: {}", uri, e.getMessage());
+      return false;
+    }
+  }
+}
@@ -1,38 +1,99 @@
 package com.example.routebox.server.service;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.server.archival.ArchivalPacer;
+import com.example.routebox.server.archival.ArchiveSink;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.ArchivalCheckpoint;
 import com.example.routebox.server.entity.OutboxArchiveEvent;
 import com.example.routebox.server.metrics.OutboxMetricsService;
+import com.example.routebox.server.repository.ArchivalCheckpointRepository;
 import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Service responsible for archiving old sent outbox events to prevent unbounded table growth.
  * Events that have been successfully sent and are older than the configured retention period are
  * moved to the archive table.
+ *
+ * <p>Events are moved in id ranges of archival-chunk-size, each in its own short transaction: one
+ * INSERT ... SELECT into the archive table and two set-based DELETEs, so no event is loaded into
+ * memory and no lock is held for longer than one range. Ranges are separated by
+ * archival-chunk-pause. The scheduled run records its progress in an {@link ArchivalCheckpoint}
+ * after every range; a run interrupted by a failure or a restart resumes from it.
+ *
+ * <p>With archival-trickle-enabled, events are also archived continuously, a small chunk at a time
+ * from the oldest event onwards, so the outbox stays near its steady-state size and the nightly
+ * run finds little left to do. A tick is held back while the in-memory event queue is busy, and an
+ * {@link ArchivalPacer} sizes the chunks from how long the previous ones took, so the trickle only
+ * uses the headroom the publishing pipeline and the database leave.
+ *
+ * <p>Payloads the events offloaded to the payload store stay there: archived rows keep their
+ * references, so they can still be replayed. {@link OffloadedPayloadCleanupService} deletes them
+ * once retention removes the archived rows.
+ *
+ * <p>When an {@link ArchiveSink} is configured, the events of each range are loaded and appended
+ * to it instead of being copied into the archive table. The sink skips the events of a range it
+ * already holds, so a range whose transaction rolled back after the append is not archived twice.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OutboxArchivalService {
 
+  /** Name of the checkpoint of the scheduled archival run. */
+  static final String CHECKPOINT_NAME = "outbox_events";
+
   private final OutboxEventRepository outboxEventRepository;
+  private final OutboxPayloadRepository outboxPayloadRepository;
   private final OutboxArchiveEventRepository archiveEventRepository;
+  private final ArchivalCheckpointRepository checkpointRepository;
   private final OutboxProcessingConfig processingConfig;
   private final OutboxMetricsService metricsService;
+  private final ObjectProvider<ArchiveSink> archiveSink;
+  private final PlatformTransactionManager transactionManager;
+  private final BlockingQueue<OutboxEvent> eventQueue;
+
+  private TransactionTemplate chunkTransaction;
+
+  private ArchivalPacer tricklePacer;
+
+  /** Continuous archival resumes after this id; null to start over from the oldest event. */
+  private Long trickleCursor;
+
+  @PostConstruct
+  void init() {
+    chunkTransaction = new TransactionTemplate(transactionManager);
+    chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    tricklePacer =
+        new ArchivalPacer(
+            processingConfig.getArchivalTrickleMinChunkSize(),
+            processingConfig.getArchivalTrickleMaxChunkSize(),
+            processingConfig.getArchivalTrickleTargetChunkDuration());
+  }
 
   /** Archives old sent events. Runs daily at 2 AM by default. */
   @Scheduled(cron = "${outbox.archival.schedule:0 0 2 * * *}")
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void archiveOldEvents() {
     int retentionDays = processingConfig.getArchivalRetentionDays();
     if (retentionDays <= 0) {
@@ -41,36 +102,124 @@ public class OutboxArchivalService {
     }
 
     LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
-    List<OutboxEvent> eventsToArchive = outboxEventRepository.findSentEventsBefore(cutoffTime);
+    try {
+      chunkTransaction.executeWithoutResult(status -> startOrResumeRun(cutoffTime));
+    } catch (DataIntegrityViolationException e) {
+      log.debug("Another instance started the archival run", e);
+    }
 
-    if (eventsToArchive.isEmpty()) {
-      log.debug("No events to archive before {}", cutoffTime);
+    long archived = 0;
+    Integer chunk;
+    while ((chunk = timed(() -> chunkTransaction.execute(status -> archiveCheckpointedChunk())))
+        != null) {
+      archived += chunk;
+      if (!pauseBetweenChunks()) {
+        break;
+      }
+    }
+    if (archived > 0) {
+      log.info("Successfully archived {} events", archived);
+    }
+  }
+
+  /** Archives one paced chunk of events past the retention period, if there is headroom. */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.archival-trickle-interval:1s}",
+      initialDelayString = "${outbox.processing.archival-trickle-interval:1s}")
+  public synchronized void trickleArchive() {
+    if (!processingConfig.isArchivalTrickleEnabled()
+        || processingConfig.getArchivalRetentionDays() <= 0) {
       return;
     }
+    try {
+      archiveTrickleChunk();
+    } catch (RuntimeException e) {
+      trickleCursor = null;
+      tricklePacer.onNoHeadroom();
+      log.warn("Continuous archival failed; starting over on a later tick", e);
+    }
+  }
+
+  /**
+   * Archives the next chunk of continuous archival, unless the pacer sits this tick out or the
+   * event queue is busy.
+   *
+   * @return the number of events archived
+   */
+  synchronized int archiveTrickleChunk() {
+    if (!tricklePacer.tryTick()) {
+      return 0;
+    }
+    int queued = eventQueue.size();
+    double queueFill = queued / (double) Math.max(1, queued + eventQueue.remainingCapacity());
+    if (queueFill >= processingConfig.getArchivalTrickleMaxQueueFill()) {
+      tricklePacer.onNoHeadroom();
+      metricsService.recordArchivalThrottled();
+      metricsService.setArchivalChunkSize(tricklePacer.chunkSize());
+      return 0;
+    }
 
-    log.info("Archiving {} events sent before {}", eventsToArchive.size(), cutoffTime);
+    long afterId;
+    if (trickleCursor != null) {
+      afterId = trickleCursor;
+    } else {
+      Long minId = outboxEventRepository.findMinId();
+      if (minId == null) {
+        metricsService.setArchivalLag(Duration.ZERO);
+        return 0;
+      }
+      afterId = minId - 1;
+    }
 
-    // Move events to archive table in batch
-    List<OutboxArchiveEvent> archiveEvents =
-        eventsToArchive.stream().map(OutboxArchiveEvent::new).toList();
-    archiveEventRepository.saveAll(archiveEvents);
+    LocalDateTime cutoffTime =
+        LocalDateTime.now().minusDays(processingConfig.getArchivalRetentionDays());
+    int chunkSize = tricklePacer.chunkSize();
+    List<OutboxEvent> page =
+        outboxEventRepository.findByIdGreaterThanOrderByIdAsc(
+            afterId, PageRequest.of(0, chunkSize));
+    // Events created at or after the cutoff cannot have been sent before it
+    List<OutboxEvent> due =
+        page.stream().takeWhile(event -> event.getCreatedAt().isBefore(cutoffTime)).toList();
+    updateArchivalLag(due, cutoffTime);
+    if (due.isEmpty()) {
+      trickleCursor = null;
+      return 0;
+    }
 
-    // Delete archived events from the main table
-    outboxEventRepository.deleteAll(eventsToArchive);
+    long upToId = due.get(due.size() - 1).getId();
+    long start = System.nanoTime();
+    Integer archived =
+        chunkTransaction.execute(status -> archiveRange(afterId, upToId, cutoffTime));
+    Duration took = Duration.ofNanos(System.nanoTime() - start);
+    metricsService.recordArchivalChunk(took);
+    tricklePacer.onChunk(took);
+    metricsService.setArchivalChunkSize(tricklePacer.chunkSize());
 
-    // Record metrics
-    metricsService.recordArchival(eventsToArchive.size());
+    // Start over once the pass reaches the cutoff or the end of the table
+    trickleCursor = due.size() < chunkSize ? null : upToId;
+    return archived == null ? 0 : archived;
+  }
 
-    log.info("Successfully archived {} events", eventsToArchive.size());
+  /** Sets the lag gauge from the oldest archivable event at the front of continuous archival. */
+  private void updateArchivalLag(List<OutboxEvent> due, LocalDateTime cutoffTime) {
+    Duration lag =
+        due.stream()
+            .map(OutboxEvent::getSentAt)
+            .filter(sentAt -> sentAt != null && sentAt.isBefore(cutoffTime))
+            .min(LocalDateTime::compareTo)
+            .map(sentAt -> Duration.between(sentAt, cutoffTime))
+            .orElse(Duration.ZERO);
+    metricsService.setArchivalLag(lag);
   }
 
   /**
-   * Manually trigger archival (for testing or administrative purposes).
+   * Manually trigger archival (for testing or administrative purposes). Archives in the same
+   * ranges as the scheduled run but does not touch its checkpoint; a manual run that stops early
+   * is simply run again.
    *
    * @param retentionDays Number of days to retain sent events before archiving
    * @return Number of events archived
    */
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public int manualArchive(int retentionDays) {
     if (retentionDays <= 0) {
       log.warn("Invalid retention days: {}. Must be > 0", retentionDays);
@@ -78,26 +227,182 @@ public class OutboxArchivalService {
     }
 
     LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
-    List<OutboxEvent> eventsToArchive = outboxEventRepository.findSentEventsBefore(cutoffTime);
-
-    if (eventsToArchive.isEmpty()) {
+    Long firstId = outboxEventRepository.findMinSentIdBefore(cutoffTime);
+    Long lastId = outboxEventRepository.findMaxSentIdBefore(cutoffTime);
+    if (firstId == null || lastId == null) {
       return 0;
     }
 
     log.info(
-        "Manual archival: archiving {} events sent before {}", eventsToArchive.size(), cutoffTime);
+        "Manual archival: archiving events {} to {} sent before {}", firstId, lastId, cutoffTime);
 
-    // Move events to archive table in batch
-    List<OutboxArchiveEvent> archiveEvents =
-        eventsToArchive.stream().map(OutboxArchiveEvent::new).toList();
-    archiveEventRepository.saveAll(archiveEvents);
+    int archived = 0;
+    long afterId = firstId - 1;
+    while (afterId < lastId) {
+      long fromId = afterId;
+      long upToId = Math.min(lastId, afterId + processingConfig.getArchivalChunkSize());
+      Integer chunk =
+          timed(
+              () ->
+                  chunkTransaction.execute(status -> archiveRange(fromId, upToId, cutoffTime)));
+      archived += chunk == null ? 0 : chunk;
+      afterId = upToId;
+      if (afterId < lastId && !pauseBetweenChunks()) {
+        break;
+      }
+    }
 
-    outboxEventRepository.deleteAll(eventsToArchive);
+    log.info("Manual archival completed: {} events archived", archived);
+    return archived;
+  }
+
+  /**
+   * Starts a run up to the newest event sent before the cutoff, unless a previous run is still in
+   * progress; that run is resumed with its own cutoff, and later events are left to the next run.
+   */
+  private void startOrResumeRun(LocalDateTime cutoffTime) {
+    ArchivalCheckpoint checkpoint =
+        checkpointRepository
+            .findById(CHECKPOINT_NAME)
+            .orElseGet(() -> new ArchivalCheckpoint(CHECKPOINT_NAME));
+    if (checkpoint.isRunning()) {
+      log.info(
+          "Resuming archival of events sent before {} after event {}",
+          checkpoint.getCutoffTime(),
+          checkpoint.getLastArchivedId());
+      return;
+    }
+
+    Long firstId = outboxEventRepository.findMinSentIdBefore(cutoffTime);
+    Long lastId = outboxEventRepository.findMaxSentIdBefore(cutoffTime);
+    if (firstId == null || lastId == null) {
+      log.debug("No events to archive before {}", cutoffTime);
+      return;
+    }
+
+    log.info("Archiving events {} to {} sent before {}", firstId, lastId, cutoffTime);
+    checkpoint.start(cutoffTime, firstId, lastId);
+    checkpointRepository.save(checkpoint);
+  }
+
+  /**
+   * Archives the range after the checkpoint and advances it, in one transaction.
+   *
+   * @return the number of events archived, or null once the run is complete or another instance
+   *     is archiving it
+   */
+  private Integer archiveCheckpointedChunk() {
+    ArchivalCheckpoint checkpoint =
+        checkpointRepository.findByIdForUpdate(CHECKPOINT_NAME).orElse(null);
+    if (checkpoint == null || !checkpoint.isRunning()) {
+      return null;
+    }
+
+    long afterId = checkpoint.getLastArchivedId();
+    long upToId =
+        Math.min(checkpoint.getUpToId(), afterId + processingConfig.getArchivalChunkSize());
+    int archived =
+        afterId < upToId ? archiveRange(afterId, upToId, checkpoint.getCutoffTime()) : 0;
+
+    checkpoint.setLastArchivedId(upToId);
+    checkpoint.setArchivedCount(checkpoint.getArchivedCount() + archived);
+    if (upToId >= checkpoint.getUpToId()) {
+      checkpoint.setCompletedAt(LocalDateTime.now());
+      log.info("Archival run completed: {} events archived", checkpoint.getArchivedCount());
+    }
+    return archived;
+  }
+
+  /**
+   * Moves the events sent before the cutoff in an id range to the archive table, with their
+   * payloads. Runs in the caller's transaction.
+   *
+   * @return the number of events archived
+   */
+  private int archiveRange(long afterId, long upToId, LocalDateTime cutoffTime) {
+    ArchiveSink sink = archiveSink.getIfAvailable();
+    int archived =
+        sink == null
+            ? archiveEventRepository.insertSentFromOutbox(
+                afterId, upToId, cutoffTime, LocalDateTime.now())
+            : appendToSink(sink, afterId, upToId, cutoffTime);
+    if (archived == 0) {
+      return 0;
+    }
+
+    // Delete archived events and their payloads from the main tables
+    outboxPayloadRepository.deleteOfSentEventsInRange(afterId, upToId, cutoffTime);
+    int deleted = outboxEventRepository.deleteSentInRange(afterId, upToId, cutoffTime);
+    if (deleted != archived) {
+      throw new IllegalStateException(
+          "Archived " + archived + " events after " + afterId + " but deleted " + deleted);
+    }
 
     // Record metrics
-    metricsService.recordArchival(eventsToArchive.size());
+    metricsService.recordArchival(archived);
+    log.debug("Archived {} events in ({}, {}]", archived, afterId, upToId);
+    return archived;
+  }
+
+  /**
+   * Appends the events sent before the cutoff in an id range, with their payloads, to the archive
+   * sink. Runs in the caller's transaction; the events are durable in the sink when it returns.
+   *
+   * @return the number of events archived, including any an earlier attempt already appended
+   */
+  private int appendToSink(ArchiveSink sink, long afterId, long upToId, LocalDateTime cutoffTime) {
+    List<OutboxEvent> events = outboxEventRepository.findSentInRange(afterId, upToId, cutoffTime);
+    if (events.isEmpty()) {
+      return 0;
+    }
+    Map<Long, byte[]> payloads =
+        outboxPayloadRepository
+            .findAllById(events.stream().map(OutboxEvent::getId).toList())
+            .stream()
+            .collect(Collectors.toMap(OutboxPayload::getEventId, OutboxPayload::getData));
+
+    LocalDateTime archivedAt = LocalDateTime.now();
+    List<OutboxArchiveEvent> archived =
+        events.stream()
+            .map(
+                event -> {
+                  OutboxArchiveEvent archive = new OutboxArchiveEvent(event);
+                  archive.setPayload(payloads.get(event.getId()));
+                  archive.setArchivedAt(archivedAt);
+                  return archive;
+                })
+            .toList();
+    sink.append(afterId, upToId, archived);
+    return archived.size();
+  }
 
-    log.info("Manual archival completed: {} events archived", eventsToArchive.size());
-    return eventsToArchive.size();
+  /** Runs one archival transaction and records its duration if it archived a range. */
+  private Integer timed(Supplier<Integer> chunk) {
+    long start = System.nanoTime();
+    Integer archived = chunk.get();
+    if (archived != null) {
+      metricsService.recordArchivalChunk(Duration.ofNanos(System.nanoTime() - start));
+    }
+    return archived;
+  }
+
+  /**
+   * Throttles archival between two ranges.
+   *
+   * @return false if the thread was interrupted; the checkpoint keeps the progress made
+   */
+  private boolean pauseBetweenChunks() {
+    Duration pause = processingConfig.getArchivalChunkPause();
+    if (pause.isZero() || pause.isNegative()) {
+      return true;
+    }
+    try {
+      Thread.sleep(pause.toMillis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Archival interrupted; it resumes from its checkpoint on the next run");
+      return false;
+    }
   }
 }
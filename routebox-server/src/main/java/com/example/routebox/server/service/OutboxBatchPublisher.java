@@ -0,0 +1,381 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.util.OutboxHeaders;
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.OutboxRoutingConfig;
+import com.example.routebox.server.config.RoutingRule;
+import com.example.routebox.server.kafka.PartitionGrouping;
+import com.example.routebox.server.kafka.ProducerLease;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.kafka.PublishDeadlineExceededException;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import io.micrometer.observation.annotation.Observed;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes a whole claimed batch using Kafka transactions. Used instead of the per-event
+ * OutboxEventPublisher when outbox.kafka.transactions.enabled is set.
+ *
+ * <p>For every cluster the batch touches, all records destined for that cluster are sent inside a
+ * single Kafka transaction that is committed once. Successful events are then marked as sent in a
+ * single database transaction. Atomicity is per cluster: a multi-cluster rule can still leave one
+ * cluster committed while another aborted, in which case the routing strategy decides the outcome
+ * exactly as in the per-event path. Sends to clusters a rule lists as optional go in a separate,
+ * best-effort transaction per cluster after the required ones, so a failing optional send can never
+ * abort the transaction of the events that require that cluster.
+ *
+ * <p>The batch is bounded by the earliest {@link PublishDeadline} of its events. A batch whose
+ * deadline has passed is not sent, and a transaction still waiting for acknowledgements at the
+ * deadline is aborted, so none of its records become visible. The events are left to their claim
+ * leases rather than recorded as failed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxBatchPublisher {
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final DynamicKafkaTemplateFactory kafkaTemplateFactory;
+  private final OutboxRoutingConfig routingConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxFailureHandler failureHandler;
+  private final OutboxQuarantineService quarantineService;
+  private final OutboxEventClaimer claimer;
+  private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+
+  /**
+   * Publishes the claimed batch. Never throws for individual event failures; those are handed to
+   * the failure handler.
+   *
+   * @param events The claimed events, in claim order
+   */
+  @Observed(name = "outbox.batch.publish", contextualName = "publish-outbox-batch")
+  public void publishBatch(List<OutboxEvent> events) {
+    PublishDeadline deadline =
+        PublishDeadline.earliest(events, processingConfig.getPublishDeadlineMargin());
+    if (deadline.isExpired()) {
+      metricsService.recordLeaseExpiredInQueue(events.size());
+      log.warn(
+          "Dropping batch of {} event(s): its publish deadline {} passed before sending. The"
+              + " events will be claimed again when their leases expire.",
+          events.size(),
+          deadline.at());
+      return;
+    }
+
+    // 1. Resolve routing rules and group the events by target cluster
+    Map<Long, RoutingRule> rules = new HashMap<>();
+    Map<String, List<OutboxEvent>> eventsByCluster = new LinkedHashMap<>();
+    Map<String, List<OutboxEvent>> optionalEventsByCluster = new LinkedHashMap<>();
+    for (OutboxEvent event : events) {
+      RoutingRule rule = routingConfig.getRoutingRule(event.getEventType());
+      if (rule == null) {
+        handleFailure(
+            event,
+            new IllegalStateException(
+                "No Kafka route found for eventType: " + event.getEventType()));
+        continue;
+      }
+      if (!event.isPayloadDeferred() && event.getPayload() == null) {
+        // Never sent: a record without a value is a tombstone
+        handleFailure(event, OutboxEventClaimer.missingPayload(event));
+        continue;
+      }
+      rules.put(event.getId(), rule);
+      for (String clusterKey : rule.getClusters()) {
+        eventsByCluster.computeIfAbsent(clusterKey, k -> new ArrayList<>()).add(event);
+      }
+      for (String clusterKey : rule.getOptional()) {
+        optionalEventsByCluster.computeIfAbsent(clusterKey, k -> new ArrayList<>()).add(event);
+      }
+    }
+
+    // 2. One Kafka transaction per cluster for the required sends
+    Map<String, Map<Long, RecordMetadata>> committed = new HashMap<>();
+    Map<String, Exception> aborted = new HashMap<>();
+    eventsByCluster.forEach(
+        (clusterKey, clusterEvents) -> {
+          try {
+            committed.put(
+                clusterKey, publishInTransaction(clusterKey, clusterEvents, deadline));
+            metricsService.recordKafkaTransactionCommitted();
+          } catch (Exception e) {
+            aborted.put(clusterKey, e);
+            metricsService.recordKafkaTransactionAborted();
+            log.warn(
+                "Kafka transaction for {} event(s) on cluster '{}' aborted: {}",
+                clusterEvents.size(),
+                clusterKey,
+                e.getMessage());
+          }
+        });
+
+    // 3. Best-effort transactions for the optional sends; their outcome is only logged
+    optionalEventsByCluster.forEach(
+        (clusterKey, clusterEvents) -> {
+          try {
+            publishInTransaction(clusterKey, clusterEvents, deadline);
+            metricsService.recordKafkaTransactionCommitted();
+          } catch (Exception e) {
+            metricsService.recordKafkaTransactionAborted();
+            log.warn(
+                "Kafka transaction for {} event(s) on optional cluster '{}' aborted (ignored): {}",
+                clusterEvents.size(),
+                clusterKey,
+                e.getMessage());
+          }
+        });
+
+    // 4. Evaluate each event against its routing strategy
+    List<OutboxEvent> succeeded = new ArrayList<>();
+    int deadlineExceeded = 0;
+    Map<Long, RecordMetadata> receipts = new HashMap<>();
+    for (OutboxEvent event : events) {
+      RoutingRule rule = rules.get(event.getId());
+      if (rule == null) {
+        continue; // Already handed to the failure handler
+      }
+
+      RecordMetadata receipt = null;
+      int requiredSuccessCount = 0;
+      Exception firstFailure = null;
+      for (String clusterKey : rule.getClusters()) {
+        Map<Long, RecordMetadata> clusterReceipts = committed.get(clusterKey);
+        if (clusterReceipts != null) {
+          requiredSuccessCount++;
+          if (receipt == null) {
+            receipt = clusterReceipts.get(event.getId());
+          }
+        } else if (firstFailure == null) {
+          firstFailure = aborted.get(clusterKey);
+        }
+      }
+
+      if (rule.getStrategy().isSatisfied(rule.getClusters().size(), requiredSuccessCount)) {
+        succeeded.add(event);
+        receipts.put(event.getId(), receipt);
+      } else if (firstFailure instanceof PublishDeadlineExceededException) {
+        // Aborted at the deadline: leave the event to its lease instead of counting a failure
+        deadlineExceeded++;
+      } else {
+        String errorMsg =
+            String.format(
+                "Publishing failed according to strategy %s. Required clusters: %d, Successful: %d",
+                rule.getStrategy(), rule.getClusters().size(), requiredSuccessCount);
+        handleFailure(event, new Exception(errorMsg, firstFailure));
+      }
+    }
+
+    if (deadlineExceeded > 0) {
+      metricsService.recordLeaseExpiredInFlight(deadlineExceeded);
+      log.warn(
+          "Gave up {} event(s) whose Kafka transaction missed the publish deadline {}",
+          deadlineExceeded,
+          deadline.at());
+    }
+
+    // 5. Mark all successful events as sent in a single database transaction
+    if (!succeeded.isEmpty()) {
+      markSent(succeeded, receipts);
+      if (deadline.at() != null) {
+        metricsService.recordLeaseSlack(deadline.remaining());
+      }
+    }
+  }
+
+  /**
+   * Sends all records for one cluster inside a Kafka transaction. The transaction is aborted if
+   * any send fails, so either all records of the batch become visible to read_committed consumers
+   * or none do.
+   *
+   * @return the record metadata of each event, keyed by event id
+   */
+  private Map<Long, RecordMetadata> publishInTransaction(
+      String clusterKey, List<OutboxEvent> claimedEvents, PublishDeadline deadline) {
+    log.debug(
+        "Publishing {} event(s) to cluster '{}' in one Kafka transaction",
+        claimedEvents.size(),
+        clusterKey);
+
+    // Send partition by partition so each producer batch fills before the next one starts
+    List<OutboxEvent> clusterEvents = groupByPartition(clusterKey, claimedEvents);
+
+    // A transaction must stay on one producer, so the whole batch uses the pool's first producer
+    try (ProducerLease<String, byte[]> lease = kafkaTemplateFactory.lease(clusterKey)) {
+      return lease
+          .template()
+          .executeInTransaction(
+              operations -> {
+                // Send everything first so the producer can batch, then wait for the acks. Streamed
+                // payloads are the exception: each is read, sent and acknowledged on its own so
+                // that at most one of them is held at a time.
+                List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>();
+                for (OutboxEvent event : clusterEvents) {
+                  if (event.isPayloadDeferred()) {
+                    futures.add(sendStreamed(operations, event, deadline));
+                  } else {
+                    futures.add(operations.send(buildRecord(event)));
+                  }
+                }
+
+                Map<Long, RecordMetadata> metadata = new HashMap<>();
+                for (int i = 0; i < clusterEvents.size(); i++) {
+                  metadata.put(
+                      clusterEvents.get(i).getId(), awaitSend(futures.get(i), deadline));
+                }
+                return metadata;
+              });
+    }
+  }
+
+  /**
+   * Orders the cluster's events by target topic partition, keeping per-key order, unless partition
+   * grouping is disabled.
+   */
+  private List<OutboxEvent> groupByPartition(String clusterKey, List<OutboxEvent> clusterEvents) {
+    if (!processingConfig.isPartitionGroupingEnabled()) {
+      return clusterEvents;
+    }
+    return PartitionGrouping.group(
+        clusterEvents,
+        OutboxEvent::getEventType,
+        OutboxEvent::getAggregateId,
+        topic -> kafkaTemplateFactory.partitionCount(clusterKey, topic));
+  }
+
+  /**
+   * Streams a deferred payload in, sends it and waits for the acknowledgement before releasing it,
+   * so the loop never holds more than one streamed payload.
+   */
+  private CompletableFuture<SendResult<String, byte[]>> sendStreamed(
+      KafkaOperations<String, byte[]> operations, OutboxEvent event, PublishDeadline deadline) {
+    try {
+      claimer.loadDeferredPayload(event, deadline);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new KafkaException("Interrupted while waiting to stream a payload", e);
+    }
+    try {
+      CompletableFuture<SendResult<String, byte[]>> future = operations.send(buildRecord(event));
+      awaitSend(future, deadline);
+      return future;
+    } finally {
+      claimer.releaseDeferredPayload(event);
+    }
+  }
+
+  /**
+   * Waits for a send inside the transaction, rethrowing failures, including a missed deadline, so
+   * the transaction aborts.
+   */
+  private RecordMetadata awaitSend(
+      CompletableFuture<SendResult<String, byte[]>> future, PublishDeadline deadline) {
+    try {
+      return deadline.await(future).getRecordMetadata();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new KafkaException("Interrupted while waiting for transactional send", e);
+    } catch (ExecutionException e) {
+      throw new KafkaException("Transactional send failed", e.getCause());
+    }
+  }
+
+  private ProducerRecord<String, byte[]> buildRecord(OutboxEvent event) {
+    OutboxEventClaimer.requirePayload(event);
+    // Key by aggregate id to guarantee ordering per aggregate
+    ProducerRecord<String, byte[]> producerRecord =
+        new ProducerRecord<>(event.getEventType(), event.getAggregateId(), event.getPayload());
+    OutboxHeaders.forEvent(event).forEach(producerRecord.headers()::add);
+    return producerRecord;
+  }
+
+  /**
+   * Marks the events as sent in one new database transaction. If this commit fails after the
+   * Kafka transactions committed, the events stay claimed until the lease expires and are
+   * published again; this is the remaining window for duplicates.
+   */
+  private void markSent(List<OutboxEvent> succeeded, Map<Long, RecordMetadata> receipts) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    LocalDateTime sentAt = LocalDateTime.now();
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            for (OutboxEvent event : succeeded) {
+              RecordMetadata receipt = receipts.get(event.getId());
+              outboxEventRepository.markSent(
+                  event.getId(),
+                  sentAt,
+                  receipt != null ? receipt.partition() : null,
+                  receipt != null ? receipt.offset() : null,
+                  receipt != null ? toLocalDateTime(receipt.timestamp()) : null);
+            }
+            quarantineService.releaseSent(succeeded);
+          });
+    } catch (Exception e) {
+      log.error(
+          "Published {} event(s) to Kafka but failed to mark them as sent. "
+              + "They will be re-published after the claim expires.",
+          succeeded.size(),
+          e);
+      return;
+    }
+
+    for (OutboxEvent event : succeeded) {
+      metricsService.recordPublishSuccess();
+      metricsService.recordProcessingDuration(calculateEventClaimTime(event));
+    }
+    log.info("Successfully published batch of {} event(s)", succeeded.size());
+  }
+
+  /** Hands a failed event to the failure handler, logging if the handler itself fails. */
+  private void handleFailure(OutboxEvent event, Exception exception) {
+    log.warn("Failed to publish event ID {}: {}", event.getId(), exception.getMessage());
+    try {
+      failureHandler.handleFailure(event, exception);
+    } catch (Exception handlerException) {
+      // The claim lease expires on its own, so the event is retried after the claim timeout
+      log.error(
+          "CRITICAL: Failure handler failed for event ID {}. Event will be retried after its claim"
+              + " expires.",
+          event.getId(),
+          handlerException);
+    }
+  }
+
+  private LocalDateTime calculateEventClaimTime(OutboxEvent event) {
+    if (event.getInProgressUntil() != null) {
+      return event.getInProgressUntil().minus(processingConfig.getClaimTimeout());
+    }
+    return LocalDateTime.now();
+  }
+
+  private static LocalDateTime toLocalDateTime(long epochMillis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+  }
+}
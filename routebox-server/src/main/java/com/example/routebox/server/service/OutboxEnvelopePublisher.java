@@ -0,0 +1,352 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.util.OutboxEnvelope;
+import com.example.routebox.common.util.OutboxHeaders;
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.OutboxRoutingConfig;
+import com.example.routebox.server.config.RoutingRule;
+import com.example.routebox.server.kafka.ProducerLease;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.kafka.PublishDeadlineExceededException;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import io.micrometer.observation.annotation.Observed;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Packs small events into envelope records for event types whose routing rule enables envelopes.
+ * Runs on the poller thread before the remaining events are queued for OutboxEventPublisher.
+ *
+ * <p>Events are grouped by event type and key (the aggregate id), so per-key order within a topic
+ * is the order inside the envelope. A key is left to the per-event path entirely if any of its
+ * events is too large or has no payload loaded, rather than splitting it across both paths; so is
+ * a key with a single event. A key that qualifies is enveloped entirely, so its last envelope may
+ * hold a single event. All envelopes are sent before any acknowledgement is awaited, so the
+ * producers can batch them.
+ *
+ * <p>Acknowledgements are awaited no longer than the earliest {@link PublishDeadline} of the
+ * claimed events. Envelopes not acknowledged by then are left to their claim leases rather than
+ * recorded as failed. Once the deadline has passed nothing is packed, and the per-event path drops
+ * the events.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxEnvelopePublisher {
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final DynamicKafkaTemplateFactory kafkaTemplateFactory;
+  private final OutboxRoutingConfig routingConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxFailureHandler failureHandler;
+  private final OutboxQuarantineService quarantineService;
+  private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+
+  /** Events of one envelope together with their routing rule. */
+  private record Envelope(RoutingRule rule, String topic, String key, List<OutboxEvent> events) {}
+
+  /** A send of one envelope to one cluster. */
+  private record ClusterSend(
+      Envelope envelope,
+      String clusterKey,
+      boolean required,
+      ProducerLease<String, byte[]> lease,
+      CompletableFuture<SendResult<String, byte[]>> future) {}
+
+  /**
+   * Publishes the events that qualify for envelopes and returns the rest.
+   *
+   * @param events The claimed events, with payloads loaded, in claim order
+   * @return The events to publish one by one, in claim order
+   */
+  @Observed(name = "outbox.envelope.publish", contextualName = "publish-outbox-envelopes")
+  public List<OutboxEvent> publishEnvelopes(List<OutboxEvent> events) {
+    PublishDeadline deadline =
+        PublishDeadline.earliest(events, processingConfig.getPublishDeadlineMargin());
+    if (deadline.isExpired()) {
+      return events;
+    }
+
+    // 1. Group envelope candidates by topic and key, keeping claim order
+    Map<String, List<OutboxEvent>> candidates = new LinkedHashMap<>();
+    Map<String, RoutingRule> rules = new LinkedHashMap<>();
+    for (OutboxEvent event : events) {
+      RoutingRule rule = routingConfig.getRoutingRule(event.getEventType());
+      if (rule == null || !rule.isEnvelopeEnabled()) {
+        continue;
+      }
+      String groupKey = event.getEventType() + '\u0000' + event.getAggregateId();
+      candidates.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(event);
+      rules.put(groupKey, rule);
+    }
+
+    // 2. Cut each group into envelopes; single events and groups with a large event stay out
+    List<Envelope> envelopes = new ArrayList<>();
+    Set<OutboxEvent> enveloped = Collections.newSetFromMap(new IdentityHashMap<>());
+    candidates.forEach(
+        (groupKey, group) -> {
+          RoutingRule rule = rules.get(groupKey);
+          if (group.size() < 2 || !group.stream().allMatch(e -> fitsEnvelope(e, rule))) {
+            return;
+          }
+          // Every chunk is enveloped, even a trailing single event, so the key stays on one path
+          for (List<OutboxEvent> chunk : chunk(group, rule)) {
+            OutboxEvent first = chunk.get(0);
+            envelopes.add(new Envelope(rule, first.getEventType(), first.getAggregateId(), chunk));
+            enveloped.addAll(chunk);
+          }
+        });
+    if (envelopes.isEmpty()) {
+      return events;
+    }
+    List<OutboxEvent> remaining = events.stream().filter(e -> !enveloped.contains(e)).toList();
+
+    // 3. Send every envelope to all its clusters, then wait for the acknowledgements
+    List<ClusterSend> sends = new ArrayList<>();
+    for (Envelope envelope : envelopes) {
+      ProducerRecord<String, byte[]> producerRecord = buildRecord(envelope);
+      for (String clusterKey : envelope.rule().getClusters()) {
+        sends.add(send(envelope, clusterKey, true, producerRecord));
+      }
+      for (String clusterKey : envelope.rule().getOptional()) {
+        sends.add(send(envelope, clusterKey, false, producerRecord));
+      }
+    }
+    Map<Envelope, RecordMetadata> receipts = new IdentityHashMap<>();
+    Map<Envelope, Integer> requiredSuccesses = new IdentityHashMap<>();
+    Map<Envelope, Exception> firstFailures = new IdentityHashMap<>();
+    for (ClusterSend send : sends) {
+      try {
+        RecordMetadata metadata = await(send, deadline);
+        if (send.required()) {
+          requiredSuccesses.merge(send.envelope(), 1, Integer::sum);
+          receipts.putIfAbsent(send.envelope(), metadata);
+        }
+      } catch (Exception e) {
+        if (send.required()) {
+          firstFailures.putIfAbsent(send.envelope(), e);
+          log.warn(
+              "Failed to publish envelope to required cluster '{}': {}",
+              send.clusterKey(),
+              e.getMessage());
+        } else {
+          log.warn(
+              "Failed to publish envelope to optional cluster '{}' (ignored): {}",
+              send.clusterKey(),
+              e.getMessage());
+        }
+      } finally {
+        if (send.lease() != null) {
+          send.lease().close();
+        }
+      }
+    }
+
+    // 4. Evaluate each envelope against its routing strategy
+    List<Envelope> succeeded = new ArrayList<>();
+    for (Envelope envelope : envelopes) {
+      int successes = requiredSuccesses.getOrDefault(envelope, 0);
+      RoutingRule rule = envelope.rule();
+      if (rule.getStrategy().isSatisfied(rule.getClusters().size(), successes)) {
+        succeeded.add(envelope);
+      } else if (firstFailures.get(envelope) instanceof PublishDeadlineExceededException) {
+        // Not acknowledged in time: leave the events to their leases instead of counting failures
+        metricsService.recordLeaseExpiredInFlight(envelope.events().size());
+        log.warn(
+            "Gave up envelope of {} event(s) not acknowledged before the publish deadline {}",
+            envelope.events().size(),
+            deadline.at());
+      } else {
+        String errorMsg =
+            String.format(
+                "Publishing envelope failed according to strategy %s. Required clusters: %d,"
+                    + " Successful: %d",
+                rule.getStrategy(), rule.getClusters().size(), successes);
+        Exception failure = new Exception(errorMsg, firstFailures.get(envelope));
+        envelope.events().forEach(event -> handleFailure(event, failure));
+      }
+    }
+    markSent(succeeded, receipts);
+    if (!succeeded.isEmpty() && deadline.at() != null) {
+      metricsService.recordLeaseSlack(deadline.remaining());
+    }
+    return remaining;
+  }
+
+  private boolean fitsEnvelope(OutboxEvent event, RoutingRule rule) {
+    return !event.isPayloadDeferred()
+        && event.getPayload() != null
+        && event.getPayload().length <= rule.getEnvelopeMaxEventBytes();
+  }
+
+  /** Splits a group into envelopes bounded by event count and payload bytes. */
+  private static List<List<OutboxEvent>> chunk(List<OutboxEvent> group, RoutingRule rule) {
+    List<List<OutboxEvent>> chunks = new ArrayList<>();
+    List<OutboxEvent> current = new ArrayList<>();
+    int currentBytes = 0;
+    for (OutboxEvent event : group) {
+      int bytes = event.getPayload().length;
+      if (!current.isEmpty()
+          && (current.size() >= rule.getEnvelopeMaxEvents()
+              || currentBytes + bytes > rule.getEnvelopeMaxBytes())) {
+        chunks.add(current);
+        current = new ArrayList<>();
+        currentBytes = 0;
+      }
+      current.add(event);
+      currentBytes += bytes;
+    }
+    chunks.add(current);
+    return chunks;
+  }
+
+  private ProducerRecord<String, byte[]> buildRecord(Envelope envelope) {
+    ProducerRecord<String, byte[]> producerRecord =
+        new ProducerRecord<>(
+            envelope.topic(), envelope.key(), OutboxEnvelope.encode(envelope.events()));
+    // The events share type and aggregate; the record's createdAt is the first (oldest) event's,
+    // and each entry carries its own
+    OutboxHeaders.routingHeaders(envelope.events().get(0)).forEach(producerRecord.headers()::add);
+    producerRecord
+        .headers()
+        .add(
+            OutboxHeaders.ENVELOPE,
+            String.valueOf(envelope.events().size()).getBytes(StandardCharsets.UTF_8));
+    return producerRecord;
+  }
+
+  /**
+   * Starts a send on the key's pooled producer. The lease is held until the send has been awaited,
+   * so eviction cannot close the producer mid-send.
+   */
+  private ClusterSend send(
+      Envelope envelope,
+      String clusterKey,
+      boolean required,
+      ProducerRecord<String, byte[]> producerRecord) {
+    ProducerLease<String, byte[]> lease = null;
+    try {
+      lease = kafkaTemplateFactory.lease(clusterKey, envelope.key());
+      return new ClusterSend(
+          envelope, clusterKey, required, lease, lease.template().send(producerRecord));
+    } catch (Exception e) {
+      if (lease != null) {
+        lease.close();
+      }
+      return new ClusterSend(
+          envelope, clusterKey, required, null, CompletableFuture.failedFuture(e));
+    }
+  }
+
+  private RecordMetadata await(ClusterSend send, PublishDeadline deadline) throws Exception {
+    try {
+      return deadline.await(send.future()).getRecordMetadata();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw e;
+    } catch (ExecutionException e) {
+      // Unwrap and throw the real, actionable Kafka exception
+      throw (Exception) e.getCause();
+    }
+  }
+
+  /**
+   * Marks the events of all successful envelopes as sent in one new database transaction. Every
+   * event of an envelope records the envelope's offset. If the commit fails, the events stay
+   * claimed until the lease expires and are published again.
+   */
+  private void markSent(List<Envelope> succeeded, Map<Envelope, RecordMetadata> receipts) {
+    if (succeeded.isEmpty()) {
+      return;
+    }
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    LocalDateTime sentAt = LocalDateTime.now();
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            for (Envelope envelope : succeeded) {
+              RecordMetadata receipt = receipts.get(envelope);
+              for (OutboxEvent event : envelope.events()) {
+                outboxEventRepository.markSent(
+                    event.getId(),
+                    sentAt,
+                    receipt != null ? receipt.partition() : null,
+                    receipt != null ? receipt.offset() : null,
+                    receipt != null ? toLocalDateTime(receipt.timestamp()) : null);
+              }
+              quarantineService.releaseSent(envelope.events());
+            }
+          });
+    } catch (Exception e) {
+      log.error(
+          "Published {} envelope(s) to Kafka but failed to mark their events as sent. "
+              + "They will be re-published after the claim expires.",
+          succeeded.size(),
+          e);
+      return;
+    }
+
+    int eventCount = 0;
+    for (Envelope envelope : succeeded) {
+      for (OutboxEvent event : envelope.events()) {
+        metricsService.recordPublishSuccess();
+        metricsService.recordProcessingDuration(calculateEventClaimTime(event));
+      }
+      metricsService.recordEnvelopePublished(envelope.events().size());
+      eventCount += envelope.events().size();
+    }
+    log.info("Successfully published {} event(s) in {} envelope(s)", eventCount, succeeded.size());
+  }
+
+  /** Hands a failed event to the failure handler, logging if the handler itself fails. */
+  private void handleFailure(OutboxEvent event, Exception exception) {
+    log.warn("Failed to publish event ID {}: {}", event.getId(), exception.getMessage());
+    try {
+      failureHandler.handleFailure(event, exception);
+    } catch (Exception handlerException) {
+      // The claim lease expires on its own, so the event is retried after the claim timeout
+      log.error(
+          "CRITICAL: Failure handler failed for event ID {}. Event will be retried after its claim"
+              + " expires.",
+          event.getId(),
+          handlerException);
+    }
+  }
+
+  private LocalDateTime calculateEventClaimTime(OutboxEvent event) {
+    if (event.getInProgressUntil() != null) {
+      return event.getInProgressUntil().minus(processingConfig.getClaimTimeout());
+    }
+    return LocalDateTime.now();
+  }
+
+  private static LocalDateTime toLocalDateTime(long epochMillis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+  }
+}
@@ -1,13 +1,36 @@
 package com.example.routebox.server.service;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.server.config.KafkaTransactionsConfig;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.kafka.PublishDeadlineExceededException;
 import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,12 +39,29 @@ import org.springframework.transaction.annotation.Transactional;
  * Claims pending outbox events for processing by the poller/publisher pipeline. Works with
  * OutboxEventPoller which delegates each claimed event to OutboxEventPublisher.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OutboxEventClaimer {
 
   private final OutboxEventRepository outboxEventRepository;
+  private final OutboxPayloadRepository outboxPayloadRepository;
   private final OutboxProcessingConfig processingConfig;
+  private final KafkaTransactionsConfig transactionsConfig;
+  private final JdbcTemplate jdbcTemplate;
+
+  /** Bytes of streamed payloads that may be held at the same time, across all senders. */
+  private Semaphore streamingBudget;
+  private int streamingBudgetBytes;
+
+  @PostConstruct
+  void initStreamingBudget() {
+    streamingBudgetBytes =
+        (int)
+            Math.min(
+                processingConfig.getPayloadStreamingMaxInFlight().toBytes(), Integer.MAX_VALUE);
+    streamingBudget = new Semaphore(streamingBudgetBytes, true);
+  }
 
   /** Claims events using JPA pessimistic locking with SKIP_LOCKED hint in a new transaction. */
   @Observed(name = "outbox.event.claim", contextualName = "claim-outbox-events")
@@ -32,8 +72,16 @@ public class OutboxEventClaimer {
     List<OutboxEvent> events =
         outboxEventRepository.findPendingEventsForClaim(now, pageable);
 
-    // Set claim lease using Duration
-    LocalDateTime claimUntil = now.plus(processingConfig.getClaimTimeout());
+    // In transactional mode, pull in the rest of any partially claimed write group so that
+    // events written in one database transaction are published in one Kafka transaction
+    if (transactionsConfig.isEnabled() && !events.isEmpty()) {
+      events = completeWriteGroups(events, now);
+    }
+
+    // Set claim lease using Duration, at the column's microsecond precision so that the claim
+    // held in memory matches the stored one when a failure is applied under it
+    LocalDateTime claimUntil =
+        now.plus(processingConfig.getClaimTimeout()).truncatedTo(ChronoUnit.MICROS);
     for (OutboxEvent event : events) {
       event.setInProgressUntil(claimUntil);
     }
@@ -44,4 +92,183 @@ public class OutboxEventClaimer {
 
     return events;
   }
+
+  /**
+   * Attaches the payloads of a claimed batch with one IN query. Runs after the claim transaction
+   * has committed, so the row locks are held only while scanning the narrow outbox_events rows.
+   * An event without a payload row keeps a null payload and is logged; {@link #requirePayload}
+   * fails it before anything is sent.
+   *
+   * <p>With payload streaming enabled, payloads above the streaming threshold are not read here.
+   * Their events are marked as deferred and the publisher streams each one in with {@link
+   * #loadDeferredPayload} right before sending it, so a queued batch never holds them in heap.
+   *
+   * @param events The claimed events
+   */
+  @Observed(name = "outbox.payload.load", contextualName = "load-outbox-payloads")
+  @Transactional(readOnly = true)
+  public void loadPayloads(List<OutboxEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    List<Long> eventIds = events.stream().map(OutboxEvent::getId).toList();
+    Map<Long, Integer> deferredSizes = Map.of();
+    List<OutboxPayload> loaded;
+    if (processingConfig.isPayloadStreamingEnabled()) {
+      int threshold = streamingThresholdBytes();
+      loaded = outboxPayloadRepository.findByEventIdsUpToSize(eventIds, threshold);
+      deferredSizes =
+          outboxPayloadRepository.findSizesLargerThan(eventIds, threshold).stream()
+              .collect(Collectors.toMap(row -> (Long) row[0], row -> (Integer) row[1]));
+    } else {
+      loaded = outboxPayloadRepository.findByEventIds(eventIds);
+    }
+    Map<Long, byte[]> payloads =
+        loaded.stream()
+            .collect(Collectors.toMap(OutboxPayload::getEventId, OutboxPayload::getData));
+
+    for (OutboxEvent event : events) {
+      Integer deferredBytes = deferredSizes.get(event.getId());
+      if (deferredBytes != null) {
+        event.setDeferredPayloadBytes(deferredBytes);
+        continue;
+      }
+      byte[] payload = payloads.get(event.getId());
+      if (payload == null) {
+        log.error("No payload row found for outbox event {}", event.getId());
+      }
+      event.setPayload(payload);
+    }
+  }
+
+  /**
+   * Streams a deferred payload from the database into the event. The column is read as a binary
+   * stream straight into an array of the recorded size, so the payload exists once in heap until
+   * the producer has copied it into its record batch; no intermediate String or growing buffer is
+   * involved. Waits, but no longer than the publish deadline, while other streamed payloads use up
+   * the payload-streaming-max-in-flight budget. Every call must be paired with {@link
+   * #releaseDeferredPayload}.
+   *
+   * @param event A claimed event whose payload was deferred by {@link #loadPayloads}
+   * @param deadline The event's publish deadline
+   * @throws PublishDeadlineExceededException if there is no room before the deadline
+   * @throws IllegalStateException if the payload row is missing
+   * @throws InterruptedException if interrupted while waiting for room
+   */
+  public void loadDeferredPayload(OutboxEvent event, PublishDeadline deadline)
+      throws InterruptedException {
+    if (!event.isPayloadDeferred() || event.getPayload() != null) {
+      return;
+    }
+    int size = event.getDeferredPayloadBytes();
+    int permits = permitsFor(size);
+    if (!streamingBudget.tryAcquire(
+        permits, deadline.remaining().toMillis(), TimeUnit.MILLISECONDS)) {
+      throw new PublishDeadlineExceededException(
+          "No room to stream the payload of event "
+              + event.getId()
+              + " before the publish deadline "
+              + deadline.at());
+    }
+    byte[] payload;
+    try {
+      payload =
+          jdbcTemplate.query(
+              "SELECT payload_data FROM outbox_payloads WHERE event_id = ?",
+              rs -> rs.next() ? readPayload(rs, size) : null,
+              event.getId());
+    } catch (RuntimeException e) {
+      streamingBudget.release(permits);
+      throw e;
+    }
+    if (payload == null) {
+      streamingBudget.release(permits);
+      throw missingPayload(event);
+    }
+    event.setPayload(payload);
+  }
+
+  /**
+   * Fails an event whose payload row is missing, so it takes the failure path instead of being
+   * sent. A record without a value is a tombstone, which would delete the key from compacted
+   * topics.
+   *
+   * @param event A claimed event, after {@link #loadPayloads} and, for a deferred payload, {@link
+   *     #loadDeferredPayload}
+   * @throws IllegalStateException if the event has no payload; a permanent failure by default
+   */
+  public static void requirePayload(OutboxEvent event) {
+    if (event.getPayload() == null) {
+      throw missingPayload(event);
+    }
+  }
+
+  /** Returns the failure of an event whose payload row is missing. */
+  static IllegalStateException missingPayload(OutboxEvent event) {
+    return new IllegalStateException("No payload row found for outbox event " + event.getId());
+  }
+
+  /**
+   * Drops a streamed payload from the event once it has been handed to Kafka, and gives its bytes
+   * back to the in-flight budget. Does nothing for payloads loaded with their batch.
+   *
+   * @param event An event passed to {@link #loadDeferredPayload}
+   */
+  public void releaseDeferredPayload(OutboxEvent event) {
+    if (!event.isPayloadDeferred() || event.getPayload() == null) {
+      return;
+    }
+    event.setPayload(null);
+    streamingBudget.release(permitsFor(event.getDeferredPayloadBytes()));
+  }
+
+  /** Permits for one payload, capped so a payload above the whole budget can be sent alone. */
+  private int permitsFor(int size) {
+    return Math.max(1, Math.min(size, streamingBudgetBytes));
+  }
+
+  private int streamingThresholdBytes() {
+    return (int)
+        Math.min(processingConfig.getPayloadStreamingThreshold().toBytes(), Integer.MAX_VALUE);
+  }
+
+  private static byte[] readPayload(ResultSet rs, int size) throws SQLException {
+    try (InputStream in = rs.getBinaryStream(1)) {
+      byte[] payload = new byte[size];
+      int read = in.readNBytes(payload, 0, size);
+      if (read != size || in.read() != -1) {
+        throw new IllegalStateException(
+            "Payload size does not match payload_size_bytes (" + size + ")");
+      }
+      return payload;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to stream outbox payload", e);
+    }
+  }
+
+  /**
+   * Adds the remaining claimable members of every write group present in the claimed batch. The
+   * batch may therefore exceed the configured batch size by the size of its trailing groups.
+   */
+  private List<OutboxEvent> completeWriteGroups(List<OutboxEvent> events, LocalDateTime now) {
+    Set<String> writeGroupIds =
+        events.stream()
+            .map(OutboxEvent::getWriteGroupId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    if (writeGroupIds.isEmpty()) {
+      return events;
+    }
+
+    Map<Long, OutboxEvent> claimed = new LinkedHashMap<>();
+    events.forEach(event -> claimed.put(event.getId(), event));
+    for (OutboxEvent sibling :
+        outboxEventRepository.findPendingWriteGroupMembersForClaim(writeGroupIds, now)) {
+      claimed.putIfAbsent(sibling.getId(), sibling);
+    }
+
+    List<OutboxEvent> completed = new ArrayList<>(claimed.values());
+    completed.sort(Comparator.comparing(OutboxEvent::getId));
+    return completed;
+  }
 }
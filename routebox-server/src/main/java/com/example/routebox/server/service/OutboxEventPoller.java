@@ -1,6 +1,12 @@
 package com.example.routebox.server.service;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.config.KafkaTransactionsConfig;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.OutboxRoutingConfig;
+import com.example.routebox.server.config.RoutingRule;
+import com.example.routebox.server.kafka.PartitionGrouping;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import lombok.RequiredArgsConstructor;
@@ -8,7 +14,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-/** Polls and claims pending outbox events, then adds them to the processing queue. */
+/**
+ * Polls and claims pending outbox events, then adds them to the processing queue. In Kafka
+ * transactional mode the whole claimed batch is handed to OutboxBatchPublisher instead.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -16,6 +25,12 @@ public class OutboxEventPoller {
 
   private final OutboxEventClaimer claimer;
   private final BlockingQueue<OutboxEvent> eventQueue;
+  private final OutboxBatchPublisher batchPublisher;
+  private final OutboxEnvelopePublisher envelopePublisher;
+  private final KafkaTransactionsConfig transactionsConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxRoutingConfig routingConfig;
+  private final DynamicKafkaTemplateFactory kafkaTemplateFactory;
 
   /** Polls for pending events and adds them to the queue for processing. */
   @Scheduled(
@@ -26,10 +41,26 @@ public class OutboxEventPoller {
     if (!claimedEvents.isEmpty()) {
       log.info("Claimed {} events for publishing", claimedEvents.size());
 
+      // Payloads live in their own table; fetch them for the whole batch in one query
+      claimer.loadPayloads(claimedEvents);
+
+      // Transactional mode: publish the batch atomically instead of event by event
+      if (transactionsConfig.isEnabled()) {
+        batchPublisher.publishBatch(claimedEvents);
+        return;
+      }
+
+      // Small events of types routed with envelopes are packed and sent right away
+      List<OutboxEvent> singleEvents = envelopePublisher.publishEnvelopes(claimedEvents);
+
+      // Queue the rest partition by partition, so the workers taking them fill one producer
+      // batch at a time instead of spreading the batch across all partitions
+      singleEvents = groupByPartition(singleEvents);
+
       // Add each event to the queue. This will block if the queue is full,
       // providing natural backpressure
       try {
-        for (OutboxEvent event : claimedEvents) {
+        for (OutboxEvent event : singleEvents) {
           eventQueue.put(event); // Blocks until space is available
         }
       } catch (InterruptedException e) {
@@ -39,4 +70,26 @@ public class OutboxEventPoller {
       }
     }
   }
+
+  /**
+   * Orders the events by the topic partition they are sent to on the first required cluster of
+   * their routing rule, keeping per-key order, unless partition grouping is disabled.
+   */
+  private List<OutboxEvent> groupByPartition(List<OutboxEvent> events) {
+    if (!processingConfig.isPartitionGroupingEnabled()) {
+      return events;
+    }
+    return PartitionGrouping.group(
+        events, OutboxEvent::getEventType, OutboxEvent::getAggregateId, this::partitionCount);
+  }
+
+  /** Returns the partition count of a topic on its first required cluster, or 0 if unknown. */
+  private int partitionCount(String topic) {
+    // Events are published to the topic named after their event type
+    RoutingRule rule = routingConfig.getRoutingRule(topic);
+    if (rule == null || rule.getClusters().isEmpty()) {
+      return 0;
+    }
+    return kafkaTemplateFactory.partitionCount(rule.getClusters().get(0), topic);
+  }
 }
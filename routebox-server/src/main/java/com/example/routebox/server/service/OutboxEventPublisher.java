@@ -2,11 +2,15 @@ package com.example.routebox.server.service;
 
 import com.example.routebox.common.entity.OutboxEvent;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.util.OutboxHeaders;
 import com.example.routebox.server.config.ClusterPublishingStrategy;
 import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
 import com.example.routebox.server.config.OutboxProcessingConfig;
 import com.example.routebox.server.config.OutboxRoutingConfig;
 import com.example.routebox.server.config.RoutingRule;
+import com.example.routebox.server.kafka.ProducerLease;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.kafka.PublishDeadlineExceededException;
 import com.example.routebox.server.metrics.OutboxMetricsService;
 import io.micrometer.observation.annotation.Observed;
 import io.micrometer.tracing.Tracer;
@@ -18,7 +22,6 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -27,6 +30,11 @@ import org.springframework.transaction.annotation.Transactional;
 /**
  * Publishes individual outbox events to Kafka using virtual threads. Each event is published in its
  * own transaction (REQUIRES_NEW).
+ *
+ * <p>Every send is bounded by the event's {@link PublishDeadline}, derived from its claim lease. An
+ * event whose deadline passed while it sat in the queue is not sent, and a send not acknowledged by
+ * the deadline is given up. Either way the event is left to its lease, which is about to expire, so
+ * no instance publishes it while another may already have claimed it again.
  */
 @Slf4j
 @Service
@@ -38,6 +46,7 @@ public class OutboxEventPublisher {
   private final OutboxRoutingConfig routingConfig;
   private final OutboxProcessingConfig processingConfig;
   private final OutboxFailureHandler failureHandler;
+  private final OutboxEventClaimer claimer;
   private final OutboxMetricsService metricsService;
   private final Tracer tracer;
 
@@ -45,6 +54,18 @@ public class OutboxEventPublisher {
   @Observed(name = "outbox.event.publish", contextualName = "publish-outbox-event")
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void publishEvent(OutboxEvent event) {
+    PublishDeadline deadline =
+        PublishDeadline.forEvent(event, processingConfig.getPublishDeadlineMargin());
+    if (deadline.isExpired()) {
+      metricsService.recordLeaseExpiredInQueue(1);
+      log.warn(
+          "Dropping event {}: its publish deadline {} passed while it was queued. It will be"
+              + " claimed again when its lease expires.",
+          event.getId(),
+          deadline.at());
+      return;
+    }
+
     try {
       // Add correlationId to span if present
       if (event.getCorrelationId() != null && tracer.currentSpan() != null) {
@@ -56,8 +77,15 @@ public class OutboxEventPublisher {
 
       LocalDateTime claimTime = calculateEventClaimTime(event);
 
-      // Publish to Kafka using our dynamic, routing factory
-      publishToKafka(event);
+      // Publish to Kafka using our dynamic, routing factory. A payload too large to be loaded
+      // with its batch is streamed in now and dropped as soon as the sends are acknowledged.
+      claimer.loadDeferredPayload(event, deadline);
+      try {
+        OutboxEventClaimer.requirePayload(event);
+        publishToKafka(event, deadline);
+      } finally {
+        claimer.releaseDeferredPayload(event);
+      }
 
       // Mark as sent
       event.setSentAt(LocalDateTime.now());
@@ -74,6 +102,16 @@ public class OutboxEventPublisher {
       // Record metrics
       metricsService.recordPublishSuccess();
       metricsService.recordProcessingDuration(claimTime);
+      if (deadline.at() != null) {
+        metricsService.recordLeaseSlack(deadline.remaining());
+      }
+    } catch (PublishDeadlineExceededException e) {
+      // Not a failure of the event: leave it to its lease rather than counting it against retries
+      metricsService.recordLeaseExpiredInFlight(1);
+      log.warn(
+          "Gave up publishing event {}: {}. It will be claimed again when its lease expires.",
+          event.getId(),
+          e.getMessage());
     } catch (Exception e) {
       // Re-throw as unchecked exception so it propagates to the Worker
       throw new RuntimeException("Failed to publish event", e);
@@ -96,7 +134,7 @@ public class OutboxEventPublisher {
    * multi-cluster publishing with different strategies.
    */
   @Observed(name = "outbox.kafka.publish", contextualName = "publish-to-kafka")
-  private void publishToKafka(OutboxEvent event) throws Exception {
+  private void publishToKafka(OutboxEvent event, PublishDeadline deadline) throws Exception {
     // 1. Find the routing rule for this event
     RoutingRule rule = routingConfig.getRoutingRule(event.getEventType());
     if (rule == null) {
@@ -105,10 +143,6 @@ public class OutboxEventPublisher {
           "No Kafka route found for eventType: " + event.getEventType());
     }
 
-    String topic = event.getEventType();
-    String key = event.getAggregateId(); // Guarantees ordering per aggregate
-    String payload = event.getPayload();
-
     // 2. Publish to all required clusters
     List<String> requiredClusters = rule.getClusters();
     List<String> optionalClusters = rule.getOptional();
@@ -123,16 +157,17 @@ public class OutboxEventPublisher {
     // Track successes and failures for required clusters only
     int requiredSuccessCount = 0;
     Map<String, Exception> requiredFailures = new HashMap<>();
-    Map<String, SendResult<String, String>> successfulResults = new HashMap<>();
+    Map<String, SendResult<String, byte[]>> successfulResults = new HashMap<>();
 
     // 3. Publish to required clusters
     for (String clusterKey : requiredClusters) {
       try {
-        SendResult<String, String> result =
-            publishToCluster(clusterKey, topic, key, payload, event.getCorrelationId());
+        SendResult<String, byte[]> result = publishToCluster(clusterKey, event, deadline);
         successfulResults.put(clusterKey, result);
         requiredSuccessCount++;
         log.debug("Successfully published to required cluster: {}", clusterKey);
+      } catch (PublishDeadlineExceededException e) {
+        throw e;
       } catch (Exception e) {
         requiredFailures.put(clusterKey, e);
         log.warn("Failed to publish to required cluster '{}': {}", clusterKey, e.getMessage());
@@ -144,8 +179,10 @@ public class OutboxEventPublisher {
     // success determination and metadata is captured from required clusters only
     for (String clusterKey : optionalClusters) {
       try {
-        publishToCluster(clusterKey, topic, key, payload, event.getCorrelationId());
+        publishToCluster(clusterKey, event, deadline);
         log.debug("Successfully published to optional cluster: {}", clusterKey);
+      } catch (PublishDeadlineExceededException e) {
+        throw e;
       } catch (Exception e) {
         log.warn(
             "Failed to publish to optional cluster '{}' (ignored): {}", clusterKey, e.getMessage());
@@ -154,9 +191,7 @@ public class OutboxEventPublisher {
     }
 
     // 5. Evaluate success based on strategy
-    boolean isSuccess =
-        evaluatePublishingSuccess(
-            strategy, requiredClusters.size(), requiredSuccessCount, requiredFailures);
+    boolean isSuccess = strategy.isSatisfied(requiredClusters.size(), requiredSuccessCount);
 
     if (!isSuccess) {
       // Throw the first exception to trigger retry logic
@@ -172,7 +207,7 @@ public class OutboxEventPublisher {
 
     // 6. If successful, record the receipt from the *first* successful publish
     if (isSuccess && !successfulResults.isEmpty()) {
-      SendResult<String, String> firstResult = successfulResults.values().iterator().next();
+      SendResult<String, byte[]> firstResult = successfulResults.values().iterator().next();
       var recordMetadata = firstResult.getRecordMetadata();
 
       event.setKafkaPartition(recordMetadata.partition());
@@ -184,23 +219,26 @@ public class OutboxEventPublisher {
     }
   }
 
-  /** Publishes a message to a single cluster. */
-  private SendResult<String, String> publishToCluster(
-      String clusterKey, String topic, String key, String payload, String correlationId)
-      throws Exception {
-    KafkaTemplate<String, String> template = kafkaTemplateFactory.getTemplate(clusterKey);
-
+  /** Publishes a message to a single cluster, waiting no longer than the deadline. */
+  private SendResult<String, byte[]> publishToCluster(
+      String clusterKey, OutboxEvent event, PublishDeadline deadline) throws Exception {
+    if (deadline.isExpired()) {
+      throw new PublishDeadlineExceededException(
+          "Publish deadline " + deadline.at() + " passed before sending to " + clusterKey);
+    }
+    String topic = event.getEventType();
+    String key = event.getAggregateId(); // Guarantees ordering per aggregate
     log.debug("Publishing to cluster '{}', topic '{}', key '{}'", clusterKey, topic, key);
 
-    try {
+    // Lease the pooled producer that owns this key so per-key ordering holds. The lease is held
+    // until the send is acknowledged, so eviction cannot close the producer mid-send.
+    OutboxEventClaimer.requirePayload(event);
+    try (ProducerLease<String, byte[]> lease = kafkaTemplateFactory.lease(clusterKey, key)) {
       var producerRecord =
-          new org.apache.kafka.clients.producer.ProducerRecord<>(topic, key, payload);
-      if (correlationId != null) {
-        producerRecord
-            .headers()
-            .add("correlationId", correlationId.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-      }
-      return template.send(producerRecord).get(); // .get() will throw if the send fails
+          new org.apache.kafka.clients.producer.ProducerRecord<>(topic, key, event.getPayload());
+      OutboxHeaders.forEvent(event).forEach(producerRecord.headers()::add);
+      // Throws if the send fails, or if it is not acknowledged before the deadline
+      return deadline.await(lease.template().send(producerRecord));
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw e;
@@ -209,33 +247,4 @@ public class OutboxEventPublisher {
       throw (Exception) e.getCause();
     }
   }
-
-  /**
-   * Evaluates whether publishing was successful based on the strategy.
-   *
-   * @param strategy The publishing strategy
-   * @param totalRequired Number of required clusters
-   * @param successCount Number of successful publishes to required clusters
-   * @param failures Map of failed required cluster keys to exceptions
-   * @return true if publishing meets the success criteria
-   */
-  private boolean evaluatePublishingSuccess(
-      ClusterPublishingStrategy strategy,
-      int totalRequired,
-      int successCount,
-      Map<String, Exception> failures) {
-
-    switch (strategy) {
-      case AT_LEAST_ONE:
-        // Success if at least one required cluster succeeded
-        return successCount > 0;
-
-      case ALL_MUST_SUCCEED:
-        // Success if all required clusters succeeded (no failures)
-        return failures.isEmpty();
-
-      default:
-        throw new IllegalArgumentException("Unknown strategy: " + strategy);
-    }
-  }
 }
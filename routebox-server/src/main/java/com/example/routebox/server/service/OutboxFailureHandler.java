@@ -1,31 +1,96 @@
 package com.example.routebox.server.service;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
 import com.example.routebox.server.config.OutboxProcessingConfig;
 import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import com.example.routebox.server.failure.FailureClassifier;
 import com.example.routebox.server.metrics.OutboxMetricsService;
 import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Handles permanent and transient failures for outbox events. Operates in REQUIRES_NEW transaction
  * to ensure failure recording happens independently of the publishing transaction.
+ *
+ * <p>With the failure journal enabled (outbox.processing.failure-journal-enabled), {@link
+ * #handleFailure} only classifies the failure and appends it to an in-memory journal. The journal
+ * is applied every failure-journal-flush-interval in one transaction of set-based statements:
+ * claims are released, failure counts and errors are updated per distinct error fingerprint, and
+ * exhausted events are moved to the dead-letter queue with INSERT ... SELECT plus DELETE. During a
+ * broker outage, thousands of failures then cost a handful of statements instead of thousands of
+ * read-modify-write transactions. Journaled events stay claimed until their failure is applied; if
+ * applying fails, they are retried once their claims expire.
+ *
+ * <p>Errors are recorded as references to {@link ErrorFingerprintService error fingerprints}
+ * rather than as message text on every failed and dead-lettered event.
+ *
+ * <p>An event that fails permanently but still has retries left is {@link OutboxQuarantineService
+ * quarantined} with a growing hold rather than claimed again on the next poll.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OutboxFailureHandler {
 
+  /** Keeps IN lists well below SQL Server's limit of 2100 parameters per statement. */
+  private static final int ID_CHUNK_SIZE = 1000;
+
   private final OutboxEventRepository outboxEventRepository;
+  private final OutboxPayloadRepository outboxPayloadRepository;
   private final OutboxDeadLetterEventRepository deadLetterRepository;
   private final OutboxProcessingConfig processingConfig;
   private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+  private final FailureClassifier failureClassifier;
+  private final ErrorFingerprintService errorFingerprints;
+  private final OutboxQuarantineService quarantineService;
+
+  // Serializes flushes; a ReentrantLock rather than synchronized so virtual threads do not pin
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private BlockingQueue<JournalEntry> failureJournal;
+  private TransactionTemplate failureTransaction;
+
+  /**
+   * A failure waiting in the journal, with the claim the event was published under so that the
+   * failure is not applied once that claim has expired and another instance has taken over.
+   */
+  private record JournalEntry(
+      Long eventId, boolean permanent, Long errorFingerprintId, LocalDateTime claimedUntil) {}
+
+  /** Journaled permanent failures applied with one statement. */
+  private record PermanentFailureGroup(Long errorFingerprintId, LocalDateTime claimedUntil) {}
+
+  @PostConstruct
+  void initFailureJournal() {
+    failureJournal =
+        new ArrayBlockingQueue<>(Math.max(1, processingConfig.getFailureJournalCapacity()));
+    failureTransaction = new TransactionTemplate(transactionManager);
+    failureTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
 
   /**
    * Records a permanent failure for an event. If the event has exceeded max retries, moves it to
@@ -36,6 +101,10 @@ public class OutboxFailureHandler {
    */
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void recordPermanentFailure(Long eventId, String errorMessage) {
+    recordPermanentFailure(eventId, errorFingerprints.resolve(null, errorMessage), errorMessage);
+  }
+
+  private void recordPermanentFailure(Long eventId, Long errorFingerprintId, String errorMessage) {
     OutboxEvent event =
         outboxEventRepository
             .findById(eventId)
@@ -48,7 +117,8 @@ public class OutboxFailureHandler {
     }
     currentCount++;
     event.setPermanentFailureCount(currentCount);
-    event.setLastError(errorMessage);
+    event.setLastErrorFingerprintId(errorFingerprintId);
+    errorFingerprints.recordOccurrences(errorFingerprintId, 1);
 
     log.warn(
         "Recording permanent failure #{} for event: {}. Error: {}",
@@ -63,20 +133,28 @@ public class OutboxFailureHandler {
           eventId,
           processingConfig.getMaxPermanentRetries());
 
-      OutboxDeadLetterEvent deadLetter = new OutboxDeadLetterEvent(event, errorMessage);
+      // The dead-letter row keeps its own copy of the payload
+      outboxPayloadRepository
+          .findById(eventId)
+          .map(OutboxPayload::getData)
+          .ifPresent(event::setPayload);
+      OutboxDeadLetterEvent deadLetter = new OutboxDeadLetterEvent(event, errorFingerprintId);
       deadLetterRepository.save(deadLetter);
 
-      // Delete from outbox
+      // Delete from outbox, releasing the aggregate if the event held it
       outboxEventRepository.delete(event);
+      outboxPayloadRepository.deleteByEventIds(List.of(eventId));
+      quarantineService.release(List.of(eventId));
 
       // Record metrics
       metricsService.recordDeadLetter();
 
       log.info("Event {} moved to dead-letter queue with ID: {}", eventId, deadLetter.getId());
     } else {
-      // Save the updated failure count and clear the claim for retry
+      // Save the updated failure count, clear the claim and park the event until its retry
       event.setInProgressUntil(null);
       outboxEventRepository.save(event);
+      quarantineService.quarantine(List.of(eventId));
 
       log.info(
           "Event {} will be retried. Failures: {}/{}",
@@ -95,8 +173,9 @@ public class OutboxFailureHandler {
   public void resetFailureCount(OutboxEvent event) {
     if (event.getPermanentFailureCount() != null && event.getPermanentFailureCount() > 0) {
       log.debug("Resetting failure count for event: {}", event.getId());
+      quarantineService.releaseSent(List.of(event));
       event.setPermanentFailureCount(0);
-      event.setLastError(null);
+      event.setLastErrorFingerprintId(null);
     }
   }
 
@@ -133,45 +212,195 @@ public class OutboxFailureHandler {
     metricsService.recordPublishFailure();
 
     // Determine if this is a permanent or transient failure
-    if (isPermanentFailure(exception)) {
-      // PERMANENT: Call the failure handler
+    boolean permanent = failureClassifier.isPermanent(exception);
+    if (permanent) {
       log.error(
           "Permanent failure publishing event: {}. Recording failure. Error: {}",
           event.getId(),
           exception.getMessage());
-      recordPermanentFailure(event.getId(), exception.getMessage());
     } else {
-      // TRANSIENT: Release the claim so event can be retried immediately
       log.warn(
           "Transient failure publishing event: {}. Releasing claim for re-polling. Error: {}",
           event.getId(),
           exception.getMessage());
+    }
+
+    Long errorFingerprintId = permanent ? errorFingerprints.resolve(exception) : null;
+    if (processingConfig.isFailureJournalEnabled()) {
+      journal(
+          new JournalEntry(
+              event.getId(), permanent, errorFingerprintId, event.getInProgressUntil()));
+    } else if (permanent) {
+      // PERMANENT: Call the failure handler in its own transaction
+      failureTransaction.executeWithoutResult(
+          status ->
+              recordPermanentFailure(event.getId(), errorFingerprintId, exception.getMessage()));
+    } else {
+      // TRANSIENT: Release the claim so event can be retried immediately
       releaseClaimForTransientFailure(event.getId());
     }
   }
 
   /**
-   * Classifies exceptions based on the configurable list. This method recursively checks the
-   * exception and its causes.
+   * Applies all journaled failures in one new transaction. Runs on a fixed delay, when the journal
+   * is full, and on shutdown. If the transaction fails, the failures are dropped and the events are
+   * retried after their claims expire.
+   */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.failure-journal-flush-interval:200ms}",
+      initialDelayString = "${outbox.processing.failure-journal-flush-interval:200ms}")
+  public void flushFailureJournal() {
+    flushLock.lock();
+    try {
+      List<JournalEntry> entries = new ArrayList<>();
+      failureJournal.drainTo(entries);
+      if (entries.isEmpty()) {
+        return;
+      }
+
+      Integer deadLettered;
+      try {
+        deadLettered = failureTransaction.execute(status -> applyJournal(entries));
+      } catch (RuntimeException e) {
+        log.error(
+            "CRITICAL: Failed to apply {} journaled failure(s). The events will be retried after"
+                + " their claims expire.",
+            entries.size(),
+            e);
+        return;
+      }
+      if (deadLettered != null && deadLettered > 0) {
+        metricsService.recordDeadLetters(deadLettered);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** Applies what is left in the journal before the application stops. */
+  @PreDestroy
+  void flushOnShutdown() {
+    flushFailureJournal();
+  }
+
+  /** Appends a failure to the journal, applying the journal on this thread while it is full. */
+  private void journal(JournalEntry entry) {
+    while (!failureJournal.offer(entry)) {
+      flushFailureJournal();
+    }
+  }
+
+  /**
+   * Applies a batch of journaled failures with set-based statements.
    *
-   * @param e The exception to classify
-   * @return true if the exception (or any of its causes) matches a permanent failure type
-   *     configured in the permanent-failure-exceptions list; false if it's a transient failure
+   * @return the number of events moved to the dead-letter queue
    */
-  private boolean isPermanentFailure(Throwable e) {
-    final Set<String> permanentErrors = processingConfig.getPermanentExceptionSet();
-
-    Throwable current = e;
-    while (current != null) {
-      String exceptionName = current.getClass().getName();
-      if (permanentErrors.contains(exceptionName)) {
-        return true;
+  private int applyJournal(List<JournalEntry> entries) {
+    // An event stays claimed until its failure is applied, so it is journaled at most once per
+    // flush; keep the latest entry should that ever not hold
+    Map<Long, JournalEntry> byEvent = new LinkedHashMap<>();
+    entries.forEach(entry -> byEvent.put(entry.eventId(), entry));
+
+    // A claim is shared by every event of the batch it was taken for, so grouping by claim keeps
+    // the updates set-based. An event journaled without a claim has nothing left to release.
+    Map<LocalDateTime, List<Long>> transientIdsByClaim = new LinkedHashMap<>();
+    Map<PermanentFailureGroup, List<Long>> permanentIdsByGroup = new LinkedHashMap<>();
+    int transientCount = 0;
+    for (JournalEntry entry : byEvent.values()) {
+      if (entry.claimedUntil() == null) {
+        continue;
+      }
+      if (entry.permanent()) {
+        permanentIdsByGroup
+            .computeIfAbsent(
+                new PermanentFailureGroup(entry.errorFingerprintId(), entry.claimedUntil()),
+                group -> new ArrayList<>())
+            .add(entry.eventId());
+      } else {
+        transientIdsByClaim
+            .computeIfAbsent(entry.claimedUntil(), claim -> new ArrayList<>())
+            .add(entry.eventId());
+        transientCount++;
       }
-      // Move to the cause, but stop if we hit a circular reference
-      current = (current.getCause() == current) ? null : current.getCause();
     }
 
-    // No match found in the exception chain
-    return false;
+    // 1. Transient failures: release the claims still held for immediate retry
+    transientIdsByClaim.forEach(
+        (claimedUntil, ids) -> {
+          for (List<Long> chunk : idChunks(ids)) {
+            outboxEventRepository.releaseClaims(chunk, claimedUntil);
+          }
+        });
+
+    // 2. Permanent failures: one update per distinct error and claim increments counts and
+    // releases claims. Only the events still held by the claim are locked and updated, and only
+    // they go on to steps 3 and 4, so a stale entry never touches an event another instance holds.
+    List<Long> permanentIds = new ArrayList<>();
+    permanentIdsByGroup.forEach(
+        (group, ids) -> {
+          List<Long> held = new ArrayList<>();
+          for (List<Long> chunk : idChunks(ids)) {
+            List<Long> heldChunk =
+                outboxEventRepository
+                    .findHeldByClaimForUpdate(chunk, group.claimedUntil())
+                    .stream()
+                    .map(OutboxEvent::getId)
+                    .toList();
+            if (!heldChunk.isEmpty()) {
+              outboxEventRepository.recordPermanentFailures(
+                  heldChunk, group.errorFingerprintId(), group.claimedUntil());
+              held.addAll(heldChunk);
+            }
+          }
+          if (held.size() < ids.size()) {
+            log.debug(
+                "Skipped {} journaled permanent failure(s) whose claim was lost",
+                ids.size() - held.size());
+          }
+          if (!held.isEmpty()) {
+            errorFingerprints.recordOccurrences(group.errorFingerprintId(), held.size());
+            permanentIds.addAll(held);
+          }
+        });
+
+    // 3. Events that reached the retry limit move to the dead-letter queue
+    int maxRetries = processingConfig.getMaxPermanentRetries();
+    LocalDateTime failedAt = LocalDateTime.now();
+    Set<Long> deadLetteredIds = new HashSet<>();
+    for (List<Long> chunk : idChunks(permanentIds)) {
+      List<Long> exhausted = outboxEventRepository.findIdsWithFailuresAtLeast(chunk, maxRetries);
+      if (exhausted.isEmpty()) {
+        continue;
+      }
+      deadLetterRepository.insertFromOutbox(exhausted, failedAt);
+      outboxPayloadRepository.deleteByEventIds(exhausted);
+      outboxEventRepository.deleteByIds(exhausted);
+      quarantineService.release(exhausted);
+      deadLetteredIds.addAll(exhausted);
+      log.error(
+          "Events {} exceeded max permanent retries ({}). Moved to dead-letter queue.",
+          exhausted,
+          maxRetries);
+    }
+
+    // 4. The rest are parked until their retry
+    quarantineService.quarantine(
+        permanentIds.stream().filter(id -> !deadLetteredIds.contains(id)).toList());
+
+    log.info(
+        "Applied {} journaled failure(s): {} transient, {} permanent, {} dead-lettered",
+        byEvent.size(),
+        transientCount,
+        permanentIds.size(),
+        deadLetteredIds.size());
+    return deadLetteredIds.size();
+  }
+
+  private static List<List<Long>> idChunks(List<Long> ids) {
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+      chunks.add(ids.subList(from, Math.min(ids.size(), from + ID_CHUNK_SIZE)));
+    }
+    return chunks;
   }
 }
@@ -0,0 +1,171 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxQuarantine;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxQuarantineRepository;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.QuarantinePolicy;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Parks poison events between retries. An event that fails permanently without exhausting its
+ * retries is held for quarantine-initial-hold, doubling with each further failure up to
+ * quarantine-max-hold, instead of being claimed again on the next poll. Depending on the {@link
+ * QuarantinePolicy} of its event type, later events of the same aggregate either wait for it or are
+ * published around it.
+ *
+ * <p>An entry is removed when its event is sent or dead-lettered, when an operator releases it, or
+ * by a periodic sweep for events removed from the outbox by other means.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxQuarantineService {
+
+  /** Keeps IN lists well below SQL Server's limit of 2100 parameters per statement. */
+  private static final int ID_CHUNK_SIZE = 1000;
+
+  /** Doublings after which the hold is capped anyway; keeps the shift from overflowing. */
+  private static final int MAX_DOUBLINGS = 30;
+
+  private final OutboxQuarantineRepository quarantineRepository;
+  private final OutboxEventRepository outboxEventRepository;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxMetricsService metricsService;
+
+  /**
+   * Quarantines events that just recorded a permanent failure and were not dead-lettered, or
+   * extends their hold if they are already quarantined. Runs in the caller's failure transaction.
+   *
+   * @param eventIds The failed events
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void quarantine(List<Long> eventIds) {
+    if (!processingConfig.isQuarantineEnabled() || eventIds.isEmpty()) {
+      return;
+    }
+    LocalDateTime now = LocalDateTime.now();
+    List<OutboxQuarantine> entries = new ArrayList<>();
+    for (int from = 0; from < eventIds.size(); from += ID_CHUNK_SIZE) {
+      List<Long> chunk = eventIds.subList(from, Math.min(eventIds.size(), from + ID_CHUNK_SIZE));
+      Map<Long, OutboxQuarantine> existing =
+          quarantineRepository.findByEventIds(chunk).stream()
+              .collect(Collectors.toMap(OutboxQuarantine::getEventId, Function.identity()));
+      for (OutboxEvent event : outboxEventRepository.findAllById(chunk)) {
+        OutboxQuarantine entry = existing.get(event.getId());
+        if (entry == null) {
+          entry =
+              new OutboxQuarantine(
+                  event,
+                  processingConfig.getQuarantinePolicy(event.getEventType())
+                      == QuarantinePolicy.HOLD_AGGREGATE);
+        }
+        Duration hold = holdFor(event.getPermanentFailureCount());
+        entry.setHoldUntil(now.plus(hold));
+        entries.add(entry);
+        log.warn(
+            "Quarantined event {} of aggregate {}/{} for {}{}",
+            event.getId(),
+            event.getAggregateType(),
+            event.getAggregateId(),
+            hold,
+            entry.isHoldsAggregate() ? ", holding its later events" : "");
+      }
+    }
+    quarantineRepository.saveAll(entries);
+    metricsService.recordQuarantined(entries.size());
+  }
+
+  /**
+   * Releases events that left the outbox, such as dead-lettered events. Runs in the caller's
+   * transaction.
+   *
+   * @param eventIds The events
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void release(List<Long> eventIds) {
+    for (int from = 0; from < eventIds.size(); from += ID_CHUNK_SIZE) {
+      quarantineRepository.deleteByEventIds(
+          eventIds.subList(from, Math.min(eventIds.size(), from + ID_CHUNK_SIZE)));
+    }
+  }
+
+  /**
+   * Releases sent events. Only events that failed before can be quarantined, so a batch without
+   * failures costs no statement. Runs in the caller's mark-sent transaction.
+   *
+   * @param events The sent events, as claimed
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void releaseSent(Collection<OutboxEvent> events) {
+    List<Long> failedBefore =
+        events.stream()
+            .filter(
+                event ->
+                    event.getPermanentFailureCount() != null
+                        && event.getPermanentFailureCount() > 0)
+            .map(OutboxEvent::getId)
+            .toList();
+    if (!failedBefore.isEmpty()) {
+      release(failedBefore);
+    }
+  }
+
+  /** Returns the quarantined events, those whose hold ends first first. */
+  public List<OutboxQuarantine> findQuarantined() {
+    return quarantineRepository.findAllByOrderByHoldUntilAsc();
+  }
+
+  /**
+   * Releases a quarantined event: it is claimed on the next poll, and its aggregate's later events
+   * with it.
+   *
+   * @param eventId The quarantined event
+   */
+  @Transactional
+  public void releaseQuarantine(Long eventId) {
+    if (!quarantineRepository.existsById(eventId)) {
+      throw new IllegalArgumentException("Event not quarantined: " + eventId);
+    }
+    quarantineRepository.deleteById(eventId);
+    log.info("Released event {} from quarantine", eventId);
+  }
+
+  /** Removes entries of events sent or deleted outside the publisher and updates the gauge. */
+  @Scheduled(
+      fixedDelayString = "${outbox.processing.quarantine-sweep-interval:1m}",
+      initialDelayString = "${outbox.processing.quarantine-sweep-interval:1m}")
+  @Transactional
+  public void sweepResolved() {
+    int removed = quarantineRepository.deleteResolved();
+    if (removed > 0) {
+      log.info("Removed {} quarantine entries of events no longer pending", removed);
+    }
+    metricsService.setQuarantinedEvents(quarantineRepository.count());
+  }
+
+  /** Hold after the given number of permanent failures. */
+  Duration holdFor(Integer permanentFailureCount) {
+    int failures = permanentFailureCount == null ? 1 : permanentFailureCount;
+    int doublings = Math.min(MAX_DOUBLINGS, Math.max(0, failures - 1));
+    Duration initial = processingConfig.getQuarantineInitialHold();
+    Duration max = processingConfig.getQuarantineMaxHold();
+    Duration hold = initial.multipliedBy(1L << doublings);
+    return hold.compareTo(max) > 0 ? max : hold;
+  }
+}
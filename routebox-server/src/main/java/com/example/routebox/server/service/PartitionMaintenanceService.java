@@ -0,0 +1,169 @@
+package com.example.routebox.server.service;
+
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.PartitionGranularity;
+import com.example.routebox.server.config.PartitioningConfig;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import com.example.routebox.server.partition.PartitionDialect;
+import com.example.routebox.server.partition.PartitionedTable;
+import com.example.routebox.server.repository.PayloadDeletionCandidateRepository;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service maintaining the partitions of the time-partitioned archive table.
+ * Each run creates the partitions the coming precreate-ahead periods will be written to, so rows
+ * never land in an open-ended catch-all partition, and drops the partitions whose whole range is
+ * past the table's retention period. Dropping a partition only touches metadata, so retention
+ * costs the same whether a partition holds a thousand rows or a billion.
+ *
+ * <p>Archived outbox events are kept for outbox.partitioning.archive-retention-days. Their
+ * offloaded payloads are queued for {@link OffloadedPayloadCleanupService} before their partitions
+ * are dropped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionMaintenanceService {
+
+  private final PartitioningConfig partitioningConfig;
+  private final OutboxProcessingConfig processingConfig;
+  private final OutboxMetricsService metricsService;
+  private final JdbcTemplate jdbcTemplate;
+  private final PayloadDeletionCandidateRepository candidateRepository;
+  private final ObjectProvider<PayloadStore> payloadStore;
+
+  private PartitionDialect dialect;
+
+  @PostConstruct
+  void init() {
+    if (!partitioningConfig.isEnabled()) {
+      return;
+    }
+    String productName =
+        jdbcTemplate.execute(
+            (ConnectionCallback<String>)
+                connection -> connection.getMetaData().getDatabaseProductName());
+    dialect = PartitionDialect.forDatabase(productName, jdbcTemplate);
+    log.info("Maintaining partitions of {} on {}", partitioningConfig.getTables(), productName);
+  }
+
+  /** Creates upcoming partitions and drops expired ones. Runs hourly by default. */
+  @Scheduled(fixedDelayString = "${outbox.partitioning.maintenance-interval:1h}")
+  public void maintainPartitions() {
+    if (dialect == null) {
+      return;
+    }
+    LocalDate today = LocalDate.now();
+    for (PartitionedTable table : partitioningConfig.getTables()) {
+      try {
+        if (!dialect.isPartitioned(table)) {
+          log.warn(
+              "Table {} is not partitioned; create it with the partitioned layout first",
+              table.tableName());
+          continue;
+        }
+        maintain(table, today);
+      } catch (RuntimeException e) {
+        log.error("Failed to maintain partitions of {}", table.tableName(), e);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the table's retention is handled by dropping partitions.
+   *
+   * @param table the partitioned table
+   * @return true if partitioning is enabled for the table and the table is partitioned
+   */
+  public boolean isMaintained(PartitionedTable table) {
+    return dialect != null
+        && partitioningConfig.isPartitioned(table)
+        && dialect.isPartitioned(table);
+  }
+
+  /**
+   * Creates the partitions up to precreate-ahead periods after today and drops the ones that
+   * ended before the retention period.
+   */
+  void maintain(PartitionedTable table, LocalDate today) {
+    PartitionGranularity granularity = partitioningConfig.getGranularity();
+    List<LocalDate> starts = dialect.partitionStarts(table);
+
+    // Partitions are only ever added after the last one, where their range is still empty
+    LocalDate from =
+        starts.isEmpty()
+            ? granularity.floor(today.minusDays(arrivalLagDays()))
+            : granularity.next(starts.getLast());
+    LocalDate last = granularity.floor(today);
+    for (int i = 0; i < partitioningConfig.getPrecreateAhead(); i++) {
+      last = granularity.next(last);
+    }
+    int created = 0;
+    while (!from.isAfter(last)) {
+      LocalDate to = granularity.next(from);
+      dialect.createPartition(table, from, to);
+      from = to;
+      created++;
+    }
+
+    int dropped = 0;
+    int retentionDays = partitioningConfig.getArchiveRetentionDays();
+    if (retentionDays > 0) {
+      LocalDate expiry = today.minusDays(retentionDays);
+      starts = dialect.partitionStarts(table);
+      int expired = 0;
+      while (expired < starts.size() - 1 && !starts.get(expired + 1).isAfter(expiry)) {
+        expired++;
+      }
+      if (expired > 0) {
+        queueOffloadedPayloads(table, starts.get(expired));
+      }
+      for (int i = 0; i < expired; i++) {
+        dialect.dropPartition(table, starts.get(i), starts.get(i + 1));
+        dropped++;
+      }
+    }
+
+    if (created > 0) {
+      metricsService.recordPartitionsCreated(table.tableName(), created);
+    }
+    if (dropped > 0) {
+      metricsService.recordPartitionsDropped(table.tableName(), dropped);
+    }
+    if (created > 0 || dropped > 0) {
+      log.info("Partitions of {}: created {}, dropped {}", table.tableName(), created, dropped);
+    }
+  }
+
+  /**
+   * Queues the offloaded payloads of the archived events about to be dropped. Queuing first means
+   * a failed drop only leaves candidates that are still referenced, which the cleanup keeps.
+   */
+  private void queueOffloadedPayloads(PartitionedTable table, LocalDate droppedBefore) {
+    if (table != PartitionedTable.ARCHIVE_EVENTS || payloadStore.getIfAvailable() == null) {
+      return;
+    }
+    int queued =
+        candidateRepository.queueArchivedSentBefore(
+            droppedBefore.atStartOfDay(), LocalDateTime.now());
+    log.debug(
+        "Queued {} offloaded payloads of archived events sent before {}", queued, droppedBefore);
+  }
+
+  /** Days after which rows are written to the table, counted from the date they carry. */
+  private int arrivalLagDays() {
+    // Events reach the archive once they are past the outbox retention period
+    return Math.max(0, processingConfig.getArchivalRetentionDays());
+  }
+}
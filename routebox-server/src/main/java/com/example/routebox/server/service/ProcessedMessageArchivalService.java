@@ -1,23 +1,33 @@
 package com.example.routebox.server.service;
 
-import com.example.routebox.common.entity.ProcessedMessage;
-import com.example.routebox.common.entity.ProcessedMessageArchive;
 import com.example.routebox.common.repository.ProcessedMessageArchiveRepository;
 import com.example.routebox.common.repository.ProcessedMessageRepository;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Service responsible for archiving old processed messages to prevent unbounded table growth.
  * Messages that have been processed and are older than the configured retention period are moved to
  * the archive table.
+ *
+ * <p>Messages are moved oldest first in chunks of about archival-chunk-size, each in its own short
+ * transaction: the chunk is bounded by reading the processing times of its oldest messages from the
+ * processed_at index, then moved with one INSERT ... SELECT and one set-based DELETE. No message is
+ * loaded into memory, and chunks are separated by archival-chunk-pause. Moved messages leave the
+ * table, so a run that is interrupted simply continues from the oldest message left.
  */
 @Slf4j
 @Service
@@ -27,10 +37,19 @@ public class ProcessedMessageArchivalService {
   private final ProcessedMessageRepository processedMessageRepository;
   private final ProcessedMessageArchiveRepository archiveRepository;
   private final OutboxProcessingConfig processingConfig;
+  private final OutboxMetricsService metricsService;
+  private final PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate chunkTransaction;
+
+  @PostConstruct
+  void init() {
+    chunkTransaction = new TransactionTemplate(transactionManager);
+    chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
 
   /** Archives old processed messages. Runs daily at 3 AM by default. */
   @Scheduled(cron = "${outbox.processed-messages.archival.schedule:0 0 3 * * *}")
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public void archiveOldMessages() {
     int retentionDays = processingConfig.getArchivalRetentionDays();
     if (retentionDays <= 0) {
@@ -40,7 +59,7 @@ public class ProcessedMessageArchivalService {
 
     LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
 
-    int archived = processedMessageRepository.deleteByProcessedAtBefore(cutoffTime);
+    int archived = archiveBefore(cutoffTime);
 
     if (archived > 0) {
       log.info("Archived {} processed messages older than {}", archived, cutoffTime);
@@ -55,7 +74,6 @@ public class ProcessedMessageArchivalService {
    * @param retentionDays number of days to retain processed messages before archiving
    * @return number of messages archived
    */
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public int manualArchive(final int retentionDays) {
     if (retentionDays <= 0) {
       log.warn("Invalid retention days: {}. Must be > 0", retentionDays);
@@ -63,31 +81,90 @@ public class ProcessedMessageArchivalService {
     }
 
     LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
+    log.info("Manual archival: archiving processed messages older than {}", cutoffTime);
 
-    // Find messages to archive
-    List<ProcessedMessage> messagesToArchive =
-        processedMessageRepository.findAll().stream()
-            .filter(m -> m.getProcessedAt().isBefore(cutoffTime))
-            .toList();
+    int archived = archiveBefore(cutoffTime);
 
-    if (messagesToArchive.isEmpty()) {
-      return 0;
+    log.info("Manual archival completed: {} messages archived", archived);
+    return archived;
+  }
+
+  /**
+   * Archives the messages processed before the cutoff, chunk by chunk.
+   *
+   * @return the number of messages archived
+   */
+  private int archiveBefore(LocalDateTime cutoffTime) {
+    int archived = 0;
+    Integer chunk;
+    while ((chunk = timed(() -> chunkTransaction.execute(status -> archiveChunk(cutoffTime))))
+        != null) {
+      archived += chunk;
+      if (!pauseBetweenChunks()) {
+        break;
+      }
+    }
+    metricsService.setProcessedArchivalLag(Duration.ZERO);
+    return archived;
+  }
+
+  /**
+   * Moves the oldest chunk of messages processed before the cutoff to the archive table, in one
+   * transaction.
+   *
+   * @return the number of messages archived, or null once none are left before the cutoff
+   */
+  private Integer archiveChunk(LocalDateTime cutoffTime) {
+    List<LocalDateTime> oldest =
+        processedMessageRepository.findProcessedAtBefore(
+            cutoffTime, PageRequest.of(0, processingConfig.getArchivalChunkSize()));
+    if (oldest.isEmpty()) {
+      return null;
     }
+    metricsService.setProcessedArchivalLag(Duration.between(oldest.get(0), cutoffTime));
 
-    log.info(
-        "Manual archival: archiving {} processed messages " + "older than {}",
-        messagesToArchive.size(),
-        cutoffTime);
+    // Messages sharing the last processing time all go into this chunk
+    LocalDateTime upTo = oldest.get(oldest.size() - 1);
+    int archived =
+        archiveRepository.insertFromProcessedMessages(upTo, cutoffTime, LocalDateTime.now());
+    int deleted = processedMessageRepository.deleteByProcessedAtUpTo(upTo, cutoffTime);
+    if (deleted != archived) {
+      throw new IllegalStateException(
+          "Archived " + archived + " processed messages up to " + upTo + " but deleted " + deleted);
+    }
 
-    // Move to archive
-    List<ProcessedMessageArchive> archives =
-        messagesToArchive.stream().map(ProcessedMessageArchive::new).toList();
-    archiveRepository.saveAll(archives);
+    metricsService.recordProcessedArchival(archived);
+    log.debug("Archived {} processed messages up to {}", archived, upTo);
+    return archived;
+  }
 
-    // Delete from main table
-    processedMessageRepository.deleteAll(messagesToArchive);
+  /** Runs one archival transaction and records its duration if it archived a chunk. */
+  private Integer timed(Supplier<Integer> chunk) {
+    long start = System.nanoTime();
+    Integer archived = chunk.get();
+    if (archived != null) {
+      metricsService.recordProcessedArchivalChunk(Duration.ofNanos(System.nanoTime() - start));
+    }
+    return archived;
+  }
 
-    log.info("Manual archival completed: {} messages archived", messagesToArchive.size());
-    return messagesToArchive.size();
+  /**
+   * Throttles archival between two chunks.
+   *
+   * @return false if the thread was interrupted; the next run continues where this one stopped
+   */
+  private boolean pauseBetweenChunks() {
+    Duration pause = processingConfig.getArchivalChunkPause();
+    if (pause.isZero() || pause.isNegative()) {
+      return true;
+    }
+    try {
+      Thread.sleep(pause.toMillis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Processed message archival interrupted; the next run continues from here");
+      return false;
+    }
   }
 }
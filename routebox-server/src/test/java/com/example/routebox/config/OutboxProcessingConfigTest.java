@@ -24,10 +24,9 @@ class OutboxProcessingConfigTest {
   void config_loadsDefaultPermanentFailureExceptions() {
     // Then - Defaults from application.yml should be loaded
     assertThat(config.getPermanentFailureExceptions()).isNotEmpty();
-    assertThat(config.getPermanentExceptionSet()).isNotEmpty();
 
     // Should contain the configured exceptions
-    assertThat(config.getPermanentExceptionSet())
+    assertThat(config.getPermanentFailureExceptions())
         .contains(
             "java.lang.IllegalStateException",
             "org.apache.kafka.common.errors.InvalidTopicException",
@@ -24,7 +24,7 @@ import org.springframework.test.context.TestPropertySource;
       "kafka.clusters.secure-test.bootstrap-servers=localhost:9093",
       "kafka.clusters.secure-test.ssl.bundle=kafka-client",
       "kafka.clusters.secure-test.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
-      "kafka.clusters.secure-test.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+      "kafka.clusters.secure-test.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer",
       "kafka.clusters.secure-test.producer.properties.security.protocol=SASL_SSL",
       "kafka.clusters.secure-test.producer.properties.sasl.mechanism=SCRAM-SHA-512",
       "kafka.clusters.secure-test.producer.properties.sasl.jaas.config=org.apache.kafka.common.security.scram.ScramLoginModule required username=\"producer\" password=\"producer-secret\";"
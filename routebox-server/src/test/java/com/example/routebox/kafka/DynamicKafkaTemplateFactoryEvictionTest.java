@@ -7,7 +7,6 @@ import com.example.testconfig.TestKafkaOnlyApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.context.ApplicationContext;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
@@ -21,7 +20,7 @@ import org.springframework.test.context.TestPropertySource;
     properties = {
       "kafka.clusters.eviction-test-cluster.bootstrap-servers=localhost:9092",
       "kafka.clusters.eviction-test-cluster.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
-      "kafka.clusters.eviction-test-cluster.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+      "kafka.clusters.eviction-test-cluster.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer",
       // Set reasonable eviction time (30 minutes - default)
       "outbox.kafka.factory.idle-eviction-time-minutes=30"
     })
@@ -30,8 +29,6 @@ class DynamicKafkaTemplateFactoryEvictionTest {
 
   @Autowired private DynamicKafkaTemplateFactory factory;
 
-  @Autowired private ApplicationContext applicationContext;
-
   @Test
   void testEvictionHandlesEmptyCache() {
     // Given: no templates in cache
@@ -41,7 +38,7 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     factory.evictIdleTemplates();
 
     // And: we can still create new templates afterwards
-    KafkaTemplate<String, String> template = factory.getTemplate("eviction-test-cluster");
+    KafkaTemplate<String, byte[]> template = factory.getTemplate("eviction-test-cluster");
     assertThat(template).isNotNull();
   }
 
@@ -51,17 +48,14 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     String clusterKey = "eviction-test-cluster";
 
     // When: we create a template
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
     assertThat(template).isNotNull();
 
-    // Then: the template and factory beans should exist
-    String templateBeanName = clusterKey + "-KafkaTemplate";
-    String factoryBeanName = clusterKey + "-ProducerFactory";
-    assertThat(applicationContext.containsBean(templateBeanName)).isTrue();
-    assertThat(applicationContext.containsBean(factoryBeanName)).isTrue();
+    // Then: the producer pool should be held by the registry
+    assertThat(factory.getRegistry().contains(clusterKey)).isTrue();
 
     // And: getting the template again returns the same instance
-    KafkaTemplate<String, String> sameTemplate = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> sameTemplate = factory.getTemplate(clusterKey);
     assertThat(sameTemplate).isSameAs(template);
   }
 
@@ -69,7 +63,7 @@ class DynamicKafkaTemplateFactoryEvictionTest {
   void testMultipleEvictionCallsDontCauseIssues() {
     // Given: a template exists
     String clusterKey = "eviction-test-cluster";
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
     assertThat(template).isNotNull();
 
     // When: we trigger eviction multiple times
@@ -79,8 +73,7 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     }
 
     // Then: the template should still exist (not evicted due to recent access)
-    String templateBeanName = clusterKey + "-KafkaTemplate";
-    assertThat(applicationContext.containsBean(templateBeanName))
+    assertThat(factory.getRegistry().contains(clusterKey))
         .as("Template should not be evicted if not idle long enough")
         .isTrue();
 
@@ -96,7 +89,7 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     String clusterKey = "eviction-test-cluster";
 
     // When: we create a template
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
     assertThat(template).isNotNull();
 
     // And: we start a thread that continuously accesses the template
@@ -141,29 +134,28 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     assertThat(evictionThread.isAlive()).isFalse();
 
     // And: we should still be able to get the template
-    KafkaTemplate<String, String> finalTemplate = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> finalTemplate = factory.getTemplate(clusterKey);
     assertThat(finalTemplate).isNotNull();
   }
 
   @Test
-  void testBeanNamingConvention() {
-    // Given: a cluster key
+  void testLeasedPoolIsNotEvicted() {
+    // Given: a cluster key and an open lease
     String clusterKey = "eviction-test-cluster";
 
-    // When: we create a template
-    factory.getTemplate(clusterKey);
-
-    // Then: beans should follow the naming convention
-    String templateBeanName = clusterKey + "-KafkaTemplate";
-    String factoryBeanName = clusterKey + "-ProducerFactory";
+    try (ProducerLease<String, byte[]> lease = factory.lease(clusterKey, "key-1")) {
+      // When: eviction runs with a zero idle time
+      int evicted = factory.getRegistry().evictIdle(-1);
 
-    assertThat(applicationContext.containsBean(templateBeanName))
-        .as("Template bean should follow naming convention: clusterKey-KafkaTemplate")
-        .isTrue();
+      // Then: the leased pool is kept
+      assertThat(evicted).isZero();
+      assertThat(factory.getRegistry().contains(clusterKey)).isTrue();
+      assertThat(lease.template()).isNotNull();
+    }
 
-    assertThat(applicationContext.containsBean(factoryBeanName))
-        .as("Factory bean should follow naming convention: clusterKey-ProducerFactory")
-        .isTrue();
+    // And: once released, the idle pool can be evicted
+    assertThat(factory.getRegistry().evictIdle(-1)).isEqualTo(1);
+    assertThat(factory.getRegistry().contains(clusterKey)).isFalse();
   }
 
   @Test
@@ -172,7 +164,7 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     String clusterKey = "eviction-test-cluster";
 
     // When: we create a template
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
     assertThat(template).isNotNull();
 
     // Note: We can't easily test actual eviction in a unit test without waiting
@@ -180,7 +172,6 @@ class DynamicKafkaTemplateFactoryEvictionTest {
     // if they were removed
 
     // For now, just verify the template exists
-    String templateBeanName = clusterKey + "-KafkaTemplate";
-    assertThat(applicationContext.containsBean(templateBeanName)).isTrue();
+    assertThat(factory.getRegistry().contains(clusterKey)).isTrue();
   }
 }
@@ -0,0 +1,43 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.testconfig.TestKafkaOnlyApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/** Tests that partition count lookups of DynamicKafkaTemplateFactory never block the caller. */
+@SpringBootTest(classes = TestKafkaOnlyApplication.class)
+@TestPropertySource(
+    properties = {
+      // Nothing listens here, so every metadata lookup waits for max.block.ms
+      "kafka.clusters.unreachable-cluster.bootstrap-servers=localhost:1",
+      "kafka.clusters.unreachable-cluster.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
+      "kafka.clusters.unreachable-cluster.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer",
+      "kafka.clusters.unreachable-cluster.producer.properties.max.block.ms=5000"
+    })
+@DirtiesContext
+class DynamicKafkaTemplateFactoryPartitionCountTest {
+
+  private static final String CLUSTER_KEY = "unreachable-cluster";
+
+  @Autowired private DynamicKafkaTemplateFactory factory;
+
+  @Test
+  void testPartitionCountDoesNotWaitForMissingMetadata() {
+    // When: the partition counts of several topics are asked for while metadata cannot be fetched
+    long start = System.nanoTime();
+    for (int i = 0; i < 10; i++) {
+      for (String topic : new String[] {"OrderCreated", "OrderShipped", "OrderCancelled"}) {
+        assertThat(factory.partitionCount(CLUSTER_KEY, topic)).isZero();
+      }
+    }
+
+    // Then: none of the calls waited for max.block.ms
+    assertThat(System.nanoTime() - start).isLessThan(1_000_000_000L);
+  }
+}
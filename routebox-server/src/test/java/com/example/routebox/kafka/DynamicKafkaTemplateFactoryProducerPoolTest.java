@@ -0,0 +1,67 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.testconfig.TestKafkaOnlyApplication;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/** Tests the per-cluster producer pool of DynamicKafkaTemplateFactory. */
+@SpringBootTest(classes = TestKafkaOnlyApplication.class)
+@TestPropertySource(
+    properties = {
+      "kafka.clusters.pool-test-cluster.bootstrap-servers=localhost:9092",
+      "kafka.clusters.pool-test-cluster.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
+      "kafka.clusters.pool-test-cluster.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer",
+      "kafka.clusters.pool-test-cluster.producer-pool-size=3"
+    })
+@DirtiesContext
+class DynamicKafkaTemplateFactoryProducerPoolTest {
+
+  private static final String CLUSTER_KEY = "pool-test-cluster";
+
+  @Autowired private DynamicKafkaTemplateFactory factory;
+
+  @Test
+  void testSameKeyAlwaysSelectsSameProducer() {
+    KafkaTemplate<String, byte[]> first = factory.getTemplate(CLUSTER_KEY, "order-42");
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(factory.getTemplate(CLUSTER_KEY, "order-42")).isSameAs(first);
+    }
+  }
+
+  @Test
+  void testKeysAreSpreadAcrossProducersWithDistinctClientIds() {
+    // When: many different keys are routed
+    Set<KafkaTemplate<String, byte[]>> used = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      used.add(factory.getTemplate(CLUSTER_KEY, "order-" + i));
+    }
+
+    // Then: every producer of the pool is used
+    assertThat(used).hasSize(3);
+
+    // And: each producer has its own client.id
+    Set<Object> clientIds = new HashSet<>();
+    for (KafkaTemplate<String, byte[]> template : used) {
+      Map<String, Object> config = template.getProducerFactory().getConfigurationProperties();
+      clientIds.add(config.get(ProducerConfig.CLIENT_ID_CONFIG));
+    }
+    assertThat(clientIds).hasSize(3);
+  }
+
+  @Test
+  void testNullKeyUsesFirstProducer() {
+    assertThat(factory.getTemplate(CLUSTER_KEY, null)).isSameAs(factory.getTemplate(CLUSTER_KEY));
+  }
+}
@@ -0,0 +1,81 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.testconfig.TestKafkaOnlyApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Tests to verify that KafkaTemplate instances created by DynamicKafkaTemplateFactory are held in
+ * the producer registry rather than registered in the ApplicationContext, and that leases hand out
+ * the cached instances.
+ */
+@SpringBootTest(classes = TestKafkaOnlyApplication.class)
+@TestPropertySource(
+    properties = {
+      "kafka.clusters.registry-test-cluster.bootstrap-servers=localhost:9092",
+      "kafka.clusters.registry-test-cluster.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
+      "kafka.clusters.registry-test-cluster.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer"
+    })
+@DirtiesContext
+class DynamicKafkaTemplateFactoryRegistryTest {
+
+  private static final String CLUSTER_KEY = "registry-test-cluster";
+
+  @Autowired private DynamicKafkaTemplateFactory factory;
+
+  @Autowired private ApplicationContext applicationContext;
+
+  @Test
+  void testTemplatesAreNotRegisteredAsBeans() {
+    // When: we get a template from the factory
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(CLUSTER_KEY);
+    assertThat(template).isNotNull();
+
+    // Then: nothing is registered in the ApplicationContext
+    assertThat(applicationContext.containsBean(CLUSTER_KEY + "-KafkaTemplate")).isFalse();
+    assertThat(applicationContext.containsBean(CLUSTER_KEY + "-ProducerFactory")).isFalse();
+
+    // And: the pool is held by the registry
+    assertThat(factory.getRegistry().contains(CLUSTER_KEY)).isTrue();
+  }
+
+  @Test
+  void testLeaseReturnsCachedTemplate() {
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(CLUSTER_KEY);
+
+    try (ProducerLease<String, byte[]> lease = factory.lease(CLUSTER_KEY, "order-1")) {
+      assertThat(lease.template()).isSameAs(template);
+      assertThat(factory.getRegistry().activeLeases(CLUSTER_KEY)).isEqualTo(1);
+    }
+
+    assertThat(factory.getRegistry().activeLeases(CLUSTER_KEY)).isZero();
+  }
+
+  @Test
+  void testTemplateIsInitialized() {
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(CLUSTER_KEY);
+
+    assertThat(template.getProducerFactory()).isNotNull();
+    assertThat(template.getProducerFactory().getConfigurationProperties())
+        .containsKey("bootstrap.servers");
+  }
+
+  @Test
+  void testUnknownClusterFailsFast() {
+    assertThatThrownBy(() -> factory.lease("unknown-cluster", null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("unknown-cluster");
+
+    // And: no pool is left behind for the unknown cluster
+    assertThat(factory.getRegistry().contains("unknown-cluster")).isFalse();
+  }
+}
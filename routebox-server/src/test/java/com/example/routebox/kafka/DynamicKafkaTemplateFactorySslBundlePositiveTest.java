@@ -5,6 +5,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.config.KafkaClusterProperties;
 import com.example.routebox.server.config.KafkaClustersConfig;
 import com.example.testconfig.TestKafkaOnlyApplication;
 import java.util.HashMap;
@@ -12,7 +13,6 @@ import java.util.Map;
 import org.apache.kafka.common.config.SslConfigs;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.boot.autoconfigure.kafka.SslBundleSslEngineFactory;
 import org.springframework.boot.ssl.SslBundle;
 import org.springframework.boot.ssl.SslBundles;
@@ -43,14 +43,14 @@ class DynamicKafkaTemplateFactorySslBundlePositiveTest {
     String clusterKey = "ssl-cluster";
 
     // When: we get a template from the factory
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
 
     // Then: the template should not be null
     assertThat(template).isNotNull();
 
     // And: the producer factory should have SSL bundle configuration
-    DefaultKafkaProducerFactory<String, String> producerFactory =
-        (DefaultKafkaProducerFactory<String, String>) template.getProducerFactory();
+    DefaultKafkaProducerFactory<String, byte[]> producerFactory =
+        (DefaultKafkaProducerFactory<String, byte[]>) template.getProducerFactory();
     assertThat(producerFactory).isNotNull();
 
     // And: the configuration should include SSL engine factory class
@@ -80,17 +80,17 @@ class DynamicKafkaTemplateFactorySslBundlePositiveTest {
     @Bean
     public KafkaClustersConfig kafkaClustersConfig() {
       KafkaClustersConfig config = new KafkaClustersConfig();
-      Map<String, KafkaProperties> clusters = new HashMap<>();
+      Map<String, KafkaClusterProperties> clusters = new HashMap<>();
 
       // Configure a cluster with SSL bundle
-      KafkaProperties kafkaProps = new KafkaProperties();
+      KafkaClusterProperties kafkaProps = new KafkaClusterProperties();
       kafkaProps.setBootstrapServers(java.util.Collections.singletonList("localhost:9093"));
 
       // Configure producer serializers
       Map<String, String> producerProps = new HashMap<>();
       producerProps.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
       producerProps.put(
-          "value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+          "value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
       kafkaProps.getProducer().getProperties().putAll(producerProps);
 
       // Configure SSL with bundle - using the getSsl() object which is auto-created by Spring
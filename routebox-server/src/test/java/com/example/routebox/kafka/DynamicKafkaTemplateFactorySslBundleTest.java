@@ -22,7 +22,7 @@ import org.springframework.test.context.TestPropertySource;
     properties = {
       "kafka.clusters.non-ssl-cluster.bootstrap-servers=localhost:9092",
       "kafka.clusters.non-ssl-cluster.producer.key-serializer=org.apache.kafka.common.serialization.StringSerializer",
-      "kafka.clusters.non-ssl-cluster.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer"
+      "kafka.clusters.non-ssl-cluster.producer.value-serializer=org.apache.kafka.common.serialization.ByteArraySerializer"
     })
 @DirtiesContext
 class DynamicKafkaTemplateFactorySslBundleTest {
@@ -35,14 +35,14 @@ class DynamicKafkaTemplateFactorySslBundleTest {
     String clusterKey = "non-ssl-cluster";
 
     // When: we get a template from the factory
-    KafkaTemplate<String, String> template = factory.getTemplate(clusterKey);
+    KafkaTemplate<String, byte[]> template = factory.getTemplate(clusterKey);
 
     // Then: the template should not be null
     assertThat(template).isNotNull();
 
     // And: the producer factory should not have SSL bundle configuration
-    DefaultKafkaProducerFactory<String, String> producerFactory =
-        (DefaultKafkaProducerFactory<String, String>) template.getProducerFactory();
+    DefaultKafkaProducerFactory<String, byte[]> producerFactory =
+        (DefaultKafkaProducerFactory<String, byte[]>) template.getProducerFactory();
     assertThat(producerFactory).isNotNull();
 
     // And: the configuration should NOT include SSL engine factory or SSL bundle
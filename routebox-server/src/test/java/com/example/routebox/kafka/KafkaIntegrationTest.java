@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
 import com.example.routebox.server.config.OutboxRoutingConfig;
 import com.example.testconfig.TestKafkaOnlyApplication;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
@@ -56,7 +57,7 @@ class KafkaIntegrationTest {
         () -> "org.apache.kafka.common.serialization.StringSerializer");
     registry.add(
         "kafka.clusters." + TEST_CLUSTER_KEY + ".producer.value-serializer",
-        () -> "org.apache.kafka.common.serialization.StringSerializer");
+        () -> "org.apache.kafka.common.serialization.ByteArraySerializer");
     registry.add("outbox.routing.rules." + TEST_EVENT_TYPE, () -> TEST_CLUSTER_KEY);
   }
 
@@ -102,13 +103,15 @@ class KafkaIntegrationTest {
     assertThat(rule.getClusters()).containsExactly(TEST_CLUSTER_KEY);
 
     // 2. Get the DYNAMIC template from the factory
-    KafkaTemplate<String, String> template = kafkaTemplateFactory.getTemplate(TEST_CLUSTER_KEY);
+    KafkaTemplate<String, byte[]> template = kafkaTemplateFactory.getTemplate(TEST_CLUSTER_KEY);
     assertThat(template).isNotNull();
 
     // 3. Send message
     String testKey = "order-123";
     String testValue = "{\"orderId\":123,\"status\":\"CREATED\"}";
-    template.send(TEST_TOPIC, testKey, testValue).get(10, TimeUnit.SECONDS);
+    template
+        .send(TEST_TOPIC, testKey, testValue.getBytes(StandardCharsets.UTF_8))
+        .get(10, TimeUnit.SECONDS);
 
     // 4. Receive and verify
     ConsumerRecord<String, String> received = records.poll(10, TimeUnit.SECONDS);
@@ -117,7 +120,7 @@ class KafkaIntegrationTest {
     assertThat(received.value()).isEqualTo(testValue);
 
     // 5. Verify caching
-    KafkaTemplate<String, String> cachedTemplate =
+    KafkaTemplate<String, byte[]> cachedTemplate =
         kafkaTemplateFactory.getTemplate(TEST_CLUSTER_KEY);
     assertThat(cachedTemplate).isSameAs(template);
   }
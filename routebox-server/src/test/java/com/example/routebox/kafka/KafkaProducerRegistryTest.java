@@ -0,0 +1,120 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/** Unit tests for the lease and eviction semantics of KafkaProducerRegistry. */
+class KafkaProducerRegistryTest {
+
+  private final AtomicInteger poolsCreated = new AtomicInteger();
+  private final List<KafkaTemplate<String, String>> closed = new CopyOnWriteArrayList<>();
+  private KafkaProducerRegistry<String, String> registry;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    registry =
+        new KafkaProducerRegistry<>(
+            clusterKey -> {
+              poolsCreated.incrementAndGet();
+              List<KafkaTemplate<String, String>> pool = new ArrayList<>();
+              for (int i = 0; i < 2; i++) {
+                pool.add(mock(KafkaTemplate.class));
+              }
+              return pool;
+            },
+            closed::add);
+  }
+
+  @Test
+  void leaseCreatesPoolOnceAndReusesIt() {
+    try (ProducerLease<String, String> first = registry.lease("cluster-a", "k1");
+        ProducerLease<String, String> second = registry.lease("cluster-a", "k1")) {
+      assertThat(second.template()).isSameAs(first.template());
+      assertThat(registry.activeLeases("cluster-a")).isEqualTo(2);
+    }
+
+    assertThat(poolsCreated).hasValue(1);
+    assertThat(registry.activeLeases("cluster-a")).isZero();
+  }
+
+  @Test
+  void evictionSkipsLeasedPoolAndClosesItOnceReleased() {
+    ProducerLease<String, String> lease = registry.lease("cluster-a", null);
+
+    // A leased pool is never closed, however idle
+    assertThat(registry.evictIdle(-1)).isZero();
+    assertThat(closed).isEmpty();
+
+    lease.close();
+
+    // Once unleased and idle, every producer of the pool is closed
+    assertThat(registry.evictIdle(-1)).isEqualTo(1);
+    assertThat(closed).hasSize(2);
+    assertThat(registry.contains("cluster-a")).isFalse();
+  }
+
+  @Test
+  void evictionKeepsRecentlyReleasedPool() {
+    registry.lease("cluster-a", null).close();
+
+    assertThat(registry.evictIdle(60_000)).isZero();
+    assertThat(registry.contains("cluster-a")).isTrue();
+  }
+
+  @Test
+  void leaseAfterEvictionCreatesFreshPool() {
+    KafkaTemplate<String, String> before;
+    try (ProducerLease<String, String> lease = registry.lease("cluster-a", null)) {
+      before = lease.template();
+    }
+    registry.evictIdle(-1);
+
+    try (ProducerLease<String, String> lease = registry.lease("cluster-a", null)) {
+      assertThat(lease.template()).isNotSameAs(before);
+    }
+    assertThat(poolsCreated).hasValue(2);
+  }
+
+  @Test
+  void closingLeaseTwiceReleasesOnce() {
+    ProducerLease<String, String> first = registry.lease("cluster-a", null);
+    ProducerLease<String, String> second = registry.lease("cluster-a", null);
+
+    first.close();
+    first.close();
+
+    assertThat(registry.activeLeases("cluster-a")).isEqualTo(1);
+    second.close();
+  }
+
+  @Test
+  void closeAllClosesEveryPool() {
+    registry.lease("cluster-a", null).close();
+    registry.lease("cluster-b", null).close();
+
+    registry.closeAll();
+
+    assertThat(closed).hasSize(4);
+    assertThat(registry.contains("cluster-a")).isFalse();
+    assertThat(registry.contains("cluster-b")).isFalse();
+  }
+
+  @Test
+  void sameKeyAlwaysMapsToSameSlot() {
+    int slot = KafkaProducerRegistry.selectProducer("order-42", 4);
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(KafkaProducerRegistry.selectProducer("order-42", 4)).isEqualTo(slot);
+    }
+    assertThat(slot).isBetween(0, 3);
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for grouping records by target topic partition. */
+class PartitionGroupingTest {
+
+  private record TestRecord(String topic, String key, int sequence) {}
+
+  private static List<TestRecord> group(List<TestRecord> records, Map<String, Integer> counts) {
+    return PartitionGrouping.group(
+        records, TestRecord::topic, TestRecord::key, topic -> counts.getOrDefault(topic, 0));
+  }
+
+  @Test
+  void recordsAreGroupedByPartitionKeepingPerKeyOrder() {
+    List<TestRecord> records = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      records.add(new TestRecord("orders", "key-" + (i % 12), i));
+    }
+
+    List<TestRecord> grouped = group(records, Map.of("orders", 4));
+
+    // Every partition's records are contiguous
+    assertThat(grouped).containsExactlyInAnyOrderElementsOf(records);
+    List<Integer> partitionOrder = new ArrayList<>();
+    for (TestRecord record : grouped) {
+      int partition = PartitionGrouping.partitionFor(record.key(), 4);
+      if (partitionOrder.isEmpty() || partitionOrder.getLast() != partition) {
+        assertThat(partitionOrder).doesNotContain(partition);
+        partitionOrder.add(partition);
+      }
+    }
+
+    // Records with the same key keep their claim order
+    for (int k = 0; k < 12; k++) {
+      String key = "key-" + k;
+      assertThat(grouped.stream().filter(r -> r.key().equals(key)).map(TestRecord::sequence))
+          .isSorted();
+    }
+  }
+
+  @Test
+  void partitionMatchesKafkaBuiltInPartitioner() {
+    // The producer pool selects producers with the same murmur2 hash as Kafka's partitioner
+    assertThat(PartitionGrouping.partitionFor("order-1", 12))
+        .isEqualTo(KafkaProducerRegistry.selectProducer("order-1", 12));
+    assertThat(PartitionGrouping.partitionFor(null, 12))
+        .isEqualTo(PartitionGrouping.UNKNOWN_PARTITION);
+    assertThat(PartitionGrouping.partitionFor("order-1", 0))
+        .isEqualTo(PartitionGrouping.UNKNOWN_PARTITION);
+  }
+
+  @Test
+  void unknownPartitionCountGroupsByTopicOnlyAndLooksUpEachTopicOnce() {
+    List<TestRecord> records =
+        List.of(
+            new TestRecord("a", "k1", 0),
+            new TestRecord("b", "k1", 1),
+            new TestRecord("a", "k2", 2),
+            new TestRecord("b", null, 3));
+    AtomicInteger lookups = new AtomicInteger();
+
+    List<TestRecord> grouped =
+        PartitionGrouping.group(
+            records,
+            TestRecord::topic,
+            TestRecord::key,
+            topic -> {
+              lookups.incrementAndGet();
+              return 0;
+            });
+
+    assertThat(grouped).extracting(TestRecord::sequence).containsExactly(0, 2, 1, 3);
+    assertThat(lookups).hasValue(2);
+  }
+}
@@ -0,0 +1,74 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ProducerFactory;
+
+/** Unit tests for the per-cluster batch fill and compression gauges. */
+class ProducerBatchMetricsTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ProducerBatchMetrics batchMetrics = new ProducerBatchMetrics(meterRegistry);
+
+  @SuppressWarnings("unchecked")
+  private static Producer<String, byte[]> producer(double batchSizeAvg, double compressionRate) {
+    Producer<String, byte[]> producer = mock(Producer.class);
+    Map<MetricName, Metric> metrics =
+        Map.of(
+            metricName("batch-size-avg"), metric(batchSizeAvg),
+            metricName("compression-rate-avg"), metric(compressionRate));
+    when(producer.metrics()).thenAnswer(invocation -> metrics);
+    return producer;
+  }
+
+  private static MetricName metricName(String name) {
+    return new MetricName(name, "producer-metrics", "", Map.of());
+  }
+
+  private static Metric metric(double value) {
+    Metric metric = mock(Metric.class);
+    when(metric.metricValue()).thenReturn(value);
+    return metric;
+  }
+
+  private double gauge(String name, String clusterKey) {
+    return meterRegistry.get(name).tag("cluster", clusterKey).gauge().value();
+  }
+
+  @Test
+  void gaugesAverageOverThePoolOfEachCluster() {
+    ProducerFactory.Listener<String, byte[]> slot0 = batchMetrics.listener("cluster-a", 16384);
+    ProducerFactory.Listener<String, byte[]> slot1 = batchMetrics.listener("cluster-a", 16384);
+    slot0.producerAdded("p0", producer(4096, 0.5));
+    slot1.producerAdded("p1", producer(12288, 0.25));
+
+    assertThat(gauge(ProducerBatchMetrics.BATCH_FILL, "cluster-a")).isEqualTo(0.5);
+    assertThat(gauge(ProducerBatchMetrics.COMPRESSION_RATIO, "cluster-a")).isEqualTo(1 / 0.375);
+
+    // A producer that has not sent yet reports NaN and is left out of the average
+    slot1.producerAdded("p2", producer(Double.NaN, Double.NaN));
+    assertThat(gauge(ProducerBatchMetrics.BATCH_FILL, "cluster-a")).isEqualTo(0.5);
+  }
+
+  @Test
+  void gaugesReportNaNOnceAllProducersAreClosed() {
+    ProducerFactory.Listener<String, byte[]> listener = batchMetrics.listener("cluster-b", 32768);
+    Producer<String, byte[]> producer = producer(16384, 1.0);
+    listener.producerAdded("p0", producer);
+    assertThat(gauge(ProducerBatchMetrics.BATCH_FILL, "cluster-b")).isEqualTo(0.5);
+
+    listener.producerRemoved("p0", producer);
+
+    assertThat(gauge(ProducerBatchMetrics.BATCH_FILL, "cluster-b")).isNaN();
+    assertThat(gauge(ProducerBatchMetrics.COMPRESSION_RATIO, "cluster-b")).isNaN();
+  }
+}
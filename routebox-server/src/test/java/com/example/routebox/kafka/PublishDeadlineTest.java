@@ -0,0 +1,82 @@
+package com.example.routebox.server.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for publish deadlines derived from claim leases. */
+class PublishDeadlineTest {
+
+  private static final Duration MARGIN = Duration.ofSeconds(10);
+
+  private static OutboxEvent claimedUntil(LocalDateTime leaseEnd) {
+    OutboxEvent event = new OutboxEvent("Order", "A1", "OrderCreated", "{}");
+    event.setInProgressUntil(leaseEnd);
+    return event;
+  }
+
+  @Test
+  void deadlineIsTheLeaseEndMinusTheMargin() {
+    LocalDateTime leaseEnd = LocalDateTime.now().plusMinutes(5);
+
+    PublishDeadline deadline = PublishDeadline.forEvent(claimedUntil(leaseEnd), MARGIN);
+
+    assertThat(deadline.at()).isEqualTo(leaseEnd.minus(MARGIN));
+    assertThat(deadline.isExpired()).isFalse();
+    assertThat(deadline.remaining()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(5));
+  }
+
+  @Test
+  void deadlineWithinTheMarginOfTheLeaseEndHasPassed() {
+    PublishDeadline deadline =
+        PublishDeadline.forEvent(claimedUntil(LocalDateTime.now().plusSeconds(5)), MARGIN);
+
+    assertThat(deadline.isExpired()).isTrue();
+    assertThat(deadline.remaining()).isZero();
+  }
+
+  @Test
+  void eventsWithoutALeaseHaveNoDeadline() {
+    PublishDeadline deadline = PublishDeadline.forEvent(claimedUntil(null), MARGIN);
+
+    assertThat(deadline).isEqualTo(PublishDeadline.NONE);
+    assertThat(deadline.isExpired()).isFalse();
+  }
+
+  @Test
+  void batchDeadlineIsTheEarliestOfItsEvents() {
+    LocalDateTime now = LocalDateTime.now();
+    List<OutboxEvent> events =
+        List.of(
+            claimedUntil(now.plusMinutes(5)),
+            claimedUntil(now.plusMinutes(2)),
+            claimedUntil(null));
+
+    PublishDeadline deadline = PublishDeadline.earliest(events, MARGIN);
+
+    assertThat(deadline.at()).isEqualTo(now.plusMinutes(2).minus(MARGIN));
+  }
+
+  @Test
+  void awaitReturnsAcknowledgedSends() throws Exception {
+    PublishDeadline deadline =
+        PublishDeadline.forEvent(claimedUntil(LocalDateTime.now().plusMinutes(5)), MARGIN);
+
+    assertThat(deadline.await(CompletableFuture.completedFuture("ack"))).isEqualTo("ack");
+  }
+
+  @Test
+  void awaitGivesUpOnSendsPendingAtTheDeadline() {
+    PublishDeadline deadline =
+        PublishDeadline.forEvent(claimedUntil(LocalDateTime.now().plusSeconds(11)), MARGIN);
+
+    assertThatThrownBy(() -> deadline.await(new CompletableFuture<String>()))
+        .isInstanceOf(PublishDeadlineExceededException.class);
+  }
+}
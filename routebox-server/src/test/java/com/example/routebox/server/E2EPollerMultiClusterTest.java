@@ -4,7 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
 import com.example.routebox.common.util.TimeBasedUuidGenerator;
 import com.example.routebox.test.listener.SharedTestcontainers;
 import jakarta.persistence.EntityManager;
@@ -68,6 +70,8 @@ class E2EPollerMultiClusterTest {
 
   @Autowired private OutboxEventRepository outboxEventRepository;
 
+  @Autowired private OutboxPayloadRepository outboxPayloadRepository;
+
   private KafkaMessageListenerContainer<String, String> containerOrderCreatedA;
   private KafkaMessageListenerContainer<String, String> containerInventoryAdjustedA;
   private KafkaMessageListenerContainer<String, String> containerOrderCreatedB;
@@ -173,6 +177,8 @@ class E2EPollerMultiClusterTest {
             ORDER_EVENT_TYPE,  // Use unique event type
             "{\"orderId\":\"" + orderId + "\",\"customerName\":\"Bob\",\"amount\":199.99}");
     OutboxEvent savedOrderEvent = outboxEventRepository.save(orderEvent);
+    outboxPayloadRepository.save(
+        new OutboxPayload(savedOrderEvent.getId(), orderEvent.getPayload()));
 
     // Arrange: Create InventoryAdjusted event with unique event type (should go to cluster-b)
     String itemId = "item-" + TimeBasedUuidGenerator.generate().toString();
@@ -183,6 +189,8 @@ class E2EPollerMultiClusterTest {
             INVENTORY_EVENT_TYPE,  // Use unique event type
             "{\"itemId\":\"" + itemId + "\",\"quantity\":50}");
     OutboxEvent savedInventoryEvent = outboxEventRepository.save(inventoryEvent);
+    outboxPayloadRepository.save(
+        new OutboxPayload(savedInventoryEvent.getId(), inventoryEvent.getPayload()));
 
     // Act: Wait for the poller to claim and publish both events
     await()
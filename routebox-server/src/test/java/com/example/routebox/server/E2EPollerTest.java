@@ -4,7 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
 import com.example.routebox.common.util.TimeBasedUuidGenerator;
 import com.example.routebox.test.listener.SharedTestcontainers;
 import java.time.Duration;
@@ -58,6 +60,8 @@ class E2EPollerTest {
 
   @Autowired private OutboxEventRepository outboxEventRepository;
 
+  @Autowired private OutboxPayloadRepository outboxPayloadRepository;
+
   private KafkaMessageListenerContainer<String, String> container;
   private BlockingQueue<ConsumerRecord<String, String>> records;
 
@@ -111,6 +115,7 @@ class E2EPollerTest {
             EVENT_TYPE,  // Use unique event type to avoid cross-test contamination
             "{\"orderId\":\"" + orderId + "\",\"customerName\":\"John Doe\",\"amount\":99.99}");
     OutboxEvent savedEvent = outboxEventRepository.save(event);
+    outboxPayloadRepository.save(new OutboxPayload(savedEvent.getId(), event.getPayload()));
     assertThat(savedEvent.getId()).isNotNull();
     assertThat(savedEvent.getSentAt()).isNull();
 
@@ -0,0 +1,91 @@
+package com.example.routebox.server.archival;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for the continuous archival pace controller. */
+class ArchivalPacerTest {
+
+  private static final Duration TARGET = Duration.ofMillis(200);
+  private static final Duration FAST = Duration.ofMillis(50);
+  private static final Duration SLOW = Duration.ofSeconds(1);
+
+  @Test
+  void fastChunksGrowTheChunkUpToTheMaximum() {
+    ArchivalPacer pacer = new ArchivalPacer(100, 250, TARGET);
+    assertThat(pacer.chunkSize()).isEqualTo(100);
+
+    pacer.onChunk(FAST);
+    assertThat(pacer.chunkSize()).isEqualTo(200);
+
+    pacer.onChunk(FAST);
+    assertThat(pacer.chunkSize()).isEqualTo(250);
+  }
+
+  @Test
+  void slowChunksHalveTheChunkDownToTheMinimum() {
+    ArchivalPacer pacer = new ArchivalPacer(100, 1_000, TARGET);
+    for (int i = 0; i < 5; i++) {
+      pacer.onChunk(FAST);
+    }
+    assertThat(pacer.chunkSize()).isEqualTo(600);
+
+    pacer.onChunk(SLOW);
+    assertThat(pacer.chunkSize()).isEqualTo(300);
+
+    pacer.onNoHeadroom();
+    pacer.onNoHeadroom();
+    assertThat(pacer.chunkSize()).isEqualTo(100);
+    assertThat(pacer.tryTick()).isTrue();
+  }
+
+  @Test
+  void pressureAtTheMinimumSitsOutAGrowingNumberOfTicks() {
+    ArchivalPacer pacer = new ArchivalPacer(100, 1_000, TARGET);
+
+    pacer.onNoHeadroom();
+    assertThat(idleTicks(pacer)).isEqualTo(1);
+
+    pacer.onChunk(SLOW);
+    assertThat(idleTicks(pacer)).isEqualTo(2);
+
+    pacer.onNoHeadroom();
+    assertThat(idleTicks(pacer)).isEqualTo(4);
+
+    // A fast chunk ends the backoff
+    pacer.onChunk(FAST);
+    pacer.onChunk(SLOW);
+    pacer.onNoHeadroom();
+    assertThat(idleTicks(pacer)).isEqualTo(1);
+  }
+
+  @Test
+  void backoffIsCapped() {
+    ArchivalPacer pacer = new ArchivalPacer(100, 1_000, TARGET);
+    for (int i = 0; i < 20; i++) {
+      pacer.onNoHeadroom();
+    }
+
+    assertThat(idleTicks(pacer)).isEqualTo(ArchivalPacer.MAX_BACKOFF_TICKS);
+  }
+
+  @Test
+  void rejectsInvalidChunkBounds() {
+    assertThatThrownBy(() -> new ArchivalPacer(0, 100, TARGET))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new ArchivalPacer(200, 100, TARGET))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /** Counts the ticks sat out before the pacer lets archival run again. */
+  private static int idleTicks(ArchivalPacer pacer) {
+    int idle = 0;
+    while (!pacer.tryTick()) {
+      idle++;
+    }
+    return idle;
+  }
+}
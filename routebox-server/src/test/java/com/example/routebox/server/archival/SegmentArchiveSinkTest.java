@@ -0,0 +1,260 @@
+package com.example.routebox.server.archival;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.routebox.common.entity.RbpSpec;
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for the segment file archive sink. */
+class SegmentArchiveSinkTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+  @TempDir Path directory;
+
+  private final MutableClock clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+
+  @Test
+  void appendedEventsAreFoundByAggregateAndTimeRange() {
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      append(sink, 0, 200);
+
+      List<OutboxArchiveEvent> found =
+          sink.findByAggregateId("order-7", START, START.plusHours(1));
+
+      // Every tenth event belongs to order-7, and they were created a second apart
+      assertThat(found)
+          .hasSize(20)
+          .allSatisfy(event -> assertThat(event.getAggregateId()).isEqualTo("order-7"));
+      assertThat(sink.findByAggregateId("order-7", START, START.plusSeconds(30)))
+          .extracting(OutboxArchiveEvent::getOriginalEventId)
+          .containsExactly(7L, 17L, 27L);
+      assertThat(sink.findByAggregateId("order-unknown", START, START.plusHours(1))).isEmpty();
+    }
+  }
+
+  @Test
+  void eventsRoundTripWithAllFields() {
+    OutboxArchiveEvent event = event(1);
+    event.setCorrelationId("corr-1");
+    event.setPayloadCodec("zstd");
+    event.setPayloadFormat("avro");
+    event.setPayloadSchemaId("schema-1");
+    event.setRbp(new RbpSpec("fs://sha256/abc", 42L, START));
+    event.setKafkaPartition(3);
+    event.setKafkaOffset(1234L);
+    event.setKafkaTimestamp(START.plusNanos(5_000));
+
+    try (SegmentArchiveSink sink = newSink(64 * 1024)) {
+      sink.append(0, 1, List.of(event));
+
+      OutboxArchiveEvent read =
+          sink.findByAggregateId("order-1", START, START.plusMinutes(1)).get(0);
+      assertThat(read).usingRecursiveComparison().isEqualTo(event);
+    }
+  }
+
+  @Test
+  void scanVisitsEventsOfTheTimeRangeAcrossRolledSegments() {
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      append(sink, 0, 50);
+      clock.advance(Duration.ofHours(2));
+      append(sink, 50, 100);
+    }
+    assertThat(segmentFiles()).hasSize(2);
+
+    // A restarted sink reads the segments written before
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      List<Long> scanned = new ArrayList<>();
+      sink.scan(
+          START.plusSeconds(40),
+          START.plusSeconds(60),
+          event -> scanned.add(event.getOriginalEventId()));
+
+      assertThat(scanned).containsExactlyElementsOf(LongStream.range(40, 60).boxed().toList());
+    }
+  }
+
+  @Test
+  void blocksAreCompressed() throws IOException {
+    try (SegmentArchiveSink sink = newSink(64 * 1024)) {
+      append(sink, 0, 1_000);
+    }
+
+    long rawPayloadBytes = 1_000L * payload(0).length;
+    long segmentBytes = 0;
+    for (Path segment : segmentFiles()) {
+      segmentBytes += Files.size(segment);
+    }
+    assertThat(segmentBytes).isLessThan(rawPayloadBytes / 4);
+  }
+
+  @Test
+  void appendSkipsTheEventsOfARangeItAlreadyHolds() {
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      append(sink, 0, 100);
+    }
+
+    // The archival transaction rolled back after the append and the range is archived again,
+    // together with an event sent late that was not part of the first attempt
+    List<OutboxArchiveEvent> retried = new ArrayList<>(events(0, 100));
+    retried.add(event(100));
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      sink.append(-1, 100, retried);
+
+      List<Long> scanned = new ArrayList<>();
+      sink.scan(START, START.plusHours(1), event -> scanned.add(event.getOriginalEventId()));
+      assertThat(scanned)
+          .containsExactlyElementsOf(LongStream.rangeClosed(0, 100).boxed().toList());
+    }
+  }
+
+  @Test
+  void deleteCreatedBeforeDropsExpiredSegmentsAndPassesOnTheirPayloads() {
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      sink.append(
+          -1, 1, List.of(offloaded(0, "fs://sha256/old"), offloaded(1, "fs://sha256/both")));
+      clock.advance(Duration.ofHours(2));
+      OutboxArchiveEvent recent = offloaded(7_200, "fs://sha256/both");
+      sink.append(1, 7_200, List.of(recent));
+
+      Set<String> passed = new HashSet<>();
+      int deleted = sink.deleteCreatedBefore(START.plusHours(1), passed::addAll);
+
+      assertThat(deleted).isEqualTo(2);
+      assertThat(passed).containsExactlyInAnyOrder("fs://sha256/old", "fs://sha256/both");
+      assertThat(segmentFiles()).hasSize(1);
+      assertThat(sink.referencesPayload("fs://sha256/old")).isFalse();
+      assertThat(sink.referencesPayload("fs://sha256/both")).isTrue();
+      assertThat(sink.findByAggregateId("order-0", START, START.plusHours(3)))
+          .extracting(OutboxArchiveEvent::getOriginalEventId)
+          .containsExactly(7_200L);
+
+      // The segment being appended to is kept even once its events have expired
+      assertThat(sink.deleteCreatedBefore(START.plusHours(3), uris -> {})).isZero();
+    }
+  }
+
+  @Test
+  void deleteCreatedBeforeKeepsTheSegmentsWhenQueueingTheirPayloadsFails() {
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      sink.append(-1, 0, List.of(offloaded(0, "fs://sha256/old")));
+    }
+
+    try (SegmentArchiveSink sink = newSink(1024)) {
+      assertThatThrownBy(
+              () ->
+                  sink.deleteCreatedBefore(
+                      START.plusHours(1),
+                      uris -> {
+                        throw new IllegalStateException("queue unavailable");
+                      }))
+          .isInstanceOf(IllegalStateException.class);
+
+      assertThat(segmentFiles()).hasSize(1);
+      assertThat(sink.referencesPayload("fs://sha256/old")).isTrue();
+      assertThat(sink.deleteCreatedBefore(START.plusHours(1), uris -> {})).isEqualTo(1);
+      assertThat(segmentFiles()).isEmpty();
+    }
+  }
+
+  private SegmentArchiveSink newSink(int blockSizeBytes) {
+    return new SegmentArchiveSink(directory, Duration.ofHours(1), blockSizeBytes, 3, clock);
+  }
+
+  private List<Path> segmentFiles() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.toString().endsWith(SegmentArchiveSink.SEGMENT_SUFFIX))
+          .toList();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Appends the events with ids from (inclusive) to (exclusive) as one archived range. */
+  private static void append(SegmentArchiveSink sink, int from, int to) {
+    sink.append(from - 1, to - 1, events(from, to));
+  }
+
+  /** Events with ids from (inclusive) to (exclusive), created one second apart from START. */
+  private static List<OutboxArchiveEvent> events(int from, int to) {
+    return IntStream.range(from, to).mapToObj(SegmentArchiveSinkTest::event).toList();
+  }
+
+  private static OutboxArchiveEvent event(int id) {
+    OutboxArchiveEvent event = new OutboxArchiveEvent();
+    event.setOriginalEventId((long) id);
+    event.setAggregateType("Order");
+    event.setAggregateId("order-" + id % 10);
+    event.setEventType("OrderCreated");
+    event.setPayload(payload(id));
+    event.setCreatedAt(START.plusSeconds(id));
+    event.setSentAt(START.plusSeconds(id).plusNanos(250_000));
+    event.setArchivedAt(START.plusDays(7));
+    return event;
+  }
+
+  private static OutboxArchiveEvent offloaded(int id, String uri) {
+    OutboxArchiveEvent event = event(id);
+    event.setPayload(null);
+    event.setRbp(new RbpSpec(uri, 42L, START));
+    return event;
+  }
+
+  private static byte[] payload(int id) {
+    return ("{\"orderId\":\"order-"
+            + id % 10
+            + "\",\"customer\":\"Jane Doe\",\"product\":\"Widget\",\"amount\":19.99,"
+            + "\"status\":\"CREATED\",\"notes\":\"Leave the parcel at the front door\"}")
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Clock moved forward by the test to trigger segment rolls. */
+  private static final class MutableClock extends Clock {
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
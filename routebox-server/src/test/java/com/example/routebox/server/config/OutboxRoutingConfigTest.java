@@ -237,4 +237,27 @@ class OutboxRoutingConfigTest {
     assertThat(rule).isNotNull();
     assertThat(rule.getOptional()).containsExactly("cluster-b");
   }
+
+  @Test
+  void getRoutingRule_handlesEnvelopeSettings() {
+    // Given
+    OutboxRoutingConfig config = new OutboxRoutingConfig();
+    config.setRules(
+        Map.of(
+            "StockLevelChanged",
+            Map.of(
+                "clusters", "cluster-a",
+                "envelope", Map.of("max-events", "50", "max-event-bytes", 300))));
+
+    // When
+    RoutingRule rule = config.getRoutingRule("StockLevelChanged");
+    RoutingRule plain = RoutingRule.singleCluster("cluster-a");
+
+    // Then
+    assertThat(rule.isEnvelopeEnabled()).isTrue();
+    assertThat(rule.getEnvelopeMaxEvents()).isEqualTo(50);
+    assertThat(rule.getEnvelopeMaxEventBytes()).isEqualTo(300);
+    assertThat(rule.getEnvelopeMaxBytes()).isEqualTo(64 * 1024);
+    assertThat(plain.isEnvelopeEnabled()).isFalse();
+  }
 }
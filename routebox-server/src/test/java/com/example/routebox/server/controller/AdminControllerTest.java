@@ -144,6 +144,16 @@ class AdminControllerTest {
         .andExpect(model().attribute("pendingOnly", false));
   }
 
+  @Test
+  void errorsPage_ShouldReturnErrorStatistics() throws Exception {
+    mockMvc
+        .perform(get("/admin/errors").param("limit", "10"))
+        .andExpect(status().isOk())
+        .andExpect(view().name("errors"))
+        .andExpect(model().attributeExists("errors"))
+        .andExpect(model().attribute("limit", 10));
+  }
+
   @Test
   void markUnprocessed_ShouldDeleteProcessedMessage() throws Exception {
     // Given
@@ -0,0 +1,53 @@
+package com.example.routebox.server.failure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for error message normalization and fingerprinting. */
+class ErrorFingerprintsTest {
+
+  @Test
+  void variablePartsOfMessagesAreNormalizedAway() {
+    assertThat(
+            ErrorFingerprints.normalize(
+                "Expiring 12 record(s) for orders-3:120000 ms  has passed since batch creation"))
+        .isEqualTo("Expiring ? record(s) for orders-?:? ms has passed since batch creation");
+    assertThat(
+            ErrorFingerprints.normalize(
+                "Duplicate key 0b9a3c1e-5f7d-4e2a-9c3b-8d6f1a2b3c4d at 0x7ffe12ab in deadbeef"))
+        .isEqualTo("Duplicate key ? at ? in deadbeef");
+    assertThat(ErrorFingerprints.normalize(null)).isEmpty();
+  }
+
+  @Test
+  void fingerprintDependsOnClassAndNormalizedMessage() {
+    String timeout =
+        ErrorFingerprints.fingerprint(
+            "org.apache.kafka.common.errors.TimeoutException",
+            ErrorFingerprints.normalize("Timed out after 30000 ms for event 41"));
+
+    assertThat(timeout).hasSize(64);
+    assertThat(
+            ErrorFingerprints.fingerprint(
+                "org.apache.kafka.common.errors.TimeoutException",
+                ErrorFingerprints.normalize("Timed out after 30000 ms for event 42")))
+        .isEqualTo(timeout);
+    assertThat(
+            ErrorFingerprints.fingerprint(
+                IllegalStateException.class.getName(),
+                ErrorFingerprints.normalize("Timed out after 30000 ms for event 42")))
+        .isNotEqualTo(timeout);
+  }
+
+  @Test
+  void rootCauseIsTheInnermostThrowable() {
+    IllegalStateException root = new IllegalStateException("No route");
+    Exception wrapped =
+        new RuntimeException("Failed to publish event", new ExecutionException(root));
+
+    assertThat(ErrorFingerprints.rootCause(wrapped)).isSameAs(root);
+    assertThat(ErrorFingerprints.rootCause(root)).isSameAs(root);
+  }
+}
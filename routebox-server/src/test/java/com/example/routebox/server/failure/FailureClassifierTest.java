@@ -0,0 +1,93 @@
+package com.example.routebox.server.failure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.apache.kafka.common.errors.PolicyViolationException;
+import org.apache.kafka.common.errors.TopicAuthorizationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+/** Unit tests for hierarchy-aware, cached failure classification. */
+class FailureClassifierTest {
+
+  private final OutboxProcessingConfig config = new OutboxProcessingConfig();
+  private final List<FailureClassificationRule> rules = new ArrayList<>();
+  private FailureClassifier classifier;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() {
+    ObjectProvider<FailureClassificationRule> provider = mock(ObjectProvider.class);
+    when(provider.orderedStream()).thenAnswer(invocation -> rules.stream());
+    rules.add(new KafkaErrorCodeRule(config));
+    classifier = new FailureClassifier(config, provider);
+    classifier.reload();
+  }
+
+  @Test
+  void configuredClassesMatchSubclassesAnywhereInTheCauseChain() {
+    // TopicAuthorizationException extends the configured AuthorizationException
+    Exception wrapped =
+        new RuntimeException(
+            "send failed", new ExecutionException(new TopicAuthorizationException("orders")));
+
+    assertThat(classifier.classify(wrapped)).isEqualTo(FailureClassification.PERMANENT);
+    assertThat(classifier.classify(new RuntimeException("timeout")))
+        .isEqualTo(FailureClassification.TRANSIENT);
+  }
+
+  @Test
+  void kafkaErrorCodeRuleMatchesConfiguredErrorNames() {
+    PolicyViolationException policyViolation = new PolicyViolationException("retention too long");
+
+    assertThat(classifier.isPermanent(new RuntimeException(policyViolation))).isTrue();
+
+    config.setPermanentKafkaErrors(List.of());
+    assertThat(classifier.isPermanent(new RuntimeException(policyViolation))).isFalse();
+  }
+
+  @Test
+  void rulesRunBeforeClassMatchesAndCanVetoThem() {
+    rules.add(
+        0,
+        failure ->
+            failure.getMessage() != null && failure.getMessage().contains("retry me")
+                ? FailureClassification.TRANSIENT
+                : null);
+    classifier.reload();
+
+    assertThat(classifier.classify(new IllegalStateException("retry me")))
+        .isEqualTo(FailureClassification.TRANSIENT);
+    assertThat(classifier.classify(new IllegalStateException("no route")))
+        .isEqualTo(FailureClassification.PERMANENT);
+  }
+
+  @Test
+  void reloadReplacesNamesAndRebuildsTheCache() {
+    assertThat(classifier.isPermanent(new IllegalStateException())).isTrue();
+
+    classifier.reload(List.of(IllegalArgumentException.class.getName()));
+
+    assertThat(classifier.isPermanent(new IllegalStateException())).isFalse();
+    assertThat(classifier.isPermanent(new NumberFormatException())).isTrue();
+    assertThat(config.getPermanentFailureExceptions())
+        .containsExactly(IllegalArgumentException.class.getName());
+  }
+
+  @Test
+  void selfReferencingCauseChainsTerminate() {
+    Exception first = new Exception("first");
+    Exception second = new Exception("second", first);
+    first.initCause(second);
+
+    assertThat(classifier.classify(first)).isEqualTo(FailureClassification.TRANSIENT);
+    assertThat(classifier.classify(second)).isEqualTo(FailureClassification.TRANSIENT);
+  }
+}
@@ -218,7 +218,7 @@ class OutboxMetricsServiceTest {
     event1.setCreatedAt(LocalDateTime.now());
     event1 = outboxEventRepository.save(event1);
 
-    OutboxDeadLetterEvent deadLetter1 = new OutboxDeadLetterEvent(event1, "Error 1");
+    OutboxDeadLetterEvent deadLetter1 = new OutboxDeadLetterEvent(event1, null);
     deadLetterEventRepository.save(deadLetter1);
 
     OutboxEvent event2 =
@@ -226,7 +226,7 @@ class OutboxMetricsServiceTest {
     event2.setCreatedAt(LocalDateTime.now());
     event2 = outboxEventRepository.save(event2);
 
-    OutboxDeadLetterEvent deadLetter2 = new OutboxDeadLetterEvent(event2, "Error 2");
+    OutboxDeadLetterEvent deadLetter2 = new OutboxDeadLetterEvent(event2, null);
     deadLetterEventRepository.save(deadLetter2);
 
     OutboxEvent event3 =
@@ -234,7 +234,7 @@ class OutboxMetricsServiceTest {
     event3.setCreatedAt(LocalDateTime.now());
     event3 = outboxEventRepository.save(event3);
 
-    OutboxDeadLetterEvent deadLetter3 = new OutboxDeadLetterEvent(event3, "Error 3");
+    OutboxDeadLetterEvent deadLetter3 = new OutboxDeadLetterEvent(event3, null);
     deadLetterEventRepository.save(deadLetter3);
 
     // Update metrics
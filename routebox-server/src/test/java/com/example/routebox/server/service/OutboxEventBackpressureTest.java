@@ -11,6 +11,7 @@ import com.example.routebox.common.repository.OutboxEventRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
 import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.kafka.ProducerLease;
 import com.example.routebox.test.listener.SharedTestcontainers;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -59,7 +60,7 @@ class OutboxEventBackpressureTest {
   @MockitoBean private DynamicKafkaTemplateFactory kafkaTemplateFactory;
   @MockitoBean private OutboxEventPublisher publisher;
 
-  private KafkaTemplate<String, String> mockTemplate;
+  private KafkaTemplate<String, byte[]> mockTemplate;
 
   @BeforeEach
   void setUp() {
@@ -76,7 +77,8 @@ class OutboxEventBackpressureTest {
 
     // Set up mock Kafka template
     mockTemplate = Mockito.mock(KafkaTemplate.class);
-    Mockito.when(kafkaTemplateFactory.getTemplate(any())).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(any(), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // Mock successful Kafka send
     RecordMetadata metadata =
@@ -88,9 +90,9 @@ class OutboxEventBackpressureTest {
             0, // serialized key size
             0 // serialized value size
             );
-    ProducerRecord<String, String> producerRecord =
-        new ProducerRecord<>("test-topic", "key", "payload");
-    SendResult<String, String> sendResult = new SendResult<>(producerRecord, metadata);
+    ProducerRecord<String, byte[]> producerRecord =
+        new ProducerRecord<>("test-topic", "key", new byte[0]);
+    SendResult<String, byte[]> sendResult = new SendResult<>(producerRecord, metadata);
 
     Mockito.when(mockTemplate.send(any(ProducerRecord.class)))
         .thenReturn(CompletableFuture.completedFuture(sendResult));
@@ -0,0 +1,92 @@
+package com.example.routebox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.server.config.KafkaTransactionsConfig;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.kafka.PublishDeadlineExceededException;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.util.unit.DataSize;
+
+/** Unit tests for streaming deferred payloads within the in-flight budget. */
+class OutboxEventClaimerStreamingTest {
+
+  private static final int BUDGET_BYTES = 1024;
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private OutboxEventClaimer claimer;
+
+  @BeforeEach
+  void setUp() {
+    OutboxProcessingConfig processingConfig = new OutboxProcessingConfig();
+    processingConfig.setPayloadStreamingMaxInFlight(DataSize.ofBytes(BUDGET_BYTES));
+    claimer =
+        new OutboxEventClaimer(
+            mock(OutboxEventRepository.class),
+            mock(OutboxPayloadRepository.class),
+            processingConfig,
+            new KafkaTransactionsConfig(),
+            jdbcTemplate);
+    claimer.initStreamingBudget();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void payloadRowReturns(byte[] payload) {
+    when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(Object[].class)))
+        .thenReturn(payload);
+  }
+
+  private static OutboxEvent deferred(long id) {
+    OutboxEvent event = new OutboxEvent("Order", "A" + id, "OrderCreated", null, (byte[]) null);
+    event.setId(id);
+    event.setDeferredPayloadBytes(BUDGET_BYTES);
+    return event;
+  }
+
+  private static PublishDeadline inMillis(long millis) {
+    return new PublishDeadline(LocalDateTime.now().plusNanos(millis * 1_000_000));
+  }
+
+  @Test
+  void loadDeferredPayload_givesUpAtTheDeadlineWhileTheBudgetIsInUse() throws Exception {
+    payloadRowReturns(new byte[BUDGET_BYTES]);
+    OutboxEvent held = deferred(1);
+    claimer.loadDeferredPayload(held, PublishDeadline.NONE);
+
+    // The first payload holds the whole budget until it is released
+    OutboxEvent waiting = deferred(2);
+    assertThatThrownBy(() -> claimer.loadDeferredPayload(waiting, inMillis(100)))
+        .isInstanceOf(PublishDeadlineExceededException.class);
+    assertThat(waiting.getPayload()).isNull();
+
+    claimer.releaseDeferredPayload(held);
+    claimer.loadDeferredPayload(waiting, inMillis(100));
+    assertThat(waiting.getPayload()).hasSize(BUDGET_BYTES);
+  }
+
+  @Test
+  void loadDeferredPayload_failsTheEventWhenItsPayloadRowIsMissing() throws Exception {
+    payloadRowReturns(null);
+
+    assertThatThrownBy(() -> claimer.loadDeferredPayload(deferred(1), PublishDeadline.NONE))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("No payload row found for outbox event 1");
+
+    // The budget taken for the missing payload was given back
+    payloadRowReturns(new byte[BUDGET_BYTES]);
+    claimer.loadDeferredPayload(deferred(2), inMillis(100));
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.routebox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.config.PartitionGranularity;
+import com.example.routebox.server.config.PartitioningConfig;
+import com.example.routebox.server.metrics.OutboxMetricsService;
+import com.example.routebox.server.partition.PartitionDialect;
+import com.example.routebox.server.partition.PartitionedTable;
+import com.example.routebox.server.repository.PayloadDeletionCandidateRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/** Unit tests for partition maintenance, on the H2 fallback dialect. */
+class PartitionMaintenanceServiceTest {
+
+  /** A Wednesday. */
+  private static final LocalDate TODAY = LocalDate.of(2026, 3, 11);
+
+  private final PartitioningConfig partitioningConfig = new PartitioningConfig();
+  private final OutboxProcessingConfig processingConfig = new OutboxProcessingConfig();
+  private final OutboxMetricsService metricsService = mock(OutboxMetricsService.class);
+  private final PayloadDeletionCandidateRepository candidateRepository =
+      mock(PayloadDeletionCandidateRepository.class);
+
+  @SuppressWarnings("unchecked")
+  private final ObjectProvider<PayloadStore> payloadStore = mock(ObjectProvider.class);
+
+  private JdbcTemplate jdbcTemplate;
+  private PartitionMaintenanceService service;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate =
+        new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:partitions;DB_CLOSE_DELAY=-1", "sa", ""));
+    jdbcTemplate.execute(
+        "CREATE TABLE outbox_archive_events ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+            + "correlation_id VARCHAR(255), "
+            + "rbp_uri VARCHAR(1024), "
+            + "sent_at TIMESTAMP(6) NOT NULL)");
+
+    partitioningConfig.setEnabled(true);
+    partitioningConfig.setPrecreateAhead(2);
+    partitioningConfig.setArchiveRetentionDays(7);
+    processingConfig.setArchivalRetentionDays(7);
+    service =
+        new PartitionMaintenanceService(
+            partitioningConfig,
+            processingConfig,
+            metricsService,
+            jdbcTemplate,
+            candidateRepository,
+            payloadStore);
+    service.init();
+  }
+
+  @AfterEach
+  void tearDown() {
+    jdbcTemplate.execute("DROP TABLE outbox_archive_events");
+  }
+
+  @Test
+  void maintain_precreatesPartitionsAheadOfToday() {
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+
+    // From the outbox retention period before today up to two days after it
+    assertThat(service.isMaintained(PartitionedTable.ARCHIVE_EVENTS)).isTrue();
+    verify(metricsService).recordPartitionsCreated("outbox_archive_events", 10);
+  }
+
+  @Test
+  void maintain_dropsPartitionsPastTheRetentionPeriodWithTheirRows() {
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+    insertSentAt("before-first-partition", TODAY.minusDays(12));
+    insertSentAt("first-partition", TODAY.minusDays(7));
+    insertSentAt("in-two-days", TODAY.plusDays(2));
+
+    // Eight days later the partitions up to today's end before the retention period
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY.plusDays(8));
+
+    assertThat(correlationIds()).containsExactly("in-two-days");
+    verify(metricsService).recordPartitionsDropped("outbox_archive_events", 8);
+  }
+
+  @Test
+  void maintain_startsArchivePartitionsAtTheOutboxRetentionPeriod() {
+    partitioningConfig.setGranularity(PartitionGranularity.WEEKLY);
+    partitioningConfig.setPrecreateAhead(1);
+
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+
+    // Events are archived 7 days after they were sent: from the week of Monday 2 March on
+    verify(metricsService).recordPartitionsCreated("outbox_archive_events", 3);
+  }
+
+  @Test
+  void maintain_queuesOffloadedPayloadsBeforeDroppingArchivePartitions() {
+    when(payloadStore.getIfAvailable()).thenReturn(mock(PayloadStore.class));
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+    jdbcTemplate.update(
+        "INSERT INTO outbox_archive_events (rbp_uri, sent_at) VALUES ('fs://sha256/ab', ?)",
+        TODAY.minusDays(7).atTime(12, 0));
+
+    // Two weeks later the first partitions end before the retention period
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY.plusDays(14));
+
+    InOrder order = inOrder(candidateRepository, metricsService);
+    order
+        .verify(candidateRepository)
+        .queueArchivedSentBefore(eq(TODAY.plusDays(7).atStartOfDay()), any(LocalDateTime.class));
+    order.verify(metricsService).recordPartitionsDropped("outbox_archive_events", 14);
+  }
+
+  @Test
+  void maintain_queuesNoPayloadsWithoutAPayloadStore() {
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY);
+    service.maintain(PartitionedTable.ARCHIVE_EVENTS, TODAY.plusDays(8));
+
+    verify(candidateRepository, never()).queueArchivedSentBefore(any(), any());
+  }
+
+  @Test
+  void dialectIsRejectedForDatabasesWithoutPartitioning() {
+    assertThatThrownBy(() -> PartitionDialect.forDatabase("MySQL", jdbcTemplate))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("MySQL");
+  }
+
+  @Test
+  void granularityFloorsToTheStartOfItsPeriod() {
+    assertThat(PartitionGranularity.DAILY.floor(TODAY)).isEqualTo(TODAY);
+    assertThat(PartitionGranularity.WEEKLY.floor(TODAY)).isEqualTo(LocalDate.of(2026, 3, 9));
+    assertThat(PartitionGranularity.WEEKLY.next(LocalDate.of(2026, 3, 9)))
+        .isEqualTo(LocalDate.of(2026, 3, 16));
+  }
+
+  private void insertSentAt(String correlationId, LocalDate date) {
+    jdbcTemplate.update(
+        "INSERT INTO outbox_archive_events (correlation_id, sent_at) VALUES (?, ?)",
+        correlationId,
+        date.atTime(12, 0));
+  }
+
+  private List<String> correlationIds() {
+    return jdbcTemplate.queryForList(
+        "SELECT correlation_id FROM outbox_archive_events ORDER BY id", String.class);
+  }
+}
@@ -1,6 +1,7 @@
 package com.example.routebox.server.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
 import com.example.routebox.common.entity.OutboxEvent;
@@ -22,6 +23,7 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import com.example.routebox.server.kafka.ProducerLease;
 import com.example.routebox.test.listener.SharedTestcontainers;
 
 /** Tests for correlation ID functionality in OutboxEventPublisher. */
@@ -45,7 +47,7 @@ class CorrelationIdTest {
   }
 
   /** Helper method to create a mock SendResult with RecordMetadata */
-  private SendResult<String, String> createMockSendResult(
+  private SendResult<String, byte[]> createMockSendResult(
       String topic, int partition, long offset) {
     TopicPartition topicPartition = new TopicPartition(topic, partition);
     RecordMetadata recordMetadata =
@@ -57,7 +59,7 @@ class CorrelationIdTest {
             0, // serialized key size
             0 // serialized value size
             );
-    ProducerRecord<String, String> producerRecord = new ProducerRecord<>(topic, "key", "value");
+    ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, "key", new byte[0]);
     return new SendResult<>(producerRecord, recordMetadata);
   }
 
@@ -69,16 +71,17 @@ class CorrelationIdTest {
     event = outboxEventRepository.save(event);
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> future =
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // Capture the ProducerRecord
     @SuppressWarnings("unchecked")
-    ArgumentCaptor<ProducerRecord<String, String>> recordCaptor =
+    ArgumentCaptor<ProducerRecord<String, byte[]>> recordCaptor =
         ArgumentCaptor.forClass(ProducerRecord.class);
     Mockito.when(mockTemplate.send(recordCaptor.capture())).thenReturn(future);
 
@@ -86,11 +89,11 @@ class CorrelationIdTest {
     publisher.publishEvent(event);
 
     // Then
-    ProducerRecord<String, String> capturedRecord = recordCaptor.getValue();
+    ProducerRecord<String, byte[]> capturedRecord = recordCaptor.getValue();
     assertThat(capturedRecord).isNotNull();
     assertThat(capturedRecord.topic()).isEqualTo("OrderCreated");
     assertThat(capturedRecord.key()).isEqualTo("A1");
-    assertThat(capturedRecord.value()).isEqualTo("{}");
+    assertThat(new String(capturedRecord.value(), StandardCharsets.UTF_8)).isEqualTo("{}");
 
     // Verify correlation ID is in headers
     byte[] headerValue = capturedRecord.headers().lastHeader("correlationId").value();
@@ -109,15 +112,16 @@ class CorrelationIdTest {
     event = outboxEventRepository.save(event);
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> future =
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     @SuppressWarnings("unchecked")
-    ArgumentCaptor<ProducerRecord<String, String>> recordCaptor =
+    ArgumentCaptor<ProducerRecord<String, byte[]>> recordCaptor =
         ArgumentCaptor.forClass(ProducerRecord.class);
     Mockito.when(mockTemplate.send(recordCaptor.capture())).thenReturn(future);
 
@@ -125,7 +129,7 @@ class CorrelationIdTest {
     publisher.publishEvent(event);
 
     // Then
-    ProducerRecord<String, String> capturedRecord = recordCaptor.getValue();
+    ProducerRecord<String, byte[]> capturedRecord = recordCaptor.getValue();
     assertThat(capturedRecord).isNotNull();
 
     // Verify no correlation ID header
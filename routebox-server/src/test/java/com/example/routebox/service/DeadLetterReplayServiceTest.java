@@ -0,0 +1,166 @@
+package com.example.routebox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.server.RouteBoxServerApplication;
+import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.DeadLetterReplayJob;
+import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import com.example.routebox.server.repository.DeadLetterReplayJobRepository;
+import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import com.example.routebox.test.listener.SharedTestcontainers;
+
+/** Tests for replaying dead-letter events back into the outbox. */
+@SpringBootTest(classes = RouteBoxServerApplication.class)
+@Testcontainers
+class DeadLetterReplayServiceTest {
+
+  static {
+    SharedTestcontainers.ensureInitialized();
+  }
+
+  @Autowired OutboxEventRepository outboxEventRepository;
+
+  @Autowired OutboxPayloadRepository outboxPayloadRepository;
+
+  @Autowired OutboxDeadLetterEventRepository deadLetterRepository;
+
+  @Autowired DeadLetterReplayJobRepository jobRepository;
+
+  @Autowired DeadLetterReplayService replayService;
+
+  @Autowired OutboxProcessingConfig processingConfig;
+
+  @BeforeEach
+  void setup() {
+    jobRepository.deleteAll();
+    deadLetterRepository.deleteAll();
+    outboxEventRepository.deleteAll();
+    outboxPayloadRepository.deleteAll();
+  }
+
+  private OutboxDeadLetterEvent deadLetter(String eventType, String correlationId) {
+    OutboxEvent event =
+        new OutboxEvent("Order", correlationId, eventType, correlationId, "{\"replay\":true}");
+    event.setCreatedAt(LocalDateTime.now().minusHours(1));
+    return deadLetterRepository.save(new OutboxDeadLetterEvent(event, null));
+  }
+
+  @Test
+  void replay_movesMatchingEventsBackIntoTheOutboxWithTheirCorrelationIds() {
+    // Given
+    deadLetter("OrderCreated", "replay-1");
+    deadLetter("OrderCreated", "replay-2");
+    OutboxDeadLetterEvent other = deadLetter("OrderCancelled", "replay-3");
+
+    // When
+    DeadLetterReplayJob job =
+        replayService.createReplay(
+            new DeadLetterReplayService.ReplayFilter("OrderCreated", null, null, null));
+    // The scheduled replay may be holding the job, so wait for it to complete
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .until(
+            () -> {
+              replayService.replayDeadLetters();
+              return replayService.getReplay(job.getId()).getStatus()
+                  == DeadLetterReplayJob.Status.COMPLETED;
+            });
+
+    // Then: the matching events are pending again with their payloads
+    List<OutboxEvent> replayed = outboxEventRepository.findAll();
+    assertThat(replayed)
+        .extracting(OutboxEvent::getCorrelationId)
+        .containsExactlyInAnyOrder("replay-1", "replay-2");
+    assertThat(outboxPayloadRepository.findById(replayed.get(0).getId()))
+        .map(OutboxPayload::getData)
+        .hasValueSatisfying(data -> assertThat(new String(data)).isEqualTo("{\"replay\":true}"));
+
+    // And: only the other event type is left in the dead-letter queue
+    assertThat(deadLetterRepository.findAll())
+        .extracting(OutboxDeadLetterEvent::getId)
+        .containsExactly(other.getId());
+
+    // And: the job checkpointed its progress and completed
+    DeadLetterReplayJob finished = replayService.getReplay(job.getId());
+    assertThat(job.getTotalCount()).isEqualTo(2);
+    assertThat(finished.getReplayedCount()).isEqualTo(2);
+    assertThat(finished.getLastReplayedId()).isLessThan(other.getId());
+    assertThat(finished.getStatus()).isEqualTo(DeadLetterReplayJob.Status.COMPLETED);
+  }
+
+  @Test
+  void replay_waitsWhileTheOutboxBacklogIsAtItsLimit() {
+    // Given
+    deadLetter("OrderCreated", "replay-4");
+    long maxPending = processingConfig.getDeadLetterReplayMaxPendingEvents();
+    processingConfig.setDeadLetterReplayMaxPendingEvents(0);
+    try {
+      DeadLetterReplayJob job =
+          replayService.createReplay(
+              new DeadLetterReplayService.ReplayFilter(null, null, null, null));
+
+      // When
+      replayService.replayDeadLetters();
+
+      // Then: nothing was replayed and the job can still make progress later
+      assertThat(outboxEventRepository.count()).isZero();
+      DeadLetterReplayJob waiting = replayService.getReplay(job.getId());
+      assertThat(waiting.getReplayedCount()).isZero();
+      assertThat(waiting.getStatus()).isEqualTo(DeadLetterReplayJob.Status.RUNNING);
+    } finally {
+      processingConfig.setDeadLetterReplayMaxPendingEvents(maxPending);
+    }
+  }
+
+  @Test
+  void pausedReplaysResumeFromTheirCheckpoint() {
+    // Given: a job paused before the scheduled replay could pick it up
+    deadLetter("OrderCreated", "replay-5");
+    long maxPending = processingConfig.getDeadLetterReplayMaxPendingEvents();
+    processingConfig.setDeadLetterReplayMaxPendingEvents(0);
+    DeadLetterReplayJob job;
+    try {
+      job =
+          replayService.createReplay(
+              new DeadLetterReplayService.ReplayFilter(null, null, null, null));
+      replayService.pauseReplay(job.getId());
+    } finally {
+      processingConfig.setDeadLetterReplayMaxPendingEvents(maxPending);
+    }
+
+    // When
+    replayService.replayDeadLetters();
+
+    // Then
+    assertThat(outboxEventRepository.count()).isZero();
+
+    // When
+    replayService.resumeReplay(job.getId());
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .until(
+            () -> {
+              replayService.replayDeadLetters();
+              return outboxEventRepository.count() == 1;
+            });
+
+    // Then
+    assertThat(outboxEventRepository.findAll())
+        .extracting(OutboxEvent::getCorrelationId)
+        .containsExactly("replay-5");
+  }
+}
@@ -0,0 +1,114 @@
+package com.example.routebox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.RbpSpec;
+import com.example.routebox.common.payload.PayloadStore;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.server.RouteBoxServerApplication;
+import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.example.routebox.server.entity.PayloadDeletionCandidate;
+import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import com.example.routebox.server.repository.PayloadDeletionCandidateRepository;
+import com.example.routebox.test.listener.SharedTestcontainers;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/** Tests for deleting offloaded payloads no event refers to any more. */
+@SpringBootTest(
+    classes = RouteBoxServerApplication.class,
+    properties = "outbox.processing.offloaded-payload-grace-period=1h")
+@Testcontainers
+class OffloadedPayloadCleanupServiceTest {
+
+  private static final String UNREFERENCED = "fs://sha256/" + "a".repeat(64);
+  private static final String PENDING = "fs://sha256/" + "b".repeat(64);
+  private static final String ARCHIVED = "fs://sha256/" + "c".repeat(64);
+
+  static {
+    SharedTestcontainers.ensureInitialized();
+  }
+
+  @Autowired PayloadDeletionCandidateRepository candidateRepository;
+
+  @Autowired OutboxEventRepository outboxEventRepository;
+
+  @Autowired OutboxArchiveEventRepository archiveEventRepository;
+
+  @Autowired OffloadedPayloadCleanupService cleanupService;
+
+  @MockitoBean PayloadStore payloadStore;
+
+  @BeforeEach
+  void setUp() {
+    candidateRepository.deleteAll();
+    archiveEventRepository.deleteAll();
+    outboxEventRepository.deleteAll();
+    when(payloadStore.supports(anyString())).thenReturn(true);
+    when(payloadStore.deleteIfStoredBefore(anyString(), any())).thenReturn(true);
+  }
+
+  @Test
+  void deleteUnreferencedPayloads_deletesOnlyPayloadsNoEventRefersTo() {
+    // Given - Three queued payloads, two still referenced by a pending and an archived event
+    OutboxEvent pending = new OutboxEvent("Order", "A1", "OrderCreated", "{}");
+    pending.setRbp(new RbpSpec(PENDING, 5_000_000L, LocalDateTime.now()));
+    outboxEventRepository.save(pending);
+
+    OutboxEvent sent = new OutboxEvent("Order", "A2", "OrderCreated", "{}");
+    sent.setSentAt(LocalDateTime.now().minusDays(10));
+    sent.setRbp(new RbpSpec(ARCHIVED, 5_000_000L, LocalDateTime.now().minusDays(10)));
+    OutboxArchiveEvent archived = new OutboxArchiveEvent(sent);
+    archived.setOriginalEventId(1L);
+    archived.setArchivedAt(LocalDateTime.now());
+    archiveEventRepository.save(archived);
+
+    for (String uri : new String[] {UNREFERENCED, PENDING, ARCHIVED}) {
+      candidateRepository.save(new PayloadDeletionCandidate(uri, LocalDateTime.now()));
+    }
+
+    // When
+    Instant before = Instant.now();
+    int deleted = cleanupService.deleteUnreferencedPayloads();
+    Instant after = Instant.now();
+
+    // Then - Only the unreferenced payload is deleted, unless stored within the grace period
+    assertThat(deleted).isEqualTo(1);
+    ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+    verify(payloadStore).deleteIfStoredBefore(eq(UNREFERENCED), cutoff.capture());
+    assertThat(cutoff.getValue())
+        .isBetween(before.minus(Duration.ofHours(1)), after.minus(Duration.ofHours(1)));
+    verify(payloadStore, never()).deleteIfStoredBefore(eq(PENDING), any());
+    verify(payloadStore, never()).deleteIfStoredBefore(eq(ARCHIVED), any());
+    assertThat(candidateRepository.count()).isZero();
+  }
+
+  @Test
+  void deleteUnreferencedPayloads_countsPayloadsStoredAgainAsKept() {
+    // Given - The store reports the payload as stored within the grace period
+    when(payloadStore.deleteIfStoredBefore(eq(UNREFERENCED), any())).thenReturn(false);
+    candidateRepository.save(new PayloadDeletionCandidate(UNREFERENCED, LocalDateTime.now()));
+
+    // When
+    int deleted = cleanupService.deleteUnreferencedPayloads();
+
+    // Then
+    assertThat(deleted).isZero();
+    assertThat(candidateRepository.count()).isZero();
+  }
+}
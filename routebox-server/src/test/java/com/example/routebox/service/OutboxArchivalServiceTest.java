@@ -1,24 +1,43 @@
 package com.example.routebox.server.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.entity.RbpSpec;
+import com.example.routebox.common.payload.PayloadStore;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.ArchivalCheckpoint;
 import com.example.routebox.server.entity.OutboxArchiveEvent;
+import com.example.routebox.server.repository.ArchivalCheckpointRepository;
 import com.example.routebox.server.repository.OutboxArchiveEventRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import com.example.routebox.test.listener.SharedTestcontainers;
 
 /** Tests for OutboxArchivalService. */
-@SpringBootTest(classes = RouteBoxServerApplication.class)
+@SpringBootTest(
+    classes = RouteBoxServerApplication.class,
+    // Continuous archival is driven by the tests, not the scheduler, and never backs off
+    properties = {
+      "outbox.processing.archival-trickle-enabled=false",
+      "outbox.processing.archival-trickle-target-chunk-duration=1m"
+    })
 @Testcontainers
 class OutboxArchivalServiceTest {
 
@@ -26,18 +45,28 @@ class OutboxArchivalServiceTest {
     SharedTestcontainers.ensureInitialized();
   }
 
+  private static final byte[] PAYLOAD = "{}".getBytes(StandardCharsets.UTF_8);
+
   @Autowired OutboxEventRepository outboxEventRepository;
 
+  @Autowired OutboxPayloadRepository outboxPayloadRepository;
+
   @Autowired OutboxArchiveEventRepository archiveEventRepository;
 
+  @Autowired ArchivalCheckpointRepository checkpointRepository;
+
   @Autowired OutboxArchivalService archivalService;
 
   @Autowired OutboxProcessingConfig processingConfig;
 
+  @MockitoBean PayloadStore payloadStore;
+
   @BeforeEach
   void setup() {
     archiveEventRepository.deleteAll();
+    checkpointRepository.deleteAll();
     outboxEventRepository.deleteAll();
+    outboxPayloadRepository.deleteAll();
   }
 
   @Test
@@ -148,18 +177,20 @@ class OutboxArchivalServiceTest {
     event.setCreatedAt(originalCreatedAt);
     event = outboxEventRepository.save(event);
     Long originalId = event.getId();
+    outboxPayloadRepository.save(new OutboxPayload(originalId, event.getPayload()));
 
     // When
     archivalService.archiveOldEvents();
 
     // Then
     OutboxArchiveEvent archived = archiveEventRepository.findAll().get(0);
+    assertThat(outboxPayloadRepository.count()).isZero();
     assertThat(archived.getOriginalEventId()).isEqualTo(originalId);
     assertThat(archived.getAggregateType()).isEqualTo("Order");
     assertThat(archived.getAggregateId()).isEqualTo("A1");
     assertThat(archived.getEventType()).isEqualTo("OrderCreated");
     assertThat(archived.getCorrelationId()).isEqualTo("corr-xyz");
-    assertThat(archived.getPayload()).isEqualTo("{\"test\":\"data\"}");
+    assertThat(archived.getPayloadAsString()).isEqualTo("{\"test\":\"data\"}");
     assertThat(archived.getCreatedAt()).isNotNull();
     assertThat(archived.getSentAt()).isNotNull();
     assertThat(archived.getArchivedAt()).isNotNull();
@@ -217,4 +248,175 @@ class OutboxArchivalServiceTest {
     assertThat(archived).isEqualTo(0);
     assertThat(outboxEventRepository.count()).isEqualTo(1); // Event not archived
   }
+
+  @Test
+  void archiveOldEvents_keepsOffloadedPayloadsOfArchivedEvents() {
+    // Given - Two archivable events with offloaded payloads, one shared with a pending event
+    String archivedOnly = "fs://sha256/" + "a".repeat(64);
+    String shared = "fs://sha256/" + "b".repeat(64);
+
+    OutboxEvent oldEvent1 = new OutboxEvent("Order", "A1", "OrderCreated", "{}");
+    oldEvent1.setSentAt(LocalDateTime.now().minusDays(10));
+    oldEvent1.setRbp(new RbpSpec(archivedOnly, 5_000_000L, LocalDateTime.now().minusDays(10)));
+    outboxEventRepository.save(oldEvent1);
+
+    OutboxEvent oldEvent2 = new OutboxEvent("Order", "A2", "OrderCreated", "{}");
+    oldEvent2.setSentAt(LocalDateTime.now().minusDays(10));
+    oldEvent2.setRbp(new RbpSpec(shared, 5_000_000L, LocalDateTime.now().minusDays(10)));
+    outboxEventRepository.save(oldEvent2);
+
+    OutboxEvent pendingEvent = new OutboxEvent("Order", "A3", "OrderCreated", "{}");
+    pendingEvent.setRbp(new RbpSpec(shared, 5_000_000L, LocalDateTime.now()));
+    outboxEventRepository.save(pendingEvent);
+
+    // When
+    archivalService.archiveOldEvents();
+
+    // Then - The archived events keep their payloads, so they can still be replayed
+    verify(payloadStore, never()).delete(anyString());
+    verify(payloadStore, never()).deleteIfStoredBefore(anyString(), any());
+    assertThat(archiveEventRepository.findAll())
+        .extracting(OutboxArchiveEvent::getRbp)
+        .extracting(RbpSpec::uri)
+        .containsExactlyInAnyOrder(archivedOnly, shared);
+  }
+
+  @Test
+  void archiveOldEvents_leavesPayloadStoreAloneForInlinePayloads() {
+    // Given
+    OutboxEvent event = new OutboxEvent("Order", "A1", "OrderCreated", "{}");
+    event.setSentAt(LocalDateTime.now().minusDays(10));
+    outboxEventRepository.save(event);
+
+    // When
+    archivalService.archiveOldEvents();
+
+    // Then
+    verify(payloadStore, never()).delete(anyString());
+  }
+
+  @Test
+  void archiveOldEvents_archivesInChunksAndCompletesTheCheckpoint() {
+    // Given - More old events than fit in one chunk, with one pending in between
+    sentDaysAgo("A1", 10);
+    outboxEventRepository.save(new OutboxEvent("Order", "A2", "OrderCreated", "{}"));
+    sentDaysAgo("A3", 10);
+    OutboxEvent last = sentDaysAgo("A4", 10);
+    outboxPayloadRepository.save(new OutboxPayload(last.getId(), PAYLOAD));
+
+    int chunkSize = processingConfig.getArchivalChunkSize();
+    Duration chunkPause = processingConfig.getArchivalChunkPause();
+    processingConfig.setArchivalChunkSize(2);
+    processingConfig.setArchivalChunkPause(Duration.ZERO);
+    try {
+      // When
+      archivalService.archiveOldEvents();
+    } finally {
+      processingConfig.setArchivalChunkSize(chunkSize);
+      processingConfig.setArchivalChunkPause(chunkPause);
+    }
+
+    // Then
+    assertThat(outboxEventRepository.findAll())
+        .extracting(OutboxEvent::getAggregateId)
+        .containsExactly("A2");
+    assertThat(outboxPayloadRepository.count()).isZero();
+    assertThat(archiveEventRepository.findAll())
+        .extracting(OutboxArchiveEvent::getAggregateId)
+        .containsExactlyInAnyOrder("A1", "A3", "A4");
+
+    ArchivalCheckpoint checkpoint =
+        checkpointRepository.findById(OutboxArchivalService.CHECKPOINT_NAME).orElseThrow();
+    assertThat(checkpoint.isRunning()).isFalse();
+    assertThat(checkpoint.getArchivedCount()).isEqualTo(3);
+    assertThat(checkpoint.getLastArchivedId()).isEqualTo(last.getId());
+    assertThat(checkpoint.getUpToId()).isEqualTo(last.getId());
+  }
+
+  @Test
+  void archiveOldEvents_resumesAnInterruptedRunFromItsCheckpoint() {
+    // Given - A run that committed its first range before it was interrupted
+    OutboxEvent first = sentDaysAgo("A1", 10);
+    OutboxEvent second = sentDaysAgo("A2", 10);
+    ArchivalCheckpoint checkpoint = new ArchivalCheckpoint(OutboxArchivalService.CHECKPOINT_NAME);
+    checkpoint.start(LocalDateTime.now().minusDays(7), first.getId(), second.getId());
+    checkpoint.setLastArchivedId(first.getId());
+    checkpoint.setArchivedCount(1);
+    checkpointRepository.save(checkpoint);
+
+    // When
+    archivalService.archiveOldEvents();
+
+    // Then - Only events after the checkpoint are archived by the resumed run
+    assertThat(archiveEventRepository.findAll())
+        .extracting(OutboxArchiveEvent::getOriginalEventId)
+        .containsExactly(second.getId());
+    ArchivalCheckpoint resumed =
+        checkpointRepository.findById(OutboxArchivalService.CHECKPOINT_NAME).orElseThrow();
+    assertThat(resumed.isRunning()).isFalse();
+    assertThat(resumed.getArchivedCount()).isEqualTo(2);
+
+    // When - The next run starts over and picks up what the resumed run skipped
+    archivalService.archiveOldEvents();
+
+    // Then
+    assertThat(outboxEventRepository.count()).isZero();
+    assertThat(archiveEventRepository.count()).isEqualTo(2);
+  }
+
+  @Test
+  void archiveTrickleChunk_archivesEventsPastTheRetentionPeriodInPacedChunks() {
+    // Given - Events created and sent past the retention period, and one still within it
+    OutboxEvent first = sentDaysAgo("A1", 10);
+    sentDaysAgo("A2", 9);
+    OutboxEvent recent = new OutboxEvent("Order", "A3", "OrderCreated", "{}");
+    recent.setSentAt(LocalDateTime.now().minusDays(1));
+    outboxEventRepository.save(recent);
+    outboxPayloadRepository.save(new OutboxPayload(first.getId(), PAYLOAD));
+
+    // When
+    int archived = archivalService.archiveTrickleChunk();
+
+    // Then
+    assertThat(archived).isEqualTo(2);
+    assertThat(outboxPayloadRepository.count()).isZero();
+    assertThat(outboxEventRepository.findAll())
+        .extracting(OutboxEvent::getAggregateId)
+        .containsExactly("A3");
+    assertThat(archiveEventRepository.findAll())
+        .extracting(OutboxArchiveEvent::getAggregateId)
+        .containsExactlyInAnyOrder("A1", "A2");
+
+    // And - A caught-up archiver finds nothing more to do
+    assertThat(archivalService.archiveTrickleChunk()).isZero();
+  }
+
+  @Test
+  void archiveTrickleChunk_leavesPendingEventsForALaterPass() {
+    // Given - An old event that is still pending in front of an archivable one
+    OutboxEvent pending = new OutboxEvent("Order", "A1", "OrderCreated", "{}");
+    pending = outboxEventRepository.save(pending);
+    pending.setCreatedAt(LocalDateTime.now().minusDays(10));
+    outboxEventRepository.save(pending);
+    sentDaysAgo("A2", 10);
+
+    // When
+    int archived = archivalService.archiveTrickleChunk();
+
+    // Then
+    assertThat(archived).isEqualTo(1);
+    assertThat(outboxEventRepository.findAll())
+        .extracting(OutboxEvent::getAggregateId)
+        .containsExactly("A1");
+  }
+
+  /** Saves an event created and sent the given number of days ago. */
+  private OutboxEvent sentDaysAgo(String aggregateId, int days) {
+    OutboxEvent event = new OutboxEvent("Order", aggregateId, "OrderCreated", "{}");
+    event.setSentAt(LocalDateTime.now().minusDays(days));
+    event = outboxEventRepository.save(event);
+    // createdAt is set on insert, so back-date it afterwards
+    event.setCreatedAt(LocalDateTime.now().minusDays(days));
+    return outboxEventRepository.save(event);
+  }
 }
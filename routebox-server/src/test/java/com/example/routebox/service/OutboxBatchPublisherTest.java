@@ -0,0 +1,220 @@
+package com.example.routebox.server.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.server.RouteBoxServerApplication;
+import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.kafka.ProducerLease;
+import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
+import com.example.routebox.test.listener.SharedTestcontainers;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/** Tests for OutboxBatchPublisher, the Kafka transactional batch publishing path. */
+@SpringBootTest(classes = RouteBoxServerApplication.class)
+@Testcontainers
+class OutboxBatchPublisherTest {
+
+  static {
+    SharedTestcontainers.ensureInitialized();
+  }
+
+  @DynamicPropertySource
+  static void configureRouting(DynamicPropertyRegistry registry) {
+    // Required on cluster-b, optional on cluster-a where OrderCreated is required
+    registry.add("outbox.routing.rules.InventoryReserved.clusters[0]", () -> "cluster-b");
+    registry.add("outbox.routing.rules.InventoryReserved.optional[0]", () -> "cluster-a");
+  }
+
+  @Autowired OutboxEventRepository outboxEventRepository;
+
+  @Autowired OutboxDeadLetterEventRepository deadLetterRepository;
+
+  @Autowired OutboxBatchPublisher batchPublisher;
+
+  @Autowired OutboxFailureHandler failureHandler;
+
+  @MockitoBean DynamicKafkaTemplateFactory kafkaTemplateFactory;
+
+  @BeforeEach
+  void setup() {
+    deadLetterRepository.deleteAll();
+    outboxEventRepository.deleteAll();
+  }
+
+  private KafkaTemplate<String, byte[]> mockTransactionalTemplate() {
+    return mockTransactionalTemplate("cluster-a");
+  }
+
+  /** Makes executeInTransaction run the callback against the mock template itself. */
+  @SuppressWarnings("unchecked")
+  private KafkaTemplate<String, byte[]> mockTransactionalTemplate(String clusterKey) {
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    Mockito.when(mockTemplate.executeInTransaction(any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<KafkaOperations.OperationsCallback<String, byte[], Object>>getArgument(0)
+                    .doInOperations(mockTemplate));
+    Mockito.when(kafkaTemplateFactory.lease(eq(clusterKey)))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    return mockTemplate;
+  }
+
+  private static CompletableFuture<SendResult<String, byte[]>> acknowledged(String topic) {
+    return CompletableFuture.completedFuture(
+        new SendResult<>(
+            new ProducerRecord<>(topic, "key", new byte[0]),
+            new RecordMetadata(
+                new TopicPartition(topic, 0), 3L, 0, System.currentTimeMillis(), 0, 0)));
+  }
+
+  private OutboxEvent claimedEvent(String aggregateId) {
+    return claimedEvent(aggregateId, "OrderCreated");
+  }
+
+  private OutboxEvent claimedEvent(String aggregateId, String eventType) {
+    OutboxEvent event = new OutboxEvent("Order", aggregateId, eventType, "{}");
+    event.setInProgressUntil(LocalDateTime.now().plusMinutes(5));
+    return outboxEventRepository.save(event);
+  }
+
+  @Test
+  void publishBatch_sendsWholeBatchInOneTransactionAndMarksAllSent() {
+    // Given
+    KafkaTemplate<String, byte[]> mockTemplate = mockTransactionalTemplate();
+    TopicPartition topicPartition = new TopicPartition("OrderCreated", 0);
+    Mockito.when(mockTemplate.send(any(ProducerRecord.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SendResult<>(
+                    new ProducerRecord<>("OrderCreated", "key", new byte[0]),
+                    new RecordMetadata(topicPartition, 42L, 0, System.currentTimeMillis(), 0, 0))));
+
+    List<OutboxEvent> batch = List.of(claimedEvent("A1"), claimedEvent("A2"), claimedEvent("A3"));
+
+    // When
+    batchPublisher.publishBatch(batch);
+
+    // Then: one transaction for the cluster, three sends inside it
+    Mockito.verify(mockTemplate, Mockito.times(1)).executeInTransaction(any());
+    Mockito.verify(mockTemplate, Mockito.times(3)).send(any(ProducerRecord.class));
+
+    // And: every event is marked sent with its Kafka receipt and the claim is cleared
+    for (OutboxEvent event : batch) {
+      OutboxEvent reloaded = outboxEventRepository.findById(event.getId()).orElseThrow();
+      assertThat(reloaded.getSentAt()).isNotNull();
+      assertThat(reloaded.getInProgressUntil()).isNull();
+      assertThat(reloaded.getKafkaPartition()).isEqualTo(0);
+      assertThat(reloaded.getKafkaOffset()).isEqualTo(42L);
+    }
+  }
+
+  @Test
+  void publishBatch_abortedTransactionLeavesWholeBatchUnsent() {
+    // Given: the second send of the batch fails, aborting the transaction
+    KafkaTemplate<String, byte[]> mockTemplate = mockTransactionalTemplate();
+    TopicPartition topicPartition = new TopicPartition("OrderCreated", 0);
+    Mockito.when(mockTemplate.send(any(ProducerRecord.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SendResult<>(
+                    new ProducerRecord<>("OrderCreated", "key", new byte[0]),
+                    new RecordMetadata(topicPartition, 1L, 0, System.currentTimeMillis(), 0, 0))))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker unavailable")));
+
+    List<OutboxEvent> batch = List.of(claimedEvent("B1"), claimedEvent("B2"));
+
+    // When
+    batchPublisher.publishBatch(batch);
+    failureHandler.flushFailureJournal();
+
+    // Then: no event is marked sent, and the transient failure releases every claim
+    for (OutboxEvent event : batch) {
+      OutboxEvent reloaded = outboxEventRepository.findById(event.getId()).orElseThrow();
+      assertThat(reloaded.getSentAt()).isNull();
+      assertThat(reloaded.getInProgressUntil()).isNull();
+    }
+  }
+
+  @Test
+  void publishBatch_failedOptionalSendDoesNotAbortTheClusterTransactionOfRequiredEvents() {
+    // Given: cluster-a rejects the record of the event that only lists it as optional
+    KafkaTemplate<String, byte[]> clusterA = mockTransactionalTemplate("cluster-a");
+    Mockito.when(clusterA.send(any(ProducerRecord.class)))
+        .thenAnswer(
+            invocation -> {
+              String topic = invocation.<ProducerRecord<String, byte[]>>getArgument(0).topic();
+              return topic.equals("InventoryReserved")
+                  ? CompletableFuture.failedFuture(new RuntimeException("record too large"))
+                  : acknowledged(topic);
+            });
+    KafkaTemplate<String, byte[]> clusterB = mockTransactionalTemplate("cluster-b");
+    Mockito.when(clusterB.send(any(ProducerRecord.class)))
+        .thenReturn(acknowledged("InventoryReserved"));
+
+    OutboxEvent required = claimedEvent("D1");
+    OutboxEvent optionalOnA = claimedEvent("D2", "InventoryReserved");
+
+    // When
+    batchPublisher.publishBatch(List.of(required, optionalOnA));
+    failureHandler.flushFailureJournal();
+
+    // Then: the optional send went in its own transaction on cluster-a
+    Mockito.verify(clusterA, Mockito.times(2)).executeInTransaction(any());
+
+    // And: both events are sent, since neither requires the failed send
+    assertThat(outboxEventRepository.findById(required.getId()).orElseThrow().getSentAt())
+        .isNotNull();
+    assertThat(outboxEventRepository.findById(optionalOnA.getId()).orElseThrow().getSentAt())
+        .isNotNull();
+  }
+
+  @Test
+  void publishBatch_failsEventsWithoutPayloadInsteadOfSendingTombstones() {
+    // Given: the payload row of the second event is missing
+    KafkaTemplate<String, byte[]> mockTemplate = mockTransactionalTemplate();
+    TopicPartition topicPartition = new TopicPartition("OrderCreated", 0);
+    Mockito.when(mockTemplate.send(any(ProducerRecord.class)))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SendResult<>(
+                    new ProducerRecord<>("OrderCreated", "key", new byte[0]),
+                    new RecordMetadata(topicPartition, 7L, 0, System.currentTimeMillis(), 0, 0))));
+    OutboxEvent withPayload = claimedEvent("C1");
+    OutboxEvent withoutPayload = claimedEvent("C2");
+    withoutPayload.setPayload(null);
+
+    // When
+    batchPublisher.publishBatch(List.of(withPayload, withoutPayload));
+    failureHandler.flushFailureJournal();
+
+    // Then: only the event with a payload is sent; the other one failed permanently
+    Mockito.verify(mockTemplate, Mockito.times(1)).send(any(ProducerRecord.class));
+    assertThat(outboxEventRepository.findById(withPayload.getId()).orElseThrow().getSentAt())
+        .isNotNull();
+    OutboxEvent failed = outboxEventRepository.findById(withoutPayload.getId()).orElseThrow();
+    assertThat(failed.getSentAt()).isNull();
+    assertThat(failed.getPermanentFailureCount()).isEqualTo(1);
+  }
+}
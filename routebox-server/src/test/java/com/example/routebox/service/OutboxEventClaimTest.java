@@ -3,8 +3,15 @@ package com.example.routebox.service;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.entity.OutboxQuarantine;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.common.repository.OutboxQuarantineRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
+import com.example.routebox.server.kafka.PublishDeadline;
+import com.example.routebox.server.service.OutboxEventClaimer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,11 +34,24 @@ class OutboxEventClaimTest {
 
   @Autowired OutboxEventRepository outboxEventRepository;
 
+  @Autowired OutboxPayloadRepository outboxPayloadRepository;
+
+  @Autowired OutboxQuarantineRepository quarantineRepository;
+
+  @Autowired OutboxEventClaimer claimer;
+
   @BeforeEach
   void setup() {
+    quarantineRepository.deleteAll();
     outboxEventRepository.deleteAll();
   }
 
+  private void quarantine(OutboxEvent event, LocalDateTime holdUntil, boolean holdsAggregate) {
+    OutboxQuarantine entry = new OutboxQuarantine(event, holdsAggregate);
+    entry.setHoldUntil(holdUntil);
+    quarantineRepository.saveAndFlush(entry);
+  }
+
   @Test
   void testClaimPendingEvents_claimsEventsSuccessfully() {
     // Given: Create some test events
@@ -156,4 +176,135 @@ class OutboxEventClaimTest {
     assertThat(claimed.get(1).getAggregateId()).isEqualTo("A1");
     assertThat(claimed.get(2).getAggregateId()).isEqualTo("A3");
   }
+
+  @Test
+  void testClaimPendingEvents_leavesPayloadsInTheirOwnTable() {
+    // Given: Events whose payloads are stored in outbox_payloads
+    OutboxEvent first =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{\"n\":1}"));
+    OutboxEvent second =
+        outboxEventRepository.save(new OutboxEvent("Order", "A2", "OrderCreated", "{\"n\":2}"));
+    outboxPayloadRepository.save(new OutboxPayload(first.getId(), first.getPayload()));
+    outboxPayloadRepository.save(new OutboxPayload(second.getId(), second.getPayload()));
+    outboxEventRepository.flush();
+    outboxPayloadRepository.flush();
+
+    // When: Claim narrow rows, then attach the payloads for the batch
+    List<OutboxEvent> claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now(), PageRequest.of(0, 10));
+    claimed.forEach(event -> event.setPayload(null));
+    claimer.loadPayloads(claimed);
+
+    // Then: Each event carries its own payload
+    assertThat(claimed)
+        .extracting(event -> new String(event.getPayload(), StandardCharsets.UTF_8))
+        .containsExactlyInAnyOrder("{\"n\":1}", "{\"n\":2}");
+  }
+
+  @Test
+  void testLoadPayloads_defersLargePayloadsUntilStreamedAtSendTime() throws Exception {
+    // Given: A small payload and one above the 1 MB streaming threshold
+    String large = "{\"blob\":\"" + "x".repeat(2 * 1024 * 1024) + "\"}";
+    OutboxEvent small =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{\"n\":1}"));
+    OutboxEvent big =
+        outboxEventRepository.save(new OutboxEvent("Order", "A2", "OrderCreated", large));
+    outboxPayloadRepository.save(new OutboxPayload(small.getId(), small.getPayload()));
+    outboxPayloadRepository.save(new OutboxPayload(big.getId(), big.getPayload()));
+    outboxEventRepository.flush();
+    outboxPayloadRepository.flush();
+
+    // When: Attach the payloads for the claimed batch
+    List<OutboxEvent> claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now(), PageRequest.of(0, 10));
+    claimed.forEach(event -> event.setPayload(null));
+    claimer.loadPayloads(claimed);
+    OutboxEvent claimedBig =
+        claimed.stream().filter(e -> e.getId().equals(big.getId())).findFirst().orElseThrow();
+
+    // Then: Only the small payload is loaded; the large one is streamed in on demand
+    assertThat(claimed)
+        .filteredOn(e -> e.getId().equals(small.getId()))
+        .extracting(OutboxEvent::getPayloadAsString)
+        .containsExactly("{\"n\":1}");
+    assertThat(claimedBig.isPayloadDeferred()).isTrue();
+    assertThat(claimedBig.getPayload()).isNull();
+
+    claimer.loadDeferredPayload(claimedBig, PublishDeadline.NONE);
+    assertThat(claimedBig.getPayloadAsString()).isEqualTo(large);
+
+    claimer.releaseDeferredPayload(claimedBig);
+    assertThat(claimedBig.getPayload()).isNull();
+  }
+
+  @Test
+  void testClaimPendingEvents_holdsTheAggregateOfAQuarantinedEvent() {
+    // Given: A poison event holding its aggregate, a later event of that aggregate, and another
+    OutboxEvent poison =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderStatusChanged", "{}"));
+    OutboxEvent other =
+        outboxEventRepository.save(new OutboxEvent("Order", "A2", "OrderCreated", "{}"));
+    quarantine(poison, LocalDateTime.now().plusMinutes(5), true);
+
+    // When: Claim events during the hold
+    List<OutboxEvent> claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now(), PageRequest.of(0, 10));
+
+    // Then: Only the other aggregate is claimed
+    assertThat(claimed).extracting(OutboxEvent::getAggregateId).containsExactly("A2");
+
+    // When: Claim events after the hold expired
+    claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now().plusMinutes(10), PageRequest.of(0, 10));
+
+    // Then: The poison event is retried, but its aggregate stays held until it is resolved
+    assertThat(claimed)
+        .extracting(OutboxEvent::getId)
+        .containsExactlyInAnyOrder(poison.getId(), other.getId());
+  }
+
+  @Test
+  void testClaimPendingEvents_passesLaterEventsAroundAQuarantinedEvent() {
+    // Given: A poison event whose policy lets later events of its aggregate through
+    OutboxEvent poison =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderStatusChanged", "{}"));
+    quarantine(poison, LocalDateTime.now().plusMinutes(5), false);
+
+    // When: Claim events during the hold
+    List<OutboxEvent> claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now(), PageRequest.of(0, 10));
+
+    // Then: Only the poison event is held back
+    assertThat(claimed)
+        .extracting(OutboxEvent::getEventType)
+        .containsExactly("OrderStatusChanged");
+  }
+
+  @Test
+  void testClaimPendingEvents_releasesTheAggregateOnceThePoisonEventIsSent() {
+    // Given: A poison event holding its aggregate that was sent after a retry
+    OutboxEvent poison =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderStatusChanged", "{}"));
+    quarantine(poison, LocalDateTime.now().minusMinutes(1), true);
+    poison.setSentAt(LocalDateTime.now());
+    outboxEventRepository.saveAndFlush(poison);
+
+    // When: Claim events
+    List<OutboxEvent> claimed =
+        outboxEventRepository.findPendingEventsForClaim(
+            LocalDateTime.now(), PageRequest.of(0, 10));
+
+    // Then: The later event is no longer held
+    assertThat(claimed)
+        .extracting(OutboxEvent::getEventType)
+        .containsExactly("OrderStatusChanged");
+  }
 }
@@ -9,6 +9,7 @@ import com.example.routebox.common.entity.OutboxEvent;
 import com.example.routebox.common.repository.OutboxEventRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
 import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
+import com.example.routebox.server.kafka.ProducerLease;
 import com.example.routebox.test.listener.SharedTestcontainers;
 import java.util.concurrent.CompletableFuture;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -61,7 +62,7 @@ class OutboxEventPublisherMultiClusterTest {
   @MockitoBean DynamicKafkaTemplateFactory kafkaTemplateFactory;
 
   @SuppressWarnings("unchecked")
-  private KafkaTemplate<String, String> mockTemplate;
+  private KafkaTemplate<String, byte[]> mockTemplate;
 
   @BeforeEach
   void setup() {
@@ -70,7 +71,7 @@ class OutboxEventPublisherMultiClusterTest {
   }
 
   /** Helper method to create a mock SendResult with RecordMetadata */
-  private SendResult<String, String> createMockSendResult(
+  private SendResult<String, byte[]> createMockSendResult(
       String topic, int partition, long offset) {
     TopicPartition topicPartition = new TopicPartition(topic, partition);
     RecordMetadata recordMetadata =
@@ -82,7 +83,7 @@ class OutboxEventPublisherMultiClusterTest {
             0, // serialized key size
             0 // serialized value size
             );
-    ProducerRecord<String, String> producerRecord = new ProducerRecord<>(topic, "key", "value");
+    ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, "key", new byte[0]);
     return new SendResult<>(producerRecord, recordMetadata);
   }
 
@@ -92,11 +93,13 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
 
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> future =
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(future);
 
@@ -109,8 +112,8 @@ class OutboxEventPublisherMultiClusterTest {
     assertThat(updated.getPermanentFailureCount()).isEqualTo(0);
 
     // Verify both clusters were called
-    Mockito.verify(kafkaTemplateFactory).getTemplate("cluster-a");
-    Mockito.verify(kafkaTemplateFactory).getTemplate("cluster-b");
+    Mockito.verify(kafkaTemplateFactory).lease(eq("cluster-a"), any());
+    Mockito.verify(kafkaTemplateFactory).lease(eq("cluster-b"), any());
   }
 
   @Test
@@ -119,14 +122,16 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
 
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> successFuture =
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> successFuture =
         CompletableFuture.completedFuture(mockSendResult);
-    CompletableFuture<SendResult<String, String>> failureFuture = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> failureFuture = new CompletableFuture<>();
     failureFuture.completeExceptionally(new RuntimeException("Connection failed"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // First call succeeds, second fails
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
@@ -145,15 +150,17 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderStatusChanged", "{}"));
 
-    SendResult<String, String> mockSendResult =
+    SendResult<String, byte[]> mockSendResult =
         createMockSendResult("OrderStatusChanged", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> successFuture =
+    CompletableFuture<SendResult<String, byte[]>> successFuture =
         CompletableFuture.completedFuture(mockSendResult);
-    CompletableFuture<SendResult<String, String>> failureFuture = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> failureFuture = new CompletableFuture<>();
     failureFuture.completeExceptionally(new RuntimeException("Connection failed"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // First call succeeds, second fails
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
@@ -175,11 +182,13 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderStatusChanged", "{}"));
 
-    CompletableFuture<SendResult<String, String>> failureFuture = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> failureFuture = new CompletableFuture<>();
     failureFuture.completeExceptionally(new RuntimeException("Connection failed"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(failureFuture);
 
@@ -195,15 +204,17 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Inventory", "I1", "InventoryAdjusted", "{}"));
 
-    SendResult<String, String> mockSendResult =
+    SendResult<String, byte[]> mockSendResult =
         createMockSendResult("InventoryAdjusted", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> successFuture =
+    CompletableFuture<SendResult<String, byte[]>> successFuture =
         CompletableFuture.completedFuture(mockSendResult);
-    CompletableFuture<SendResult<String, String>> failureFuture = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> failureFuture = new CompletableFuture<>();
     failureFuture.completeExceptionally(new RuntimeException("Optional cluster failed"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // First call (required) succeeds, second (optional) fails
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
@@ -225,15 +236,17 @@ class OutboxEventPublisherMultiClusterTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Inventory", "I1", "InventoryAdjusted", "{}"));
 
-    SendResult<String, String> mockSendResult =
+    SendResult<String, byte[]> mockSendResult =
         createMockSendResult("InventoryAdjusted", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> successFuture =
+    CompletableFuture<SendResult<String, byte[]>> successFuture =
         CompletableFuture.completedFuture(mockSendResult);
-    CompletableFuture<SendResult<String, String>> failureFuture = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> failureFuture = new CompletableFuture<>();
     failureFuture.completeExceptionally(new RuntimeException("Required cluster failed"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-b"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-b"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
 
     // First call (required) fails, second (optional) succeeds
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
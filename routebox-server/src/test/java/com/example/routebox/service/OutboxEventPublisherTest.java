@@ -12,6 +12,7 @@ import com.example.routebox.server.config.DynamicKafkaTemplateFactory;
 import com.example.routebox.server.config.OutboxProcessingConfig;
 import com.example.routebox.server.config.OutboxRoutingConfig;
 import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import com.example.routebox.server.kafka.ProducerLease;
 import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -44,6 +45,8 @@ class OutboxEventPublisherTest {
 
   @Autowired OutboxEventPublisher publisher;
 
+  @Autowired ErrorFingerprintService errorFingerprintService;
+
   @Autowired OutboxProcessingConfig processingConfig;
 
   @Autowired OutboxRoutingConfig routingConfig;
@@ -57,7 +60,7 @@ class OutboxEventPublisherTest {
   }
 
   /** Helper method to create a mock SendResult with RecordMetadata */
-  private SendResult<String, String> createMockSendResult(
+  private SendResult<String, byte[]> createMockSendResult(
       String topic, int partition, long offset) {
     TopicPartition topicPartition = new TopicPartition(topic, partition);
     RecordMetadata recordMetadata =
@@ -69,7 +72,7 @@ class OutboxEventPublisherTest {
             0, // serialized key size
             0 // serialized value size
             );
-    ProducerRecord<String, String> producerRecord = new ProducerRecord<>(topic, "key", "value");
+    ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, "key", new byte[0]);
     return new SendResult<>(producerRecord, recordMetadata);
   }
 
@@ -80,12 +83,13 @@ class OutboxEventPublisherTest {
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> future =
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(future);
 
@@ -97,7 +101,7 @@ class OutboxEventPublisherTest {
     assertThat(updated.getSentAt()).isNotNull();
     assertThat(updated.getInProgressUntil()).isNull();
     assertThat(updated.getPermanentFailureCount()).isEqualTo(0);
-    assertThat(updated.getLastError()).isNull();
+    assertThat(updated.getLastErrorFingerprintId()).isNull();
   }
 
   @Test
@@ -113,6 +117,22 @@ class OutboxEventPublisherTest {
         .hasCauseInstanceOf(IllegalStateException.class);
   }
 
+  @Test
+  void publishEvent_failsEventWithoutPayloadInsteadOfSendingATombstone() throws Exception {
+    // Given - A claimed event whose payload row is missing
+    OutboxEvent event =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    event.setPayload(null);
+
+    // When/Then - The event takes the failure path and nothing is sent
+    assertThatThrownBy(() -> publisher.publishEvent(event))
+        .isInstanceOf(RuntimeException.class)
+        .hasCauseInstanceOf(IllegalStateException.class)
+        .hasRootCauseMessage("No payload row found for outbox event " + event.getId());
+    Mockito.verify(kafkaTemplateFactory, Mockito.never()).lease(any(), any());
+    assertThat(outboxEventRepository.findById(event.getId()).orElseThrow().getSentAt()).isNull();
+  }
+
   @Test
   void publishEvent_handlesPermanentFailure_kafkaException() throws Exception {
     // Given
@@ -120,11 +140,12 @@ class OutboxEventPublisherTest {
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
-    CompletableFuture<SendResult<String, String>> future = new CompletableFuture<>();
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    CompletableFuture<SendResult<String, byte[]>> future = new CompletableFuture<>();
     future.completeExceptionally(new IllegalStateException("Some permanent Kafka error"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(future);
 
@@ -153,16 +174,17 @@ class OutboxEventPublisherTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
     event.setPermanentFailureCount(2);
-    event.setLastError("Previous error");
+    event.setLastErrorFingerprintId(errorFingerprintService.resolve(null, "Previous error"));
     event = outboxEventRepository.save(event);
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
-    SendResult<String, String> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
-    CompletableFuture<SendResult<String, String>> future =
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    SendResult<String, byte[]> mockSendResult = createMockSendResult("OrderCreated", 0, 12345L);
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(future);
 
@@ -173,7 +195,7 @@ class OutboxEventPublisherTest {
     OutboxEvent updated = outboxEventRepository.findById(event.getId()).orElseThrow();
     assertThat(updated.getSentAt()).isNotNull();
     assertThat(updated.getPermanentFailureCount()).isEqualTo(0);
-    assertThat(updated.getLastError()).isNull();
+    assertThat(updated.getLastErrorFingerprintId()).isNull();
   }
 
   @Test
@@ -183,17 +205,18 @@ class OutboxEventPublisherTest {
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
 
     // Create a mock SendResult with specific metadata
     int expectedPartition = 3;
     long expectedOffset = 98765L;
-    SendResult<String, String> mockSendResult =
+    SendResult<String, byte[]> mockSendResult =
         createMockSendResult("OrderCreated", expectedPartition, expectedOffset);
-    CompletableFuture<SendResult<String, String>> future =
+    CompletableFuture<SendResult<String, byte[]>> future =
         CompletableFuture.completedFuture(mockSendResult);
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(ProducerRecord.class))).thenReturn(future);
 
     // When
@@ -217,13 +240,14 @@ class OutboxEventPublisherTest {
     final OutboxEvent savedEvent = outboxEventRepository.save(event);
 
     @SuppressWarnings("unchecked")
-    KafkaTemplate<String, String> mockTemplate = Mockito.mock(KafkaTemplate.class);
+    KafkaTemplate<String, byte[]> mockTemplate = Mockito.mock(KafkaTemplate.class);
     // Use a transient exception (not in permanent-failure-exceptions list)
-    CompletableFuture<SendResult<String, String>> future = new CompletableFuture<>();
+    CompletableFuture<SendResult<String, byte[]>> future = new CompletableFuture<>();
     future.completeExceptionally(
         new org.apache.kafka.common.errors.TimeoutException("Transient network error"));
 
-    Mockito.when(kafkaTemplateFactory.getTemplate(eq("cluster-a"))).thenReturn(mockTemplate);
+    Mockito.when(kafkaTemplateFactory.lease(eq("cluster-a"), any()))
+        .thenAnswer(invocation -> new ProducerLease<>(mockTemplate, () -> {}));
     Mockito.when(mockTemplate.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
         .thenReturn(future);
 
@@ -4,14 +4,24 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.example.routebox.common.entity.OutboxEvent;
+import com.example.routebox.common.entity.OutboxPayload;
+import com.example.routebox.common.entity.OutboxQuarantine;
 import com.example.routebox.common.repository.OutboxEventRepository;
+import com.example.routebox.common.repository.OutboxPayloadRepository;
+import com.example.routebox.common.repository.OutboxQuarantineRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import com.example.routebox.server.entity.ErrorFingerprint;
 import com.example.routebox.server.entity.OutboxDeadLetterEvent;
+import com.example.routebox.server.repository.ErrorFingerprintRepository;
 import com.example.routebox.server.repository.OutboxDeadLetterEventRepository;
 import jakarta.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,8 +48,16 @@ class OutboxFailureHandlerTest {
 
   @Autowired OutboxEventRepository outboxEventRepository;
 
+  @Autowired OutboxPayloadRepository outboxPayloadRepository;
+
   @Autowired OutboxDeadLetterEventRepository deadLetterRepository;
 
+  @Autowired ErrorFingerprintRepository fingerprintRepository;
+
+  @Autowired OutboxQuarantineRepository quarantineRepository;
+
+  @Autowired ErrorFingerprintService errorFingerprintService;
+
   @Autowired OutboxFailureHandler failureHandler;
 
   @Autowired OutboxProcessingConfig processingConfig;
@@ -50,6 +68,7 @@ class OutboxFailureHandlerTest {
   void setup() {
     deadLetterRepository.deleteAll();
     outboxEventRepository.deleteAll();
+    outboxPayloadRepository.deleteAll();
   }
 
   @Test
@@ -68,7 +87,7 @@ class OutboxFailureHandlerTest {
     // Then
     OutboxEvent updated = outboxEventRepository.findById(event.getId()).orElseThrow();
     assertThat(updated.getPermanentFailureCount()).isEqualTo(1);
-    assertThat(updated.getLastError()).isEqualTo("Test error");
+    assertThat(lastError(updated).getSampleMessage()).isEqualTo("Test error");
     assertThat(updated.getInProgressUntil()).isNull(); // Claim cleared for retry
   }
 
@@ -78,6 +97,7 @@ class OutboxFailureHandlerTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
     Long eventId = event.getId();
+    outboxPayloadRepository.save(new OutboxPayload(eventId, event.getPayload()));
 
     // When - Record failures up to max retries
     int maxRetries = processingConfig.getMaxPermanentRetries();
@@ -108,11 +128,50 @@ class OutboxFailureHandlerTest {
     assertThat(deadLetter.getAggregateType()).isEqualTo("Order");
     assertThat(deadLetter.getAggregateId()).isEqualTo("A1");
     assertThat(deadLetter.getEventType()).isEqualTo("OrderCreated");
-    assertThat(deadLetter.getPayload()).isEqualTo("{}");
+    assertThat(deadLetter.getPayloadAsString()).isEqualTo("{}");
+    assertThat(outboxPayloadRepository.findById(eventId)).isEmpty();
     assertThat(deadLetter.getFinalError()).contains("Error attempt");
     assertThat(deadLetter.getFailedAt()).isNotNull();
   }
 
+  @Test
+  void recordPermanentFailure_quarantinesTheEventWithAGrowingHold() {
+    // Given
+    OutboxEvent event =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    Long eventId = event.getId();
+    Duration initialHold = processingConfig.getQuarantineInitialHold();
+
+    // When
+    LocalDateTime before = LocalDateTime.now();
+    failureHandler.recordPermanentFailure(eventId, "Error attempt 1");
+
+    // Then: held for the initial hold, and so is the rest of its aggregate
+    OutboxQuarantine first = quarantineRepository.findById(eventId).orElseThrow();
+    assertThat(first.getHoldUntil()).isAfterOrEqualTo(before.plus(initialHold));
+    assertThat(first.getHoldUntil()).isBefore(before.plus(initialHold.multipliedBy(2)));
+    assertThat(first.isHoldsAggregate()).isTrue();
+
+    // When
+    before = LocalDateTime.now();
+    failureHandler.recordPermanentFailure(eventId, "Error attempt 2");
+
+    // Then: the hold doubled
+    OutboxQuarantine second = quarantineRepository.findById(eventId).orElseThrow();
+    assertThat(second.getHoldUntil()).isAfterOrEqualTo(before.plus(initialHold.multipliedBy(2)));
+
+    // When: the remaining retries are exhausted
+    for (int i = 2; i < processingConfig.getMaxPermanentRetries(); i++) {
+      failureHandler.recordPermanentFailure(eventId, "Error attempt " + (i + 1));
+    }
+
+    // Then: the dead-lettered event no longer holds its aggregate
+    assertThat(deadLetterRepository.findAll())
+        .extracting(OutboxDeadLetterEvent::getOriginalEventId)
+        .containsExactly(eventId);
+    assertThat(quarantineRepository.findById(eventId)).isEmpty();
+  }
+
   @Test
   @Transactional // Required because resetFailureCount uses Propagation.MANDATORY
   void resetFailureCount_clearsFailureData() {
@@ -120,7 +179,7 @@ class OutboxFailureHandlerTest {
     OutboxEvent event =
         outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
     event.setPermanentFailureCount(2);
-    event.setLastError("Previous error");
+    event.setLastErrorFingerprintId(errorFingerprintService.resolve(null, "Previous error"));
     outboxEventRepository.save(event);
 
     // When
@@ -130,7 +189,7 @@ class OutboxFailureHandlerTest {
     // Then
     OutboxEvent updated = outboxEventRepository.findById(event.getId()).orElseThrow();
     assertThat(updated.getPermanentFailureCount()).isEqualTo(0);
-    assertThat(updated.getLastError()).isNull();
+    assertThat(updated.getLastErrorFingerprintId()).isNull();
   }
 
   @Test
@@ -169,11 +228,38 @@ class OutboxFailureHandlerTest {
     // Then
     OutboxEvent updated1 = outboxEventRepository.findById(event1.getId()).orElseThrow();
     assertThat(updated1.getPermanentFailureCount()).isEqualTo(2);
-    assertThat(updated1.getLastError()).isEqualTo("Error 1 again");
+    assertThat(lastError(updated1).getNormalizedMessage()).isEqualTo("Error ? again");
 
     OutboxEvent updated2 = outboxEventRepository.findById(event2.getId()).orElseThrow();
     assertThat(updated2.getPermanentFailureCount()).isEqualTo(1);
-    assertThat(updated2.getLastError()).isEqualTo("Error 2");
+    assertThat(lastError(updated2).getNormalizedMessage()).isEqualTo("Error ?");
+  }
+
+  @Test
+  void recordPermanentFailure_storesRepeatedErrorsOnce() {
+    // Given
+    OutboxEvent event1 =
+        outboxEventRepository.save(new OutboxEvent("Order", "A1", "OrderCreated", "{}"));
+    OutboxEvent event2 =
+        outboxEventRepository.save(new OutboxEvent("Order", "A2", "OrderCreated", "{}"));
+    // Digits would be normalized away, so keep only letters to make the error unique to this run
+    String topic = "orders" + UUID.randomUUID().toString().replaceAll("[^a-f]", "");
+    String message = "Record too large for partition " + topic + "-3 (event %d)";
+
+    // When: the same error, differing only in numbers, hits both events
+    failureHandler.recordPermanentFailure(event1.getId(), message.formatted(event1.getId()));
+    failureHandler.recordPermanentFailure(event2.getId(), message.formatted(event2.getId()));
+    entityManager.clear();
+
+    // Then: both events reference one fingerprint that counted both failures
+    OutboxEvent updated1 = outboxEventRepository.findById(event1.getId()).orElseThrow();
+    OutboxEvent updated2 = outboxEventRepository.findById(event2.getId()).orElseThrow();
+    assertThat(updated1.getLastErrorFingerprintId())
+        .isEqualTo(updated2.getLastErrorFingerprintId());
+    ErrorFingerprint fingerprint = lastError(updated1);
+    assertThat(fingerprint.getNormalizedMessage())
+        .isEqualTo("Record too large for partition " + topic + "-? (event ?)");
+    assertThat(fingerprint.getOccurrenceCount()).isEqualTo(2);
   }
 
   @Test
@@ -211,4 +297,161 @@ class OutboxFailureHandlerTest {
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining("Event not found");
   }
+
+  @Test
+  void handleFailure_appliesJournaledFailuresInOneBatch() {
+    // Given: two events one failure away from the dead-letter queue and one healthy event
+    int maxRetries = processingConfig.getMaxPermanentRetries();
+    LocalDateTime claimedUntil = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MICROS);
+    OutboxEvent exhausted1 = new OutboxEvent("Order", "A1", "OrderCreated", "{\"n\":1}");
+    OutboxEvent exhausted2 = new OutboxEvent("Order", "A2", "OrderCreated", "{\"n\":2}");
+    OutboxEvent healthy = new OutboxEvent("Order", "A3", "OrderCreated", "{\"n\":3}");
+    for (OutboxEvent event : List.of(exhausted1, exhausted2, healthy)) {
+      outboxEventRepository.save(event);
+      // onCreate resets the count, so set it after the insert
+      event.setPermanentFailureCount(event == healthy ? 0 : maxRetries - 1);
+      event.setInProgressUntil(claimedUntil);
+      outboxEventRepository.save(event);
+      outboxPayloadRepository.save(new OutboxPayload(event.getId(), event.getPayload()));
+    }
+
+    // When: the same permanent error hits two events and a transient one the third
+    failureHandler.handleFailure(exhausted1, new IllegalStateException("No route"));
+    failureHandler.handleFailure(exhausted2, new IllegalStateException("No route"));
+    failureHandler.handleFailure(healthy, new RuntimeException("Broker unavailable"));
+    failureHandler.flushFailureJournal();
+    entityManager.clear();
+
+    // Then: the exhausted events moved to the dead-letter queue with their payloads
+    assertThat(outboxEventRepository.findAllById(List.of(exhausted1.getId(), exhausted2.getId())))
+        .isEmpty();
+    assertThat(outboxPayloadRepository.findById(exhausted1.getId())).isEmpty();
+    List<OutboxDeadLetterEvent> deadLetters = deadLetterRepository.findAll();
+    assertThat(deadLetters)
+        .extracting(OutboxDeadLetterEvent::getOriginalEventId)
+        .containsExactlyInAnyOrder(exhausted1.getId(), exhausted2.getId());
+    assertThat(deadLetters)
+        .allSatisfy(
+            deadLetter -> {
+              assertThat(deadLetter.getFinalError()).isEqualTo("No route");
+              assertThat(deadLetter.getPayloadAsString()).startsWith("{\"n\":");
+              assertThat(deadLetter.getFailedAt()).isNotNull();
+            });
+
+    // And: the transient failure only released the claim
+    OutboxEvent retried = outboxEventRepository.findById(healthy.getId()).orElseThrow();
+    assertThat(retried.getInProgressUntil()).isNull();
+    assertThat(retried.getPermanentFailureCount()).isEqualTo(0);
+  }
+
+  @Test
+  void handleFailure_leavesEventsSentOrReclaimedSinceTheFailureUntouched() {
+    // Given: failures journaled under a claim that has since been taken over or sent under
+    int maxRetries = processingConfig.getMaxPermanentRetries();
+    LocalDateTime claimedUntil = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MICROS);
+    OutboxEvent reclaimed = new OutboxEvent("Order", "A1", "OrderCreated", "{\"n\":1}");
+    OutboxEvent sent = new OutboxEvent("Order", "A2", "OrderCreated", "{\"n\":2}");
+    OutboxEvent released = new OutboxEvent("Order", "A3", "OrderCreated", "{\"n\":3}");
+    for (OutboxEvent event : List.of(reclaimed, sent, released)) {
+      outboxEventRepository.save(event);
+      event.setPermanentFailureCount(maxRetries - 1);
+      event.setInProgressUntil(claimedUntil);
+      outboxEventRepository.save(event);
+      outboxPayloadRepository.save(new OutboxPayload(event.getId(), event.getPayload()));
+    }
+    failureHandler.handleFailure(reclaimed, new IllegalStateException("No route"));
+    failureHandler.handleFailure(sent, new IllegalStateException("No route"));
+    failureHandler.handleFailure(released, new RuntimeException("Broker unavailable"));
+
+    LocalDateTime newClaim = claimedUntil.plusMinutes(5);
+    OutboxEvent takenOver = outboxEventRepository.findById(reclaimed.getId()).orElseThrow();
+    takenOver.setInProgressUntil(newClaim);
+    outboxEventRepository.save(takenOver);
+    OutboxEvent sentMeanwhile = outboxEventRepository.findById(sent.getId()).orElseThrow();
+    sentMeanwhile.setSentAt(LocalDateTime.now());
+    outboxEventRepository.save(sentMeanwhile);
+    OutboxEvent releasedClaim = outboxEventRepository.findById(released.getId()).orElseThrow();
+    releasedClaim.setInProgressUntil(newClaim);
+    outboxEventRepository.save(releasedClaim);
+
+    // When
+    failureHandler.flushFailureJournal();
+    entityManager.clear();
+
+    // Then: nothing was dead-lettered and the new claims and counts are kept
+    assertThat(deadLetterRepository.findAll()).isEmpty();
+    assertThat(outboxEventRepository.findById(reclaimed.getId()).orElseThrow())
+        .satisfies(
+            event -> {
+              assertThat(event.getInProgressUntil()).isEqualTo(newClaim);
+              assertThat(event.getPermanentFailureCount()).isEqualTo(maxRetries - 1);
+            });
+    assertThat(outboxEventRepository.findById(sent.getId()).orElseThrow())
+        .satisfies(
+            event -> {
+              assertThat(event.getSentAt()).isNotNull();
+              assertThat(event.getPermanentFailureCount()).isEqualTo(maxRetries - 1);
+            });
+    assertThat(outboxEventRepository.findById(released.getId()).orElseThrow().getInProgressUntil())
+        .isEqualTo(newClaim);
+  }
+
+  @Test
+  void handleFailure_neverQuarantinesOrDeadLettersAnEventWhoseClaimWasLost() {
+    // Given: two events failing with the same permanent error under one claim; the claim on one of
+    // them expires before the journal is applied, and the instance taking it over has already
+    // brought it to the retry limit
+    int maxRetries = processingConfig.getMaxPermanentRetries();
+    String message = "Schema rejected while the claim was lost";
+    Long fingerprintId =
+        errorFingerprintService.resolve(IllegalStateException.class.getName(), message);
+    long occurrencesBefore =
+        fingerprintRepository.findById(fingerprintId).orElseThrow().getOccurrenceCount();
+    LocalDateTime claimedUntil = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MICROS);
+    OutboxEvent lost = new OutboxEvent("Order", "A1", "OrderCreated", "{\"n\":1}");
+    OutboxEvent held = new OutboxEvent("Order", "A2", "OrderCreated", "{\"n\":2}");
+    for (OutboxEvent event : List.of(lost, held)) {
+      outboxEventRepository.save(event);
+      event.setInProgressUntil(claimedUntil);
+      outboxEventRepository.save(event);
+      outboxPayloadRepository.save(new OutboxPayload(event.getId(), event.getPayload()));
+    }
+    failureHandler.handleFailure(lost, new IllegalStateException(message));
+    failureHandler.handleFailure(held, new IllegalStateException(message));
+
+    LocalDateTime newClaim = claimedUntil.plusMinutes(5);
+    OutboxEvent takenOver = outboxEventRepository.findById(lost.getId()).orElseThrow();
+    takenOver.setInProgressUntil(newClaim);
+    takenOver.setPermanentFailureCount(maxRetries);
+    outboxEventRepository.save(takenOver);
+
+    // When
+    failureHandler.flushFailureJournal();
+    entityManager.clear();
+
+    // Then: the event taken over is left to its new owner
+    assertThat(deadLetterRepository.findAll()).isEmpty();
+    assertThat(quarantineRepository.findById(lost.getId())).isEmpty();
+    assertThat(outboxEventRepository.findById(lost.getId()).orElseThrow())
+        .satisfies(
+            event -> {
+              assertThat(event.getInProgressUntil()).isEqualTo(newClaim);
+              assertThat(event.getPermanentFailureCount()).isEqualTo(maxRetries);
+            });
+
+    // And: only the event still held had its failure recorded
+    assertThat(quarantineRepository.findById(held.getId())).isPresent();
+    assertThat(outboxEventRepository.findById(held.getId()).orElseThrow())
+        .satisfies(
+            event -> {
+              assertThat(event.getInProgressUntil()).isNull();
+              assertThat(event.getPermanentFailureCount()).isEqualTo(1);
+            });
+    assertThat(fingerprintRepository.findById(fingerprintId).orElseThrow().getOccurrenceCount())
+        .isEqualTo(occurrencesBefore + 1);
+  }
+
+  private ErrorFingerprint lastError(OutboxEvent event) {
+    return fingerprintRepository.findById(event.getLastErrorFingerprintId()).orElseThrow();
+  }
 }
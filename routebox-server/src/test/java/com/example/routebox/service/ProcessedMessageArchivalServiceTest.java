@@ -8,6 +8,7 @@ import com.example.routebox.common.repository.ProcessedMessageArchiveRepository;
 import com.example.routebox.common.repository.ProcessedMessageRepository;
 import com.example.routebox.server.RouteBoxServerApplication;
 import com.example.routebox.server.config.OutboxProcessingConfig;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -70,6 +71,63 @@ class ProcessedMessageArchivalServiceTest {
     assertThat(remainingMessages.get(0).getCorrelationId()).isEqualTo("corr-3");
   }
 
+  @Test
+  void archiveOldMessages_movesOldMessagesToTheArchive() {
+    // Given
+    ProcessedMessage oldMessage =
+        new ProcessedMessage("corr-1", "consumer-group-1", "OrderCreated", "Order", "A1");
+    oldMessage.setProcessedAt(
+        LocalDateTime.now().minusDays(processingConfig.getArchivalRetentionDays() + 2));
+    oldMessage = processedMessageRepository.save(oldMessage);
+
+    // When
+    archivalService.archiveOldMessages();
+
+    // Then
+    assertThat(processedMessageRepository.count()).isZero();
+    List<ProcessedMessageArchive> archived = processedMessageArchiveRepository.findAll();
+    assertThat(archived).hasSize(1);
+    assertThat(archived.get(0).getOriginalId()).isEqualTo(oldMessage.getId());
+    assertThat(archived.get(0).getCorrelationId()).isEqualTo("corr-1");
+    assertThat(archived.get(0).getArchivedAt()).isNotNull();
+  }
+
+  @Test
+  void manualArchive_archivesOldestFirstInChunks() {
+    // Given - Five old messages, two of them processed at the same time, and a recent one
+    LocalDateTime base = LocalDateTime.now().minusDays(20);
+    int[] dayOffsets = {0, 1, 1, 2, 3};
+    for (int i = 0; i < dayOffsets.length; i++) {
+      ProcessedMessage message =
+          new ProcessedMessage("corr-" + i, "consumer-group-1", "OrderCreated", "Order", "A" + i);
+      message.setProcessedAt(base.plusDays(dayOffsets[i]));
+      processedMessageRepository.save(message);
+    }
+    ProcessedMessage recentMessage =
+        new ProcessedMessage("corr-recent", "consumer-group-1", "OrderCreated", "Order", "A9");
+    recentMessage.setProcessedAt(LocalDateTime.now().minusDays(1));
+    processedMessageRepository.save(recentMessage);
+
+    int chunkSize = processingConfig.getArchivalChunkSize();
+    Duration chunkPause = processingConfig.getArchivalChunkPause();
+    processingConfig.setArchivalChunkSize(2);
+    processingConfig.setArchivalChunkPause(Duration.ZERO);
+    try {
+      // When
+      int archived = archivalService.manualArchive(7);
+
+      // Then - Chunks never split messages sharing a processing time
+      assertThat(archived).isEqualTo(5);
+    } finally {
+      processingConfig.setArchivalChunkSize(chunkSize);
+      processingConfig.setArchivalChunkPause(chunkPause);
+    }
+    assertThat(processedMessageArchiveRepository.count()).isEqualTo(5);
+    List<ProcessedMessage> remaining = processedMessageRepository.findAll();
+    assertThat(remaining).hasSize(1);
+    assertThat(remaining.get(0).getCorrelationId()).isEqualTo("corr-recent");
+  }
+
   @Test
   void archiveOldMessages_doesNothingWhenNoOldMessages() {
     // Given - Only recent messages